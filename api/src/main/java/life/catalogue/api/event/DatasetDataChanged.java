@@ -1,13 +1,32 @@
 package life.catalogue.api.event;
 
+import life.catalogue.api.model.DSID;
+
+import javax.annotation.Nullable;
+
 /**
  * Message to inform subscribers about a dataset that has changed data, e.g. to flush caches.
+ * If only the data of a single sector has changed, e.g. by a sector sync, the sector key is given.
  */
 public class DatasetDataChanged {
   public final int datasetKey;
+  @Nullable
+  public final Integer sectorKey;
 
   public DatasetDataChanged(int datasetKey) {
     this.datasetKey = datasetKey;
+    this.sectorKey = null;
   }
 
+  public DatasetDataChanged(DSID<Integer> sectorKey) {
+    this.datasetKey = sectorKey.getDatasetKey();
+    this.sectorKey = sectorKey.getId();
+  }
+
+  /**
+   * @return true if the entire dataset might have changed, not only a single sector
+   */
+  public boolean isDatasetChange() {
+    return sectorKey == null;
+  }
 }
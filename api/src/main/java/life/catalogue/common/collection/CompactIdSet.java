@@ -0,0 +1,136 @@
+package life.catalogue.common.collection;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.google.common.collect.Iterators;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * A memory efficient set of string identifiers.
+ * Identifiers which are plain non negative integers are kept as primitive ints.
+ * Other short identifiers of up to 10 ASCII letters, digits or hyphens, e.g. the base 36 ids "8K9W" used by CoL,
+ * are packed into primitive longs using 6 bits per character.
+ * All others are kept as strings in an open addressing hash set without per entry objects.
+ * A primitive entry takes around 5 (int) or 11 (long) bytes incl the empty slots of the hash table,
+ * a short string around 50 bytes for the String object, its byte array and the table slot.
+ * Null values are silently ignored.
+ *
+ * Not thread safe.
+ */
+public class CompactIdSet implements Iterable<String> {
+  private static final String CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-";
+  private static final int MAX_PACKED_LENGTH = 10;
+  private final IntOpenHashSet ints = new IntOpenHashSet();
+  private final LongOpenHashSet longs = new LongOpenHashSet();
+  private final ObjectOpenHashSet<String> strings = new ObjectOpenHashSet<>();
+
+  /**
+   * @return true if the id was not yet contained in the set
+   */
+  public boolean add(String id) {
+    if (id == null) {
+      return false;
+    }
+    int x = toInt(id);
+    if (x >= 0) {
+      return ints.add(x);
+    }
+    long l = pack(id);
+    return l > 0 ? longs.add(l) : strings.add(id);
+  }
+
+  public void addAll(Collection<String> ids) {
+    if (ids != null) {
+      ids.forEach(this::add);
+    }
+  }
+
+  public boolean contains(String id) {
+    if (id == null) {
+      return false;
+    }
+    int x = toInt(id);
+    if (x >= 0) {
+      return ints.contains(x);
+    }
+    long l = pack(id);
+    return l > 0 ? longs.contains(l) : strings.contains(id);
+  }
+
+  public int size() {
+    return ints.size() + longs.size() + strings.size();
+  }
+
+  public boolean isEmpty() {
+    return ints.isEmpty() && longs.isEmpty() && strings.isEmpty();
+  }
+
+  public void clear() {
+    ints.clear();
+    longs.clear();
+    strings.clear();
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return Iterators.concat(
+      Iterators.transform(ints.iterator(), String::valueOf),
+      Iterators.transform(longs.iterator(), CompactIdSet::unpack),
+      strings.iterator()
+    );
+  }
+
+  /**
+   * @return the int value of a canonical integer string without leading zeros or -1 if the string is no such integer.
+   */
+  private static int toInt(String id) {
+    final int len = id.length();
+    if (len == 0 || len > 10 || (len > 1 && id.charAt(0) == '0')) {
+      return -1;
+    }
+    long x = 0;
+    for (int i = 0; i < len; i++) {
+      char c = id.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      x = x * 10 + (c - '0');
+    }
+    return x > Integer.MAX_VALUE ? -1 : (int) x;
+  }
+
+  /**
+   * Packs a short identifier into a positive long using 6 bits per character with codes starting at 1,
+   * so the length is implicit and no two identifiers share the same value.
+   * @return the packed identifier or -1 if the string is empty, too long or contains other characters
+   */
+  private static long pack(String id) {
+    final int len = id.length();
+    if (len == 0 || len > MAX_PACKED_LENGTH) {
+      return -1;
+    }
+    long x = 0;
+    for (int i = 0; i < len; i++) {
+      int code = CHARS.indexOf(id.charAt(i));
+      if (code < 0) {
+        return -1;
+      }
+      x = (x << 6) | (code + 1);
+    }
+    return x;
+  }
+
+  private static String unpack(long x) {
+    char[] chars = new char[MAX_PACKED_LENGTH];
+    int idx = MAX_PACKED_LENGTH;
+    while (x != 0) {
+      chars[--idx] = CHARS.charAt((int) (x & 63) - 1);
+      x >>>= 6;
+    }
+    return new String(chars, idx, MAX_PACKED_LENGTH - idx);
+  }
+}
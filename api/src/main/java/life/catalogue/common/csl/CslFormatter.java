@@ -1,14 +1,22 @@
 package life.catalogue.common.csl;
 
 import life.catalogue.api.model.CslData;
+import life.catalogue.common.lang.InterruptedRuntimeException;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import de.undercouch.citeproc.CSL;
 import de.undercouch.citeproc.ItemDataProvider;
 import de.undercouch.citeproc.csl.CSLItemData;
@@ -17,11 +25,20 @@ import de.undercouch.citeproc.csl.CSLItemDataBuilder;
 /**
  * A formatter for single CSL items according to a specific citation style.
  * Reuse the instance for the same style or consider to use the static CslUtils!
+ *
+ * The citeproc engine is not thread safe, so the formatter keeps a small pool of engines
+ * which are created lazily up to a maximum pool size. Concurrent callers only block if all engines are in use.
+ * Rendered citations are cached in a bounded cache keyed by the item content.
  */
 public class CslFormatter {
   private static final Logger LOG = LoggerFactory.getLogger(CslFormatter.class);
-  private final SingleItemProvider provider = new SingleItemProvider();
-  private final CSL csl;
+  private static final int DEFAULT_POOL_SIZE = Math.min(4, Runtime.getRuntime().availableProcessors());
+  private static final int DEFAULT_CACHE_SIZE = 10000;
+  private static final String KEY = "1";
+  private final BlockingQueue<Engine> pool;
+  private final int poolSize;
+  private final AtomicInteger engines = new AtomicInteger();
+  private final Cache<CSLItemData, String> cache;
   public final FORMAT format;
   public final STYLE style;
 
@@ -29,27 +46,8 @@ public class CslFormatter {
   public enum STYLE {APA, CSE, IEEE, MLA, CHICAGO, HARVARD, EJT, TAXON}
 
   static class SingleItemProvider implements ItemDataProvider {
-    private static final String KEY = "1";
     private CSLItemData data;
 
-    public String setData(CslData data) {
-      final String idOrig = data.getId();
-      try {
-        data.setId(KEY);
-        this.data = CslDataConverter.toCSLItemData(data);
-      } finally {
-        data.setId(idOrig);
-      }
-      return KEY;
-    }
-
-    public String setData(CSLItemData data) {
-      CSLItemDataBuilder builder = new CSLItemDataBuilder(data);
-      builder.id(KEY);
-      this.data = builder.build();
-      return KEY;
-    }
-
     @Override
     public CSLItemData retrieveItem(String id) {
       return data;
@@ -61,45 +59,114 @@ public class CslFormatter {
     }
   }
 
-  public CslFormatter(STYLE style, FORMAT format) {
-    this.format = format;
-    this.style = style;
-    try {
-      csl = new CSL(provider, "/csl-styles/" + style.name().toLowerCase() + ".csl");
-      csl.setOutputFormat(format.name().toLowerCase());
-    } catch (IOException e) {
-      throw new IllegalStateException(style + " CSL processor could not be created", e);
+  /**
+   * A single citeproc engine with its own item provider. Not thread safe.
+   */
+  private static class Engine {
+    private final SingleItemProvider provider = new SingleItemProvider();
+    private final CSL csl;
+
+    Engine(STYLE style, FORMAT format) {
+      try {
+        csl = new CSL(provider, "/csl-styles/" + style.name().toLowerCase() + ".csl");
+        csl.setOutputFormat(format.name().toLowerCase());
+      } catch (IOException e) {
+        throw new IllegalStateException(style + " CSL processor could not be created", e);
+      }
+    }
+
+    String cite(CSLItemData data) {
+      provider.data = data;
+      try {
+        csl.registerCitationItems(KEY);
+        String[] entries = csl.makeBibliography().getEntries();
+        return entries == null || entries.length==0 ? null : customCleaning(entries[0].trim());
+
+      } catch (RuntimeException e) {
+        LOG.warn("Failed to create citation", e);
+        return null;
+      } finally {
+        provider.data = null;
+      }
     }
   }
 
+  public CslFormatter(STYLE style, FORMAT format) {
+    this(style, format, DEFAULT_POOL_SIZE, DEFAULT_CACHE_SIZE);
+  }
+
   /**
-   * A synchronised method to build a single citation string in the formatters citation style.
-   * The method is thread safe and although the method is rather slow it had to be synchronized in its entire call.
-   * The first time this is called it is rather slow.
+   * @param poolSize maximum number of citeproc engines to use concurrently
+   * @param cacheSize maximum number of rendered citations to keep in memory, zero disables caching
    */
-  public synchronized String cite(CslData data) {
-    String key = provider.setData(data);
-    return cite(key);
+  public CslFormatter(STYLE style, FORMAT format, int poolSize, int cacheSize) {
+    Preconditions.checkArgument(poolSize > 0, "Pool size must be at least 1");
+    this.format = format;
+    this.style = style;
+    this.poolSize = poolSize;
+    this.pool = new ArrayBlockingQueue<>(poolSize);
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .build();
+    // create the first engine eagerly so broken styles fail early
+    pool.add(new Engine(style, format));
+    engines.set(1);
   }
 
-  public synchronized String cite(CSLItemData data) {
-    String key = provider.setData(data);
-    return cite(key);
+  /**
+   * Builds a single citation string in the formatters citation style.
+   * The method is thread safe. Building a citation is rather slow, especially the first time an engine is used,
+   * but repeated calls for the same content are served from a cache.
+   * The given data is not modified.
+   */
+  public String cite(CslData data) {
+    return cite(CslDataConverter.toCSLItemData(data));
   }
 
-  private String cite(String key){
-    if (CslUtil.isEmpty(provider.data)) {
+  public String cite(CSLItemData data) {
+    if (CslUtil.isEmpty(data)) {
       return null;
     }
-    csl.registerCitationItems(key);
-    try {
-      String[] entries = csl.makeBibliography().getEntries();
-      return entries == null || entries.length==0 ? null : customCleaning(entries[0].trim());
+    // copy the item with the fixed key so the cache only depends on the content
+    data = new CSLItemDataBuilder(data).id(KEY).build();
+    String citation = cache.getIfPresent(data);
+    if (citation == null) {
+      Engine engine = borrow();
+      try {
+        citation = engine.cite(data);
+      } finally {
+        pool.offer(engine);
+      }
+      if (citation != null) {
+        cache.put(data, citation);
+      }
+    }
+    return citation;
+  }
 
-    } catch (RuntimeException e) {
-      LOG.warn("Failed to create citation", e);
-      return null;
+  /**
+   * @return an idle engine, a new one if the pool is not yet exhausted or waits for the next one to be released
+   */
+  private Engine borrow() {
+    Engine engine = pool.poll();
+    if (engine == null) {
+      int cnt = engines.get();
+      if (cnt < poolSize && engines.compareAndSet(cnt, cnt + 1)) {
+        try {
+          return new Engine(style, format);
+        } catch (RuntimeException e) {
+          // free the slot again so later calls can retry or wait for existing engines
+          engines.decrementAndGet();
+          throw e;
+        }
+      }
+      try {
+        engine = pool.take();
+      } catch (InterruptedException e) {
+        throw new InterruptedRuntimeException(e);
+      }
     }
+    return engine;
   }
 
   /**
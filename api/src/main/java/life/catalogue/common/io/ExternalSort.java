@@ -0,0 +1,143 @@
+package life.catalogue.common.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Sorts the lines of large text files by their natural java string order using bounded memory.
+ * The input is read in chunks which are sorted in memory and written to temporary files,
+ * which are finally merged into a single sorted file.
+ *
+ * Blank lines are removed. The input can be plain or gzip compressed,
+ * the sorted output is always plain UTF-8 text.
+ *
+ * In contrast to the unix sort command the result does not depend on the locale settings of the platform.
+ */
+public class ExternalSort {
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalSort.class);
+  public static final int DEFAULT_CHUNK_SIZE = 250_000;
+
+  private final int chunkSize;
+
+  public ExternalSort() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize maximum number of lines to keep in memory
+   */
+  public ExternalSort(int chunkSize) {
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Sorts a file into a new temporary file which the caller is responsible to delete.
+   */
+  public File sort(File in) throws IOException {
+    File out = File.createTempFile("sorted-", ".txt");
+    out.deleteOnExit();
+    sort(in, out);
+    return out;
+  }
+
+  /**
+   * Sorts the lines of the input file into the output file, which can be the same file.
+   */
+  public void sort(File in, File out) throws IOException {
+    List<File> chunks = new ArrayList<>();
+    try {
+      try (BufferedReader br = UTF8IoUtils.readerFromMaybeGzipFile(in)) {
+        List<String> lines = new ArrayList<>(Math.min(chunkSize, 10_000));
+        String line;
+        while ((line = br.readLine()) != null) {
+          if (!line.isBlank()) {
+            lines.add(line);
+            if (lines.size() >= chunkSize) {
+              chunks.add(writeChunk(lines));
+              lines.clear();
+            }
+          }
+        }
+        if (!lines.isEmpty() || chunks.isEmpty()) {
+          chunks.add(writeChunk(lines));
+        }
+      }
+      LOG.debug("Merge {} sorted chunks of {}", chunks.size(), in);
+      merge(chunks, out);
+
+    } finally {
+      chunks.forEach(File::delete);
+    }
+  }
+
+  private static File writeChunk(List<String> lines) throws IOException {
+    lines.sort(null);
+    File f = File.createTempFile("sort-chunk-", ".txt");
+    f.deleteOnExit();
+    try (BufferedWriter w = UTF8IoUtils.writerFromFile(f)) {
+      for (String l : lines) {
+        w.write(l);
+        w.write('\n');
+      }
+    }
+    return f;
+  }
+
+  private static class ChunkReader implements Comparable<ChunkReader> {
+    final BufferedReader reader;
+    String line;
+
+    ChunkReader(File f) throws IOException {
+      reader = UTF8IoUtils.readerFromFile(f);
+      line = reader.readLine();
+    }
+
+    boolean next() throws IOException {
+      line = reader.readLine();
+      return line != null;
+    }
+
+    @Override
+    public int compareTo(ChunkReader o) {
+      return line.compareTo(o.line);
+    }
+  }
+
+  private static void merge(List<File> chunks, File out) throws IOException {
+    PriorityQueue<ChunkReader> queue = new PriorityQueue<>(chunks.size());
+    List<ChunkReader> readers = new ArrayList<>(chunks.size());
+    try (Writer w = UTF8IoUtils.writerFromFile(out)) {
+      for (File f : chunks) {
+        ChunkReader r = new ChunkReader(f);
+        readers.add(r);
+        if (r.line != null) {
+          queue.add(r);
+        }
+      }
+      while (!queue.isEmpty()) {
+        ChunkReader r = queue.poll();
+        w.write(r.line);
+        w.write('\n');
+        if (r.next()) {
+          queue.add(r);
+        }
+      }
+    } finally {
+      for (ChunkReader r : readers) {
+        r.reader.close();
+      }
+    }
+  }
+}
@@ -38,6 +38,21 @@ public class UTF8IoUtils {
   public static BufferedReader readerFromFile(File f) throws IOException {
     return readerFromStream(new FileInputStream(f));
   }
+
+  /**
+   * Opens a reader for a plain or gzip compressed file, detecting the compression by the gzip magic bytes.
+   */
+  public static BufferedReader readerFromMaybeGzipFile(File f) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(f));
+    in.mark(2);
+    int b1 = in.read();
+    int b2 = in.read();
+    in.reset();
+    if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+      in = new GZIPInputStream(in);
+    }
+    return readerFromStream(in);
+  }
   
   public static BufferedReader readerFromStream(InputStream stream) {
     return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
@@ -0,0 +1,58 @@
+package life.catalogue.common.collection;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompactIdSetTest {
+
+  @Test
+  public void addContains() {
+    CompactIdSet ids = new CompactIdSet();
+    assertTrue(ids.isEmpty());
+    assertFalse(ids.add(null));
+
+    assertTrue(ids.add("1"));
+    assertFalse(ids.add("1"));
+    assertTrue(ids.add("01"));
+    assertTrue(ids.add("0"));
+    assertTrue(ids.add("2147483647"));
+    assertTrue(ids.add("2147483648"));
+    assertTrue(ids.add("-3"));
+    assertTrue(ids.add("4QHKG"));
+    assertTrue(ids.add(""));
+    assertTrue(ids.add("8K9W"));
+    assertTrue(ids.add("8k9w"));
+    assertTrue(ids.add("zzzzzzzzzz"));
+    assertTrue(ids.add("---"));
+    assertTrue(ids.add("zzzzzzzzzzz"));
+    assertTrue(ids.add("urn:lsid:1"));
+    ids.addAll(List.of("4QHKG", "1", "12", "8K9W"));
+    assertEquals(15, ids.size());
+
+    assertTrue(ids.contains("1"));
+    assertTrue(ids.contains("01"));
+    assertTrue(ids.contains("2147483648"));
+    assertTrue(ids.contains("4QHKG"));
+    assertTrue(ids.contains("8K9W"));
+    assertTrue(ids.contains("zzzzzzzzzz"));
+    assertTrue(ids.contains("zzzzzzzzzzz"));
+    assertFalse(ids.contains("8K9"));
+    assertFalse(ids.contains("08K9W"));
+    assertFalse(ids.contains("001"));
+    assertFalse(ids.contains("3"));
+    assertFalse(ids.contains(null));
+
+    Set<String> copy = new HashSet<>();
+    ids.forEach(copy::add);
+    assertEquals(Set.of("0", "1", "01", "12", "2147483647", "2147483648", "-3", "4QHKG", "",
+      "8K9W", "8k9w", "zzzzzzzzzz", "---", "zzzzzzzzzzz", "urn:lsid:1"), copy);
+
+    ids.clear();
+    assertTrue(ids.isEmpty());
+  }
+}
@@ -2,6 +2,8 @@ package life.catalogue.common.csl;
 
 import life.catalogue.api.jackson.ApiModule;
 import life.catalogue.api.model.Citation;
+import life.catalogue.api.model.CslData;
+import life.catalogue.api.model.CslName;
 import life.catalogue.api.model.Dataset;
 import life.catalogue.common.io.Resources;
 import life.catalogue.common.io.UTF8IoUtils;
@@ -10,8 +12,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -26,6 +32,7 @@ import de.undercouch.citeproc.csl.CSLType;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 public class CslFormatterTest {
 
@@ -130,6 +137,54 @@ public class CslFormatterTest {
     assertEquals("Minslow, S. (2017). The Diary of a Young Girl and children’s literature of atrocity. In E. Döring (Ed.), Critical Insights: The Diary of a Young Girl (pp. 60–75). Grey House.", text.cite(builder.build()));
   }
 
+  @Test
+  public void concurrentCitations() throws Exception {
+    var text = new CslFormatter(CslFormatter.STYLE.APA, CslFormatter.FORMAT.TEXT, 3, 100);
+    List<CSLItemData> items = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      items.add(new CSLItemDataBuilder()
+        .type(CSLType.BOOK)
+        .title("Flora of Europe vol. " + i)
+        .author("Peter", "Smith")
+        .issued(1990 + i)
+        .build()
+      );
+    }
+    List<String> expected = items.stream().map(text::cite).collect(Collectors.toList());
+
+    ExecutorService exec = Executors.newFixedThreadPool(6);
+    List<Future<String>> results = new ArrayList<>();
+    for (int rep = 0; rep < 5; rep++) {
+      for (CSLItemData item : items) {
+        results.add(exec.submit(() -> text.cite(item)));
+      }
+    }
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(expected.get(i % items.size()), results.get(i).get());
+    }
+    exec.shutdown();
+    assertEquals("Smith, P. (1993). Flora of Europe vol. 3.", expected.get(3));
+  }
+
+  @Test
+  public void citeKeepsId() throws Exception {
+    CslData data = new CslData();
+    data.setId("my-id");
+    data.setType(CSLType.BOOK);
+    data.setTitle("Flora of Europe");
+    data.setAuthor(new CslName[]{new CslName("Peter", "Smith")});
+
+    var text = new CslFormatter(CslFormatter.STYLE.APA, CslFormatter.FORMAT.TEXT);
+    String x = text.cite(data);
+    assertNotNull(x);
+    assertEquals("my-id", data.getId());
+
+    // the same content with another id is served from the cache
+    data.setId("other");
+    assertEquals(x, text.cite(data));
+    assertEquals("other", data.getId());
+  }
+
   /**
    * Not a CSL test really, but the BibTeX
    * @throws IOException
@@ -0,0 +1,54 @@
+package life.catalogue.common.io;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExternalSortTest {
+
+  @Test
+  public void sort() throws Exception {
+    File in = File.createTempFile("sort-test-", ".txt.gz");
+    try {
+      Random rnd = new Random(7);
+      List<String> expected = new ArrayList<>();
+      try (Writer w = UTF8IoUtils.writerFromGzipFile(in)) {
+        for (int i = 0; i < 1000; i++) {
+          String x = "Abies " + rnd.nextInt(500);
+          expected.add(x);
+          w.write(x + "\n");
+          if (i % 100 == 0) {
+            w.write("\n");
+          }
+        }
+      }
+      expected.sort(null);
+
+      // small chunks to force merging of many files
+      File out = new ExternalSort(33).sort(in);
+      assertEquals(expected, Files.readAllLines(out.toPath()));
+      out.delete();
+
+    } finally {
+      in.delete();
+    }
+  }
+
+  @Test
+  public void empty() throws Exception {
+    File in = File.createTempFile("sort-test-", ".txt");
+    try {
+      new ExternalSort().sort(in, in);
+      assertEquals(0, in.length());
+    } finally {
+      in.delete();
+    }
+  }
+}
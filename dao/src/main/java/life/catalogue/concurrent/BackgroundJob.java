@@ -68,6 +68,13 @@ public abstract class BackgroundJob implements Runnable {
     this.cfg = cfg;
   }
 
+  /**
+   * @return the job configuration set by the executor or null if the job is run directly
+   */
+  protected JobConfig getCfg() {
+    return cfg;
+  }
+
   void setUser(User user) {
     this.user = user;
   }
@@ -57,6 +57,48 @@ public class JobConfig {
   @Min(1)
   public int queue = 1000;
 
+  /**
+   * Number of threads a single archive export uses to read its data files concurrently from postgres.
+   * Each thread uses its own database connection.
+   */
+  @Min(1)
+  public int exportThreads = 4;
+
+  /**
+   * Number of threads a single rematch job uses to match names against the names index.
+   * Datasets are rematched concurrently, each using its own database connections.
+   */
+  @Min(1)
+  public int rematchThreads = 4;
+
+  /**
+   * Number of threads a project release or duplication uses to copy tables and build their indices concurrently.
+   * Each thread uses its own database connection.
+   */
+  @Min(1)
+  public int copyThreads = 4;
+
+  /**
+   * Optional directory to cache the data files of full dataset exports for each import attempt,
+   * so they can be reused by later full exports of the same attempt and format.
+   * Filtered, Excel and ACEF exports are never cached and always read from postgres.
+   * If not given no exports are cached.
+   */
+  public File exportCacheDir;
+
+  /**
+   * Maximum total size of the export cache in megabytes.
+   * Least recently used entries are evicted once the cache grows beyond.
+   */
+  @Min(1)
+  public int exportCacheMaxSize = 50000;
+
+  /**
+   * Maximum number of days a cached export is kept since it was last used.
+   */
+  @Min(1)
+  public int exportCacheMaxAge = 90;
+
   public String onErrorTo;
 
   public String onErrorFrom;
@@ -0,0 +1,126 @@
+package life.catalogue.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Applies a function to a sequence of items using a bounded pool of worker threads
+ * and passes the results on to a consumer in the exact same order as the input.
+ *
+ * Items are grouped into batches which are processed as a single task.
+ * At most 2 batches per thread are in flight at any time, so the producer is blocked
+ * when the workers cannot keep up and memory stays bounded.
+ *
+ * The consumer is always called from the thread calling {@link #process(Iterator, Consumer)}
+ * and therefore does not need to be thread safe. The mapping function must be.
+ */
+public class ParallelOrderedMapper<I, O> implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelOrderedMapper.class);
+
+  private final ExecutorService exec;
+  private final Function<List<I>, List<O>> func;
+  private final int batchSize;
+  private final int maxInFlight;
+
+  /**
+   * @param name the thread pool name
+   * @param threads number of worker threads
+   * @param batchSize number of items processed as one task
+   * @param func the thread safe mapping function
+   */
+  public ParallelOrderedMapper(String name, int threads, int batchSize, Function<I, O> func) {
+    this(batchFunction(func), name, threads, batchSize);
+  }
+
+  /**
+   * Creates a mapper that hands entire batches to the mapping function,
+   * e.g. to share lookups between all items of a batch.
+   *
+   * @param name the thread pool name
+   * @param threads number of worker threads
+   * @param batchSize number of items processed as one task
+   * @param batchFunc the thread safe mapping function for an entire batch which must return results in the same order
+   */
+  public static <I, O> ParallelOrderedMapper<I, O> batched(String name, int threads, int batchSize, Function<List<I>, List<O>> batchFunc) {
+    return new ParallelOrderedMapper<>(batchFunc, name, threads, batchSize);
+  }
+
+  private ParallelOrderedMapper(Function<List<I>, List<O>> batchFunc, String name, int threads, int batchSize) {
+    Preconditions.checkArgument(threads > 0, "At least one thread required");
+    Preconditions.checkArgument(batchSize > 0, "Batch size must be positive");
+    this.func = Preconditions.checkNotNull(batchFunc);
+    this.batchSize = batchSize;
+    this.maxInFlight = 2 * threads;
+    this.exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(name));
+  }
+
+  /**
+   * Maps all items and sends them to the consumer in the original input order.
+   * Any exception thrown by the mapping function is rethrown by this method.
+   *
+   * @return number of processed items
+   */
+  public int process(Iterator<I> items, Consumer<O> consumer) throws InterruptedException {
+    final ArrayDeque<Future<List<O>>> inFlight = new ArrayDeque<>(maxInFlight);
+    int counter = 0;
+    try {
+      while (items.hasNext()) {
+        List<I> batch = new ArrayList<>(batchSize);
+        while (items.hasNext() && batch.size() < batchSize) {
+          batch.add(items.next());
+        }
+        counter += batch.size();
+        if (inFlight.size() >= maxInFlight) {
+          emit(inFlight.removeFirst(), consumer);
+        }
+        inFlight.addLast(exec.submit(() -> func.apply(batch)));
+      }
+      while (!inFlight.isEmpty()) {
+        emit(inFlight.removeFirst(), consumer);
+      }
+      return counter;
+
+    } finally {
+      // cancel remaining batches in case of errors
+      inFlight.forEach(f -> f.cancel(true));
+    }
+  }
+
+  private static <I, O> Function<List<I>, List<O>> batchFunction(Function<I, O> func) {
+    Preconditions.checkNotNull(func);
+    return batch -> {
+      List<O> results = new ArrayList<>(batch.size());
+      for (I item : batch) {
+        results.add(func.apply(item));
+      }
+      return results;
+    };
+  }
+
+  private void emit(Future<List<O>> f, Consumer<O> consumer) throws InterruptedException {
+    try {
+      f.get().forEach(consumer);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    LOG.debug("Shutting down parallel mapper");
+    ExecutorUtils.shutdown(exec, 1, TimeUnit.MINUTES);
+  }
+}
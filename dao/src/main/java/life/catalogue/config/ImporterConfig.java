@@ -24,7 +24,20 @@ public class ImporterConfig {
    */
   @Min(100)
   public int maxQueue = 1000;
-  
+
+  /**
+   * Number of threads a single import uses to concurrently insert independent entities into postgres.
+   * Each thread uses its own database connection.
+   * Use 1 to insert everything sequentially.
+   */
+  @Min(1)
+  public int pgThreads = 3;
+
+  /**
+   * If true verbatim records are streamed into postgres via the COPY command instead of batched inserts.
+   * The neo store keys are used as the verbatim ids directly, the id sequence is updated afterwards.
+   */
+  public boolean pgCopy = true;
 
 
   /**
@@ -53,6 +53,19 @@ public class NormalizerConfig {
   
   @Min(0)
   public int mappedMemory = 128;
+
+  /**
+   * Number of threads used to interpret name and usage records concurrently while inserting them, mostly spent on name parsing.
+   * Use 1 to interpret all records sequentially.
+   */
+  @Min(1)
+  public int interpreterThreads = 4;
+
+  /**
+   * Number of threads used to match names against the names index concurrently.
+   */
+  @Min(1)
+  public int matcherThreads = 4;
   
   /**
    * The dataset source files as a single archive in original format (zip, gzip, etc).
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 /**
@@ -17,6 +18,9 @@ public class ReleaseConfig {
   public int start = 0;
   // nidx deduplication workaround - should be fixed by now so not enabled by default
   public boolean nidxDeduplication = false;
+  // number of threads to match canonical name groups against previously released ids
+  @Min(1)
+  public int idThreads = 4;
 
   @NotNull
   public File reportDir = new File("/tmp/col/release");
@@ -9,6 +9,7 @@ import life.catalogue.api.vocab.*;
 import life.catalogue.common.lang.Exceptions;
 import life.catalogue.db.mapper.DatasetImportMapper;
 import life.catalogue.db.mapper.DatasetMapper;
+import life.catalogue.db.type2.MetricCount;
 import life.catalogue.db.type2.StringCount;
 
 import org.gbif.dwc.terms.Term;
@@ -22,6 +23,9 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
 
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -147,9 +151,24 @@ public class DatasetImportDao {
    * @param key the dataset key to analyze the data from. Should be the release datasetKey for releases
    */
   public void updateMetrics(DatasetImport di, int key) {
+    updateMetrics(di, key, null);
+  }
+
+  /**
+   * Update all metrics for the given dataset import and dataset key,
+   * using the metrics accumulated while writing the data if given instead of analyzing the persisted data.
+   *
+   * @param di import to update
+   * @param key the dataset key to analyze the data from. Should be the release datasetKey for releases
+   * @param collector optional metrics collected while writing all data of the dataset
+   */
+  public void updateMetrics(DatasetImport di, int key, @Nullable ImportMetricsCollector collector) {
     try (SqlSession session = factory.openSession(true)) {
-      DatasetImportMapper mapper = session.getMapper(DatasetImportMapper.class);
-      updateMetrics(mapper, di, key);
+      if (collector != null) {
+        collector.fill(di);
+      } else {
+        updateMetrics(session.getMapper(DatasetImportMapper.class), di, key);
+      }
 
       Exceptions.runtimeInterruptIfCancelled();
       fileMetricsDao.updateTree(key, di.getDatasetKey(), di.getAttempt());
@@ -162,49 +181,113 @@ public class DatasetImportDao {
   }
 
   /**
+   * Generates all metrics from the persisted data, scanning each table only once.
+   *
    * @param di import to update
    * @param key the dataset key to analyze the data from
    */
   private void updateMetrics(DatasetImportMapper mapper, DatasetImport di, int key) {
     di.setBareNameCount(mapper.countBareName(key));
-    di.setDistributionCount(mapper.countDistribution(key));
     di.setEstimateCount(mapper.countEstimate(key));
-    di.setMediaCount(mapper.countMedia(key));
-    di.setNameCount(mapper.countName(key));
     di.setReferenceCount(mapper.countReference(key));
-    di.setSynonymCount(mapper.countSynonym(key));
-    di.setTaxonCount(mapper.countTaxon(key));
     di.setTreatmentCount(mapper.countTreatment(key));
-    di.setTypeMaterialCount(mapper.countTypeMaterial(key));
-    di.setVerbatimCount(mapper.countVerbatim(key));
-    di.setVernacularCount(mapper.countVernacular(key));
 
-    di.setDistributionsByGazetteerCount(countMap(Gazetteer.class, mapper.countDistributionsByGazetteer(key)));
-    di.setExtinctTaxaByRankCount(countMap(DatasetImportDao::parseRank, mapper.countExtinctTaxaByRank(key)));
-    di.setIssuesCount(countMap(Issue.class, mapper.countIssues(key)));
-    di.setMediaByTypeCount(countMap(MediaType.class, mapper.countMediaByType(key)));
+    // totals are the sum of all groups incl null keys
+    List<StringCount> counts = mapper.countDistributionsByGazetteer(key);
+    di.setDistributionCount(sum(counts));
+    di.setDistributionsByGazetteerCount(countMap(Gazetteer.class, counts));
+
+    counts = mapper.countMediaByType(key);
+    di.setMediaCount(sum(counts));
+    di.setMediaByTypeCount(countMap(MediaType.class, counts));
+
+    counts = mapper.countTypeMaterialByStatus(key);
+    di.setTypeMaterialCount(sum(counts));
+    di.setTypeMaterialByStatusCount(countMap(TypeStatus.class, counts));
+
+    counts = mapper.countVernacularsByLanguage(key);
+    di.setVernacularCount(sum(counts));
+    di.setVernacularsByLanguageCount(countMap(counts));
+
     di.setNameRelationsByTypeCount(countMap(NomRelType.class, mapper.countNameRelationsByType(key)));
-    di.setNamesByCodeCount(countMap(NomCode.class, mapper.countNamesByCode(key)));
-    di.setNamesByRankCount(countMap(DatasetImportDao::parseRank, mapper.countNamesByRank(key)));
-    di.setNamesByStatusCount(countMap(NomStatus.class, mapper.countNamesByStatus(key)));
-    di.setNamesByTypeCount(countMap(NameType.class, mapper.countNamesByType(key)));
     di.setSpeciesInteractionsByTypeCount(countMap(SpeciesInteractionType.class, mapper.countSpeciesInteractionsByType(key)));
-    di.setSynonymsByRankCount(countMap(DatasetImportDao::parseRank, mapper.countSynonymsByRank(key)));
-    di.setTaxaByRankCount(countMap(DatasetImportDao::parseRank, mapper.countTaxaByRank(key)));
     di.setTaxonConceptRelationsByTypeCount(countMap(TaxonConceptRelType.class, mapper.countTaxonConceptRelationsByType(key)));
-    di.setTypeMaterialByStatusCount(countMap(TypeStatus.class, mapper.countTypeMaterialByStatus(key)));
-    di.setUsagesByOriginCount(countMap(Origin.class, mapper.countUsagesByOrigin(key)));
-    di.setUsagesByStatusCount(countMap(TaxonomicStatus.class, mapper.countUsagesByStatus(key)));
-    di.setVerbatimByTermCount(countMap(DatasetImportDao::parseRowType, mapper.countVerbatimByType(key)));
-    di.setVernacularsByLanguageCount(countMap(mapper.countVernacularsByLanguage(key)));
 
+    Map<String, List<StringCount>> metrics = byMetric(mapper.countNameMetrics(key));
+    di.setNameCount(sum(metric(metrics, "rank")));
+    di.setNamesByCodeCount(countMap(NomCode.class, metric(metrics, "code")));
+    di.setNamesByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "rank")));
+    di.setNamesByStatusCount(countMap(NomStatus.class, metric(metrics, "status")));
+    di.setNamesByTypeCount(countMap(NameType.class, metric(metrics, "type")));
+
+    metrics = byMetric(mapper.countUsageMetrics(key));
+    di.setTaxonCount(sum(metric(metrics, "taxonRank")));
+    di.setSynonymCount(sum(metric(metrics, "synonymRank")));
+    di.setExtinctTaxaByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "extinctRank")));
+    di.setSynonymsByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "synonymRank")));
+    di.setTaxaByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "taxonRank")));
+    di.setUsagesByOriginCount(countMap(Origin.class, metric(metrics, "origin")));
+    di.setUsagesByStatusCount(countMap(TaxonomicStatus.class, metric(metrics, "status")));
+
+    updateVerbatimMetrics(di, mapper.countVerbatimMetrics(key));
+  }
+
+  private static void updateVerbatimMetrics(DatasetImport di, List<MetricCount> counts) {
+    int total = 0;
+    List<StringCount> byType = new ArrayList<>();
+    Map<String, Integer> issues = new HashMap<>();
+    Map<String, List<StringCount>> terms = new HashMap<>();
+    for (MetricCount mc : counts) {
+      switch (mc.getMetric()) {
+        case "type":
+          total += mc.getCount();
+          byType.add(new StringCount(mc.getRowType(), mc.getCount()));
+          break;
+        case "issue":
+          // issues are counted per row type
+          issues.merge(mc.getKey(), mc.getCount(), Integer::sum);
+          break;
+        case "term":
+          if (mc.getRowType() != null) {
+            terms.computeIfAbsent(mc.getRowType(), k -> new ArrayList<>()).add(mc);
+          }
+          break;
+      }
+    }
+    di.setVerbatimCount(total);
+    di.setVerbatimByTermCount(countMap(DatasetImportDao::parseRowType, byType));
+    di.setIssuesCount(countMap(Issue.class, issues.entrySet().stream()
+      .map(e -> new StringCount(e.getKey(), e.getValue()))
+      .collect(Collectors.toList())
+    ));
     // verbatim term metrics for each row type
-    for (Term rowType : di.getVerbatimByTermCount().keySet()) {
-      Map<Term, Integer> terms = countMap(DatasetImportDao::parseTerm, mapper.countVerbatimTerms(key, rowType));
-      if (!terms.isEmpty()) {
-        di.getVerbatimByRowTypeCount().put(rowType, terms);
+    di.getVerbatimByRowTypeCount().clear();
+    terms.forEach((rowType, termCounts) -> {
+      Map<Term, Integer> termMap = countMap(DatasetImportDao::parseTerm, termCounts);
+      if (!termMap.isEmpty()) {
+        parseRowType(rowType).ifPresent(rt -> di.getVerbatimByRowTypeCount().put(rt, termMap));
       }
+    });
+  }
+
+  static Map<String, List<StringCount>> byMetric(List<MetricCount> counts) {
+    Map<String, List<StringCount>> metrics = new HashMap<>();
+    for (MetricCount mc : counts) {
+      metrics.computeIfAbsent(mc.getMetric(), k -> new ArrayList<>()).add(mc);
+    }
+    return metrics;
+  }
+
+  static List<StringCount> metric(Map<String, List<StringCount>> metrics, String metric) {
+    return metrics.getOrDefault(metric, Collections.emptyList());
+  }
+
+  static int sum(List<StringCount> counts) {
+    int total = 0;
+    for (StringCount cnt : counts) {
+      total += cnt.getCount();
     }
+    return total;
   }
   
   public static Map<String, Integer> countMap(List<StringCount> counts) {
@@ -0,0 +1,202 @@
+package life.catalogue.dao;
+
+import life.catalogue.api.model.*;
+import life.catalogue.api.vocab.*;
+
+import org.gbif.dwc.terms.Term;
+import org.gbif.nameparser.api.NameType;
+import org.gbif.nameparser.api.NomCode;
+import org.gbif.nameparser.api.Rank;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Accumulates the import metrics of a dataset while its records are being written,
+ * so no aggregate queries need to scan the data afterwards.
+ * The resulting metrics are identical to the ones generated by the DatasetImportDao from the persisted data,
+ * provided that all written records have been added exactly once.
+ *
+ * All methods are thread safe so concurrent writers can share a single collector.
+ */
+public class ImportMetricsCollector {
+  private int bareNames;
+  private int distributions;
+  private int estimates;
+  private int media;
+  private int names;
+  private int references;
+  private int synonyms;
+  private int taxa;
+  private int treatments;
+  private int typeMaterial;
+  private int verbatim;
+  private int vernaculars;
+  private final Counter<Gazetteer> distributionsByGazetteer = new Counter<>();
+  private final Counter<Rank> extinctTaxaByRank = new Counter<>();
+  private final Counter<Issue> issues = new Counter<>();
+  private final Counter<MediaType> mediaByType = new Counter<>();
+  private final Counter<NomRelType> nameRelationsByType = new Counter<>();
+  private final Counter<NomCode> namesByCode = new Counter<>();
+  private final Counter<Rank> namesByRank = new Counter<>();
+  private final Counter<NomStatus> namesByStatus = new Counter<>();
+  private final Counter<NameType> namesByType = new Counter<>();
+  private final Counter<SpeciesInteractionType> speciesInteractionsByType = new Counter<>();
+  private final Counter<Rank> synonymsByRank = new Counter<>();
+  private final Counter<Rank> taxaByRank = new Counter<>();
+  private final Counter<TaxonConceptRelType> taxonConceptRelationsByType = new Counter<>();
+  private final Counter<TypeStatus> typeMaterialByStatus = new Counter<>();
+  private final Counter<Origin> usagesByOrigin = new Counter<>();
+  private final Counter<TaxonomicStatus> usagesByStatus = new Counter<>();
+  private final Counter<Term> verbatimByType = new Counter<>();
+  private final Map<Term, Counter<Term>> verbatimTermsByType = new HashMap<>();
+  private final Counter<String> vernacularsByLanguage = new Counter<>();
+
+  private static class Counter<K> {
+    private final Object2IntMap<K> counts = new Object2IntOpenHashMap<>();
+
+    void inc(K key) {
+      // null keys are not part of any metric
+      if (key != null) {
+        counts.mergeInt(key, 1, Integer::sum);
+      }
+    }
+
+    Map<K, Integer> toMap() {
+      return new HashMap<>(counts);
+    }
+  }
+
+  public synchronized void addVerbatim(VerbatimRecord v) {
+    verbatim++;
+    verbatimByType.inc(v.getType());
+    if (v.getIssues() != null) {
+      v.getIssues().forEach(issues::inc);
+    }
+    if (v.getType() != null && v.getTerms() != null && !v.getTerms().isEmpty()) {
+      Counter<Term> terms = verbatimTermsByType.computeIfAbsent(v.getType(), t -> new Counter<>());
+      v.getTerms().keySet().forEach(terms::inc);
+    }
+  }
+
+  public synchronized void addReference(Reference r) {
+    references++;
+  }
+
+  public synchronized void addName(Name n) {
+    names++;
+    namesByCode.inc(n.getCode());
+    namesByRank.inc(n.getRank());
+    namesByStatus.inc(n.getNomStatus());
+    namesByType.inc(n.getType());
+  }
+
+  /**
+   * Counts a name that has no usage. The name itself must also be added via {@link #addName(Name)}.
+   */
+  public synchronized void addBareName() {
+    bareNames++;
+  }
+
+  /**
+   * Adds a taxon or synonym incl its name rank, but not the name itself.
+   */
+  public synchronized void addUsage(NameUsageBase u) {
+    usagesByOrigin.inc(u.getOrigin());
+    usagesByStatus.inc(u.getStatus());
+    Rank rank = u.getName() == null ? null : u.getName().getRank();
+    if (u.isSynonym()) {
+      synonyms++;
+      synonymsByRank.inc(rank);
+    } else {
+      taxa++;
+      taxaByRank.inc(rank);
+      if (u instanceof Taxon && Boolean.TRUE.equals(((Taxon) u).isExtinct())) {
+        extinctTaxaByRank.inc(rank);
+      }
+    }
+  }
+
+  public synchronized void addDistribution(Distribution d) {
+    distributions++;
+    distributionsByGazetteer.inc(d.getArea() == null ? null : d.getArea().getGazetteer());
+  }
+
+  public synchronized void addEstimate(SpeciesEstimate e) {
+    estimates++;
+  }
+
+  public synchronized void addMedia(Media m) {
+    media++;
+    mediaByType.inc(m.getType());
+  }
+
+  public synchronized void addTreatment(Treatment t) {
+    treatments++;
+  }
+
+  public synchronized void addTypeMaterial(TypeMaterial tm) {
+    typeMaterial++;
+    typeMaterialByStatus.inc(tm.getStatus());
+  }
+
+  public synchronized void addVernacular(VernacularName vn) {
+    vernaculars++;
+    vernacularsByLanguage.inc(vn.getLanguage());
+  }
+
+  public synchronized void addNameRelation(NameRelation rel) {
+    nameRelationsByType.inc(rel.getType());
+  }
+
+  public synchronized void addTaxonConceptRelation(TaxonConceptRelation rel) {
+    taxonConceptRelationsByType.inc(rel.getType());
+  }
+
+  public synchronized void addSpeciesInteraction(SpeciesInteraction rel) {
+    speciesInteractionsByType.inc(rel.getType());
+  }
+
+  /**
+   * Sets all collected metrics on the given import, replacing existing values.
+   */
+  public synchronized void fill(DatasetImport di) {
+    di.setBareNameCount(bareNames);
+    di.setDistributionCount(distributions);
+    di.setEstimateCount(estimates);
+    di.setMediaCount(media);
+    di.setNameCount(names);
+    di.setReferenceCount(references);
+    di.setSynonymCount(synonyms);
+    di.setTaxonCount(taxa);
+    di.setTreatmentCount(treatments);
+    di.setTypeMaterialCount(typeMaterial);
+    di.setVerbatimCount(verbatim);
+    di.setVernacularCount(vernaculars);
+
+    di.setDistributionsByGazetteerCount(distributionsByGazetteer.toMap());
+    di.setExtinctTaxaByRankCount(extinctTaxaByRank.toMap());
+    di.setIssuesCount(issues.toMap());
+    di.setMediaByTypeCount(mediaByType.toMap());
+    di.setNameRelationsByTypeCount(nameRelationsByType.toMap());
+    di.setNamesByCodeCount(namesByCode.toMap());
+    di.setNamesByRankCount(namesByRank.toMap());
+    di.setNamesByStatusCount(namesByStatus.toMap());
+    di.setNamesByTypeCount(namesByType.toMap());
+    di.setSpeciesInteractionsByTypeCount(speciesInteractionsByType.toMap());
+    di.setSynonymsByRankCount(synonymsByRank.toMap());
+    di.setTaxaByRankCount(taxaByRank.toMap());
+    di.setTaxonConceptRelationsByTypeCount(taxonConceptRelationsByType.toMap());
+    di.setTypeMaterialByStatusCount(typeMaterialByStatus.toMap());
+    di.setUsagesByOriginCount(usagesByOrigin.toMap());
+    di.setUsagesByStatusCount(usagesByStatus.toMap());
+    di.setVerbatimByTermCount(verbatimByType.toMap());
+    di.setVernacularsByLanguageCount(vernacularsByLanguage.toMap());
+
+    di.getVerbatimByRowTypeCount().clear();
+    verbatimTermsByType.forEach((rowType, terms) -> di.getVerbatimByRowTypeCount().put(rowType, terms.toMap()));
+  }
+}
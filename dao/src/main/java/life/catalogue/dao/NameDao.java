@@ -5,12 +5,14 @@ import life.catalogue.api.vocab.NomRelType;
 import life.catalogue.db.mapper.NameMapper;
 import life.catalogue.db.mapper.NameMatchMapper;
 import life.catalogue.db.mapper.NameRelationMapper;
+import life.catalogue.db.mapper.NameUsageMapper;
 import life.catalogue.es.NameUsageIndexService;
 import life.catalogue.matching.NameIndex;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -31,7 +33,7 @@ public class NameDao extends DatasetStringEntityDao<Name, NameMapper> {
   private final NameIndex nameIndex;
 
   public NameDao(SqlSessionFactory factory, NameUsageIndexService indexService, NameIndex nameIndex, Validator validator) {
-    super(false, factory, Name.class, NameMapper.class, validator);
+    super(true, factory, Name.class, NameMapper.class, validator);
     this.indexService = indexService;
     this.nameIndex = nameIndex;
   }
@@ -65,6 +67,18 @@ public class NameDao extends DatasetStringEntityDao<Name, NameMapper> {
     return true;
   }
 
+  @Override
+  protected void updateBefore(Name n, Name old, int user, NameMapper mapper, SqlSession session) {
+    // move accepted usages of the name to their new rank in the same transaction as the name update
+    if (!Objects.equals(old.getRank(), n.getRank())) {
+      for (NameUsageBase u : session.getMapper(NameUsageMapper.class).listByNameID(n.getDatasetKey(), n.getId(), null)) {
+        if (u.isTaxon()) {
+          TaxonRankCounter.changeRank(session, u, old.getRank(), n.getRank());
+        }
+      }
+    }
+  }
+
   @Override
   protected boolean updateAfter(Name n, Name old, int user, NameMapper mapper, SqlSession session, boolean keepSessionOpen) {
     // update name match
@@ -1,21 +1,24 @@
 package life.catalogue.dao;
 
-import com.google.common.base.Preconditions;
-
 import life.catalogue.api.model.*;
 import life.catalogue.api.search.NameUsageWrapper;
 import life.catalogue.cache.ObjectCache;
 import life.catalogue.cache.ObjectCacheMapDB;
 import life.catalogue.cache.UsageCache;
+import life.catalogue.common.func.BatchConsumer;
 import life.catalogue.common.kryo.ApiKryoPool;
+import life.catalogue.common.lang.InterruptedRuntimeException;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
 
@@ -24,21 +27,60 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Throwables;
+
 /**
- * Not thread safe !
+ * Processes all name usages of a dataset or sector, streaming full wrapper objects incl their classification.
+ *
+ * A dataset can be processed in parallel partitions, one for each sector and one for all usages outside of any sector.
+ * Each partition uses its own database connection and its own taxon cache to build up classifications.
+ * Parents outside of a partition are loaded from postgres and shared between partitions through a common usage cache.
  */
 public class NameUsageProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(NameUsageProcessor.class);
   private static final int LOG_INTERVAL = 5000;
 
   private final SqlSessionFactory factory;
-  private int loadCounter = 0;
+  private final AtomicInteger loadCounter = new AtomicInteger(0);
   private final File tmpDir;
 
   public NameUsageProcessor(SqlSessionFactory factory, File tmpDir) {
     this.factory = factory;
     this.tmpDir = tmpDir;
   }
+
+  /**
+   * Static infos shared by all partitions of a dataset which are excluded from the sql results as they are very repetitive.
+   */
+  private static class DatasetInfo {
+    final int datasetKey;
+    final UUID publisher;
+    // sectorKey to the sectors subject dataset key
+    final Map<Integer, Integer> sectorDatasetKeys = new HashMap<>();
+
+    DatasetInfo(int datasetKey, UUID publisher) {
+      this.datasetKey = datasetKey;
+      this.publisher = publisher;
+    }
+  }
+
+  /**
+   * A part of a dataset to be processed: a single sector, all usages without a sector or the entire dataset.
+   */
+  private static class Partition {
+    final Integer sectorKey;
+    final boolean withoutSector;
+
+    Partition(Integer sectorKey, boolean withoutSector) {
+      this.sectorKey = sectorKey;
+      this.withoutSector = withoutSector;
+    }
+
+    @Override
+    public String toString() {
+      return sectorKey != null ? "sector " + sectorKey : (withoutSector ? "usages without sector" : "all usages");
+    }
+  }
   
   /**
    * to avoid large in memory or even external pg temp files dissect the problem into the following steps:
@@ -58,6 +100,61 @@ public class NameUsageProcessor {
     LOG.info("Process dataset {}", datasetKey);
     processTree(datasetKey, null, consumer);
   }
+
+  /**
+   * Processes an entire dataset using several threads, each processing entire sectors or all usages without a sector.
+   * Datasets without sectors are processed in a single thread.
+   *
+   * @param threads maximum number of partitions to process in parallel
+   * @param consumers supplier for a new consumer for each thread. The consumer is only used by a single thread
+   *                  and closed when all partitions of that thread are done.
+   */
+  public void processDataset(int datasetKey, int threads, Supplier<? extends BatchConsumer<NameUsageWrapper>> consumers) {
+    final DatasetInfo info = loadInfo(datasetKey, null);
+    if (threads <= 1 || info.sectorDatasetKeys.isEmpty()) {
+      try (BatchConsumer<NameUsageWrapper> consumer = consumers.get()) {
+        processDataset(datasetKey, consumer);
+      }
+      return;
+    }
+
+    final Queue<Partition> partitions = new ConcurrentLinkedQueue<>();
+    partitions.add(new Partition(null, true));
+    info.sectorDatasetKeys.keySet().stream()
+      .sorted()
+      .forEach(sk -> partitions.add(new Partition(sk, false)));
+    final int workers = Math.min(threads, partitions.size());
+    LOG.info("Process dataset {} in {} partitions using {} threads", datasetKey, partitions.size(), workers);
+
+    ExecutorService exec = Executors.newFixedThreadPool(workers, new NamedThreadFactory("usage-processor-" + datasetKey));
+    try (UsageCache usageCache = buildUsageCache()) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        futures.add(exec.submit(() -> {
+          try (BatchConsumer<NameUsageWrapper> consumer = consumers.get()) {
+            Partition p;
+            while ((p = partitions.poll()) != null) {
+              processPartition(info, p, usageCache, consumer);
+            }
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedRuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    } finally {
+      exec.shutdownNow();
+    }
+  }
   
   /**
    * Process all catalogue usages from a given sector
@@ -69,38 +166,59 @@ public class NameUsageProcessor {
   }
 
   private void processTree(int datasetKey, @Nullable Integer sectorKey, Consumer<NameUsageWrapper> consumer) {
+    final DatasetInfo info = loadInfo(datasetKey, sectorKey);
+    try (UsageCache usageCache = buildUsageCache()) {
+      processPartition(info, new Partition(sectorKey, false), usageCache, consumer);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private DatasetInfo loadInfo(int datasetKey, @Nullable Integer sectorKey) {
     try (SqlSession session = factory.openSession()) {
-      final NameUsageWrapperMapper nuwm = session.getMapper(NameUsageWrapperMapper.class);
-      final NameUsageMapper num = session.getMapper(NameUsageMapper.class);
       final var sm = session.getMapper(SectorMapper.class);
-
-      // reusable dsids for this dataset
-      final DSID<String> uKey = DSID.of(datasetKey, null);
-      final DSID<Integer> sKey = DSID.of(datasetKey, null);
-      // we exclude some rather static info from our already massive joins and set them manually in code:
-      final UUID publisher = session.getMapper(DatasetMapper.class).getPublisherKey(datasetKey);
+      final DatasetInfo info = new DatasetInfo(datasetKey, session.getMapper(DatasetMapper.class).getPublisherKey(datasetKey));
       // we prefetch sectorKey to the sectors subject dataset key depending whether we process a sector or entire dataset
-      final Map<Integer, Integer> sectorDatasetKeys = new HashMap<>();
       if (sectorKey != null) {
-        sectorDatasetKeys.put(sectorKey, sm.get(sKey.id(sectorKey)).getSubjectDatasetKey());
+        info.sectorDatasetKeys.put(sectorKey, sm.get(DSID.of(datasetKey, sectorKey)).getSubjectDatasetKey());
       } else {
-        sm.listByDataset(datasetKey, null).forEach(s -> sectorDatasetKeys.put(s.getId(), s.getSubjectDatasetKey()));
+        sm.listByDataset(datasetKey, null).forEach(s -> info.sectorDatasetKeys.put(s.getId(), s.getSubjectDatasetKey()));
       }
+      return info;
+    }
+  }
+
+  /**
+   * Processes a single partition in its own session with its own taxon cache.
+   * Classifications are build from the cached taxa of the partition, parents outside the partition are loaded via the usage cache.
+   */
+  private void processPartition(DatasetInfo info, Partition p, UsageCache usageCache, Consumer<NameUsageWrapper> consumer) {
+    final int datasetKey = info.datasetKey;
+    LOG.debug("Process {} of dataset {}", p, datasetKey);
+    try (SqlSession session = factory.openSession()) {
+      final NameUsageWrapperMapper nuwm = session.getMapper(NameUsageWrapperMapper.class);
+      final NameUsageMapper num = session.getMapper(NameUsageMapper.class);
+
+      // reusable dsids for this dataset
+      final DSID<String> uKey = DSID.of(datasetKey, null);
 
       // build temporary table collecting issues from all usage related tables
       // we do this in a separate step to not overload postgres with gigantic joins later on
-      session.getMapper(VerbatimRecordMapper.class).createTmpIssuesTable(datasetKey, sectorKey);
+      // the table only lives in the uncommitted session
+      session.getMapper(VerbatimRecordMapper.class).createTmpIssuesTable(datasetKey, p.sectorKey, p.withoutSector);
 
-      try (ObjectCache<NameUsageWrapper> taxa = buildObjCache();
-           UsageCache usageCache = buildUsageCache()
-      ) {
+      try (ObjectCache<NameUsageWrapper> taxa = buildObjCache()) {
         final AtomicInteger counter = new AtomicInteger(0);
+        // accepted names outside of this partition which have been loaded for synonyms, but must not be processed
+        final Set<String> foreign = new HashSet<>();
         // processing first returns all taxa before any synonym is returned - cache these and process them at the end
-        PgUtils.consume(() -> nuwm.processWithoutClassification(datasetKey, sectorKey), nuw -> {
+        PgUtils.consume(() -> nuwm.processWithoutClassification(datasetKey, p.sectorKey, p.withoutSector), nuw -> {
           // set preloaded infos excluded in sql results as they are very repetitive
-          nuw.setPublisherKey(publisher);
+          nuw.setPublisherKey(info.publisher);
           if (nuw.getUsage().getName().getSectorKey() != null) {
-            nuw.setSectorDatasetKey(sectorDatasetKeys.get(nuw.getUsage().getName().getSectorKey()));
+            nuw.setSectorDatasetKey(info.sectorDatasetKeys.get(nuw.getUsage().getName().getSectorKey()));
           }
 
           if (nuw.getUsage().isTaxon()) {
@@ -120,13 +238,14 @@ public class NameUsageProcessor {
                 LOG.warn("Synonym {} without parentID found {}", syn.getId(), syn.getLabel());
                 return;
               }
-              // we list all accepted first, so the key must exist UNLESS we have a merged synonym pointing to an accepted name outside of its sector!
+              // we list all accepted first, so the key must exist UNLESS we have a synonym pointing to an accepted name outside of its partition!
               NameUsage acc;
               if (!taxa.contains(syn.getParentId())) {
                 // load it
                 LOG.debug("Load missing usage {} of dataset {}", syn.getParentId(), datasetKey);
                 acc = num.get(uKey.id(syn.getParentId()));
                 taxa.put(new NameUsageWrapper(acc));
+                foreign.add(acc.getId());
               } else {
                 acc = taxa.get(syn.getParentId()).getUsage();
               }
@@ -141,15 +260,18 @@ public class NameUsageProcessor {
         });
 
         // now lets do the cached taxa
-        LOG.info("Process {} taxa of dataset {}; loaded taxa={}", taxa.size(), datasetKey, loadCounter);
+        LOG.info("Process {} taxa of {} of dataset {}; loaded taxa={}", taxa.size(), p, datasetKey, loadCounter);
         for (var nuw : taxa) {
+          if (foreign.contains(nuw.getId())) {
+            continue;
+          }
           addClassification(nuw, taxa, usageCache, num);
           consumer.accept(nuw);
           if (counter.incrementAndGet() % LOG_INTERVAL == 0) {
             LOG.debug("Processed {} usages of dataset {}; loaded taxa={}", counter, datasetKey, loadCounter);
           }
         }
-      } catch (Exception e) {
+      } catch (IOException e) {
         throw new RuntimeException(e);
       }
     }
@@ -172,7 +294,7 @@ public class NameUsageProcessor {
             uKey.id(curr.getParent());
           }
           curr = usageCache.getOrLoad(uKey, num::getSimplePub);
-          loadCounter++;
+          loadCounter.incrementAndGet();
         }
         classification.add(curr);
       }
@@ -7,7 +7,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -26,6 +28,7 @@ import org.slf4j.LoggerFactory;
 public class Partitioner {
   private static final Logger LOG = LoggerFactory.getLogger(Partitioner.class);
   private static final Pattern TABLE_PATTERN = Pattern.compile("name_(.+)$");
+  private static final Pattern INDEX_DEF_PATTERN = Pattern.compile("^CREATE (UNIQUE )?INDEX \\S+ ON (?:ONLY )?\\S+ ");
 
   /**
    * @return list of all dataset suffices for which a name data partition exists - no matter if attached or not.
@@ -84,6 +87,52 @@ public class Partitioner {
     return exists;
   }
 
+  /**
+   * Generates the DDL statements to add all primary keys, unique and exclusion constraints
+   * of a main partitioned table to a not yet attached dataset partition table.
+   * The statements require an exclusive lock on the partition table and should be executed one after the other.
+   */
+  public static List<String> keyDefinitions(Connection con, String table, int datasetKey) throws SQLException {
+    List<String> ddl = new ArrayList<>();
+    try (Statement st = con.createStatement()) {
+      st.execute("SELECT pg_get_constraintdef(c.oid) FROM pg_constraint c JOIN pg_class t ON t.oid = c.conrelid"
+                 + " WHERE t.relname='" + table + "' AND t.relnamespace='public'::regnamespace AND c.contype IN ('p','u','x')");
+      try (ResultSet rs = st.getResultSet()) {
+        while (rs.next()) {
+          ddl.add("ALTER TABLE " + table + "_" + datasetKey + " ADD " + rs.getString(1));
+        }
+      }
+    }
+    return ddl;
+  }
+
+  /**
+   * Generates the DDL statements to build all indices of a main partitioned table which are not backing a constraint
+   * on a not yet attached dataset partition table.
+   * Index names are generated by postgres. When the partition table is attached later
+   * the existing indices will be used instead of building new ones.
+   * The statements only require a share lock on the partition table and can be executed concurrently.
+   */
+  public static List<String> indexDefinitions(Connection con, String table, int datasetKey) throws SQLException {
+    List<String> ddl = new ArrayList<>();
+    try (Statement st = con.createStatement()) {
+      st.execute("SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i JOIN pg_class t ON t.oid = i.indrelid"
+                 + " WHERE t.relname='" + table + "' AND t.relnamespace='public'::regnamespace"
+                 + " AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid AND c.conrelid = t.oid)");
+      try (ResultSet rs = st.getResultSet()) {
+        while (rs.next()) {
+          Matcher m = INDEX_DEF_PATTERN.matcher(rs.getString(1));
+          if (m.find()) {
+            ddl.add(m.replaceFirst("CREATE " + (m.group(1) == null ? "" : m.group(1)) + "INDEX ON " + table + "_" + datasetKey + " "));
+          } else {
+            LOG.warn("Cannot rewrite index definition for partition {}_{}: {}", table, datasetKey, rs.getString(1));
+          }
+        }
+      }
+    }
+    return ddl;
+  }
+
   public static synchronized void createDefaultPartitions(SqlSessionFactory factory, int number) {
     try (SqlSession session = factory.openSession(false)) {
       createDefaultPartitions(session, number);
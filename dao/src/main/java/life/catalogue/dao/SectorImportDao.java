@@ -4,19 +4,23 @@ import life.catalogue.api.model.DSID;
 import life.catalogue.api.model.SectorImport;
 import life.catalogue.api.vocab.*;
 import life.catalogue.db.mapper.SectorImportMapper;
+import life.catalogue.db.type2.StringCount;
 
 import org.gbif.nameparser.api.NameType;
 import org.gbif.nameparser.api.NomCode;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static life.catalogue.dao.DatasetImportDao.countMap;
+import static life.catalogue.dao.DatasetImportDao.*;
+
 public class SectorImportDao {
 
   private static final Logger LOG = LoggerFactory.getLogger(SectorImportDao.class);
@@ -57,38 +61,55 @@ public class SectorImportDao {
   }
 
 
+  /**
+   * Populates all counts using the grouped single scan queries for names and usages,
+   * deriving totals from the sums of their groups like the dataset import metrics do.
+   */
   private void populateCounts(SectorImportMapper mapper, SectorImport si, int datasetKey) {
     final int key = si.getSectorKey();
 
     si.setBareNameCount(mapper.countBareName(datasetKey, key));
-    si.setDistributionCount(mapper.countDistribution(datasetKey, key));
     si.setEstimateCount(mapper.countEstimate(datasetKey, key));
-    si.setMediaCount(mapper.countMedia(datasetKey, key));
-    si.setNameCount(mapper.countName(datasetKey, key));
     si.setReferenceCount(mapper.countReference(datasetKey, key));
-    si.setSynonymCount(mapper.countSynonym(datasetKey, key));
-    si.setTaxonCount(mapper.countTaxon(datasetKey, key));
     si.setTreatmentCount(mapper.countTreatment(datasetKey, key));
-    si.setTypeMaterialCount(mapper.countTypeMaterial(datasetKey, key));
-    si.setVernacularCount(mapper.countVernacular(datasetKey, key));
 
-    si.setDistributionsByGazetteerCount(countMap(Gazetteer.class, mapper.countDistributionsByGazetteer(datasetKey, key)));
-    si.setExtinctTaxaByRankCount(countMap(DatasetImportDao::parseRank, mapper.countExtinctTaxaByRank(datasetKey, key)));
+    // totals are the sum of all groups incl null keys
+    List<StringCount> counts = mapper.countDistributionsByGazetteer(datasetKey, key);
+    si.setDistributionCount(sum(counts));
+    si.setDistributionsByGazetteerCount(countMap(Gazetteer.class, counts));
+
+    counts = mapper.countMediaByType(datasetKey, key);
+    si.setMediaCount(sum(counts));
+    si.setMediaByTypeCount(countMap(MediaType.class, counts));
+
+    counts = mapper.countTypeMaterialByStatus(datasetKey, key);
+    si.setTypeMaterialCount(sum(counts));
+    si.setTypeMaterialByStatusCount(countMap(TypeStatus.class, counts));
+
+    counts = mapper.countVernacularsByLanguage(datasetKey, key);
+    si.setVernacularCount(sum(counts));
+    si.setVernacularsByLanguageCount(countMap(counts));
+
     si.setIssuesCount(countMap(Issue.class, mapper.countIssues(datasetKey, key)));
-    si.setMediaByTypeCount(countMap(MediaType.class, mapper.countMediaByType(datasetKey, key)));
     si.setNameRelationsByTypeCount(countMap(NomRelType.class, mapper.countNameRelationsByType(datasetKey, key)));
-    si.setNamesByCodeCount(countMap(NomCode.class, mapper.countNamesByCode(datasetKey, key)));
-    si.setNamesByRankCount(countMap(DatasetImportDao::parseRank, mapper.countNamesByRank(datasetKey, key)));
-    si.setNamesByStatusCount(countMap(NomStatus.class, mapper.countNamesByStatus(datasetKey, key)));
-    si.setNamesByTypeCount(countMap(NameType.class, mapper.countNamesByType(datasetKey, key)));
     si.setSpeciesInteractionsByTypeCount(countMap(SpeciesInteractionType.class, mapper.countSpeciesInteractionsByType(datasetKey, key)));
-    si.setSynonymsByRankCount(countMap(DatasetImportDao::parseRank, mapper.countSynonymsByRank(datasetKey, key)));
-    si.setTaxaByRankCount(countMap(DatasetImportDao::parseRank, mapper.countTaxaByRank(datasetKey, key)));
     si.setTaxonConceptRelationsByTypeCount(countMap(TaxonConceptRelType.class, mapper.countTaxonConceptRelationsByType(datasetKey, key)));
-    si.setTypeMaterialByStatusCount(countMap(TypeStatus.class, mapper.countTypeMaterialByStatus(datasetKey, key)));
-    si.setUsagesByOriginCount(countMap(Origin.class, mapper.countUsagesByOrigin(datasetKey, key)));
-    si.setUsagesByStatusCount(countMap(TaxonomicStatus.class, mapper.countUsagesByStatus(datasetKey, key)));
-    si.setVernacularsByLanguageCount(countMap(mapper.countVernacularsByLanguage(datasetKey, key)));
+
+    Map<String, List<StringCount>> metrics = byMetric(mapper.countNameMetrics(datasetKey, key));
+    si.setNameCount(sum(metric(metrics, "rank")));
+    si.setNamesByCodeCount(countMap(NomCode.class, metric(metrics, "code")));
+    si.setNamesByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "rank")));
+    si.setNamesByStatusCount(countMap(NomStatus.class, metric(metrics, "status")));
+    si.setNamesByTypeCount(countMap(NameType.class, metric(metrics, "type")));
+
+    metrics = byMetric(mapper.countUsageMetrics(datasetKey, key));
+    si.setTaxonCount(sum(metric(metrics, "taxonRank")));
+    si.setSynonymCount(sum(metric(metrics, "synonymRank")));
+    si.setExtinctTaxaByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "extinctRank")));
+    si.setSynonymsByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "synonymRank")));
+    si.setTaxaByRankCount(countMap(DatasetImportDao::parseRank, metric(metrics, "taxonRank")));
+    si.setUsagesByOriginCount(countMap(Origin.class, metric(metrics, "origin")));
+    si.setUsagesByStatusCount(countMap(TaxonomicStatus.class, metric(metrics, "status")));
   }
 
   public void deleteAll(DSID<Integer> sectorKey) throws IOException {
@@ -4,6 +4,10 @@ import life.catalogue.api.model.DSID;
 
 import org.gbif.nameparser.api.Rank;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Simple interface for counting all included, accepted taxa of a given rank, e.g. species, that
  * are descendants of a given taxonID.
@@ -18,4 +22,21 @@ public interface TaxonCounter {
    * @param countRank rank if descendants to count, e.g. species
    */
   int count(DSID<String> taxonID, Rank countRank);
+
+  /**
+   * Counts descendants for several taxa of the same dataset.
+   * The default implementation calls count for each taxon, implementations should override it if they can do better.
+   *
+   * @param taxonIDs parent taxa to require in classification
+   * @param countRank rank if descendants to count, e.g. species
+   * @return map of all given taxonIDs to their count
+   */
+  default Map<String, Integer> count(int datasetKey, Collection<String> taxonIDs, Rank countRank) {
+    final DSID<String> key = DSID.root(datasetKey);
+    Map<String, Integer> counts = new HashMap<>();
+    for (String id : taxonIDs) {
+      counts.put(id, count(key.id(id), countRank));
+    }
+    return counts;
+  }
 }
@@ -9,10 +9,12 @@ import life.catalogue.db.NameProcessable;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.TaxonProcessable;
 import life.catalogue.db.mapper.*;
+import life.catalogue.db.type2.StringCount;
 import life.catalogue.es.NameUsageIndexService;
 import life.catalogue.parser.NameParser;
 
 import org.gbif.nameparser.api.NameType;
+import org.gbif.nameparser.api.Rank;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -368,6 +370,7 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
     try (SqlSession session = factory.openSession(false)) {
       final int datasetKey = t.getDatasetKey();
       Name n = t.getName();
+      Rank rank = n.getRank();
       if (n.getId() == null) {
         if (!n.isParsed() && StringUtils.isBlank(n.getScientificName())) {
           throw new IllegalArgumentException("Existing nameId, scientificName or atomized name field required");
@@ -385,13 +388,17 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
         if (nExisting == null) {
           throw new IllegalArgumentException("No name exists with ID " + n.getId() + " in dataset " + datasetKey);
         }
+        rank = nExisting.getRank();
       }
       
       newKey(t);
       t.setOrigin(Origin.USER);
       t.applyUser(user);
       session.getMapper(TaxonMapper.class).create(t);
-      
+      if (rank != null) {
+        TaxonRankCounter.inc(session, t, List.of(new StringCount(rank, 1)), 1);
+      }
+
       session.commit();
 
       // create taxon in ES
@@ -422,9 +429,13 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
 
   @Override
   protected void updateBefore(Taxon obj, Taxon old, int user, TaxonMapper mapper, SqlSession session) {
-    // only allow parent changes if they are not part of a sector
-    if (!Objects.equals(old.getParentId(), obj.getParentId()) && old.getSectorKey() != null) {
-      throw new IllegalArgumentException("You cannot move a taxon which is part of sector " + obj.getSectorKey());
+    if (!Objects.equals(old.getParentId(), obj.getParentId())) {
+      // only allow parent changes if they are not part of a sector
+      if (old.getSectorKey() != null) {
+        throw new IllegalArgumentException("You cannot move a taxon which is part of sector " + obj.getSectorKey());
+      }
+      // rank counts must change in the same transaction as the parent
+      moveRankCounts(session, obj, obj.getParentId(), old.getParentId());
     }
   }
 
@@ -432,7 +443,7 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
   protected boolean updateAfter(Taxon t, Taxon old, int user, TaxonMapper tm, SqlSession session, boolean keepSessionOpen) {
     // has parent, i.e. classification been changed ?
     if (!Objects.equals(old.getParentId(), t.getParentId())) {
-      updatedParentCacheUpdate(tm, t, t.getParentId(), old.getParentId());
+      updatedParentCacheUpdate(session, t, t.getParentId(), old.getParentId());
     }
     session.commit();
     if (!keepSessionOpen) {
@@ -450,7 +461,8 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
    * @param newParentId the newly assigned parentID (already set as the taxons parent_id)
    * @param oldParentId the former parentID
    */
-  private void updatedParentCacheUpdate(TaxonMapper tm, DSID<String> t, String newParentId, String oldParentId){
+  private void updatedParentCacheUpdate(SqlSession session, DSID<String> t, String newParentId, String oldParentId){
+    TaxonMapper tm = session.getMapper(TaxonMapper.class);
     // migrate entire DatasetSectors from old to new
     Int2IntOpenHashMap delta = tm.getCounts(t).getCount();
     if (delta != null && !delta.isEmpty()) {
@@ -485,12 +497,25 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
   public void updateParent(SqlSession session, DSID<String> t, String newParentId, String oldParentId, int userKey){
     NameUsageMapper num = session.getMapper(NameUsageMapper.class);
     num.updateParentId(t, newParentId, userKey);
+    moveRankCounts(session, t, newParentId, oldParentId);
+    session.commit();
+    updatedParentCacheUpdate(session, t, newParentId, oldParentId);
     session.commit();
-    updatedParentCacheUpdate(session.getMapper(TaxonMapper.class), t, newParentId, oldParentId);
     // update single taxon in ES
     indexService.update(t.getDatasetKey(), List.of(t.getId()));
   }
 
+  /**
+   * Moves the rank counts of an entire subtree from its old to its new parent classification.
+   */
+  private static void moveRankCounts(SqlSession session, DSID<String> t, String newParentId, String oldParentId) {
+    TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+    mapper.lock(t.getDatasetKey());
+    List<StringCount> rankCounts = mapper.getCounts(t);
+    TaxonRankCounter.inc(session, DSID.of(t.getDatasetKey(), oldParentId), rankCounts, -1);
+    TaxonRankCounter.inc(session, DSID.of(t.getDatasetKey(), newParentId), rankCounts, 1);
+  }
+
   private static Int2IntOpenHashMap mergeMapCounts(Int2IntOpenHashMap m1, Int2IntOpenHashMap m2, int factor) {
     for (Int2IntMap.Entry e : m2.int2IntEntrySet()) {
       if (m1.containsKey(e.getIntKey())) {
@@ -506,6 +531,13 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
   protected void deleteBefore(DSID<String> did, Taxon old, int user, TaxonMapper tMapper, SqlSession session) {
     Taxon t = tMapper.get(did);
 
+    // remove the taxon from the rank counts of its parents
+    TaxonRankCountMapper trcm = session.getMapper(TaxonRankCountMapper.class);
+    if (t.getName().getRank() != null) {
+      TaxonRankCounter.inc(session, DSID.of(did.getDatasetKey(), t.getParentId()), List.of(new StringCount(t.getName().getRank(), 1)), -1);
+    }
+    trcm.delete(did);
+
     int cnt = session.getMapper(NameUsageMapper.class).updateParentIds(did.getDatasetKey(), did.getId(), t.getParentId(), null, user);
     LOG.debug("Moved {} children of {} to {}", cnt, t.getId(), t.getParentId());
     
@@ -560,6 +592,7 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
       );
       SectorMapper sm = session.getMapper(SectorMapper.class);
       VerbatimSourceMapper vsm = session.getMapper(VerbatimSourceMapper.class);
+      TaxonRankCountMapper trcm = session.getMapper(TaxonRankCountMapper.class);
 
       // remember sector count map so we can update parents at the end
       TaxonSectorCountMap delta = tm.getCounts(id);
@@ -573,6 +606,10 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
         LOG.info("Recursive delete of {} detected {} included sectors, but {} are declared in the taxons sector count map", id, sectorKeys.size(), delta.size());
       }
       List<TaxonSectorCountMap> parents = tm.classificationCounts(id);
+      // remember rank counts and parent so we can update parents at the end
+      trcm.lock(id.getDatasetKey());
+      List<StringCount> rankCounts = trcm.getCounts(id);
+      String parentId = tm.get(id).getParentId();
 
       // we remove usages, names, verbatim sources and associated infos.
       // but NOT name_rels or refs
@@ -586,12 +623,15 @@ public class TaxonDao extends DatasetEntityDao<String, Taxon, TaxonMapper> {
           // remove usage
           num.delete(nuKey);
           vsm.delete(nuKey);
+          trcm.delete(nuKey);
           // remove name relations and name
           final var nnKey = nuKey.id(unid.nameId);
           nameProcMappers.forEach(m -> m.deleteByName(nnKey));
           nm.delete(nnKey);
         }
       );
+      // update rank counts in the same transaction as the deletion
+      TaxonRankCounter.inc(session, DSID.of(id.getDatasetKey(), parentId), rankCounts, -1);
       session.commit();
 
       // remove delta from parents
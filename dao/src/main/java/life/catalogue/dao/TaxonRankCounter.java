@@ -0,0 +1,412 @@
+package life.catalogue.dao;
+
+import life.catalogue.api.event.DatasetChanged;
+import life.catalogue.api.event.DatasetDataChanged;
+import life.catalogue.api.model.DSID;
+import life.catalogue.api.model.SimpleName;
+import life.catalogue.api.model.TreeTraversalParameter;
+import life.catalogue.concurrent.ExecutorUtils;
+import life.catalogue.concurrent.NamedThreadFactory;
+import life.catalogue.db.PgUtils;
+import life.catalogue.db.mapper.NameUsageMapper;
+import life.catalogue.db.mapper.TaxonRankCountMapper;
+import life.catalogue.db.type2.StringCount;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * TaxonCounter backed by the number of accepted descendants per rank which are materialized in postgres
+ * for every accepted taxon of a dataset, see {@link TaxonRankCountMapper}.
+ *
+ * Counts of an entire dataset are built in a single depth first traversal of its tree.
+ * This happens in the background the first time counts are requested for a dataset and again after its data has changed,
+ * e.g. by an import or the copy of a release.
+ * Sector syncs only rebuild the counts of their target subtree, see {@link #rebuildSubtree(SqlSessionFactory, DSID)}.
+ * Until the counts are available all requests are passed on to an optional fallback counter, e.g. the search index.
+ *
+ * Edits of single taxa are applied incrementally by the TaxonDao, rank changes of names by the NameDao
+ * and taxa converted into synonyms are removed with {@link #removeSubtree(SqlSession, DSID, String)}.
+ * Rebuilds and incremental updates of a dataset are serialized by a postgres advisory lock, see {@link TaxonRankCountMapper#lock(int)}.
+ */
+public class TaxonRankCounter implements TaxonCounter, AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(TaxonRankCounter.class);
+  private static final Rank[] RANKS = Rank.values();
+  private static final int FLUSH_SIZE = 10000;
+  private final SqlSessionFactory factory;
+  private final TaxonCounter fallback;
+  private final LoadingCache<Integer, Boolean> materialized;
+  private final ThreadPoolExecutor exec;
+  // datasets currently queued or being built
+  private final Set<Integer> scheduled = ConcurrentHashMap.newKeySet();
+  // datasets deleted while being built
+  private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param fallback optional counter to use for datasets without materialized counts
+   */
+  public TaxonRankCounter(SqlSessionFactory factory, @Nullable TaxonCounter fallback) {
+    this.factory = factory;
+    this.fallback = fallback;
+    this.materialized = Caffeine.newBuilder()
+      .maximumSize(10000)
+      .expireAfterWrite(1, TimeUnit.HOURS)
+      .build(this::exists);
+    this.exec = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>(100), new NamedThreadFactory("taxon-rank-counter")
+    );
+  }
+
+  @Override
+  public int count(DSID<String> taxonID, Rank countRank) {
+    if (isMaterialized(taxonID.getDatasetKey())) {
+      try (SqlSession session = factory.openSession(true)) {
+        Integer cnt = session.getMapper(TaxonRankCountMapper.class).get(taxonID, countRank);
+        return cnt == null ? 0 : cnt;
+      }
+    }
+    return fallback == null ? 0 : fallback.count(taxonID, countRank);
+  }
+
+  @Override
+  public Map<String, Integer> count(int datasetKey, Collection<String> taxonIDs, Rank countRank) {
+    if (taxonIDs.isEmpty()) {
+      return new HashMap<>();
+    }
+    if (isMaterialized(datasetKey)) {
+      Map<String, Integer> counts = new HashMap<>();
+      taxonIDs.forEach(id -> counts.put(id, 0));
+      try (SqlSession session = factory.openSession(true)) {
+        for (StringCount sc : session.getMapper(TaxonRankCountMapper.class).list(datasetKey, taxonIDs, countRank)) {
+          counts.put(sc.getKey(), sc.getCount());
+        }
+      }
+      return counts;
+    }
+    return fallback == null ? TaxonCounter.super.count(datasetKey, taxonIDs, countRank) : fallback.count(datasetKey, taxonIDs, countRank);
+  }
+
+  /**
+   * @return true if counts exist for the dataset. If not a background build is scheduled.
+   */
+  public boolean isMaterialized(int datasetKey) {
+    if (!scheduled.contains(datasetKey) && materialized.get(datasetKey)) {
+      return true;
+    }
+    schedule(datasetKey);
+    return false;
+  }
+
+  private boolean exists(int datasetKey) {
+    try (SqlSession session = factory.openSession(true)) {
+      return session.getMapper(TaxonRankCountMapper.class).exists(datasetKey);
+    }
+  }
+
+  private void schedule(int datasetKey) {
+    if (scheduled.add(datasetKey)) {
+      try {
+        exec.execute(() -> {
+          try {
+            rebuild(datasetKey);
+          } catch (Exception e) {
+            LOG.error("Failed to build taxon rank counts for dataset {}", datasetKey, e);
+          } finally {
+            scheduled.remove(datasetKey);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // queue is full, we try again with the next request
+        scheduled.remove(datasetKey);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds all counts of a dataset in a single depth first traversal of its accepted taxa.
+   * Existing counts are replaced in a single transaction which holds the lock of the dataset,
+   * so incremental updates wait until the new counts are committed.
+   *
+   * @return number of taxa with counts
+   */
+  public int rebuild(int datasetKey) {
+    LOG.info("Build taxon rank counts for dataset {}", datasetKey);
+    changed.remove(datasetKey);
+    try (SqlSession readSession = factory.openSession(true);
+         SqlSession writeSession = factory.openSession(ExecutorType.BATCH, false)
+    ) {
+      final TaxonRankCountMapper mapper = writeSession.getMapper(TaxonRankCountMapper.class);
+      // the tree must only be read once we hold the lock
+      mapper.lock(datasetKey);
+      mapper.deleteByDataset(datasetKey);
+      final DSID<String> key = DSID.root(datasetKey);
+      CountBuilder builder = new CountBuilder((id, rank, count) -> {
+        mapper.create(key.id(id), rank, count);
+      }, writeSession::flushStatements);
+      PgUtils.consume(
+        () -> readSession.getMapper(NameUsageMapper.class).processTreeSimple(TreeTraversalParameter.datasetNoSynonyms(datasetKey)),
+        builder
+      );
+      builder.finish();
+      // mark as materialized even if no counts exist, e.g. without any accepted taxa
+      mapper.createMarker(datasetKey);
+      // dataset was deleted while we were building the counts, throw them away
+      if (changed.contains(datasetKey)) {
+        LOG.info("Dataset {} deleted while building taxon rank counts. Discard counts of {} taxa", datasetKey, builder.counter);
+        writeSession.rollback();
+        return 0;
+      }
+      writeSession.commit();
+      LOG.info("Built taxon rank counts for {} taxa of dataset {}", builder.counter, datasetKey);
+      return builder.counter;
+
+    } finally {
+      materialized.invalidate(datasetKey);
+    }
+  }
+
+  /**
+   * Removes the counts of all descendants of a taxon before its subtree gets replaced, e.g. by a sector sync,
+   * so no counts of removed taxa are left behind.
+   * The counts of the taxon itself are kept to update its ancestors in {@link #rebuildSubtree(SqlSessionFactory, DSID)}.
+   */
+  public static void deleteDescendants(SqlSessionFactory factory, DSID<String> root) {
+    try (SqlSession session = factory.openSession(false)) {
+      TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+      mapper.lock(root.getDatasetKey());
+      if (mapper.exists(root.getDatasetKey())) {
+        int cnt = mapper.deleteDescendants(root);
+        LOG.info("Deleted {} taxon rank counts of descendants of {}", cnt, root);
+      }
+      session.commit();
+    }
+  }
+
+  /**
+   * Rebuilds the counts of an entire subtree in a single depth first traversal
+   * and applies the difference to the previous counts of its root to all ancestors.
+   * Nothing is done if the dataset has no materialized counts.
+   *
+   * @return number of taxa with counts
+   */
+  public static int rebuildSubtree(SqlSessionFactory factory, DSID<String> root) {
+    final int datasetKey = root.getDatasetKey();
+    try (SqlSession readSession = factory.openSession(true);
+         SqlSession writeSession = factory.openSession(ExecutorType.BATCH, false)
+    ) {
+      final TaxonRankCountMapper mapper = writeSession.getMapper(TaxonRankCountMapper.class);
+      // the tree must only be read once we hold the lock
+      mapper.lock(datasetKey);
+      if (!mapper.exists(datasetKey)) {
+        return 0;
+      }
+      LOG.info("Build taxon rank counts for subtree {}", root);
+      final int[] delta = new int[RANKS.length];
+      for (StringCount sc : mapper.getCounts(root)) {
+        delta[Rank.valueOf(sc.getKey()).ordinal()] -= sc.getCount();
+      }
+      final DSID<String> key = DSID.root(datasetKey);
+      CountBuilder builder = new CountBuilder((id, rank, count) -> {
+        mapper.create(key.id(id), rank, count);
+        if (id.equals(root.getId())) {
+          delta[rank.ordinal()] += count;
+        }
+      }, writeSession::flushStatements);
+      final NameUsageMapper num = readSession.getMapper(NameUsageMapper.class);
+      PgUtils.consume(
+        () -> num.processTreeSimple(TreeTraversalParameter.dataset(datasetKey, root.getId(), null, null, null, false)),
+        sn -> {
+          // replace existing counts, e.g. of foreign children from other sectors
+          mapper.delete(key.id(sn.getId()));
+          builder.accept(sn);
+        }
+      );
+      builder.finish();
+      // apply the difference to all ancestors
+      SimpleName sn = num.getSimple(root);
+      if (sn != null && sn.getParent() != null) {
+        DSID<String> parent = DSID.of(datasetKey, sn.getParent());
+        for (int i = 0; i < delta.length; i++) {
+          if (delta[i] != 0) {
+            mapper.inc(parent, RANKS[i], delta[i]);
+          }
+        }
+      }
+      writeSession.commit();
+      LOG.info("Built taxon rank counts for {} taxa of subtree {}", builder.counter, root);
+      return builder.counter;
+    }
+  }
+
+  /**
+   * Applies rank counts to a taxon and all its parents if the dataset has materialized rank counts.
+   * This acquires the rank count lock of the dataset, so it must be called in the same transaction that changes the tree.
+   * Otherwise a concurrent rebuild might miss or double count the change.
+   *
+   * @param key the taxon to start with. If the id is null nothing is done
+   * @param counts rank counts keyed on the rank name
+   * @param factor to multiply counts with, e.g. -1 to remove them
+   */
+  public static void inc(SqlSession session, DSID<String> key, List<StringCount> counts, int factor) {
+    TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+    if (key.getId() != null && !counts.isEmpty()) {
+      mapper.lock(key.getDatasetKey());
+      if (mapper.exists(key.getDatasetKey())) {
+        for (StringCount sc : counts) {
+          mapper.inc(key, Rank.valueOf(sc.getKey()), factor * sc.getCount());
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves a single accepted taxon from its old to its new rank in its own counts and the ones of all its parents.
+   * Must be called in the same transaction that changes the rank.
+   */
+  public static void changeRank(SqlSession session, DSID<String> key, @Nullable Rank oldRank, @Nullable Rank newRank) {
+    if (!Objects.equals(oldRank, newRank)) {
+      if (oldRank != null) {
+        inc(session, key, List.of(new StringCount(oldRank, 1)), -1);
+      }
+      if (newRank != null) {
+        inc(session, key, List.of(new StringCount(newRank, 1)), 1);
+      }
+    }
+  }
+
+  /**
+   * Removes an accepted taxon and all its accepted descendants from the counts, e.g. before they become synonyms.
+   * The counts of the subtree are subtracted from all ancestors and deleted.
+   * Must be called in the same transaction that changes the tree, but before the subtree is detached from its parent.
+   *
+   * @param root the taxon to remove
+   * @param parentId the current parent of the taxon. If null no ancestors are updated
+   */
+  public static void removeSubtree(SqlSession session, DSID<String> root, @Nullable String parentId) {
+    TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+    mapper.lock(root.getDatasetKey());
+    if (mapper.exists(root.getDatasetKey())) {
+      inc(session, DSID.of(root.getDatasetKey(), parentId), mapper.getCounts(root), -1);
+      mapper.deleteDescendants(root);
+      mapper.delete(root);
+    }
+  }
+
+  /**
+   * Removes all counts of a dataset. Until they are rebuilt the fallback counter is used.
+   */
+  public void delete(int datasetKey) {
+    try (SqlSession session = factory.openSession(false)) {
+      TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+      // waits for running rebuilds
+      mapper.lock(datasetKey);
+      int cnt = mapper.deleteByDataset(datasetKey);
+      session.commit();
+      LOG.info("Deleted {} taxon rank counts of dataset {}", cnt, datasetKey);
+    }
+    materialized.invalidate(datasetKey);
+  }
+
+  @Subscribe
+  public void datasetChanged(DatasetChanged event){
+    if (event.isDeletion()) {
+      changed.add(event.key);
+      materialized.invalidate(event.key);
+    }
+  }
+
+  @Subscribe
+  public void dataChanged(DatasetDataChanged event){
+    // sector syncs update their subtree themselves
+    if (event.isDatasetChange()) {
+      delete(event.datasetKey);
+    }
+  }
+
+  @Override
+  public void close() {
+    ExecutorUtils.shutdown(exec);
+  }
+
+  interface CountWriter {
+    void write(String id, Rank rank, int count);
+  }
+
+  /**
+   * Aggregates counts of a depth first traversal of accepted taxa, keeping only the current classification in memory.
+   * Counts of a taxon are written once all its descendants have been seen.
+   */
+  static class CountBuilder implements Consumer<SimpleName> {
+    private final CountWriter writer;
+    private final Runnable flush;
+    private final Deque<Node> stack = new ArrayDeque<>();
+    int counter = 0;
+
+    private static class Node {
+      final String id;
+      final int[] counts = new int[RANKS.length];
+
+      Node(String id) {
+        this.id = id;
+      }
+    }
+
+    CountBuilder(CountWriter writer, Runnable flush) {
+      this.writer = writer;
+      this.flush = flush;
+    }
+
+    /**
+     * @param sn simple name with the parentID as its parent property
+     */
+    @Override
+    public void accept(SimpleName sn) {
+      while (!stack.isEmpty() && !stack.peekLast().id.equals(sn.getParent())) {
+        pop();
+      }
+      Node n = new Node(sn.getId());
+      if (sn.getRank() != null) {
+        n.counts[sn.getRank().ordinal()]++;
+      }
+      stack.addLast(n);
+    }
+
+    private void pop() {
+      Node n = stack.removeLast();
+      Node parent = stack.peekLast();
+      for (int i = 0; i < n.counts.length; i++) {
+        if (n.counts[i] > 0) {
+          writer.write(n.id, RANKS[i], n.counts[i]);
+          if (parent != null) {
+            parent.counts[i] += n.counts[i];
+          }
+        }
+      }
+      if (++counter % FLUSH_SIZE == 0) {
+        flush.run();
+      }
+    }
+
+    void finish() {
+      while (!stack.isEmpty()) {
+        pop();
+      }
+      flush.run();
+    }
+  }
+}
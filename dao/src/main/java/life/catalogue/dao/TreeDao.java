@@ -240,24 +240,32 @@ public class TreeDao {
   }
 
   /**
-   * @param parent not null, but parent.id might be null
+   * Adds counts to all real nodes with a single call to the taxon counter.
+   * @param parent the parent of all nodes, null for classifications. The parent.id might also be null for root nodes
    */
-  private void addCounts(RankID parent, @Nullable Rank countBy, List<TreeNode> nodes, boolean calcPlaceholders) {
-    if (countBy != null) {
+  private void addCounts(@Nullable RankID parent, @Nullable Rank countBy, List<TreeNode> nodes, boolean calcPlaceholders) {
+    if (countBy != null && !nodes.isEmpty()) {
       int all = 0;
       TreeNode placeholder = null;
-      final DSID<String> key = DSID.root(parent.getDatasetKey());
+      final int datasetKey = parent == null ? nodes.get(0).getDatasetKey() : parent.getDatasetKey();
+      Set<String> ids = new HashSet<>();
+      for (TreeNode n : nodes) {
+        if (!n.isPlaceholder()) {
+          ids.add(n.getId());
+        }
+      }
+      final Map<String, Integer> counts = taxonCounter.count(datasetKey, ids, countBy);
       for (TreeNode n : nodes) {
         if (n.isPlaceholder() && !calcPlaceholders) {
           placeholder = n;
         } else if (!n.isPlaceholder()) {
-          n.setCount(taxonCounter.count(key.id(n.getId()), countBy));
+          n.setCount(counts.getOrDefault(n.getId(), 0));
           all += n.getCount();
         } else {
           //TODO: calculate placeholders for the classification which can be multiple placeholders...
         }
       }
-      if (placeholder != null && parent.hasId()) {
+      if (placeholder != null && parent != null && parent.hasId()) {
         int parentCount = taxonCounter.count(parent, countBy);
         placeholder.setCount(parentCount - all);
       }
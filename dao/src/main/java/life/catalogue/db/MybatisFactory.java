@@ -7,6 +7,7 @@ import life.catalogue.db.mapper.NameMapper;
 import life.catalogue.db.mapper.UsageNameID;
 import life.catalogue.db.mapper.legacy.model.LName;
 import life.catalogue.db.type.UuidTypeHandler;
+import life.catalogue.db.type2.MetricCount;
 import life.catalogue.db.type2.StringCount;
 
 import org.gbif.nameparser.api.ParsedName;
@@ -142,6 +143,7 @@ public class MybatisFactory {
     // legacy package
     registry.registerAliases(LName.class.getPackage().getName());
     registry.registerAlias(StringCount.class);
+    registry.registerAlias(MetricCount.class);
     registry.registerAlias(UsageNameID.class);
     registry.registerAlias("TreeNodeMybatis", TreeNode.TreeNodeMybatis.class);
     registry.registerAlias("UsageDecision", Duplicate.UsageDecision.class);
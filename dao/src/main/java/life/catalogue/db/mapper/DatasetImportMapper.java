@@ -4,10 +4,9 @@ import life.catalogue.api.model.DatasetImport;
 import life.catalogue.api.model.Page;
 import life.catalogue.api.vocab.ImportState;
 import life.catalogue.db.DatasetProcessable;
+import life.catalogue.db.type2.MetricCount;
 import life.catalogue.db.type2.StringCount;
 
-import org.gbif.dwc.terms.Term;
-
 import java.util.Collection;
 import java.util.List;
 
@@ -54,37 +53,34 @@ public interface DatasetImportMapper extends DatasetProcessable<DatasetImport> {
   void update(@Param("imp") DatasetImport datasetImport);
 
   Integer countBareName(@Param("key") int datasetKey);
-  Integer countDistribution(@Param("key") int datasetKey);
   Integer countEstimate(@Param("key") int datasetKey);
-  Integer countMedia(@Param("key") int datasetKey);
-  Integer countName(@Param("key") int datasetKey);
   Integer countReference(@Param("key") int datasetKey);
-  Integer countSynonym(@Param("key") int datasetKey);
-  Integer countTaxon(@Param("key") int datasetKey);
   Integer countTreatment(@Param("key") int datasetKey);
-  Integer countTypeMaterial(@Param("key") int datasetKey);
-  Integer countVerbatim(@Param("key") int datasetKey);
-  Integer countVernacular(@Param("key") int datasetKey);
   
   List<StringCount> countDistributionsByGazetteer(@Param("key") int datasetKey);
-  List<StringCount> countExtinctTaxaByRank(@Param("key") int datasetKey);
-  List<StringCount> countIssues(@Param("key") int datasetKey);
   List<StringCount> countMediaByType(@Param("key") int datasetKey);
   List<StringCount> countNameRelationsByType(@Param("key") int datasetKey);
-  List<StringCount> countNamesByCode(@Param("key") int datasetKey);
-  List<StringCount> countNamesByRank(@Param("key") int datasetKey);
-  List<StringCount> countNamesByStatus(@Param("key") int datasetKey);
-  List<StringCount> countNamesByType(@Param("key") int datasetKey);
   List<StringCount> countSpeciesInteractionsByType(@Param("key") int datasetKey);
-  List<StringCount> countSynonymsByRank(@Param("key") int datasetKey);
-  List<StringCount> countTaxaByRank(@Param("key") int datasetKey);
   List<StringCount> countTaxonConceptRelationsByType(@Param("key") int datasetKey);
   List<StringCount> countTypeMaterialByStatus(@Param("key") int datasetKey);
-  List<StringCount> countUsagesByOrigin(@Param("key") int datasetKey);
-  List<StringCount> countUsagesByStatus(@Param("key") int datasetKey);
-  List<StringCount> countVerbatimByType(@Param("key") int datasetKey);
-  List<StringCount> countVerbatimTerms(@Param("key") int datasetKey, @Param("rowType") Term rowType);
   List<StringCount> countVernacularsByLanguage(@Param("key") int datasetKey);
 
+  /**
+   * Counts names by rank, code, status and type in a single scan.
+   * Metrics are named rank, code, status and type.
+   */
+  List<MetricCount> countNameMetrics(@Param("key") int datasetKey);
+
+  /**
+   * Counts usages by status, origin and the rank of their name for taxa, synonyms and extinct taxa in a single scan.
+   * Metrics are named status, origin, taxonRank, synonymRank and extinctRank.
+   */
+  List<MetricCount> countUsageMetrics(@Param("key") int datasetKey);
+
+  /**
+   * Counts verbatim records, their issues and terms for each row type in a single scan.
+   * Metrics are named type, issue and term, all with a row type.
+   */
+  List<MetricCount> countVerbatimMetrics(@Param("key") int datasetKey);
 
 }
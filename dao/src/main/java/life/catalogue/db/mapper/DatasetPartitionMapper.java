@@ -52,7 +52,9 @@ public interface DatasetPartitionMapper {
 
   List<String> NON_PARTITIONED_TABLES = Lists.newArrayList(
     "name_match",
-    "estimate"
+    "estimate",
+    "taxon_rank_count",
+    "taxon_rank_count_dataset"
 
   );
 
@@ -133,6 +133,20 @@ public interface NameUsageMapper extends SectorProcessable<NameUsageBase>, CopyD
    */
   List<SimpleNameWithPub> listByCanonNIDX(@Param("datasetKey") int datasetKey, @Param("nidx") int canonicalNidx);
 
+  /**
+   * List all usages linked to an index name with any of the given canonical nidx.
+   * The parent property is filled with the parent ID, not the name!
+   * @param canonicalNidx non empty collection of canonical names index ids
+   */
+  List<SimpleNameWithPub> listByCanonNIDXs(@Param("datasetKey") int datasetKey, @Param("nidx") Collection<Integer> canonicalNidx);
+
+  /**
+   * List the given usages together with all their ancestors in a single query.
+   * The parent property is filled with the parent ID, not the name!
+   * @param ids non empty collection of usage ids
+   */
+  List<SimpleNameWithPub> listSimplePubWithAncestors(@Param("datasetKey") int datasetKey, @Param("ids") Collection<String> ids);
+
   /**
    * Warning, this does not count bare names, only true usages!
    */
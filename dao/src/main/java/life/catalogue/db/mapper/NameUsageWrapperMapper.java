@@ -46,9 +46,11 @@ public interface NameUsageWrapperMapper {
    *
    * @param datasetKey the dataset, e.g. catalogue, to process
    * @param sectorKey the optional sector to restrict the processed usages to
+   * @param withoutSector if true and no sectorKey is given restricts the processed usages to the ones which do not belong to any sector
    */
   Cursor<NameUsageWrapper> processWithoutClassification(@Param("datasetKey") Integer datasetKey,
-                                          @Nullable @Param("sectorKey") Integer sectorKey);
+                                          @Nullable @Param("sectorKey") Integer sectorKey,
+                                          @Param("withoutSector") boolean withoutSector);
 
   /**
    * Traverses a subtree returning classifications as list of simple names objects only.
@@ -5,6 +5,7 @@ import life.catalogue.api.model.Page;
 import life.catalogue.api.model.SectorImport;
 import life.catalogue.api.vocab.ImportState;
 import life.catalogue.db.DatasetProcessable;
+import life.catalogue.db.type2.MetricCount;
 import life.catalogue.db.type2.StringCount;
 
 import java.util.Collection;
@@ -84,4 +85,16 @@ public interface SectorImportMapper extends DatasetProcessable<SectorImport> {
   List<StringCount> countUsagesByOrigin(@Param("datasetKey") int datasetKey, @Param("sectorKey") int sectorKey);
   List<StringCount> countUsagesByStatus(@Param("datasetKey") int datasetKey, @Param("sectorKey") int sectorKey);
   List<StringCount> countVernacularsByLanguage(@Param("datasetKey") int datasetKey, @Param("sectorKey") int sectorKey);
+
+  /**
+   * Counts names of a sector by rank, code, status and type in a single scan.
+   * Metrics are named rank, code, status and type.
+   */
+  List<MetricCount> countNameMetrics(@Param("datasetKey") int datasetKey, @Param("sectorKey") int sectorKey);
+
+  /**
+   * Counts usages of a sector by status, origin and the rank of their name for taxa, synonyms and extinct taxa in a single scan.
+   * Metrics are named status, origin, taxonRank, synonymRank and extinctRank.
+   */
+  List<MetricCount> countUsageMetrics(@Param("datasetKey") int datasetKey, @Param("sectorKey") int sectorKey);
 }
@@ -0,0 +1,80 @@
+package life.catalogue.db.mapper;
+
+import life.catalogue.api.model.DSID;
+import life.catalogue.db.type2.StringCount;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * Mapper for the materialized number of accepted descendants per rank of all accepted taxa in a dataset.
+ * Counts include the taxon itself, so a species counts itself for rank species.
+ *
+ * A dataset is materialized once its counts have been built completely, which is recorded by a marker
+ * so that datasets without any counts, e.g. without accepted taxa, are not rebuilt over and over.
+ * All changes to the counts of a dataset must be done holding its lock.
+ */
+public interface TaxonRankCountMapper {
+
+  /**
+   * @return true if the counts of the given dataset have been materialized
+   */
+  boolean exists(@Param("datasetKey") int datasetKey);
+
+  /**
+   * Acquires a transaction scoped advisory lock for the counts of a dataset,
+   * waiting until other transactions holding it have finished.
+   */
+  boolean lock(@Param("datasetKey") int datasetKey);
+
+  /**
+   * Marks the counts of a dataset as materialized.
+   */
+  void createMarker(@Param("datasetKey") int datasetKey);
+
+  /**
+   * @return the number of accepted descendants of the given rank or null if none exist
+   */
+  Integer get(@Param("key") DSID<String> key, @Param("rank") Rank rank);
+
+  /**
+   * @param ids must contain at least one value, not allowed to be empty !!!
+   * @return counts for all given taxa that have descendants of the given rank with the taxon id as the key
+   */
+  List<StringCount> list(@Param("datasetKey") int datasetKey, @Param("ids") Collection<String> ids, @Param("rank") Rank rank);
+
+  /**
+   * @return all counts of a single taxon with the rank name as the key
+   */
+  List<StringCount> getCounts(@Param("key") DSID<String> key);
+
+  void create(@Param("key") DSID<String> key, @Param("rank") Rank rank, @Param("count") int count);
+
+  /**
+   * Recursively updates the count of a given rank for a given taxon and all its parents.
+   * Positive deltas create missing counts, negative ones only update existing counts and never go below zero.
+   * @param key the taxon to start with
+   * @param delta the change to apply to the count, can be negative
+   */
+  void inc(@Param("key") DSID<String> key, @Param("rank") Rank rank, @Param("delta") int delta);
+
+  /**
+   * Deletes all counts of a single taxon
+   */
+  void delete(@Param("key") DSID<String> key);
+
+  /**
+   * Deletes the counts of all descendants of a taxon, keeping the counts of the taxon itself
+   * @return number of deleted counts
+   */
+  int deleteDescendants(@Param("key") DSID<String> key);
+
+  /**
+   * Deletes all counts of a dataset and its marker
+   */
+  int deleteByDataset(@Param("datasetKey") int datasetKey);
+}
@@ -75,8 +75,11 @@ public interface VerbatimRecordMapper extends Create<VerbatimRecord>, DatasetPro
    * into a single pair of usage id and non empty issues.
    * @param datasetKey
    * @param sectorKey optional sector to restrict the issues to
+   * @param withoutSector if true and no sectorKey is given restricts the issues to usages which do not belong to any sector
    */
-  void createTmpIssuesTable(@Param("datasetKey") int datasetKey, @Nullable @Param("sectorKey") Integer sectorKey);
+  void createTmpIssuesTable(@Param("datasetKey") int datasetKey,
+                            @Nullable @Param("sectorKey") Integer sectorKey,
+                            @Param("withoutSector") boolean withoutSector);
 
   /**
    * Process all dataset issues of the temporary table tmp_usage_issues that needs to be existing for the given session.
@@ -4,7 +4,7 @@ import life.catalogue.api.exception.NotFoundException;
 import life.catalogue.api.exception.TimeoutException;
 import life.catalogue.api.exception.UnavailableException;
 import life.catalogue.api.model.ImportAttempt;
-import life.catalogue.common.io.InputStreamUtils;
+import life.catalogue.common.io.ExternalSort;
 import life.catalogue.common.io.UTF8IoUtils;
 import life.catalogue.common.lang.InterruptedRuntimeException;
 import life.catalogue.dao.FileMetricsDao;
@@ -13,10 +13,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.HashSet;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
@@ -29,20 +28,30 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.difflib.DiffUtils;
+import com.github.difflib.UnifiedDiffUtils;
+import com.github.difflib.algorithm.DiffAlgorithmListener;
+import com.github.difflib.patch.Patch;
 import com.google.common.annotations.VisibleForTesting;
 
 public abstract class BaseDiffService<K> {
   private static final Logger LOG = LoggerFactory.getLogger(BaseDiffService.class);
 
   private final static Pattern ATTEMPTS = Pattern.compile("^(\\d+)\\.\\.(\\d+)$");
+  protected final static ExternalSort SORTER = new ExternalSort();
   protected final SqlSessionFactory factory;
   protected final FileMetricsDao<K> dao;
   private final int timeoutInSeconds;
+  private final int maxLines;
 
-  public BaseDiffService(FileMetricsDao<K> dao, SqlSessionFactory factory, int timeoutInSeconds) {
+  /**
+   * @param maxLines maximum number of lines of each file to diff in memory, larger files are diffed in a streaming fashion
+   */
+  public BaseDiffService(FileMetricsDao<K> dao, SqlSessionFactory factory, int timeoutInSeconds, int maxLines) {
     this.factory = factory;
     this.dao = dao;
     this.timeoutInSeconds = timeoutInSeconds;
+    this.maxLines = maxLines;
   }
 
   public Reader treeDiff(K key, String attempts) {
@@ -52,7 +61,7 @@ public abstract class BaseDiffService<K> {
 
   public Reader namesDiff(K key, String attempts) {
     int[] atts = parseAttempts(key, attempts);
-    return udiff(key, atts, 0, a -> dao.namesFile(key, a));
+    return sortedUdiff(key, atts, 0, a -> dao.namesFile(key, a));
   }
 
   abstract int[] parseAttempts(K key, String attempts);
@@ -112,31 +121,38 @@ public abstract class BaseDiffService<K> {
   @VisibleForTesting
   protected NamesDiff namesDiff(K key, int[] atts, Function<Integer, File> getFile) {
     File[] files = attemptToFiles(key, atts, getFile);
+    File[] sorted = new File[2];
     try {
+      sorted[0] = SORTER.sort(files[0]);
+      sorted[1] = SORTER.sort(files[1]);
       final NamesDiff diff = new NamesDiff(key, atts[0], atts[1]);
-      Set<String> n1 = FileMetricsDao.readLines(files[0]);
-      Set<String> n2 = FileMetricsDao.readLines(files[1]);
+      try (BufferedReader r1 = UTF8IoUtils.readerFromFile(sorted[0]);
+           BufferedReader r2 = UTF8IoUtils.readerFromFile(sorted[1])
+      ) {
+        SortedLineDiff.diff(r1, r2, new SortedLineDiff.Handler() {
+          @Override
+          public void equal(String line) {
+          }
 
-      diff.setDeleted(new HashSet<>(n1));
-      diff.getDeleted().removeAll(n2);
+          @Override
+          public void deleted(String line) {
+            diff.getDeleted().add(line);
+          }
 
-      diff.setInserted(new HashSet<>(n2));
-      diff.getInserted().removeAll(n1);
+          @Override
+          public void inserted(String line) {
+            diff.getInserted().add(line);
+          }
+        });
+      }
       return diff;
 
     } catch (IOException e) {
       throw new RuntimeException(String.format("Failed to read files for %s %s attempts %s-%s", dao.getType(), key, atts[0], atts[1]));
-    }
-  }
 
-  /**
-   * Retrieves the version of the unix diff util being used.
-   * OSX and CentOS use different implementations.
-   */
-  public String diffBinaryVersion() throws IOException {
-    Runtime rt = Runtime.getRuntime();
-    Process ps = rt.exec("diff --version");
-    return InputStreamUtils.readEntireStream(ps.getInputStream());
+    } finally {
+      delete(sorted);
+    }
   }
 
   protected String label(K key) {
@@ -148,8 +164,7 @@ public abstract class BaseDiffService<K> {
   }
 
   /**
-   * Generates a unified diff from two gzipped files using a native unix process.
-   * It allows a maximum of 10s before timing out.
+   * Generates a unified diff from two optionally gzipped files keeping the original order of lines.
    * @param atts
    * @param context number of lines of the context to include
    * @param getFile
@@ -157,64 +172,146 @@ public abstract class BaseDiffService<K> {
   @VisibleForTesting
   protected BufferedReader udiff(K key, int[] atts, int context, Function<Integer, File> getFile) {
     File[] files = attemptToFiles(key, atts, getFile);
-    return udiff(files[0], label(key,atts[0]), files[1], label(key,atts[1]), context, true);
+    return udiff(files[0], label(key,atts[0]), files[1], label(key,atts[1]), context);
   }
 
-  private String input(File f, boolean unzip) {
-    return unzip ? String.format("<(gunzip -c %s)", f.getAbsolutePath()) : f.getAbsolutePath();
+  /**
+   * Generates a unified diff from two optionally gzipped files which are sorted first
+   * so the diff can be streamed with bounded memory. The original order of lines is lost.
+   */
+  @VisibleForTesting
+  protected BufferedReader sortedUdiff(K key, int[] atts, int context, Function<Integer, File> getFile) {
+    File[] files = attemptToFiles(key, atts, getFile);
+    File[] sorted = new File[2];
+    try {
+      sorted[0] = SORTER.sort(files[0]);
+      sorted[1] = SORTER.sort(files[1]);
+      return sortedUdiff(sorted[0], label(key,atts[0]), sorted[1], label(key,atts[1]), context);
+
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to sort diff input", e);
+
+    } finally {
+      delete(sorted);
+    }
+  }
+
+  /**
+   * Generates a unified diff from two files which are both already sorted by their natural java string order.
+   * Memory usage does not depend on the file size.
+   */
+  protected BufferedReader sortedUdiff(File f1, String label1, File f2, String label2, int context) {
+    try (BufferedReader r1 = UTF8IoUtils.readerFromMaybeGzipFile(f1);
+         BufferedReader r2 = UTF8IoUtils.readerFromMaybeGzipFile(f2)
+    ) {
+      File tmp = tmpDiffFile();
+      try (Writer w = UTF8IoUtils.writerFromFile(tmp)) {
+        SortedLineDiff.unifiedDiff(r1, label1, r2, label2, context, w);
+      }
+      return UTF8IoUtils.readerFromFile(tmp);
+
+    } catch (IOException e) {
+      throw new RuntimeException("Diff failed", e);
+    }
   }
 
-  protected BufferedReader udiff(File f1, String label1, File f2, String label2, int context, boolean unzip) {
-    Process ps = null;
-    File tmp;
+  /**
+   * Generates a unified diff from two optionally gzipped files using an in memory Myers diff.
+   * The diff is aborted with a TimeoutException if it takes longer than the configured timeout.
+   * Files with more than the configured maximum number of lines are not read into memory,
+   * but are compared with a streaming diff with a bounded look ahead window instead.
+   */
+  protected BufferedReader udiff(File f1, String label1, File f2, String label2, int context) {
     try {
-      String cmd = String.format("export LC_CTYPE=en_US.UTF-8; diff --label %s --label %s -B -d -U %s %s %s",
-        label1, label2, context, input(f1, unzip), input(f2, unzip));
-      // we write the diff to a temp file as we get into problems with the process not returning when streaming the results directly.
-      // Especially when http connections are aborted.
-      tmp = File.createTempFile("coldiff-", ".diff");
-      tmp.deleteOnExit();
-      LOG.debug("Execute: {}", cmd);
-      ProcessBuilder pb = new ProcessBuilder("bash", "-c", cmd + "; exit 0");
-      pb.redirectOutput(tmp);
-
-      ps = pb.start();
-      boolean timeout = false;
-      // limit max time, see https://stackoverflow.com/questions/37043114/how-to-stop-a-command-being-executed-after-4-5-seconds-through-process-builder/37065167#37065167
-      if (!ps.waitFor(timeoutInSeconds, TimeUnit.SECONDS)) {
-        LOG.error("Diff between {} and {} has timed out after {}s", f1.getName(), f2.getName(), timeoutInSeconds);
-        timeout=true;
+      List<String> lines1 = readLines(f1);
+      List<String> lines2 = lines1 == null ? null : readLines(f2);
+      if (lines2 == null) {
+        LOG.info("Use streaming diff for {} and {} with more than {} lines", f1.getName(), f2.getName(), maxLines);
+        return windowedUdiff(f1, label1, f2, label2, context);
       }
-      int status = ps.waitFor();
-      if (status != 0) {
-        String error = InputStreamUtils.readEntireStream(ps.getErrorStream());
-        if (timeout) {
-          throw new TimeoutException("The requested diff timed out. Consider to narrow down your comparison to not overload the server");
+      final long deadline = System.currentTimeMillis() + timeoutInSeconds * 1000L;
+      Patch<String> patch = DiffUtils.diff(lines1, lines2, new DiffAlgorithmListener() {
+        @Override
+        public void diffStart() {
+        }
+
+        @Override
+        public void diffStep(int value, int max) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedRuntimeException("Diff was interrupted");
+          }
+          if (System.currentTimeMillis() > deadline) {
+            LOG.error("Diff between {} and {} has timed out after {}s", f1.getName(), f2.getName(), timeoutInSeconds);
+            throw new TimeoutException("The requested diff timed out. Consider to narrow down your comparison to not overload the server");
+          }
+        }
+
+        @Override
+        public void diffEnd() {
+        }
+      });
+
+      File tmp = tmpDiffFile();
+      try (Writer w = UTF8IoUtils.writerFromFile(tmp)) {
+        for (String line : UnifiedDiffUtils.generateUnifiedDiff(label1, label2, lines1, patch, context)) {
+          w.write(line);
+          w.write('\n');
         }
-        LOG.warn("Unix diff failed with status {}: {}", status, error);
-        throw new RuntimeException("Unix diff failed with status " + status + ": " + error);
       }
       return UTF8IoUtils.readerFromFile(tmp);
 
     } catch (IOException e) {
-      throw new RuntimeException("Unix diff failed", e);
+      throw new RuntimeException("Diff failed", e);
+    }
+  }
 
-    } catch (InterruptedException e) {
-      throw new InterruptedRuntimeException("Unix diff was interrupted", e);
+  /**
+   * Generates a unified diff from two optionally gzipped files keeping their original order
+   * with memory bounded by the look ahead window.
+   */
+  private BufferedReader windowedUdiff(File f1, String label1, File f2, String label2, int context) throws IOException {
+    try (BufferedReader r1 = UTF8IoUtils.readerFromMaybeGzipFile(f1);
+         BufferedReader r2 = UTF8IoUtils.readerFromMaybeGzipFile(f2)
+    ) {
+      File tmp = tmpDiffFile();
+      try (Writer w = UTF8IoUtils.writerFromFile(tmp)) {
+        WindowedLineDiff.unifiedDiff(r1, label1, r2, label2, context, WindowedLineDiff.DEFAULT_WINDOW, w);
+      }
+      return UTF8IoUtils.readerFromFile(tmp);
+    }
+  }
 
-    } finally {
-      // make sure we leave no process behind
-      if (ps != null) {
-        ps.destroy();
-        try {
-          if (!ps.waitFor(5, TimeUnit.SECONDS)) {
-            ps.destroyForcibly();
+  /**
+   * Reads all non blank lines of an optionally gzipped file.
+   * @return the lines or null if the file has more than maxLines non blank lines
+   */
+  private List<String> readLines(File f) throws IOException {
+    try (BufferedReader br = UTF8IoUtils.readerFromMaybeGzipFile(f)) {
+      List<String> lines = new ArrayList<>();
+      String line;
+      while ((line = br.readLine()) != null) {
+        if (!line.isBlank()) {
+          if (lines.size() >= maxLines) {
+            return null;
           }
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          ps.destroyForcibly();
+          lines.add(line);
         }
       }
+      return lines;
+    }
+  }
+
+  private static File tmpDiffFile() throws IOException {
+    File tmp = File.createTempFile("coldiff-", ".diff");
+    tmp.deleteOnExit();
+    return tmp;
+  }
+
+  private static void delete(File[] files) {
+    for (File f : files) {
+      if (f != null) {
+        f.delete();
+      }
     }
   }
 
@@ -6,7 +6,6 @@ import life.catalogue.api.model.Page;
 import life.catalogue.api.model.TreeTraversalParameter;
 import life.catalogue.api.vocab.ImportState;
 import life.catalogue.common.io.UTF8IoUtils;
-import life.catalogue.common.io.UnixCmdUtils;
 import life.catalogue.dao.EntityDao;
 import life.catalogue.dao.FileMetricsDatasetDao;
 import life.catalogue.db.mapper.DatasetImportMapper;
@@ -38,8 +37,8 @@ public class DatasetDiffService extends BaseDiffService<Integer> {
   private final EntityDao<Integer, Dataset, DatasetMapper> ddao;
   private final Set<Integer> userDiffs = ConcurrentHashMap.newKeySet();
 
-  public DatasetDiffService(SqlSessionFactory factory, FileMetricsDatasetDao dao, int timeoutInSeconds) {
-    super(dao, factory, timeoutInSeconds);
+  public DatasetDiffService(SqlSessionFactory factory, FileMetricsDatasetDao dao, int timeoutInSeconds, int maxLines) {
+    super(dao, factory, timeoutInSeconds, maxLines);
     ddao = new EntityDao<>(false, factory, Dataset.class, DatasetMapper.class, null);
   }
 
@@ -82,7 +81,7 @@ public class DatasetDiffService extends BaseDiffService<Integer> {
       userDiffs.add(userKey); // lock, we only allow a single diff per user
       File f1 = printAndSort(key1, root1, lowestRank, inclAuthorship, inclSynonyms, showParent, parentRank);
       File f2 = printAndSort(key2, root2, lowestRank, inclAuthorship, inclSynonyms, showParent, parentRank);
-      return udiff(f1, label(key1), f2, label(key2), 0, false);
+      return sortedUdiff(f1, label(key1), f2, label(key2), 0);
 
     } finally {
       userDiffs.remove(userKey); // unlock
@@ -103,7 +102,7 @@ public class DatasetDiffService extends BaseDiffService<Integer> {
     }
     w.close();
     // sort file
-    UnixCmdUtils.sort(f);
+    SORTER.sort(f, f);
     return f;
   }
 
@@ -0,0 +1,185 @@
+package life.catalogue.db.tree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming line diff of two inputs which are both sorted by their natural java string order,
+ * e.g. by an ExternalSort. For sorted inputs a simple merge yields a minimal diff,
+ * so both inputs are read only once line by line and memory does not depend on their size.
+ * Blank lines are ignored.
+ */
+public class SortedLineDiff {
+
+  public interface Handler {
+    void equal(String line) throws IOException;
+
+    void deleted(String line) throws IOException;
+
+    void inserted(String line) throws IOException;
+  }
+
+  public static void diff(BufferedReader r1, BufferedReader r2, Handler handler) throws IOException {
+    String l1 = next(r1);
+    String l2 = next(r2);
+    while (l1 != null || l2 != null) {
+      int cmp = l1 == null ? 1 : (l2 == null ? -1 : l1.compareTo(l2));
+      if (cmp == 0) {
+        handler.equal(l1);
+        l1 = next(r1);
+        l2 = next(r2);
+      } else if (cmp < 0) {
+        handler.deleted(l1);
+        l1 = next(r1);
+      } else {
+        handler.inserted(l2);
+        l2 = next(r2);
+      }
+    }
+  }
+
+  /**
+   * Writes a unified diff in the same format as the unix diff command with the given labels.
+   * Nothing is written if both inputs are identical.
+   *
+   * @param context number of unchanged lines to include around changes
+   */
+  public static void unifiedDiff(BufferedReader r1, String label1, BufferedReader r2, String label2, int context, Writer out) throws IOException {
+    UnifiedDiffWriter w = new UnifiedDiffWriter(label1, label2, context, out);
+    diff(r1, r2, w);
+    w.finish();
+  }
+
+  static String next(BufferedReader br) throws IOException {
+    String line;
+    do {
+      line = br.readLine();
+    } while (line != null && line.isBlank());
+    return line;
+  }
+
+  /**
+   * Writes the changes reported to it as unified diff hunks.
+   */
+  static class UnifiedDiffWriter implements Handler {
+    private final String label1;
+    private final String label2;
+    private final int context;
+    private final Writer out;
+    private boolean header = false;
+    // number of lines read so far
+    private int line1;
+    private int line2;
+    // unchanged lines before the next hunk
+    private final ArrayDeque<String> before = new ArrayDeque<>();
+    // unchanged lines after the last change of the current hunk
+    private final List<String> pending = new ArrayList<>();
+    // the current hunk, null if there is none
+    private List<String> hunk;
+    private int start1;
+    private int start2;
+    private int count1;
+    private int count2;
+
+    UnifiedDiffWriter(String label1, String label2, int context, Writer out) {
+      this.label1 = label1;
+      this.label2 = label2;
+      this.context = context;
+      this.out = out;
+    }
+
+    @Override
+    public void equal(String line) throws IOException {
+      line1++;
+      line2++;
+      if (hunk != null) {
+        pending.add(line);
+        if (pending.size() > 2 * context) {
+          closeHunk();
+        }
+      } else if (context > 0) {
+        before.addLast(line);
+        if (before.size() > context) {
+          before.removeFirst();
+        }
+      }
+    }
+
+    @Override
+    public void deleted(String line) throws IOException {
+      change('-', line);
+      count1++;
+      line1++;
+    }
+
+    @Override
+    public void inserted(String line) throws IOException {
+      change('+', line);
+      count2++;
+      line2++;
+    }
+
+    private void change(char prefix, String line) {
+      if (hunk == null) {
+        hunk = new ArrayList<>();
+        start1 = line1 - before.size() + 1;
+        start2 = line2 - before.size() + 1;
+        count1 = 0;
+        count2 = 0;
+        before.forEach(this::addContext);
+        before.clear();
+      } else {
+        pending.forEach(this::addContext);
+        pending.clear();
+      }
+      hunk.add(prefix + line);
+    }
+
+    private void addContext(String line) {
+      hunk.add(' ' + line);
+      count1++;
+      count2++;
+    }
+
+    private void closeHunk() throws IOException {
+      int trailing = Math.min(context, pending.size());
+      for (int i = 0; i < trailing; i++) {
+        addContext(pending.get(i));
+      }
+      for (int i = Math.max(trailing, pending.size() - context); i < pending.size(); i++) {
+        before.addLast(pending.get(i));
+      }
+      pending.clear();
+      if (!header) {
+        out.write("--- " + label1 + "\n");
+        out.write("+++ " + label2 + "\n");
+        header = true;
+      }
+      out.write("@@ -" + range(start1, count1) + " +" + range(start2, count2) + " @@\n");
+      for (String l : hunk) {
+        out.write(l);
+        out.write('\n');
+      }
+      hunk = null;
+    }
+
+    private static String range(int start, int count) {
+      if (count == 0) {
+        return (start - 1) + ",0";
+      } else if (count == 1) {
+        return String.valueOf(start);
+      }
+      return start + "," + count;
+    }
+
+    void finish() throws IOException {
+      if (hunk != null) {
+        closeHunk();
+      }
+    }
+  }
+}
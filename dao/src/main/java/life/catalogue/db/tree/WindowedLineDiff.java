@@ -0,0 +1,129 @@
+package life.catalogue.db.tree;
+
+import life.catalogue.common.lang.InterruptedRuntimeException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming line diff of two inputs in their original order that only looks ahead a bounded window of lines.
+ * Both inputs are read once and memory is bounded by the window size, so files of any size can be compared.
+ *
+ * Identical lines are consumed as long as both inputs agree. On a difference the nearest pair of equal lines
+ * within the window is searched, first in the next few lines and then in a doubling radius, and all lines before it
+ * are reported as deleted or inserted. Changes are therefore minimal as long as they are local,
+ * but blocks moved further than the window are reported as a deletion and an insertion.
+ * Blank lines are ignored.
+ */
+public class WindowedLineDiff {
+  public static final int DEFAULT_WINDOW = 10000;
+
+  /**
+   * Writes a unified diff in the same format as the unix diff command with the given labels.
+   * Nothing is written if both inputs are identical.
+   *
+   * @param context number of unchanged lines to include around changes
+   * @param window maximum number of lines of each input to look ahead for the end of a change
+   */
+  public static void unifiedDiff(BufferedReader r1, String label1, BufferedReader r2, String label2, int context, int window, Writer out) throws IOException {
+    SortedLineDiff.UnifiedDiffWriter w = new SortedLineDiff.UnifiedDiffWriter(label1, label2, context, out);
+    diff(r1, r2, window, w);
+    w.finish();
+  }
+
+  public static void diff(BufferedReader r1, BufferedReader r2, int window, SortedLineDiff.Handler handler) throws IOException {
+    LineBuffer b1 = new LineBuffer(r1, window);
+    LineBuffer b2 = new LineBuffer(r2, window);
+    while (b1.fill() | b2.fill()) {
+      if (b1.size > 0 && b2.size > 0 && b1.get(0).equals(b2.get(0))) {
+        handler.equal(b1.removeFirst());
+        b2.removeFirst();
+        continue;
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedRuntimeException("Diff was interrupted");
+      }
+      int[] sync = resync(b1, b2, window);
+      int deleted = sync == null ? b1.size : sync[0];
+      int inserted = sync == null ? b2.size : sync[1];
+      for (int i = 0; i < deleted; i++) {
+        handler.deleted(b1.removeFirst());
+      }
+      for (int i = 0; i < inserted; i++) {
+        handler.inserted(b2.removeFirst());
+      }
+    }
+  }
+
+  /**
+   * Finds the closest pair of equal lines in both buffers, minimizing the number of lines skipped.
+   * @return the offsets of the equal lines in both buffers or null if there are none within the window
+   */
+  private static int[] resync(LineBuffer b1, LineBuffer b2, int window) {
+    for (int radius = 8; ; radius *= 2) {
+      int r1 = Math.min(radius, b1.size);
+      int r2 = Math.min(radius, b2.size);
+      Map<String, Integer> index = new HashMap<>(r2 * 2);
+      for (int j = r2 - 1; j >= 0; j--) {
+        index.put(b2.get(j), j);
+      }
+      int[] best = null;
+      for (int i = 0; i < r1 && (best == null || i < best[0] + best[1]); i++) {
+        Integer j = index.get(b1.get(i));
+        if (j != null && (best == null || i + j < best[0] + best[1])) {
+          best = new int[]{i, j};
+        }
+      }
+      if (best != null || (r1 == b1.size && r2 == b2.size) || radius >= window) {
+        return best;
+      }
+    }
+  }
+
+  /**
+   * Ring buffer of the next non blank lines of a reader.
+   */
+  private static class LineBuffer {
+    private final BufferedReader reader;
+    private final String[] lines;
+    private int head;
+    private int size;
+    private boolean eof;
+
+    LineBuffer(BufferedReader reader, int window) {
+      this.reader = reader;
+      this.lines = new String[window];
+    }
+
+    /**
+     * Reads lines until the buffer is full or the reader is exhausted.
+     * @return true if the buffer is not empty
+     */
+    boolean fill() throws IOException {
+      while (!eof && size < lines.length) {
+        String line = SortedLineDiff.next(reader);
+        if (line == null) {
+          eof = true;
+        } else {
+          lines[(head + size++) % lines.length] = line;
+        }
+      }
+      return size > 0;
+    }
+
+    String get(int idx) {
+      return lines[(head + idx) % lines.length];
+    }
+
+    String removeFirst() {
+      String line = lines[head];
+      lines[head] = null;
+      head = (head + 1) % lines.length;
+      size--;
+      return line;
+    }
+  }
+}
@@ -26,11 +26,17 @@ public class TermTypeHandler extends BaseTypeHandler<Term> {
   
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Term parameter, JdbcType jdbcType) throws SQLException {
-    if (parameter instanceof UnknownTerm) {
-      ps.setString(i, parameter.qualifiedName());
-    } else {
-      ps.setString(i, parameter.prefixedName());
+    ps.setString(i, toString(parameter));
+  }
+
+  /**
+   * @return the string representation of a non null term as stored in the database
+   */
+  public static String toString(Term term) {
+    if (term instanceof UnknownTerm) {
+      return term.qualifiedName();
     }
+    return term.prefixedName();
   }
   
   @Override
@@ -0,0 +1,55 @@
+package life.catalogue.db.type2;
+
+import java.util.Objects;
+
+/**
+ * A count for a key of a named metric, optionally scoped by a verbatim row type.
+ * Used to retrieve several metrics with a single scan of a table.
+ */
+public class MetricCount extends StringCount {
+  private String metric;
+  private String rowType;
+
+  public MetricCount() {
+  }
+
+  public MetricCount(String metric, String key, Integer count) {
+    super(key, count);
+    this.metric = metric;
+  }
+
+  public String getMetric() {
+    return metric;
+  }
+
+  public void setMetric(String metric) {
+    this.metric = metric;
+  }
+
+  public String getRowType() {
+    return rowType;
+  }
+
+  public void setRowType(String rowType) {
+    this.rowType = rowType;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof MetricCount)) return false;
+    if (!super.equals(o)) return false;
+    MetricCount that = (MetricCount) o;
+    return Objects.equals(metric, that.metric) && Objects.equals(rowType, that.rowType);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(super.hashCode(), metric, rowType);
+  }
+
+  @Override
+  public String toString() {
+    return "MetricCount{" + metric + (rowType == null ? "" : "/" + rowType) + ":" + getKey() + "=" + getCount() + '}';
+  }
+}
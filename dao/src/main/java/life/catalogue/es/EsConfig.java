@@ -44,10 +44,18 @@ public class EsConfig {
 
   /**
    * Number of parallel threads to use when indexing all datasets
+   * or the sectors of a single dataset
    */
   @Min(1)
   public int indexingThreads = 4;
 
+  /**
+   * Maximum number of concurrent bulk requests a single indexer keeps in flight
+   * while the next batch is being read and serialized.
+   */
+  @Min(1)
+  public int bulkRequests = 2;
+
   @JsonIgnore
   public boolean isEmpty() {
     return hosts == null || nameUsage == null;
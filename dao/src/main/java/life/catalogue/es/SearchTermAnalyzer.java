@@ -0,0 +1,123 @@
+package life.catalogue.es;
+
+import life.catalogue.es.ddl.Analyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.client.RestClient;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+
+import static life.catalogue.common.text.StringUtils.EMPTY_STRING_ARRAY;
+
+/**
+ * Splits search phrases into search terms the same way the search analyzer of a multifield does,
+ * see {@link EsUtil#getSearchTerms(RestClient, String, Analyzer, String)}.
+ *
+ * The sciname_whole_words analyzer used by scientific name searches is reproduced in java for pure ASCII phrases,
+ * which make up nearly all requests, so they do not need an extra request to Elasticsearch.
+ * For ASCII the asciifolding filter has no effect and the mapping char filter only removes or replaces single characters.
+ * All other phrases are analyzed by Elasticsearch and the resulting terms are kept in a bounded cache.
+ */
+public class SearchTermAnalyzer {
+  private static final String SCINAME_WHOLE_WORDS = "sciname_whole_words";
+  // max_token_length of the whitespace tokenizer
+  private static final int MAX_TOKEN_LENGTH = 255;
+  private final RestClient client;
+  private final String index;
+  private final Analyzer analyzer;
+  private final boolean local;
+  private final Cache<String, String[]> cache;
+
+  public SearchTermAnalyzer(RestClient client, String index, Analyzer analyzer, int cacheSize) {
+    this.client = client;
+    this.index = index;
+    this.analyzer = analyzer;
+    String searchAnalyzer = analyzer.getMultiField().getSearchAnalyzer();
+    this.local = SCINAME_WHOLE_WORDS.equals(searchAnalyzer == null ? analyzer.getMultiField().getAnalyzer() : searchAnalyzer);
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(cacheSize)
+      .build();
+  }
+
+  /**
+   * @return the search terms of the phrase, never null
+   */
+  public String[] getSearchTerms(String searchPhrase) throws IOException {
+    if (StringUtils.isBlank(searchPhrase)) {
+      return EMPTY_STRING_ARRAY;
+    }
+    if (local) {
+      String[] terms = analyzeSciNameWholeWords(searchPhrase);
+      if (terms != null) {
+        return terms;
+      }
+    }
+    try {
+      return cache.get(searchPhrase, p -> {
+        try {
+          return EsUtil.getSearchTerms(client, index, analyzer, p);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reproduces the sciname_whole_words analyzer, i.e. the sciname_char_filter, the whitespace tokenizer and the lowercase filter.
+   * @return the terms or null if the phrase cannot be analyzed exactly in java
+   */
+  @VisibleForTesting
+  @Nullable
+  static String[] analyzeSciNameWholeWords(String phrase) {
+    StringBuilder sb = new StringBuilder(phrase.length());
+    for (int i = 0; i < phrase.length(); i++) {
+      char c = phrase.charAt(i);
+      if (c > 127) {
+        // needs ascii folding and mappings for non ASCII chars
+        return null;
+      }
+      switch (c) {
+        case '(':
+        case ')':
+        case '-':
+        case '.':
+        case '\'':
+          break;
+        case ',':
+          sb.append(' ');
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    List<String> terms = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= sb.length(); i++) {
+      if (i == sb.length() || Character.isWhitespace(sb.charAt(i))) {
+        if (start >= 0) {
+          if (i - start > MAX_TOKEN_LENGTH) {
+            return null;
+          }
+          terms.add(sb.substring(start, i).toLowerCase(Locale.ROOT));
+          start = -1;
+        }
+      } else if (start < 0) {
+        start = i;
+      }
+    }
+    return terms.toArray(EMPTY_STRING_ARRAY);
+  }
+}
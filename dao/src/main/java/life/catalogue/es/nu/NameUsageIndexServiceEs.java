@@ -51,9 +51,13 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
     this.processor = new NameUsageProcessor(factory, tmpDir);
   }
 
+  private NameUsageIndexer newIndexer() {
+    return new NameUsageIndexer(client, esConfig.nameUsage.name, esConfig.bulkRequests);
+  }
+
   @Override
   public Stats indexDataset(int datasetKey) {
-    return indexDatasetInternal(datasetKey, true);
+    return indexDatasetInternal(datasetKey, true, esConfig.indexingThreads);
   }
 
   @Override
@@ -63,11 +67,12 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
       LOG.info("Remove dataset {} from index", datasetKey);
       createOrEmptyIndex(datasetKey);
 
-      NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
+      NameUsageIndexer indexer = newIndexer();
       return new BatchConsumer<>(indexer, BATCH_SIZE) {
         @Override
         public void close() {
           super.close();
+          indexer.flush();
           EsUtil.refreshIndex(client, esConfig.nameUsage.name);
         }
       };
@@ -84,26 +89,39 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
         handler
       );
     }
+    indexer.flush();
   }
 
-  private Stats indexDatasetInternal(int datasetKey, boolean clearIndex) {
+  /**
+   * @param threads number of threads to process sectors of the dataset in parallel
+   */
+  private Stats indexDatasetInternal(int datasetKey, boolean clearIndex, int threads) {
     Stats stats = new Stats();
     boolean setMDC = false;
     try {
       setMDC = LoggingUtils.setDatasetMDC(datasetKey, getClass());
-      NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
       if (clearIndex) {
         LOG.info("Remove dataset {} from index", datasetKey);
         createOrEmptyIndex(datasetKey);
       }
-      try (BatchConsumer<NameUsageWrapper> handler = new BatchConsumer<>(indexer, BATCH_SIZE)) {
-        LOG.info("Indexing usages from dataset {}", datasetKey);
-        processor.processDataset(datasetKey, handler);
-      }
+      LOG.info("Indexing usages from dataset {}", datasetKey);
+      final AtomicInteger usages = new AtomicInteger(0);
+      processor.processDataset(datasetKey, threads, () -> {
+        // each processing thread uses its own indexer
+        NameUsageIndexer ui = newIndexer();
+        return new BatchConsumer<>(ui, BATCH_SIZE) {
+          @Override
+          public void close() {
+            super.close();
+            ui.flush();
+            usages.addAndGet(ui.documentsIndexed());
+          }
+        };
+      });
       EsUtil.refreshIndex(client, esConfig.nameUsage.name);
-      stats.usages = indexer.documentsIndexed();
-      indexer.reset();
+      stats.usages = usages.get();
 
+      NameUsageIndexer indexer = newIndexer();
       try (SqlSession session = factory.openSession()) {
         LOG.info("Indexing bare names from dataset {}", datasetKey);
         NameUsageWrapperMapper mapper = session.getMapper(NameUsageWrapperMapper.class);
@@ -144,7 +162,7 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
       Sector s = session.getMapper(SectorMapper.class).get(sectorKey);
       if (s == null) throw NotFoundException.notFound(Sector.class, sectorKey);
 
-      NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
+      NameUsageIndexer indexer = newIndexer();
       deleteSector(s);
       NameUsageWrapperMapper mapper = session.getMapper(NameUsageWrapperMapper.class);
 
@@ -152,6 +170,7 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
         LOG.info("Indexing usages from sector {}", s.getKey());
         processor.processSector(s, handler);
       }
+      indexer.flush();
       stats.usages = indexer.documentsIndexed();
       indexer.reset();
 
@@ -223,8 +242,9 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
     if (!usages.isEmpty()) {
       NameUsageWrapper first = usages.iterator().next();
       LOG.info("Adding {} usages. First: {}", usages.size(), first.getUsage());
-      NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
+      NameUsageIndexer indexer = newIndexer();
       indexer.accept(usages);
+      indexer.flush();
       return indexer.documentsIndexed();
     }
     return 0;
@@ -232,13 +252,14 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
 
   @Override
   public void updateClassification(int datasetKey, String rootTaxonId) {
-    NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
+    NameUsageIndexer indexer = newIndexer();
     try (SqlSession session = factory.openSession()) {
       final ClassificationUpdater updater = new ClassificationUpdater(indexer, datasetKey);
       try (BatchConsumer<SimpleNameClassification> batchUpdater = new BatchConsumer<>(updater, BATCH_SIZE)) {
         NameUsageWrapperMapper mapper = session.getMapper(NameUsageWrapperMapper.class);
         PgUtils.consume(() -> mapper.processTree(datasetKey, null, rootTaxonId), batchUpdater);
       }
+      indexer.flush();
 
       EsUtil.refreshIndex(client, esConfig.nameUsage.name);
     }
@@ -273,7 +294,7 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
     final AtomicInteger counter = new AtomicInteger(0);
     ExecutorService exec = Executors.newFixedThreadPool(esConfig.indexingThreads, new NamedThreadFactory("ES-Indexer"));
     for (Integer datasetKey : keys) {
-      CompletableFuture.supplyAsync(() -> indexDatasetInternal(datasetKey, false), exec)
+      CompletableFuture.supplyAsync(() -> indexDatasetInternal(datasetKey, false, 1), exec)
           .exceptionally(ex -> {
             counter.incrementAndGet();
             LOG.error("Error indexing dataset {}", datasetKey, ex.getCause());
@@ -303,7 +324,7 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
    * Indexes documents but does not refresh the index! Must be done by caller.
    */
   private int indexNameUsages(int datasetKey, Collection<String> usageIds) {
-    NameUsageIndexer indexer = new NameUsageIndexer(client, esConfig.nameUsage.name);
+    NameUsageIndexer indexer = newIndexer();
     try (SqlSession session = factory.openSession()) {
       final UUID publisher = session.getMapper(DatasetMapper.class).getPublisherKey(datasetKey);
       NameUsageWrapperMapper mapper = session.getMapper(NameUsageWrapperMapper.class);
@@ -327,6 +348,7 @@ public class NameUsageIndexServiceEs implements NameUsageIndexService {
         LOG.warn("Some usage IDs not found in dataset {}: {}", datasetKey, ids.stream().collect(joining(", ")));
       }
       indexer.accept(usages);
+      indexer.flush();
       return indexer.documentsIndexed();
     }
   }
@@ -1,55 +1,156 @@
 package life.catalogue.es.nu;
 
 import life.catalogue.api.search.NameUsageWrapper;
+import life.catalogue.common.lang.InterruptedRuntimeException;
 import life.catalogue.es.EsException;
 import life.catalogue.es.EsModule;
 import life.catalogue.es.EsNameUsage;
-import life.catalogue.es.EsUtil;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 
+/**
+ * Pipelined bulk indexer that sends bulk requests asynchronously, so reading from postgres and indexing
+ * in Elasticsearch overlap. The number of concurrent bulk requests is bounded and the producer blocks
+ * in accept() when the limit has been reached.
+ *
+ * Documents are buffered and sent in bulks whose size adapts to the response latency and to rejections by
+ * Elasticsearch. Failed requests are retried as a whole, single rejected documents of a successful bulk request
+ * are retried individually. Documents which cannot be indexed, e.g. because of mapping errors, are logged and counted
+ * as failed.
+ *
+ * flush() must be called before the index gets refreshed or the indexed document count is read.
+ * It sends all remaining documents and waits for all outstanding requests.
+ * Once documents have failed for good, the next call to accept() or flush() throws an EsException.
+ * An indexer should only be used by a single producer thread.
+ */
 public class NameUsageIndexer implements Consumer<List<NameUsageWrapper>> {
-  
+
   private static final Logger LOG = LoggerFactory.getLogger(NameUsageIndexer.class);
 
   // Set to true for extra statistics (make sure it's false in production)
   private static final boolean EXTRA_STATS = false;
 
   /*
-   * The request body. With a batch size of 4096 the request body can grow to about 11 MB for synonyms with zipped
-   * payloads, and 20 MB with unzipped payloads. A batch size of 4096 seems about optimal. A batch size of 2048 also
-   * performs well, a batch size of 8192 appears to perform slightly worse.
+   * A batch size of 4096 seems about optimal for the request body which can then grow to about 11 MB for synonyms
+   * with zipped payloads, and 20 MB with unzipped payloads. A batch size of 2048 also performs well, a batch size of 8192
+   * appears to perform slightly worse. We start lower and let the batch size adapt to the actual response times.
    */
-  private final StringBuilder buf = new StringBuilder(1024 * 1024 * 4);
+  static final int MIN_BATCH_SIZE = 100;
+  static final int MAX_BATCH_SIZE = 4096;
+  private static final int INITIAL_BATCH_SIZE = 1000;
+  // bulk requests taking longer than this reduce the batch size, much faster ones increase it
+  private static final long TARGET_LATENCY_MILLIS = 3000;
+  private static final int MAX_ATTEMPTS = 20;
+  private static final long RETRY_WAIT_MILLIS = 1000;
+  private static final long MAX_RETRY_WAIT_MILLIS = 60 * 1000;
+  public static final int DEFAULT_MAX_IN_FLIGHT = 2;
 
   private final RestClient client;
   private final String index;
   private final String indexHeader;
+  private final int maxInFlight;
+  private final int maxAttempts;
+  private final long retryWait;
+  private final Semaphore inFlight;
+  private final AtomicInteger batchSize = new AtomicInteger(INITIAL_BATCH_SIZE);
+  private final Queue<Bulk> retries = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger indexed = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private volatile Exception error;
+  // actions of the next bulk request, each consisting of an action and a source line
+  private List<Action> buffer = new ArrayList<>();
+
+  /**
+   * A single bulk action line together with its document source line.
+   */
+  private static class Action {
+    final String json;
+
+    Action(String header, String source) {
+      this.json = header + source + "\n";
+    }
+  }
+
+  private static class Bulk {
+    final List<Action> actions;
+    final int attempt;
+    final long notBefore;
 
-  private int indexed = 0;
+    Bulk(List<Action> actions, int attempt, long notBefore) {
+      this.actions = actions;
+      this.attempt = attempt;
+      this.notBefore = notBefore;
+    }
+  }
 
   NameUsageIndexer(RestClient client, String index) {
+    this(client, index, DEFAULT_MAX_IN_FLIGHT);
+  }
+
+  /**
+   * @param maxInFlight maximum number of concurrent bulk requests
+   */
+  NameUsageIndexer(RestClient client, String index, int maxInFlight) {
+    this(client, index, maxInFlight, MAX_ATTEMPTS, RETRY_WAIT_MILLIS);
+  }
+
+  /**
+   * @param maxInFlight maximum number of concurrent bulk requests
+   * @param maxAttempts maximum number of attempts to send a document before it is given up
+   * @param retryWait milliseconds to wait before the first retry, doubled for every further attempt
+   */
+  NameUsageIndexer(RestClient client, String index, int maxInFlight, int maxAttempts, long retryWait) {
     this.client = client;
     this.index = index;
     this.indexHeader = getIndexHeader();
+    this.maxInFlight = maxInFlight;
+    this.maxAttempts = maxAttempts;
+    this.retryWait = retryWait;
+    this.inFlight = new Semaphore(maxInFlight);
   }
 
   @Override
   public void accept(List<NameUsageWrapper> batch) {
-    if (EXTRA_STATS) {
-      indexWithExtraStats(batch);
-    } else {
-      index(batch);
+    throwOnError();
+    NameUsageWrapperConverter converter = new NameUsageWrapperConverter();
+    int docSize = 0;
+    try {
+      for (NameUsageWrapper nuw : batch) {
+        String json = EsModule.write(converter.toDocument(nuw));
+        if (EXTRA_STATS) {
+          docSize += json.getBytes(Charsets.UTF_8).length;
+        }
+        add(new Action(indexHeader, json));
+      }
+    } catch (IOException e) {
+      throw new EsException(e);
+    }
+    if (EXTRA_STATS && !batch.isEmpty()) {
+      DecimalFormat df = new DecimalFormat("0.0");
+      LOG.info("Average document size: {} KB. Total document size: {} MB.",
+        df.format((double) docSize / (double) (batch.size() * 1024)),
+        df.format((double) docSize / (double) (1024 * 1024))
+      );
     }
   }
 
@@ -57,81 +158,219 @@ public class NameUsageIndexer implements Consumer<List<NameUsageWrapper>> {
    * Updates the provided documents. The documents are presumed to have their document ID set. These will be used to tell
    * Elasticsearch which documents we want to update. As a side effect, document IDs will be nullified, so make sure you
    * cache them before calling this method if you need them later on.
-   * 
+   *
    * @param documents
    */
   void update(List<EsNameUsage> documents) {
-    buf.setLength(0);
+    throwOnError();
     try {
       for (EsNameUsage doc : documents) {
-        buf.append(getUpdateHeader(doc.getDocumentId()));
+        String header = getUpdateHeader(doc.getDocumentId());
         doc.setDocumentId(null);
-        buf.append("{\"doc\":");
-        buf.append(EsModule.write(doc));
-        buf.append("}\n");
+        add(new Action(header, "{\"doc\":" + EsModule.write(doc) + "}"));
       }
-      sendBatch(documents.size());
     } catch (IOException e) {
       throw new EsException(e);
     }
   }
 
-  private void index(List<NameUsageWrapper> batch) {
-    buf.setLength(0);
-    NameUsageWrapperConverter converter = new NameUsageWrapperConverter();
-    try {
-      for (NameUsageWrapper nuw : batch) {
-        buf.append(indexHeader);
-        buf.append(EsModule.write(converter.toDocument(nuw)));
-        buf.append("\n");
+  private void add(Action action) {
+    buffer.add(action);
+    if (buffer.size() >= batchSize.get()) {
+      sendBuffer();
+    }
+  }
+
+  private void sendBuffer() {
+    if (!buffer.isEmpty()) {
+      sendRetries(false);
+      send(new Bulk(buffer, 1, 0));
+      buffer = new ArrayList<>();
+    }
+  }
+
+  /**
+   * Sends all remaining documents and waits until all outstanding bulk requests incl retries have completed.
+   * @throws EsException if documents could not be indexed after several attempts
+   */
+  public void flush() {
+    sendBuffer();
+    while (true) {
+      sendRetries(true);
+      // wait for all requests to finish. Failed requests are queued for retries before they release their permit
+      acquire(maxInFlight);
+      inFlight.release(maxInFlight);
+      if (retries.isEmpty()) {
+        break;
       }
-      sendBatch(batch.size());
-    } catch (IOException e) {
+    }
+    if (failed.get() > 0) {
+      LOG.warn("{} documents failed to be indexed into {}", failed.get(), index);
+    }
+    throwOnError();
+  }
+
+  /**
+   * Rethrows the error of a bulk request that failed for good, so producers stop early instead of only learning about it in flush().
+   * The error is cleared so the indexer can be reused afterwards.
+   */
+  private void throwOnError() {
+    if (error != null) {
+      Exception e = error;
+      error = null;
       throw new EsException(e);
     }
   }
 
-  private void indexWithExtraStats(List<NameUsageWrapper> batch) {
-    buf.setLength(0);
-    int docSize = 0;
-    NameUsageWrapperConverter converter = new NameUsageWrapperConverter();
-    DecimalFormat df = new DecimalFormat("0.0");
+  /**
+   * @param wait if true waits for retries which are not yet due, otherwise only sends due ones
+   */
+  private void sendRetries(boolean wait) {
+    int size = retries.size();
+    for (int i = 0; i < size; i++) {
+      Bulk b = retries.poll();
+      if (b == null) break;
+      long delay = b.notBefore - System.currentTimeMillis();
+      if (delay > 0) {
+        if (!wait) {
+          retries.add(b);
+          continue;
+        }
+        try {
+          TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedRuntimeException(e);
+        }
+      }
+      send(b);
+    }
+  }
+
+  private void acquire(int permits) {
     try {
-      String json;
-      for (NameUsageWrapper nuw : batch) {
-        buf.append(indexHeader);
-        buf.append(json = EsModule.write(converter.toDocument(nuw)));
-        docSize += json.getBytes(Charsets.UTF_8).length;
-        buf.append("\n");
+      inFlight.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedRuntimeException(e);
+    }
+  }
+
+  private void send(Bulk bulk) {
+    // blocks the producer if too many requests are outstanding
+    acquire(1);
+    StringBuilder body = new StringBuilder(bulk.actions.size() * 2048);
+    for (Action a : bulk.actions) {
+      body.append(a.json);
+    }
+    Request request = new Request("POST", "/_bulk/?timeout=5m");
+    request.setJsonEntity(body.toString());
+    final long start = System.currentTimeMillis();
+    client.performRequestAsync(request, new ResponseListener() {
+      @Override
+      public void onSuccess(Response response) {
+        try {
+          handleResponse(bulk, response, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+          LOG.error("Failed to read bulk response", e);
+          error = e;
+        } finally {
+          inFlight.release();
+        }
+      }
+
+      @Override
+      public void onFailure(Exception e) {
+        try {
+          boolean rejected = e instanceof ResponseException
+            && ((ResponseException) e).getResponse().getStatusLine().getStatusCode() == 429;
+          adapt(System.currentTimeMillis() - start, rejected);
+          retry(bulk, bulk.actions, e);
+        } finally {
+          inFlight.release();
+        }
       }
-      sendBatch(batch.size());
-      double totSize = ((double) docSize / (double) (1024 * 1024));
-      double avgSize = ((double) docSize / (double) (batch.size() * 1024));
-      String tot = df.format(totSize);
-      String avg = df.format(avgSize);
-      LOG.info("Average document size: {} KB. Total document size: {} MB.", avg, tot);
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private void handleResponse(Bulk bulk, Response response, long millis) {
+    Map<String, Object> body;
+    try {
+      body = EsModule.readIntoMap(response.getEntity().getContent());
     } catch (IOException e) {
       throw new EsException(e);
     }
+    if (!Boolean.TRUE.equals(body.get("errors"))) {
+      indexed.addAndGet(bulk.actions.size());
+      adapt(millis, false);
+      return;
+    }
+    // check single items and retry the rejected ones
+    List<Map<String, Object>> items = (List<Map<String, Object>>) body.get("items");
+    List<Action> retry = new ArrayList<>();
+    boolean rejected = false;
+    int idx = 0;
+    for (Map<String, Object> item : items) {
+      Map<String, Object> result = (Map<String, Object>) item.values().iterator().next();
+      int status = ((Number) result.get("status")).intValue();
+      if (status < 300) {
+        indexed.incrementAndGet();
+      } else if (status == 429 || status >= 500) {
+        rejected |= status == 429;
+        retry.add(bulk.actions.get(idx));
+      } else {
+        failed.incrementAndGet();
+        LOG.error("Failed to index document into {}: {}", index, result.get("error"));
+      }
+      idx++;
+    }
+    adapt(millis, rejected);
+    if (!retry.isEmpty()) {
+      retry(bulk, retry, null);
+    }
   }
 
-  private void sendBatch(int batchSize) {
-    Request request = new Request("POST", "/_bulk/?timeout=5m");
-    request.setJsonEntity(buf.toString());
-    EsUtil.executeWithRetry(client, request);
-    indexed += batchSize;
+  private void retry(Bulk bulk, List<Action> actions, Exception e) {
+    if (bulk.attempt >= maxAttempts) {
+      LOG.error("Giving up to index {} documents into {} after {} attempts", actions.size(), index, bulk.attempt, e);
+      failed.addAndGet(actions.size());
+      error = e != null ? e : new EsException("Failed to index " + actions.size() + " documents into " + index);
+    } else {
+      long wait = Math.min(MAX_RETRY_WAIT_MILLIS, retryWait << Math.min(bulk.attempt - 1, 16));
+      LOG.warn("Retry {} documents in {} ms. Attempt {} failed{}", actions.size(), wait, bulk.attempt, e == null ? "" : ": " + e.getMessage());
+      retries.add(new Bulk(actions, bulk.attempt + 1, System.currentTimeMillis() + wait));
+    }
+  }
+
+  /**
+   * Adapts the batch size to the response latency, halving it for rejected requests.
+   */
+  private void adapt(long millis, boolean rejected) {
+    int size = batchSize.updateAndGet(s -> {
+      if (rejected) {
+        return Math.max(MIN_BATCH_SIZE, s / 2);
+      } else if (millis > TARGET_LATENCY_MILLIS) {
+        return Math.max(MIN_BATCH_SIZE, s * 3 / 4);
+      } else if (millis < TARGET_LATENCY_MILLIS / 2) {
+        return Math.min(MAX_BATCH_SIZE, s + s / 4);
+      }
+      return s;
+    });
+    LOG.debug("Bulk request took {} ms{}. Batch size now {}", millis, rejected ? " and was rejected" : "", size);
   }
 
   /**
    * Resets the document counter.
    */
   void reset() {
-    indexed = 0;
+    indexed.set(0);
+    failed.set(0);
   }
 
   /**
    * Returns the Elasticsearc client used to connect to the Elasticsearch server.
-   * 
+   *
    * @return
    */
   RestClient getEsClient() {
@@ -140,7 +379,7 @@ public class NameUsageIndexer implements Consumer<List<NameUsageWrapper>> {
 
   /**
    * Returns the name of the index that this NameUsageIndexer inserts into.
-   * 
+   *
    * @return
    */
   String getIndexName() {
@@ -148,12 +387,20 @@ public class NameUsageIndexer implements Consumer<List<NameUsageWrapper>> {
   }
 
   /**
-   * Returns the number of documents indexed thus far.
-   * 
+   * Returns the number of documents successfully indexed thus far.
+   * Only complete after flush() was called.
+   *
    * @return
    */
   int documentsIndexed() {
-    return indexed;
+    return indexed.get();
+  }
+
+  /**
+   * @return the current adaptive batch size
+   */
+  int getBatchSize() {
+    return batchSize.get();
   }
 
   private String getIndexHeader() {
@@ -18,17 +18,36 @@ import org.elasticsearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 
 import static life.catalogue.api.search.NameUsageSearchParameter.DATASET_KEY;
 
+/**
+ * Suggests name usages for the autocompletion of a search phrase.
+ * Search terms of the phrase are analyzed in java where possible so that a suggestion usually needs a single request to Elasticsearch,
+ * see {@link SearchTermAnalyzer}.
+ * The latency of the analysis and the search phase is tracked by separate timers.
+ */
 public class NameUsageSuggestionServiceEs extends NameUsageQueryService implements NameUsageSuggestionService {
 
   @SuppressWarnings("unused")
   private static final Logger LOG = LoggerFactory.getLogger(NameUsageSuggestionServiceEs.class);
+  private static final int TERM_CACHE_SIZE = 10000;
+  private final SearchTermAnalyzer termAnalyzer;
+  private final Timer analyzeTimer;
+  private final Timer searchTimer;
 
   public NameUsageSuggestionServiceEs(String indexName, RestClient client) {
+    this(indexName, client, new MetricRegistry());
+  }
+
+  public NameUsageSuggestionServiceEs(String indexName, RestClient client, MetricRegistry registry) {
     super(indexName, client);
+    termAnalyzer = new SearchTermAnalyzer(client, indexName, Analyzer.SCINAME_AUTO_COMPLETE, TERM_CACHE_SIZE);
+    analyzeTimer = registry.timer(MetricRegistry.name(NameUsageSuggestionServiceEs.class, "analyze"));
+    searchTimer = registry.timer(MetricRegistry.name(NameUsageSuggestionServiceEs.class, "search"));
   }
 
   @Override
@@ -43,11 +62,20 @@ public class NameUsageSuggestionServiceEs extends NameUsageQueryService implemen
   @VisibleForTesting
   public NameUsageSuggestResponse suggest(String index, NameUsageSuggestRequest request) throws IOException {
     validateRequest(request);
-    String[] terms = EsUtil.getSearchTerms(client, index, Analyzer.SCINAME_AUTO_COMPLETE, request.getQ());
+    String[] terms;
+    try (Timer.Context ctx = analyzeTimer.time()) {
+      // the term analyzer is bound to the configured index
+      terms = index.equals(this.index) ?
+        termAnalyzer.getSearchTerms(request.getQ()) :
+        EsUtil.getSearchTerms(client, index, Analyzer.SCINAME_AUTO_COMPLETE, request.getQ());
+    }
     request.setSciNameSearchTerms(terms);
     RequestTranslator translator = new RequestTranslator(request);
     EsSearchRequest query = translator.translate();
-    EsResponse<EsNameUsage> esResponse = executeSearchRequest(index, query);
+    EsResponse<EsNameUsage> esResponse;
+    try (Timer.Context ctx = searchTimer.time()) {
+      esResponse = executeSearchRequest(index, query);
+    }
     List<NameUsageSuggestion> suggestions = new ArrayList<>();
     SearchHitConverter suggestionFactory = new SearchHitConverter();
     esResponse.getHits().getHits().forEach(hit -> {
@@ -4,6 +4,7 @@ import life.catalogue.api.model.IndexName;
 import life.catalogue.api.model.Name;
 import life.catalogue.api.model.NameMatch;
 import life.catalogue.api.vocab.DatasetOrigin;
+import life.catalogue.concurrent.ParallelOrderedMapper;
 import life.catalogue.dao.DatasetInfoCache;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.ArchivedNameUsageMapper;
@@ -11,10 +12,14 @@ import life.catalogue.db.mapper.ArchivedNameUsageMatchMapper;
 import life.catalogue.db.mapper.NameMapper;
 import life.catalogue.db.mapper.NameMatchMapper;
 
+import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -24,20 +29,35 @@ import org.slf4j.LoggerFactory;
 /**
  * Rematches an entire dataset, using 2 separate db connections for read & write
  * In case of projects being matched it will also match any archived name usages.
+ *
+ * Names of a dataset can be matched against the names index by several threads in parallel,
+ * while all changed matches are written in batches by the calling thread.
+ * A single matcher can be shared to rematch different datasets concurrently, all counters are thread safe.
  */
 public class DatasetMatcher {
   private static final Logger LOG = LoggerFactory.getLogger(DatasetMatcher.class);
+  private static final int MATCH_BATCH_SIZE = 1000;
+  private static final int COMMIT_SIZE = 10000;
   private final SqlSessionFactory factory;
   private final NameIndex ni;
-  private int total = 0;
-  private int updated = 0;
-  private int nomatch = 0;
-  private int archived = 0;
-  private int datasets = 0;
+  private final int threads;
+  private final AtomicInteger total = new AtomicInteger();
+  private final AtomicInteger updated = new AtomicInteger();
+  private final AtomicInteger nomatch = new AtomicInteger();
+  private final AtomicInteger archived = new AtomicInteger();
+  private final AtomicInteger datasets = new AtomicInteger();
 
   public DatasetMatcher(SqlSessionFactory factory, NameIndex ni) {
+    this(factory, ni, 1);
+  }
+
+  /**
+   * @param threads number of threads used to match the names of a single dataset in parallel
+   */
+  public DatasetMatcher(SqlSessionFactory factory, NameIndex ni, int threads) {
     this.factory = factory;
     this.ni = ni.assertOnline();
+    this.threads = threads;
   }
 
   /**
@@ -47,38 +67,35 @@ public class DatasetMatcher {
    * @return number of names which have a changed match to before
    */
   public void match(int datasetKey, boolean allowInserts) {
-    final int totalBefore = total;
-    final int updatedBefore = updated;
-    final int nomatchBefore = nomatch;
-    final int archivedBefore = archived;
+    final long start = System.currentTimeMillis();
+    final BulkMatchHandler hn = new BulkMatchHandlerNames(datasetKey, allowInserts);
+    final BulkMatchHandler hu = new BulkMatchHandlerArchivedUsages(datasetKey, allowInserts);
 
     boolean update = false;
-    try (SqlSession session = factory.openSession(false);
-         BulkMatchHandler hn = new BulkMatchHandlerNames(datasetKey, allowInserts);
-         BulkMatchHandler hu = new BulkMatchHandlerArchivedUsages(datasetKey, allowInserts)
-    ) {
+    try (hn; hu; SqlSession session = factory.openSession(false)) {
       NameMatchMapper nmm = session.getMapper(NameMatchMapper.class);
       NameMapper nm = session.getMapper(NameMapper.class);
 
       update = nmm.exists(datasetKey);
       final boolean isProject = DatasetInfoCache.CACHE.info(datasetKey).origin == DatasetOrigin.PROJECT;
       LOG.info("{} name matches for {}{}", update ? "Update" : "Create", isProject ? "project " : "", datasetKey);
-      PgUtils.consume(() -> nm.processDataset(datasetKey), hn);
+      consume(() -> nm.processDataset(datasetKey), hn);
       // also match archived names
       if (isProject) {
-        final int totalBeforeArchive = total;
-        PgUtils.consume(
-          () -> session.getMapper(ArchivedNameUsageMapper.class).processArchivedNames(datasetKey),
-          hu
-        );
-        archived = archived + total - totalBeforeArchive;
+        consume(() -> session.getMapper(ArchivedNameUsageMapper.class).processArchivedNames(datasetKey), hu);
       }
+    } catch (InterruptedException e) {
+      LOG.warn("Rematching dataset {} was interrupted", datasetKey);
+      Thread.currentThread().interrupt();
     } catch (Exception e) {
       LOG.error("Failed to rematch dataset {}", datasetKey, e);
     } finally {
-      datasets++;
-      LOG.info("{} {} name matches for {} names and {} not matching, {} being archived names, for dataset {}", update ? "Updated" : "Created",
-        updated - updatedBefore, total - totalBefore, nomatch - nomatchBefore, archived - archivedBefore, datasetKey);
+      datasets.incrementAndGet();
+      archived.addAndGet(hu._total);
+      final int names = hn._total + hu._total;
+      final long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+      LOG.info("{} {} name matches for {} names and {} not matching, {} being archived names, for dataset {} in {}s with {} names/s", update ? "Updated" : "Created",
+        hn._updated + hu._updated, names, hn._nomatch + hu._nomatch, hu._total, datasetKey, seconds, names / seconds);
     }
 
     try (SqlSession session = factory.openSession(false)) {
@@ -95,20 +112,55 @@ public class DatasetMatcher {
     }
   }
 
+  /**
+   * Matches all names of a cursor, in parallel if configured so.
+   * Matches are always persisted by the calling thread.
+   */
+  private void consume(Supplier<Cursor<Name>> cursorSupplier, BulkMatchHandler handler) throws InterruptedException {
+    if (threads > 1) {
+      try (var cursor = cursorSupplier.get();
+           var mapper = new ParallelOrderedMapper<Name, NameWithMatch>("dataset-matcher-" + handler.datasetKey, threads, MATCH_BATCH_SIZE, handler::match)
+      ) {
+        mapper.process(cursor.iterator(), handler::update);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    } else {
+      PgUtils.consume(cursorSupplier, handler);
+    }
+  }
+
   public int getTotal() {
-    return total;
+    return total.get();
   }
 
   public int getUpdated() {
-    return updated;
+    return updated.get();
   }
 
   public int getNomatch() {
-    return nomatch;
+    return nomatch.get();
+  }
+
+  /**
+   * @return number of archived names of projects, included in the total
+   */
+  public int getArchived() {
+    return archived.get();
   }
 
   public int getDatasets() {
-    return datasets;
+    return datasets.get();
+  }
+
+  static class NameWithMatch {
+    final Name name;
+    final NameMatch match;
+
+    NameWithMatch(Name name, NameMatch match) {
+      this.name = name;
+      this.match = match;
+    }
   }
 
   class BulkMatchHandlerNames extends BulkMatchHandler {
@@ -152,7 +204,7 @@ public class DatasetMatcher {
   }
 
   abstract class BulkMatchHandler implements Consumer<Name>, AutoCloseable {
-    private final int datasetKey;
+    final int datasetKey;
     private final boolean allowInserts;
     final SqlSession batchSession;
     private int _total = 0;
@@ -167,9 +219,24 @@ public class DatasetMatcher {
 
     @Override
     public void accept(Name n) {
+      update(match(n));
+    }
+
+    /**
+     * Matches a name against the names index. This method is thread safe.
+     */
+    NameWithMatch match(Name n) {
+      return new NameWithMatch(n, ni.match(n, allowInserts, false));
+    }
+
+    /**
+     * Persists a changed match. Must be called by a single thread only.
+     */
+    void update(NameWithMatch nm) {
+      final Name n = nm.name;
+      final NameMatch m = nm.match;
       _total++;
       Integer oldId = n.getNamesIndexId();
-      NameMatch m = ni.match(n, allowInserts, false);
       if (!m.hasMatch()) {
         _nomatch++;
         LOG.debug("No match for {} from dataset {} with {} alternatives: {}", n.toStringComplete(), datasetKey,
@@ -180,7 +247,7 @@ public class DatasetMatcher {
       Integer newKey = m.hasMatch() ? m.getName().getKey() : null;
       if (!Objects.equals(oldId, newKey)) {
         persist(n, m, oldId, newKey);
-        if (_updated++ % 10000 == 0) {
+        if (++_updated % COMMIT_SIZE == 0) {
           batchSession.commit();
           LOG.debug("Updated {} name matches for {} names with {} no matches for dataset {}", _updated, _total, _nomatch, datasetKey);
         }
@@ -193,9 +260,9 @@ public class DatasetMatcher {
     public void close() throws Exception {
       batchSession.commit();
       batchSession.close();
-      total += _total;
-      updated += _updated;
-      nomatch += _nomatch;
+      total.addAndGet(_total);
+      updated.addAndGet(_updated);
+      nomatch.addAndGet(_nomatch);
     }
   }
 }
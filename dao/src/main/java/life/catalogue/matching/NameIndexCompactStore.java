@@ -0,0 +1,436 @@
+package life.catalogue.matching;
+
+import life.catalogue.api.exception.UnavailableException;
+import life.catalogue.api.model.IndexName;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.Pool;
+import com.google.common.base.Preconditions;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * NameIndexStore implementation that keeps all index names deserialized on the heap
+ * in primitive keyed fastutil maps. Lookups never deserialize or copy and return unmodifiable views
+ * of the shared IndexName instances, which must therefore be treated as immutable by callers.
+ *
+ * The store can optionally be persisted as a single kryo snapshot file which is read on start
+ * and written on stop, avoiding a full reload from postgres on every restart.
+ * All names added in between are appended to a log file next to the snapshot and flushed right away,
+ * so they survive an unclean shutdown. The log is replayed on start and folded into a new snapshot.
+ * Reads are allowed concurrently, writes are exclusive.
+ */
+public class NameIndexCompactStore implements NameIndexStore {
+  private static final Logger LOG = LoggerFactory.getLogger(NameIndexCompactStore.class);
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final File snapshot;
+  private final File log;
+  private Output logOut;
+  private final Pool<Kryo> pool;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean started = false;
+  private long created; // epoch seconds
+  // main nidx instances by their key
+  private final Int2ObjectOpenHashMap<IndexName> keys = new Int2ObjectOpenHashMap<>();
+  // group of same names by their canonical name key. Arrays are never modified but replaced, so they can be shared with readers
+  private final Object2ObjectOpenHashMap<String, IndexName[]> names = new Object2ObjectOpenHashMap<>();
+  // canonical group of names by canonicalID
+  private final Int2ObjectOpenHashMap<int[]> canonical = new Int2ObjectOpenHashMap<>();
+
+  /**
+   * Creates a volatile store that only lives in memory.
+   */
+  public NameIndexCompactStore() {
+    this(null);
+  }
+
+  /**
+   * @param snapshot optional snapshot file to load the store from on start and to persist it to on stop.
+   *                 Names added in between are logged to a file with the same name plus a .log suffix.
+   */
+  public NameIndexCompactStore(@Nullable File snapshot) {
+    this.snapshot = snapshot;
+    this.log = snapshot == null ? null : new File(snapshot.getParentFile(), snapshot.getName() + ".log");
+    this.pool = new NameIndexMapDBStore.NameIndexKryoPool();
+  }
+
+  @Override
+  public void start() {
+    lock.writeLock().lock();
+    try {
+      clearInternal();
+      if (snapshot != null) {
+        if (snapshot.exists()) {
+          try {
+            load();
+          } catch (Exception e) {
+            LOG.warn("NamesIndex snapshot {} was corrupt. Remove and rebuild index from scratch. {}", snapshot, e.getMessage());
+            clearInternal();
+            snapshot.delete();
+            log.delete();
+          }
+        }
+        if (log.exists()) {
+          // fold logged names into a new snapshot so we can start with an empty log
+          if (replayLog() > 0) {
+            persist();
+          }
+          log.delete();
+        }
+        openLog();
+      }
+      started = true;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to start names index store " + snapshot, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void stop() {
+    lock.writeLock().lock();
+    try {
+      if (started && snapshot != null) {
+        try {
+          closeLog();
+          persist();
+          // all logged names are in the snapshot now
+          log.delete();
+        } catch (IOException e) {
+          LOG.error("Failed to persist names index snapshot to {}", snapshot, e);
+        }
+      }
+      started = false;
+      keys.clear();
+      names.clear();
+      canonical.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean hasStarted() {
+    return started;
+  }
+
+  /**
+   * Snapshot layout: version, created, number of groups, then per group the string key,
+   * the number of names and each kryo serialized IndexName.
+   * The canonical groups are rebuilt from the names on load.
+   */
+  private void persist() throws IOException {
+    LOG.info("Persisting {} names index entries to snapshot {}", keys.size(), snapshot);
+    File tmp = new File(snapshot.getParentFile(), snapshot.getName() + ".tmp");
+    Kryo kryo = pool.obtain();
+    try (Output out = new Output(new FileOutputStream(tmp), 64 * 1024)) {
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeLong(created);
+      out.writeInt(names.size());
+      for (var e : names.object2ObjectEntrySet()) {
+        out.writeString(e.getKey());
+        out.writeInt(e.getValue().length);
+        for (IndexName n : e.getValue()) {
+          kryo.writeObject(out, n);
+        }
+      }
+    } finally {
+      pool.free(kryo);
+    }
+    if (snapshot.exists()) {
+      snapshot.delete();
+    }
+    if (!tmp.renameTo(snapshot)) {
+      throw new IOException("Failed to rename snapshot " + tmp + " to " + snapshot);
+    }
+  }
+
+  private void load() throws IOException {
+    Kryo kryo = pool.obtain();
+    try (Input in = new Input(new FileInputStream(snapshot), 64 * 1024)) {
+      int version = in.readInt();
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version);
+      }
+      created = in.readLong();
+      int groups = in.readInt();
+      for (int g = 0; g < groups; g++) {
+        String key = in.readString();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+          addInternal(key, kryo.readObject(in, IndexName.class));
+        }
+      }
+      LOG.info("Loaded {} names index entries from snapshot {}", keys.size(), snapshot);
+    } finally {
+      pool.free(kryo);
+    }
+  }
+
+  /**
+   * Replays all names from the append log, ignoring an incomplete last record of an unclean shutdown.
+   * @return number of replayed names
+   */
+  private int replayLog() throws IOException {
+    int counter = 0;
+    Kryo kryo = pool.obtain();
+    try (Input in = new Input(new FileInputStream(log), 64 * 1024)) {
+      while (!in.end()) {
+        String key = in.readString();
+        IndexName n = kryo.readObject(in, IndexName.class);
+        addInternal(key, n);
+        counter++;
+      }
+    } catch (KryoException e) {
+      LOG.warn("Names index log {} ends with an incomplete record after {} names", log, counter);
+    } finally {
+      pool.free(kryo);
+    }
+    LOG.info("Replayed {} names index entries from log {}", counter, log);
+    return counter;
+  }
+
+  private void openLog() throws IOException {
+    logOut = new Output(new FileOutputStream(log, true), 4 * 1024);
+  }
+
+  private void closeLog() {
+    if (logOut != null) {
+      logOut.close();
+      logOut = null;
+    }
+  }
+
+  private void appendLog(String key, IndexName name) {
+    if (logOut != null) {
+      Kryo kryo = pool.obtain();
+      try {
+        logOut.writeString(key);
+        kryo.writeObject(logOut, name);
+        logOut.flush();
+      } finally {
+        pool.free(kryo);
+      }
+    }
+  }
+
+  @Override
+  public IndexName get(Integer key) {
+    avail();
+    lock.readLock().lock();
+    try {
+      return keys.get((int) key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Collection<IndexName> byCanonical(Integer key) {
+    avail();
+    lock.readLock().lock();
+    try {
+      int[] group = canonical.get((int) key);
+      if (group == null) {
+        return null;
+      }
+      Set<IndexName> result = new HashSet<>(group.length);
+      for (int k : group) {
+        result.add(keys.get(k));
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int[] debugCanonical(Integer key) {
+    lock.readLock().lock();
+    try {
+      return canonical.get((int) key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return a copy of all names in the store at the time of the call
+   */
+  @Override
+  public Iterable<IndexName> all() {
+    avail();
+    lock.readLock().lock();
+    try {
+      return new ArrayList<>(keys.values());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int count() {
+    lock.readLock().lock();
+    try {
+      return keys.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      clearInternal();
+      if (logOut != null) {
+        // the persisted names are gone, start with an empty log
+        closeLog();
+        snapshot.delete();
+        log.delete();
+        openLog();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to clear names index log " + log, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void clearInternal() {
+    keys.clear();
+    names.clear();
+    canonical.clear();
+    created = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /**
+   * @return an unmodifiable view of the shared names without copying them
+   */
+  @Override
+  public List<IndexName> get(String key) {
+    avail();
+    lock.readLock().lock();
+    try {
+      IndexName[] group = names.get(key);
+      if (group == null) {
+        return Collections.emptyList();
+      }
+      return Collections.unmodifiableList(Arrays.asList(group));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    avail();
+    lock.readLock().lock();
+    try {
+      return names.containsKey(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param key make sure this is a pure ASCII key, no chars above 7 bits allowed !!!
+   */
+  @Override
+  public void add(String key, IndexName name) {
+    avail();
+    check(name);
+    LOG.debug("Insert {}{} #{} keyed on >{}<", name.isCanonical() ? "canonical ":"", name.getLabelWithRank(), name.getKey(), key);
+    lock.writeLock().lock();
+    try {
+      addInternal(key, name);
+      appendLog(key, name);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void addInternal(String key, IndexName name) {
+    final int id = name.getKey();
+    keys.put(id, name);
+
+    // update names group, moving an existing id to the end
+    IndexName[] group = names.get(key);
+    if (group == null) {
+      group = new IndexName[]{name};
+    } else {
+      IndexName[] updated = new IndexName[group.length + 1];
+      int idx = 0;
+      for (IndexName n : group) {
+        if (n.getKey() != id) {
+          updated[idx++] = n;
+        }
+      }
+      updated[idx++] = name;
+      group = Arrays.copyOf(updated, idx);
+    }
+    names.put(key, group);
+
+    // update canonical
+    if (name.getCanonicalId() != null && !name.getCanonicalId().equals(name.getKey())) {
+      final int cid = name.getCanonicalId();
+      int[] cgroup = canonical.get(cid);
+      if (cgroup == null) {
+        canonical.put(cid, new int[]{id});
+      } else if (!ArrayUtils.contains(cgroup, id)) {
+        canonical.put(cid, ArrayUtils.add(cgroup, id));
+      }
+    }
+  }
+
+  @Override
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      for (var e : canonical.int2ObjectEntrySet()) {
+        e.setValue(new IntLinkedOpenHashSet(e.getValue()).toIntArray());
+      }
+      names.trim();
+      keys.trim();
+      canonical.trim();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public LocalDateTime created() {
+    return LocalDateTime.ofEpochSecond(created, 0, ZoneOffset.UTC);
+  }
+
+  void check(IndexName n){
+    Preconditions.checkNotNull(n.getKey(), "key required");
+    Preconditions.checkNotNull(n.getCanonicalId(), "canonicalID required");
+    Preconditions.checkNotNull(n.getRank(), "rank required");
+    Preconditions.checkNotNull(n.getScientificName(), "scientificName required");
+  }
+
+  private void avail() throws UnavailableException {
+    if (!started) throw UnavailableException.unavailable("names index");
+  }
+}
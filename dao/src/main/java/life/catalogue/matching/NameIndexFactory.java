@@ -162,12 +162,44 @@ public class NameIndexFactory {
     return ni;
   }
 
+  /**
+   * Creates a volatile names index backed by the compact heap store.
+   */
   public static NameIndexImpl memory(SqlSessionFactory sqlFactory, AuthorshipNormalizer authorshipNormalizer) {
     LOG.info("Use volatile in memory names index");
-    NameIndexStore store = new NameIndexMapDBStore(DBMaker.memoryDB());
+    NameIndexStore store = new NameIndexCompactStore();
     return new NameIndexImpl(store, authorshipNormalizer, sqlFactory, true);
   }
 
+  /**
+   * Creates a names index backed by the compact heap store which optionally persists its content
+   * as a snapshot file on shutdown and reads it back on startup.
+   * The snapshot is kept next to the given names index file with a .kryo suffix,
+   * so an existing mapdb index at that location is never touched.
+   * @param location optional names index file. If null a volatile memory index is used.
+   */
+  public static NameIndexImpl compact(@Nullable File location, SqlSessionFactory sqlFactory, AuthorshipNormalizer authorshipNormalizer, boolean verifyIndex) throws IOException {
+    if (location == null) {
+      return memory(sqlFactory, authorshipNormalizer);
+    }
+    final File snapshot = compactSnapshot(location);
+    if (!snapshot.exists()) {
+      FileUtils.forceMkdirParent(snapshot);
+      LOG.info("Create compact names index with snapshot at {}", snapshot.getAbsolutePath());
+    } else {
+      LOG.info("Use compact names index snapshot at {}", snapshot.getAbsolutePath());
+    }
+    NameIndexStore store = new NameIndexCompactStore(snapshot);
+    return new NameIndexImpl(store, authorshipNormalizer, sqlFactory, verifyIndex);
+  }
+
+  /**
+   * @return the snapshot file of the compact store for the given names index file
+   */
+  public static File compactSnapshot(File location) {
+    return new File(location.getParentFile(), location.getName() + ".kryo");
+  }
+
   /**
    * Creates or opens a persistent mapdb names index for the names index.
    */
@@ -93,10 +93,12 @@ public class NameIndexImpl implements NameIndex {
     if (candidates != null) {
       m = matchCandidates(name, candidates);
       if (verbose) {
+        // the store might return an unmodifiable list
+        List<IndexName> alternatives = new ArrayList<>(candidates);
         if (m.hasMatch()) {
-          candidates.remove(m.getName());
+          alternatives.remove(m.getName());
         }
-        m.setAlternatives(candidates);
+        m.setAlternatives(alternatives);
       } else {
         m.setAlternatives(null);
       }
@@ -300,12 +302,11 @@ public class NameIndexImpl implements NameIndex {
 
   private IndexName getCanonical(String key) {
     List<IndexName> matches = store.get(key);
-    // make sure the name is a canonical one
-    matches.removeIf(n -> !n.isCanonical());
     // just in case we have multiple results make sure to have a stable return by selecting the lowest, i.e. oldest key
     IndexName lowest = null;
     for (IndexName n : matches) {
-      if (lowest == null || lowest.getKey() > n.getKey()) {
+      // make sure the name is a canonical one
+      if (n.isCanonical() && (lowest == null || lowest.getKey() > n.getKey())) {
         lowest = n;
       }
     }
@@ -329,8 +330,8 @@ public class NameIndexImpl implements NameIndex {
     return store.count();
   }
 
-  public NameIndexMapDBStore store() {
-    return (NameIndexMapDBStore) store;
+  public NameIndexStore store() {
+    return store;
   }
 
   @Override
@@ -163,6 +163,7 @@ public class NameIndexMapDBStore implements NameIndexStore {
     return null;
   }
 
+  @Override
   public int[] debugCanonical(Integer key) {
     return canonical.get(key);
   }
@@ -20,6 +20,11 @@ public interface NameIndexStore extends Managed {
    */
   Collection<IndexName> byCanonical(Integer key);
 
+  /**
+   * @return the raw array of name keys for the given canonical key, including potential duplicates. For debugging only.
+   */
+  int[] debugCanonical(Integer key);
+
   Iterable<IndexName> all();
 
   /**
@@ -32,6 +37,11 @@ public interface NameIndexStore extends Managed {
    */
   void clear();
 
+  /**
+   * @param key the name key
+   * @return all names with the given key. The list might be unmodifiable and share its instances with the store,
+   * so neither the list nor the names must be modified.
+   */
   List<IndexName> get(String key);
   
   boolean containsKey(String key);
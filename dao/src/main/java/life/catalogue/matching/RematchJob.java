@@ -1,10 +1,16 @@
 package life.catalogue.matching;
 
 import life.catalogue.concurrent.BackgroundJob;
+import life.catalogue.concurrent.ExecutorUtils;
+import life.catalogue.concurrent.JobConfig;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.dao.DaoUtils;
 import life.catalogue.db.mapper.ArchivedNameUsageMapper;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -16,10 +22,18 @@ import com.google.common.base.Preconditions;
 
 import it.unimi.dsi.fastutil.ints.IntSet;
 
+/**
+ * Rematches the names of several datasets against the names index.
+ * The configured number of rematch threads is shared between datasets being rematched concurrently,
+ * and threads matching the names of a single dataset in parallel.
+ */
 public class RematchJob extends BackgroundJob {
   private static final Logger LOG = LoggerFactory.getLogger(RematchJob.class);
   private final SqlSessionFactory factory;
   private final NameIndex ni;
+  private final AtomicInteger finished = new AtomicInteger();
+  private volatile DatasetMatcher matcher;
+  private volatile long started;
 
   @JsonProperty
   private final int[] datasetKeys;
@@ -62,11 +76,23 @@ public class RematchJob extends BackgroundJob {
 
   @Override
   public void execute() {
-    LOG.info("Rematching {} datasets with data. Triggered by {}", datasetKeys.length, getUserKey());
+    final JobConfig cfg = getCfg();
+    final int threads = cfg == null ? 1 : cfg.rematchThreads;
+    final int workers = Math.max(1, Math.min(threads, datasetKeys.length));
+    LOG.info("Rematching {} datasets with data using {} threads. Triggered by {}", datasetKeys.length, threads, getUserKey());
 
-    DatasetMatcher matcher = new DatasetMatcher(factory, ni);
-    for (int key : datasetKeys) {
-      matcher.match(key, true);
+    started = System.currentTimeMillis();
+    matcher = new DatasetMatcher(factory, ni, Math.max(1, threads / workers));
+    if (workers > 1) {
+      ExecutorService exec = Executors.newFixedThreadPool(workers, new NamedThreadFactory("rematch-job"));
+      for (int key : datasetKeys) {
+        exec.execute(() -> match(key));
+      }
+      ExecutorUtils.shutdown(exec);
+    } else {
+      for (int key : datasetKeys) {
+        match(key);
+      }
     }
 
     LOG.info("Rematched {} datasets ({} failed), updating {} names from {} in total",
@@ -76,4 +102,46 @@ public class RematchJob extends BackgroundJob {
       matcher.getTotal()
     );
   }
+
+  private void match(int datasetKey) {
+    matcher.match(datasetKey, true);
+    LOG.info("Rematched dataset {} ({}/{}). Total names {} with {} names/s", datasetKey, finished.incrementAndGet(), datasetKeys.length,
+      matcher.getTotal(), getNamesPerSecond());
+  }
+
+  /**
+   * @return number of datasets rematched so far
+   */
+  @JsonProperty
+  public int getFinishedDatasets() {
+    return finished.get();
+  }
+
+  /**
+   * @return number of names rematched so far in finished datasets
+   */
+  @JsonProperty
+  public int getMatchedNames() {
+    return matcher == null ? 0 : matcher.getTotal();
+  }
+
+  /**
+   * @return number of names with a changed match so far in finished datasets
+   */
+  @JsonProperty
+  public int getUpdatedNames() {
+    return matcher == null ? 0 : matcher.getUpdated();
+  }
+
+  /**
+   * @return average throughput of rematched names across all datasets
+   */
+  @JsonProperty
+  public long getNamesPerSecond() {
+    if (matcher == null) {
+      return 0;
+    }
+    long seconds = Math.max(1, (System.currentTimeMillis() - started) / 1000);
+    return matcher.getTotal() / seconds;
+  }
 }
\ No newline at end of file
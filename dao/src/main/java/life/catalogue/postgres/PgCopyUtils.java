@@ -8,10 +8,7 @@ import java.io.InputStream;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -23,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
@@ -68,13 +66,36 @@ public class PgCopyUtils {
 
     LOG.info("Copy to table {}", table);
     HeadlessStream in = new HeadlessStream(csv, defaults, funcs);
-    // use quotes to avoid problems with reserved words, e.g. group
-    String header = HEADER_JOINER.join(in.header.stream().map(h -> "\"" + h + "\"").collect(Collectors.toList()));
-    long cnt = copy.copyIn("COPY " + table + "(" + header + ") FROM STDOUT WITH CSV NULL '"+nullValue+"'", in);
+    long cnt = copyIn(copy, table, in.header, in, nullValue);
 
     con.commit();
     return cnt;
   }
+
+  /**
+   * Streams rows straight into a table without an intermediate file, using the same CSV encoding as the file based copy.
+   * Values are written using their toString representation, enums by their name and collections as postgres arrays,
+   * so collections should only contain simple values that do not require quoting, e.g. enum names.
+   * Nulls and empty strings are both copied as NULL.
+   *
+   * The connection is not committed, so the copied rows only become visible once the surrounding transaction has been committed.
+   *
+   * @param columns the table columns in the same order as the row values
+   * @param rows iterator over rows with exactly one value per column
+   * @return number of copied rows
+   */
+  public static long copy(PgConnection con, String table, List<String> columns, Iterator<Object[]> rows) throws IOException, SQLException {
+    LOG.info("Stream rows to table {}", table);
+    try (RowStream in = new ObjectRowStream(columns.size(), rows)) {
+      return copyIn(con.getCopyAPI(), table, columns, in, "");
+    }
+  }
+
+  private static long copyIn(CopyManager copy, String table, List<String> columns, InputStream in, String nullValue) throws IOException, SQLException {
+    // use quotes to avoid problems with reserved words, e.g. group
+    String header = HEADER_JOINER.join(columns.stream().map(h -> "\"" + h + "\"").collect(Collectors.toList()));
+    return copy.copyIn("COPY " + table + "(" + header + ") FROM STDOUT WITH CSV NULL '"+nullValue+"'", in);
+  }
   
   /**
    * @return parses a postgres array given as <pre>{Duméril,Bibron}</pre>
@@ -90,15 +111,109 @@ public class PgCopyUtils {
     return "{" + HEADER_JOINER.join(x) + "}";
   }
 
-  static class HeadlessStream extends InputStream {
+  /**
+   * Encodes rows given as string arrays into the CSV format understood by the postgres COPY command.
+   */
+  abstract static class RowStream extends InputStream {
     private final static char lineend = '\n';
-    private final CsvParser parser;
     private final CsvWriter writer;
+    private byte[] bytes;
+    private int idx;
+    private boolean started;
+
+    RowStream() {
+      CsvWriterSettings cfg = new CsvWriterSettings();
+      cfg.setQuoteEscapingEnabled(true);
+      writer = new CsvWriter(cfg);
+    }
+
+    /**
+     * @return the next row or null if there are no more rows
+     */
+    abstract String[] nextRow() throws IOException;
+
+    @Override
+    public int read() throws IOException {
+      if (!started) {
+        started = true;
+        next();
+      }
+      if (bytes != null && idx == bytes.length) {
+        next();
+        return lineend;
+      }
+      if (bytes == null) {
+        return -1;
+      }
+      return bytes[idx++] & 0xFF;
+    }
+
+    private boolean next() throws IOException {
+      String[] line = nextRow();
+      if (line == null || line.length == 0) {
+        bytes = null;
+        return false;
+      }
+      // serialize row as char array
+      String x = writer.writeRowToString(line);
+      bytes = x.getBytes(StandardCharsets.UTF_8);
+      idx = 0;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+
+  /**
+   * Converts rows of java objects into strings.
+   */
+  static class ObjectRowStream extends RowStream {
+    private final int columns;
+    private final Iterator<Object[]> rows;
+
+    ObjectRowStream(int columns, Iterator<Object[]> rows) {
+      this.columns = columns;
+      this.rows = rows;
+    }
+
+    @Override
+    String[] nextRow() {
+      if (!rows.hasNext()) {
+        return null;
+      }
+      Object[] values = rows.next();
+      Preconditions.checkArgument(values.length == columns, "Expected %s values but got %s", columns, values.length);
+      String[] row = new String[values.length];
+      for (int i = 0; i < values.length; i++) {
+        row[i] = toString(values[i]);
+      }
+      return row;
+    }
+
+    private static String toString(Object val) {
+      if (val == null) {
+        return null;
+      } else if (val instanceof Collection) {
+        return buildPgArray(((Collection<?>) val).stream()
+          .filter(Objects::nonNull)
+          .map(ObjectRowStream::toString)
+          .toArray(String[]::new)
+        );
+      } else if (val instanceof Enum) {
+        return ((Enum<?>) val).name();
+      }
+      return val.toString();
+    }
+  }
+
+  static class HeadlessStream extends RowStream {
+    private final CsvParser parser;
     private final List<String> header;
     private final String[] defaultValues;
     private final List<Function<String[], String>> funcs;
-    private byte[] bytes;
-    private int idx;
 
     public HeadlessStream(InputStream in, Map<String, Object> defaults, Map<String, Function<String[], String>> funcs) throws IOException {
       CsvParserSettings cfg = new CsvParserSettings();
@@ -111,15 +226,10 @@ public class PgCopyUtils {
       cfg.setMaxCharsPerColumn(1024 * 128);
       parser = new CsvParser(cfg);
       parser.beginParsing(in, StandardCharsets.UTF_8);
-      
-      CsvWriterSettings cfg2 = new CsvWriterSettings();
-      cfg2.setQuoteEscapingEnabled(true);
-      writer = new CsvWriter(cfg2);
-      
+
       header        = Lists.newArrayList(parser.parseNext());
       defaultValues = parseDefaults(defaults);
       this.funcs = parseFuncs(funcs);
-      next();
     }
 
     private List<Function<String[], String>> parseFuncs(Map<String, Function<String[], String>> calculators) {
@@ -134,18 +244,6 @@ public class PgCopyUtils {
       return funcs;
     }
   
-    @Override
-    public int read() throws IOException {
-      if (bytes != null && idx == bytes.length) {
-        next();
-        return lineend;
-      }
-      if (bytes == null) {
-        return -1;
-      }
-      return bytes[idx++];
-    }
-
     /**
      * Adds default values as new columns (header & data), but only if the column is not already existing
      */
@@ -176,11 +274,11 @@ public class PgCopyUtils {
       return values.toArray(new String[0]);
     }
   
-    private boolean next() throws IOException {
+    @Override
+    String[] nextRow() {
       String[] line = parser.parseNext();
       if (line == null || line.length == 0) {
-        bytes = null;
-        return false;
+        return null;
       }
       // add defaults
       line = ArrayUtils.addAll(line, defaultValues);
@@ -193,18 +291,13 @@ public class PgCopyUtils {
         }
         line = ArrayUtils.addAll(line, calcVals);
       }
-
-      // serialize row as char array
-      String x = writer.writeRowToString(line);
-      bytes = x.getBytes(StandardCharsets.UTF_8);
-      idx = 0;
-      return true;
+      return line;
     }
   
     @Override
     public void close() throws IOException {
       parser.stopParsing();
-      writer.close();
+      super.close();
     }
   }
 
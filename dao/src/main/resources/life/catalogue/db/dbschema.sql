@@ -1898,6 +1898,21 @@ CREATE TABLE usage_count (
   counter int
 );
 
+-- materialized number of accepted descendants per rank for each accepted taxon, incl the taxon itself
+CREATE TABLE taxon_rank_count (
+  dataset_key INTEGER NOT NULL,
+  id TEXT NOT NULL,
+  rank RANK NOT NULL,
+  count INTEGER NOT NULL,
+  PRIMARY KEY (dataset_key, id, rank)
+);
+
+-- datasets with completely materialized taxon rank counts
+CREATE TABLE taxon_rank_count_dataset (
+  dataset_key INTEGER PRIMARY KEY,
+  created TIMESTAMP WITHOUT TIME ZONE DEFAULT NOW()
+);
+
 CREATE OR REPLACE FUNCTION track_usage_count()
 RETURNS TRIGGER AS
 $$
@@ -0,0 +1,48 @@
+package life.catalogue.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelOrderedMapperTest {
+
+  @Test
+  public void keepOrder() throws Exception {
+    List<Integer> input = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+    List<String> results = new ArrayList<>();
+    try (var mapper = new ParallelOrderedMapper<Integer, String>("test", 4, 7, i -> {
+      if (i % 13 == 0) {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return "x" + i;
+    })) {
+      int cnt = mapper.process(input.iterator(), results::add);
+      assertEquals(input.size(), cnt);
+    }
+    assertEquals(input.size(), results.size());
+    for (int i = 0; i < input.size(); i++) {
+      assertEquals("x" + i, results.get(i));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void exceptions() throws Exception {
+    try (var mapper = new ParallelOrderedMapper<Integer, Integer>("test", 2, 10, i -> {
+      if (i == 55) {
+        throw new IllegalStateException("bad " + i);
+      }
+      return i;
+    })) {
+      mapper.process(IntStream.range(0, 100).iterator(), x -> {});
+    }
+  }
+}
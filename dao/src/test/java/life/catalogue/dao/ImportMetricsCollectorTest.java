@@ -0,0 +1,65 @@
+package life.catalogue.dao;
+
+import life.catalogue.api.model.*;
+import life.catalogue.api.vocab.Issue;
+import life.catalogue.api.vocab.TaxonomicStatus;
+
+import org.gbif.dwc.terms.DwcTerm;
+import org.gbif.nameparser.api.Rank;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImportMetricsCollectorTest {
+
+  @Test
+  public void fill() {
+    ImportMetricsCollector metrics = new ImportMetricsCollector();
+
+    VerbatimRecord v = new VerbatimRecord(1, "taxa.txt", DwcTerm.Taxon);
+    v.put(DwcTerm.scientificName, "Abies alba");
+    v.put(DwcTerm.taxonRank, "species");
+    v.addIssue(Issue.ID_NOT_UNIQUE);
+    metrics.addVerbatim(v);
+
+    Name n = new Name();
+    n.setScientificName("Abies alba");
+    n.setRank(Rank.SPECIES);
+    metrics.addName(n);
+    Taxon t = new Taxon(n);
+    t.setStatus(TaxonomicStatus.ACCEPTED);
+    t.setExtinct(true);
+    metrics.addUsage(t);
+
+    Name n2 = new Name();
+    n2.setScientificName("Abies");
+    n2.setRank(Rank.GENUS);
+    metrics.addName(n2);
+    Synonym s = new Synonym(n2);
+    s.setStatus(TaxonomicStatus.SYNONYM);
+    metrics.addUsage(s);
+
+    metrics.addName(new Name());
+    metrics.addBareName();
+
+    DatasetImport di = new DatasetImport();
+    metrics.fill(di);
+    assertEquals(1, (int) di.getVerbatimCount());
+    assertEquals(3, (int) di.getNameCount());
+    assertEquals(1, (int) di.getBareNameCount());
+    assertEquals(1, (int) di.getTaxonCount());
+    assertEquals(1, (int) di.getSynonymCount());
+    assertEquals(0, (int) di.getReferenceCount());
+    assertEquals(1, (int) di.getIssuesCount().get(Issue.ID_NOT_UNIQUE));
+    assertEquals(1, (int) di.getVerbatimByTermCount().get(DwcTerm.Taxon));
+    assertEquals(1, (int) di.getVerbatimByRowTypeCount().get(DwcTerm.Taxon).get(DwcTerm.taxonRank));
+    assertEquals(1, (int) di.getNamesByRankCount().get(Rank.GENUS));
+    // null ranks are not counted
+    assertEquals(2, di.getNamesByRankCount().size());
+    assertEquals(1, (int) di.getTaxaByRankCount().get(Rank.SPECIES));
+    assertEquals(1, (int) di.getExtinctTaxaByRankCount().get(Rank.SPECIES));
+    assertEquals(1, (int) di.getSynonymsByRankCount().get(Rank.GENUS));
+    assertEquals(1, (int) di.getUsagesByStatusCount().get(TaxonomicStatus.SYNONYM));
+  }
+}
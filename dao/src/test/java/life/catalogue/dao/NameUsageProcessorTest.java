@@ -4,6 +4,7 @@ import life.catalogue.api.TestEntityGenerator;
 import life.catalogue.api.model.*;
 import life.catalogue.api.search.NameUsageWrapper;
 import life.catalogue.api.vocab.Datasets;
+import life.catalogue.common.func.BatchConsumer;
 import life.catalogue.common.io.TempFile;
 import life.catalogue.db.MybatisTestUtils;
 import life.catalogue.db.SqlSessionFactoryRule;
@@ -12,8 +13,12 @@ import life.catalogue.db.mapper.SectorMapper;
 
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -120,4 +125,69 @@ public class NameUsageProcessorTest extends DaoTestBase {
     // we do not want the target node that does have sectorKey=NULL !!!
     Assert.assertEquals(3, counter.get());
   }
-}
\ No newline at end of file
+
+  /**
+   * @return the main properties of a processed usage that depend on how a dataset is partitioned
+   */
+  private static String summary(NameUsageWrapper nuw) {
+    return nuw.getUsage().getClass().getSimpleName()
+      + " sector=" + nuw.getUsage().getName().getSectorKey() + " sectorDataset=" + nuw.getSectorDatasetKey()
+      + " publisher=" + nuw.getPublisherKey()
+      + (nuw.getUsage().isSynonym() ? " accepted=" + ((Synonym) nuw.getUsage()).getAccepted().getId() : "")
+      + " issues=" + nuw.getIssues()
+      + " classification=" + nuw.getClassification().stream().map(SimpleName::getId).collect(Collectors.joining(","));
+  }
+
+  /**
+   * Processing a dataset in partitions per sector must result in exactly the same usages as processing it in a single pass,
+   * also for synonyms with their accepted name and classifications crossing sector boundaries.
+   */
+  @Test
+  public void processPartitioned() throws Exception {
+    final int datasetKey = NAME4.getDatasetKey();
+    SectorMapper sm = mapper(SectorMapper.class);
+    Sector s1 = TestEntityGenerator.setUserDate(new Sector());
+    s1.setDatasetKey(datasetKey);
+    s1.setSubjectDatasetKey(12);
+    s1.setTarget(SimpleNameLink.of("t5"));
+    sm.create(s1);
+    Sector s2 = TestEntityGenerator.setUserDate(new Sector());
+    s2.setDatasetKey(datasetKey);
+    s2.setSubjectDatasetKey(3);
+    s2.setTarget(SimpleNameLink.of("t10"));
+    sm.create(s2);
+    commit();
+
+    // s22 has no sector, but its accepted t20 does. s14 is in the first sector, its accepted t13 in the second
+    Map<Integer, String> sectorIDs = Map.of(
+      s1.getId(), "'t5','t20','t23','t24','t25','s21','s14'",
+      s2.getId(), "'t10','t12','t13','t15','t16','s11'"
+    );
+    try (Connection con = SqlSessionFactoryRule.getSqlSessionFactory().openSession().getConnection();
+         Statement st = con.createStatement();
+    ) {
+      for (var e : sectorIDs.entrySet()) {
+        st.execute("UPDATE name_usage_" + datasetKey + " SET sector_key=" + e.getKey() + " WHERE id IN (" + e.getValue() + ")");
+        st.execute("UPDATE name_" + datasetKey + " n SET sector_key=" + e.getKey()
+                   + " FROM name_usage_" + datasetKey + " u WHERE u.name_id=n.id AND u.id IN (" + e.getValue() + ")");
+      }
+      con.commit();
+    }
+
+    NameUsageProcessor proc = new NameUsageProcessor(SqlSessionFactoryRule.getSqlSessionFactory(), TempFile.directoryFile());
+    Map<String, String> single = new HashMap<>();
+    proc.processDataset(datasetKey, nuw -> assertNull(single.put(nuw.getId(), summary(nuw))));
+    assertEquals(24, single.size());
+    assertEquals(7, single.values().stream().filter(x -> x.contains("sectorDataset=12")).count());
+    assertEquals(6, single.values().stream().filter(x -> x.contains("sectorDataset=3")).count());
+
+    Map<String, String> partitioned = new ConcurrentHashMap<>();
+    AtomicInteger consumers = new AtomicInteger();
+    proc.processDataset(datasetKey, 3, () -> {
+      consumers.incrementAndGet();
+      return new BatchConsumer<>(batch -> batch.forEach(nuw -> assertNull("Duplicate " + nuw.getId(), partitioned.put(nuw.getId(), summary(nuw)))), 2);
+    });
+    assertEquals(3, consumers.get());
+    assertEquals(single, partitioned);
+  }
+}
@@ -4,8 +4,15 @@ import life.catalogue.api.vocab.DatasetOrigin;
 import life.catalogue.db.PgSetupRule;
 import life.catalogue.db.SqlSessionFactoryRule;
 import life.catalogue.db.TestDataRule;
+import life.catalogue.db.mapper.DatasetPartitionMapper;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.ClassRule;
@@ -51,6 +58,84 @@ public class PartitionerTest {
     }
   }
 
+  /**
+   * @return sorted index definitions of a table without index and table names
+   */
+  public static List<String> indexDefinitions(Connection con, String table) throws SQLException {
+    List<String> defs = new ArrayList<>();
+    try (Statement st = con.createStatement()) {
+      st.execute("SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i JOIN pg_class t ON t.oid = i.indrelid"
+                 + " WHERE t.relname='" + table + "' AND t.relnamespace='public'::regnamespace");
+      try (ResultSet rs = st.getResultSet()) {
+        while (rs.next()) {
+          defs.add(rs.getString(1).replaceFirst("^CREATE (UNIQUE )?INDEX \\S+ ON (?:ONLY )?\\S+ ", "CREATE $1INDEX ON "));
+        }
+      }
+    }
+    Collections.sort(defs);
+    return defs;
+  }
+
+  /**
+   * @return number of indices of a partition table that are attached to an index of the main table
+   */
+  private static int attachedIndices(Connection con, String table) throws SQLException {
+    try (Statement st = con.createStatement()) {
+      st.execute("SELECT count(*) FROM pg_inherits h JOIN pg_index i ON i.indexrelid = h.inhrelid JOIN pg_class t ON t.oid = i.indrelid"
+                 + " WHERE t.relname='" + table + "' AND t.relnamespace='public'::regnamespace");
+      try (ResultSet rs = st.getResultSet()) {
+        rs.next();
+        return rs.getInt(1);
+      }
+    }
+  }
+
+  /**
+   * Builds keys and indices on new partition tables before they are attached, as project copies do,
+   * and makes sure attaching reuses all of them without building any duplicates.
+   */
+  @Test
+  public void prebuiltIndices() throws Exception {
+    final int key = 99;
+    final var factory = SqlSessionFactoryRule.getSqlSessionFactory();
+    List<String> tables = new ArrayList<>(DatasetPartitionMapper.PARTITIONED_TABLES);
+    tables.addAll(DatasetPartitionMapper.PROJECT_TABLES);
+
+    Partitioner.partition(factory, key, DatasetOrigin.PROJECT);
+    try (Connection con = pgSetupRule.connect();
+         Statement st = con.createStatement()
+    ) {
+      for (String table : tables) {
+        assertFalse(Partitioner.isAttached(con, table + "_" + key));
+        List<String> keys = Partitioner.keyDefinitions(con, table, key);
+        List<String> indices = Partitioner.indexDefinitions(con, table, key);
+        for (String ddl : keys) {
+          st.execute(ddl);
+        }
+        for (String ddl : indices) {
+          st.execute(ddl);
+        }
+        // all key and plain indices of the main table exist exactly once
+        List<String> expected = indexDefinitions(con, table);
+        assertEquals(table, expected, indexDefinitions(con, table + "_" + key));
+        assertEquals(0, attachedIndices(con, table + "_" + key));
+      }
+    }
+
+    Partitioner.attach(factory, key, DatasetOrigin.PROJECT);
+    try (Connection con = pgSetupRule.connect()) {
+      for (String table : tables) {
+        assertTrue(Partitioner.isAttached(con, table + "_" + key));
+        // attaching did not create any further index but attached all existing ones
+        List<String> expected = indexDefinitions(con, table);
+        assertEquals(table, expected, indexDefinitions(con, table + "_" + key));
+        assertEquals(table, expected.size(), attachedIndices(con, table + "_" + key));
+      }
+    } finally {
+      Partitioner.delete(factory, key, DatasetOrigin.PROJECT);
+    }
+  }
+
   @Test
   public void delete() throws Exception {
     final var factory = SqlSessionFactoryRule.getSqlSessionFactory();
@@ -9,7 +9,10 @@ import life.catalogue.db.SqlSessionFactoryRule;
 import life.catalogue.db.TestDataRule;
 import life.catalogue.db.mapper.SectorMapper;
 import life.catalogue.db.mapper.SectorMapperTest;
+import life.catalogue.db.mapper.NameUsageMapper;
 import life.catalogue.db.mapper.SynonymMapper;
+import life.catalogue.db.mapper.TaxonRankCountMapper;
+import life.catalogue.db.type2.StringCount;
 import life.catalogue.es.NameUsageIndexService;
 import life.catalogue.matching.NameIndexFactory;
 
@@ -17,9 +20,7 @@ import org.gbif.nameparser.api.Authorship;
 import org.gbif.nameparser.api.NameType;
 import org.gbif.nameparser.api.Rank;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Stream;
 
 import org.apache.ibatis.session.SqlSession;
@@ -325,6 +326,62 @@ public class TaxonDaoTest extends DaoTestBase {
     tDao.update(t5, USER_EDITOR.getKey());
   }
 
+  /**
+   * Rank changes of names and taxa converted into synonyms must leave the same rank counts as a full rebuild.
+   */
+  @Test
+  public void rankCounts() {
+    MybatisTestUtils.populateDraftTree(session());
+    try (TaxonRankCounter counter = new TaxonRankCounter(factory(), null)) {
+      counter.rebuild(Datasets.COL);
+      assertEquals(2, counter.count(DSID.colID("t1"), Rank.ORDER));
+
+      // t4 Coleoptera becomes a family
+      Name n4 = nDao.get(DSID.colID("n4"));
+      n4.setRank(Rank.FAMILY);
+      nDao.update(n4, user);
+      Map<String, Integer> counts = rankCounts();
+      assertEquals(1, (int) counts.get("t1 ORDER"));
+      assertEquals(1, (int) counts.get("t1 FAMILY"));
+      assertEquals(1, (int) counts.get("t4 FAMILY"));
+      assertFalse(counts.containsKey("t4 ORDER"));
+      counter.rebuild(Datasets.COL);
+      assertEquals(counts, rankCounts());
+
+      // convert t3 and its children into synonyms of t2
+      try (SqlSession session = factory().openSession(false)) {
+        NameUsageMapper num = session.getMapper(NameUsageMapper.class);
+        TaxonRankCounter.removeSubtree(session, DSID.colID("t3"), "t2");
+        for (String id : List.of("t4", "t5", "t3")) {
+          num.updateParentAndStatus(DSID.colID(id), "t2", TaxonomicStatus.SYNONYM, user);
+        }
+        session.commit();
+      }
+      counts = rankCounts();
+      assertEquals(Map.of("t1 KINGDOM", 1, "t1 PHYLUM", 1, "t2 PHYLUM", 1), counts);
+      counter.rebuild(Datasets.COL);
+      assertEquals(counts, rankCounts());
+    }
+  }
+
+  /**
+   * @return all positive rank counts of the draft tree keyed on the taxon id and rank
+   */
+  private static Map<String, Integer> rankCounts() {
+    Map<String, Integer> counts = new TreeMap<>();
+    try (SqlSession session = factory().openSession(true)) {
+      TaxonRankCountMapper mapper = session.getMapper(TaxonRankCountMapper.class);
+      for (String id : List.of("t1", "t2", "t3", "t4", "t5")) {
+        for (StringCount sc : mapper.getCounts(DSID.colID(id))) {
+          if (sc.getCount() > 0) {
+            counts.put(id + " " + sc.getKey(), sc.getCount());
+          }
+        }
+      }
+    }
+    return counts;
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void updateIllegalParentChange(){
     MybatisTestUtils.populateDraftTree(session());
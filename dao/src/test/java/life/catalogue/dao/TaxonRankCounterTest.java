@@ -0,0 +1,59 @@
+package life.catalogue.dao;
+
+import life.catalogue.api.model.SimpleName;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TaxonRankCounterTest {
+
+  @Test
+  public void builder() {
+    Map<String, Integer> counts = new HashMap<>();
+    var builder = new TaxonRankCounter.CountBuilder((id, rank, count) -> {
+      assertNull(counts.put(id + "-" + rank, count));
+    }, () -> {});
+
+    // depth first order
+    builder.accept(sn("1", null, Rank.KINGDOM));
+    builder.accept(sn("2", "1", Rank.FAMILY));
+    builder.accept(sn("3", "2", Rank.GENUS));
+    builder.accept(sn("4", "3", Rank.SPECIES));
+    builder.accept(sn("5", "3", Rank.SPECIES));
+    builder.accept(sn("6", "5", Rank.SUBSPECIES));
+    builder.accept(sn("7", "2", Rank.GENUS));
+    builder.accept(sn("8", "7", Rank.SPECIES));
+    builder.accept(sn("9", "1", Rank.SPECIES));
+    builder.accept(sn("10", null, Rank.KINGDOM));
+    builder.finish();
+
+    assertEquals(10, builder.counter);
+    assertEquals(1, (int) counts.get("1-KINGDOM"));
+    assertEquals(1, (int) counts.get("1-FAMILY"));
+    assertEquals(2, (int) counts.get("1-GENUS"));
+    assertEquals(4, (int) counts.get("1-SPECIES"));
+    assertEquals(1, (int) counts.get("1-SUBSPECIES"));
+    assertEquals(3, (int) counts.get("2-SPECIES"));
+    assertEquals(2, (int) counts.get("3-SPECIES"));
+    assertEquals(1, (int) counts.get("4-SPECIES"));
+    assertEquals(1, (int) counts.get("5-SUBSPECIES"));
+    assertEquals(1, (int) counts.get("7-SPECIES"));
+    assertEquals(1, (int) counts.get("10-KINGDOM"));
+    assertNull(counts.get("10-SPECIES"));
+    assertNull(counts.get("7-SUBSPECIES"));
+    assertEquals(21, counts.size());
+  }
+
+  static SimpleName sn(String id, String parentID, Rank rank) {
+    SimpleName sn = new SimpleName(id, "Abies " + id, rank);
+    sn.setParent(parentID);
+    return sn;
+  }
+}
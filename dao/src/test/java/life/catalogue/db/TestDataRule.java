@@ -340,6 +340,8 @@ public class TestDataRule extends ExternalResource implements AutoCloseable {
       st.execute("TRUNCATE estimate CASCADE");
       st.execute("TRUNCATE decision CASCADE");
       st.execute("TRUNCATE name_match");
+      st.execute("TRUNCATE taxon_rank_count");
+      st.execute("TRUNCATE taxon_rank_count_dataset");
       st.execute("TRUNCATE names_index RESTART IDENTITY CASCADE");
       session.getConnection().commit();
     }
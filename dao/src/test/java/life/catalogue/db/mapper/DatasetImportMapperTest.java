@@ -4,13 +4,12 @@ import life.catalogue.api.model.DatasetImport;
 import life.catalogue.api.model.ImportMetrics;
 import life.catalogue.api.model.Page;
 import life.catalogue.api.vocab.*;
-import life.catalogue.coldp.ColdpTerm;
 import life.catalogue.common.text.StringUtils;
+import life.catalogue.db.type2.MetricCount;
 import life.catalogue.db.type2.StringCount;
 
 import org.gbif.dwc.terms.AcefTerm;
 import org.gbif.dwc.terms.Term;
-import org.gbif.dwc.terms.UnknownTerm;
 import org.gbif.nameparser.api.NameType;
 import org.gbif.nameparser.api.NomCode;
 import org.gbif.nameparser.api.Rank;
@@ -18,6 +17,7 @@ import org.gbif.nameparser.api.Rank;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
@@ -197,45 +197,21 @@ public class DatasetImportMapperTest extends MapperTestBase<DatasetImportMapper>
   @Test
   public void counts() throws Exception {
     assertEquals((Integer) 1, mapper().countBareName(DATASET11.getKey()));
-    assertEquals((Integer) 5, mapper().countDistribution(DATASET11.getKey()));
-    assertEquals((Integer) 0, mapper().countMedia(DATASET11.getKey()));
-    assertEquals((Integer) 5, mapper().countName(DATASET11.getKey()));
     assertEquals((Integer) 3, mapper().countReference(DATASET11.getKey()));
-    assertEquals((Integer) 2, mapper().countSynonym(DATASET11.getKey()));
-    assertEquals((Integer) 2, mapper().countTaxon(DATASET11.getKey()));
     assertEquals((Integer) 0, mapper().countTreatment(DATASET11.getKey()));
-    assertEquals((Integer) 0, mapper().countTypeMaterial(DATASET11.getKey()));
-    assertEquals((Integer) 3, mapper().countVernacular(DATASET11.getKey()));
-    assertEquals((Integer) 5, mapper().countVerbatim(DATASET11.getKey()));
   }
 
   @Test
   public void countByMaps() throws Exception {
     assertEquals(3, mapper().countDistributionsByGazetteer(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countExtinctTaxaByRank(DATASET11.getKey()).size());
-    assertEquals(6, mapper().countIssues(DATASET11.getKey()).size());
     assertEquals(0, mapper().countMediaByType(DATASET11.getKey()).size());
     assertEquals(1, mapper().countNameRelationsByType(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countNamesByCode(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countNamesByRank(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countNamesByStatus(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countNamesByType(DATASET11.getKey()).size());
     assertEquals(0, mapper().countSpeciesInteractionsByType(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countSynonymsByRank(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countTaxaByRank(DATASET11.getKey()).size());
     assertEquals(0, mapper().countTaxonConceptRelationsByType(DATASET11.getKey()).size());
     assertEquals(0, mapper().countTypeMaterialByStatus(DATASET11.getKey()).size());
-    assertEquals(1, mapper().countUsagesByOrigin(DATASET11.getKey()).size());
-    assertEquals(2, mapper().countUsagesByStatus(DATASET11.getKey()).size());
     assertEquals(3, mapper().countVernacularsByLanguage(DATASET11.getKey()).size());
   }
 
-  @Test
-  public void countVerbatimTerms() throws Exception {
-    assertEquals(0, mapper().countVerbatimTerms(DATASET11.getKey(), ColdpTerm.scientificName).size());
-    assertEquals(0, mapper().countVerbatimTerms(DATASET11.getKey(), UnknownTerm.build("scientificName", false)).size());
-  }
-
   @Test
   public void deleteByDataset() throws Exception {
     mapper().deleteByDataset(Datasets.COL);
@@ -244,31 +220,6 @@ public class DatasetImportMapperTest extends MapperTestBase<DatasetImportMapper>
   @Test
   public void countMaps() throws Exception {
     Set<StringCount> expected = new HashSet<>();
-    expected.add(new StringCount(Issue.ESCAPED_CHARACTERS, 1));
-    expected.add(new StringCount(Issue.REFERENCE_ID_INVALID, 2));
-    expected.add(new StringCount(Issue.ID_NOT_UNIQUE, 1));
-    expected.add(new StringCount(Issue.URL_INVALID, 1));
-    expected.add(new StringCount(Issue.INCONSISTENT_AUTHORSHIP, 1));
-    expected.add(new StringCount(Issue.UNUSUAL_NAME_CHARACTERS, 1));
-    assertCounts(expected, mapper().countIssues(DATASET11.getKey()));
-  
-    expected.clear();
-    expected.add(new StringCount(Rank.SPECIES.name(), 5));
-    assertCounts(expected, mapper().countNamesByRank(DATASET11.getKey()));
-    
-    expected.clear();
-    expected.add(new StringCount(Rank.SPECIES.name(), 2));
-    assertCounts(expected, mapper().countTaxaByRank(DATASET11.getKey()));
-    
-    expected.clear();
-    expected.add(new StringCount(Origin.SOURCE, 4));
-    assertCounts(expected, mapper().countUsagesByOrigin(DATASET11.getKey()));
-    
-    expected.clear();
-    expected.add(new StringCount(NameType.SCIENTIFIC, 5));
-    assertCounts(expected, mapper().countNamesByType(DATASET11.getKey()));
-    
-    expected.clear();
     expected.add(new StringCount(Gazetteer.TEXT, 3));
     expected.add(new StringCount(Gazetteer.TDWG, 1));
     expected.add(new StringCount(Gazetteer.ISO, 1));
@@ -280,21 +231,79 @@ public class DatasetImportMapperTest extends MapperTestBase<DatasetImportMapper>
     expected.add(new StringCount("deu", 1));
     assertCounts(expected, mapper().countVernacularsByLanguage(DATASET11.getKey()));
     
-    expected.clear();
-    expected.add(new StringCount(TaxonomicStatus.ACCEPTED, 2));
-    expected.add(new StringCount(TaxonomicStatus.SYNONYM, 2));
-    assertCounts(expected, mapper().countUsagesByStatus(DATASET11.getKey()));
-    
-    assertEmpty(mapper().countNamesByStatus(DATASET11.getKey()));
-    
     expected.clear();
     expected.add(new StringCount(NomRelType.SPELLING_CORRECTION, 1));
     assertCounts(expected, mapper().countNameRelationsByType(DATASET11.getKey()));
-    
-    expected.clear();
+  }
+
+  @Test
+  public void countNameMetrics() throws Exception {
+    List<MetricCount> counts = mapper().countNameMetrics(DATASET11.getKey());
+    // every name is counted once for each metric
+    for (String m : List.of("rank", "code", "status", "type")) {
+      assertEquals(m, 5, sum(metric(counts, m)));
+    }
+    assertCounts(Set.of(new StringCount(Rank.SPECIES.name(), 5)), metric(counts, "rank"));
+    assertCounts(Set.of(new StringCount(NameType.SCIENTIFIC, 5)), metric(counts, "type"));
+    assertEmpty(metric(counts, "status"));
+  }
+
+  @Test
+  public void countUsageMetrics() throws Exception {
+    List<MetricCount> counts = mapper().countUsageMetrics(DATASET11.getKey());
+    Set<StringCount> expected = new HashSet<>();
+    expected.add(new StringCount(TaxonomicStatus.ACCEPTED, 2));
+    expected.add(new StringCount(TaxonomicStatus.SYNONYM, 2));
+    assertCounts(expected, metric(counts, "status"));
+    assertCounts(Set.of(new StringCount(Origin.SOURCE, 4)), metric(counts, "origin"));
+    assertCounts(Set.of(new StringCount(Rank.SPECIES.name(), 2)), metric(counts, "taxonRank"));
+    assertCounts(Set.of(new StringCount(Rank.SPECIES.name(), 2)), metric(counts, "synonymRank"));
+    List<StringCount> extinct = metric(counts, "extinctRank");
+    assertEquals(1, extinct.size());
+    assertEquals(Rank.SPECIES.name(), extinct.get(0).getKey());
+  }
+
+  @Test
+  public void countVerbatimMetrics() throws Exception {
+    List<MetricCount> counts = mapper().countVerbatimMetrics(DATASET11.getKey());
+    Set<StringCount> expected = new HashSet<>();
     expected.add(new StringCount(AcefTerm.AcceptedSpecies.prefixedName(), 3));
     expected.add(new StringCount(AcefTerm.Synonyms.prefixedName(), 2));
-    assertCounts(expected, mapper().countVerbatimByType(DATASET11.getKey()));
+    assertCounts(expected, counts.stream()
+      .filter(c -> c.getMetric().equals("type"))
+      .map(c -> new StringCount(c.getRowType(), c.getCount()))
+      .collect(Collectors.toList())
+    );
+
+    // issues are counted per row type
+    Map<String, Integer> issues = new HashMap<>();
+    for (StringCount c : metric(counts, "issue")) {
+      issues.merge(c.getKey(), c.getCount(), Integer::sum);
+    }
+    Map<String, Integer> expectedIssues = new HashMap<>();
+    expectedIssues.put(Issue.ESCAPED_CHARACTERS.name(), 1);
+    expectedIssues.put(Issue.REFERENCE_ID_INVALID.name(), 2);
+    expectedIssues.put(Issue.ID_NOT_UNIQUE.name(), 1);
+    expectedIssues.put(Issue.URL_INVALID.name(), 1);
+    expectedIssues.put(Issue.INCONSISTENT_AUTHORSHIP.name(), 1);
+    expectedIssues.put(Issue.UNUSUAL_NAME_CHARACTERS.name(), 1);
+    assertEquals(expectedIssues, issues);
+
+    assertEquals(18, counts.stream()
+      .filter(c -> c.getMetric().equals("term") && AcefTerm.AcceptedSpecies.prefixedName().equals(c.getRowType()))
+      .count()
+    );
+  }
+
+  private static List<StringCount> metric(List<MetricCount> counts, String metric) {
+    return counts.stream()
+      .filter(c -> metric.equals(c.getMetric()))
+      .map(c -> new StringCount(c.getKey(), c.getCount()))
+      .collect(Collectors.toList());
+  }
+
+  private static int sum(List<StringCount> counts) {
+    return counts.stream().mapToInt(StringCount::getCount).sum();
   }
   
   private static <T> void assertCounts(Set<T> expected, List<T> actual) {
@@ -108,6 +108,21 @@ public class NameUsageMapperTest extends MapperTestBase<NameUsageMapper> {
     res = mapper().listByNamesIndexIDGlobal(3, new Page());
   }
 
+  @Test
+  public void listByCanonNIDXs() throws Exception {
+    var res = mapper().listByCanonNIDXs(datasetKey, List.of(3, 4));
+    assertEquals(3, res.size());
+    res = mapper().listByCanonNIDXs(datasetKey, List.of(99));
+    assertTrue(res.isEmpty());
+  }
+
+  @Test
+  public void listSimplePubWithAncestors() throws Exception {
+    var res = mapper().listSimplePubWithAncestors(datasetKey, List.of("s1", "root-1"));
+    assertEquals(3, res.size());
+    assertTrue(res.stream().anyMatch(sn -> sn.getId().equals("root-2")));
+  }
+
   @Test
   public void listRelated() throws Exception {
     var results = mapper().listRelated(DSID.of(testDataRule.testData.key, "root-2"), null, null);
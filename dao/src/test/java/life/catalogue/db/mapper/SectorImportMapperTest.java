@@ -152,5 +152,7 @@ public class SectorImportMapperTest extends MapperTestBase<SectorImportMapper> {
     assertEquals(0, mapper().countTypeMaterialByStatus(DATASET11.getKey(), 1).size());
     assertEquals(0, mapper().countUsagesByStatus(DATASET11.getKey(), 1).size());
     assertEquals(0, mapper().countVernacularsByLanguage(DATASET11.getKey(), 1).size());
+    assertEquals(0, mapper().countNameMetrics(DATASET11.getKey(), 1).size());
+    assertEquals(0, mapper().countUsageMetrics(DATASET11.getKey(), 1).size());
   }
 }
\ No newline at end of file
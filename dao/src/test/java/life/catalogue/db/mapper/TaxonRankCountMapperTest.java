@@ -0,0 +1,76 @@
+package life.catalogue.db.mapper;
+
+import life.catalogue.api.model.DSID;
+import life.catalogue.api.vocab.Datasets;
+import life.catalogue.db.MybatisTestUtils;
+import life.catalogue.db.type2.StringCount;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaxonRankCountMapperTest extends MapperTestBase<TaxonRankCountMapper> {
+
+  public TaxonRankCountMapperTest() {
+    super(TaxonRankCountMapper.class);
+  }
+
+  @Test
+  public void roundtrip() {
+    MybatisTestUtils.populateDraftTree(session());
+    assertFalse(mapper().exists(Datasets.COL));
+
+    mapper().create(DSID.colID("t4"), Rank.ORDER, 1);
+    mapper().create(DSID.colID("t4"), Rank.SPECIES, 12);
+    commit();
+    // only the marker makes counts materialized
+    assertFalse(mapper().exists(Datasets.COL));
+    assertTrue(mapper().lock(Datasets.COL));
+    mapper().createMarker(Datasets.COL);
+    mapper().createMarker(Datasets.COL);
+    commit();
+    assertTrue(mapper().exists(Datasets.COL));
+    assertEquals(12, (int) mapper().get(DSID.colID("t4"), Rank.SPECIES));
+    assertNull(mapper().get(DSID.colID("t4"), Rank.GENUS));
+    assertEquals(2, mapper().getCounts(DSID.colID("t4")).size());
+
+    // t4 and all its parents
+    mapper().inc(DSID.colID("t4"), Rank.SPECIES, 3);
+    commit();
+    assertEquals(15, (int) mapper().get(DSID.colID("t4"), Rank.SPECIES));
+    assertEquals(3, (int) mapper().get(DSID.colID("t3"), Rank.SPECIES));
+    assertEquals(3, (int) mapper().get(DSID.colID("t1"), Rank.SPECIES));
+    assertNull(mapper().get(DSID.colID("t5"), Rank.SPECIES));
+
+    List<StringCount> counts = mapper().list(Datasets.COL, List.of("t1", "t4", "t5"), Rank.SPECIES);
+    assertEquals(2, counts.size());
+
+    // negative deltas never create counts or go below zero
+    mapper().inc(DSID.colID("t5"), Rank.SPECIES, -5);
+    commit();
+    assertNull(mapper().get(DSID.colID("t5"), Rank.SPECIES));
+    assertEquals(15, (int) mapper().get(DSID.colID("t4"), Rank.SPECIES));
+    assertEquals(0, (int) mapper().get(DSID.colID("t3"), Rank.SPECIES));
+    assertEquals(0, (int) mapper().get(DSID.colID("t1"), Rank.SPECIES));
+    mapper().inc(DSID.colID("t4"), Rank.SPECIES, 5);
+    commit();
+
+    // t2 is the parent of t3
+    assertEquals(3, mapper().deleteDescendants(DSID.colID("t2")));
+    commit();
+    assertNull(mapper().get(DSID.colID("t3"), Rank.SPECIES));
+    assertEquals(5, (int) mapper().get(DSID.colID("t2"), Rank.SPECIES));
+    mapper().inc(DSID.colID("t3"), Rank.SPECIES, 5);
+    commit();
+
+    mapper().delete(DSID.colID("t4"));
+    commit();
+    assertNull(mapper().get(DSID.colID("t4"), Rank.SPECIES));
+    assertEquals(3, mapper().deleteByDataset(Datasets.COL));
+    assertFalse(mapper().exists(Datasets.COL));
+  }
+}
@@ -8,7 +8,6 @@ import life.catalogue.db.TestDataRule;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
 import java.util.Collections;
 
 import org.apache.commons.io.IOUtils;
@@ -25,14 +24,6 @@ public abstract class BaseDiffServiceTest<K> extends DaoTestBase {
     super(TestDataRule.tree());
   }
 
-  @Test
-  public void diffBinaryVersion() throws IOException {
-    String v = diff.diffBinaryVersion();
-    System.out.println(v);
-    assertTrue(v.startsWith("diff") || v.startsWith("Apple diff"));
-    assertTrue(v.length() > 10);
-  }
-
   @Test
   public void udiff() throws Exception {
     final File f1 = Resources.toFile("trees/coldp.tree.gz");
@@ -53,6 +44,26 @@ public abstract class BaseDiffServiceTest<K> extends DaoTestBase {
     Assert.assertTrue(udiff.startsWith("---"));
   }
 
+  @Test
+  public void sortedUdiff() throws Exception {
+    final File f1 = Resources.toFile("names1.txt");
+    final File f2 = Resources.toFile("names2.txt");
+
+    BufferedReader br = diff.sortedUdiff(provideTestKey(), new int[]{1,2}, 0, i -> {
+      switch (i) {
+        case 1: return f1;
+        case 2: return f2;
+      }
+      return null;
+    });
+
+    String udiff = IOUtils.toString(br);
+    Assert.assertTrue(udiff.startsWith("--- dataset_"));
+    // 2 deleted and 2 inserted names
+    assertEquals(2, udiff.lines().filter(l -> l.startsWith("-") && !l.startsWith("---")).count());
+    assertEquals(2, udiff.lines().filter(l -> l.startsWith("+") && !l.startsWith("+++")).count());
+  }
+
   abstract K provideTestKey();
 
   @Test(expected = FileMetricsDao.AttemptMissingException.class)
@@ -21,7 +21,7 @@ public class DatasetDiffServiceTest extends BaseDiffServiceTest<Integer> {
   final DatasetDiffService diffService;
 
   public DatasetDiffServiceTest() {
-    diffService = new DatasetDiffService(factory(), new FileMetricsDatasetDao(factory(), treeRepoRule.getRepo()), 10);
+    diffService = new DatasetDiffService(factory(), new FileMetricsDatasetDao(factory(), treeRepoRule.getRepo()), 10, 100000);
     diff = diffService;
   }
 
@@ -52,6 +52,17 @@ public class DatasetDiffServiceTest extends BaseDiffServiceTest<Integer> {
     System.out.println(watch);
   }
 
+  /**
+   * Trees larger than the configured maximum are diffed with the streaming diff.
+   */
+  @Test
+  public void tooLarge() throws Exception {
+    final File f1 = Resources.toFile("trees/coldp.tree.gz");
+    final File f2 = Resources.toFile("trees/coldp2.tree.gz");
+    var small = new DatasetDiffService(factory(), new FileMetricsDatasetDao(factory(), treeRepoRule.getRepo()), 10, 10);
+    assertDiffExists(small.udiff(provideTestKey(), new int[]{1,2}, 2, i -> i == 1 ? f1 : f2));
+  }
+
   @Test
   public void diffItisNamesWithOther() throws Exception {
     var br = diffService.datasetNamesDiff(1, TestDataRule.TREE.key, null, 3, null, null, true, true, false, null);
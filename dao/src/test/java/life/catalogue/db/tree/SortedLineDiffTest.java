@@ -0,0 +1,62 @@
+package life.catalogue.db.tree;
+
+import life.catalogue.common.io.UTF8IoUtils;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortedLineDiffTest {
+
+  private static String udiff(String x1, String x2, int context) throws Exception {
+    StringWriter w = new StringWriter();
+    SortedLineDiff.unifiedDiff(UTF8IoUtils.readerFromString(x1), "a", UTF8IoUtils.readerFromString(x2), "b", context, w);
+    return w.toString();
+  }
+
+  @Test
+  public void identical() throws Exception {
+    assertEquals("", udiff("a\nb\nc\n", "a\nb\n\nc\n", 2));
+    assertEquals("", udiff("", "", 0));
+  }
+
+  @Test
+  public void noContext() throws Exception {
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -2 +1,0 @@\n" +
+        "-b\n" +
+        "@@ -4,0 +4 @@\n" +
+        "+e\n",
+      udiff("a\nb\nc\nd\n", "a\nc\nd\ne\n", 0));
+  }
+
+  @Test
+  public void context() throws Exception {
+    // changes closer than 2x context are merged into one hunk
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -1,5 +1,5 @@\n" +
+        " a\n" +
+        "-b\n" +
+        " c\n" +
+        " d\n" +
+        "+e\n" +
+        " f\n",
+      udiff("a\nb\nc\nd\nf\ng\nh\ni\n", "a\nc\nd\ne\nf\ng\nh\ni\n", 1));
+
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -1,3 +1,2 @@\n" +
+        " a\n" +
+        "-b\n" +
+        " c\n" +
+        "@@ -5,2 +4,3 @@\n" +
+        " e\n" +
+        "+f\n" +
+        " g\n",
+      udiff("a\nb\nc\nd\ne\ng\n", "a\nc\nd\ne\nf\ng\n", 1));
+  }
+}
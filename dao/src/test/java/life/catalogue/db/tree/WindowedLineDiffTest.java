@@ -0,0 +1,118 @@
+package life.catalogue.db.tree;
+
+import life.catalogue.common.io.UTF8IoUtils;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class WindowedLineDiffTest {
+
+  private static String udiff(String x1, String x2, int context, int window) throws Exception {
+    StringWriter w = new StringWriter();
+    WindowedLineDiff.unifiedDiff(UTF8IoUtils.readerFromString(x1), "a", UTF8IoUtils.readerFromString(x2), "b", context, window, w);
+    return w.toString();
+  }
+
+  @Test
+  public void identical() throws Exception {
+    assertEquals("", udiff("a\nb\nc\n", "a\nb\n\nc\n", 2, 10));
+    assertEquals("", udiff("", "", 0, 10));
+  }
+
+  @Test
+  public void noContext() throws Exception {
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -2 +1,0 @@\n" +
+        "-b\n" +
+        "@@ -4,0 +4 @@\n" +
+        "+e\n",
+      udiff("a\nb\nc\nd\n", "a\nc\nd\ne\n", 0, 10));
+  }
+
+  @Test
+  public void context() throws Exception {
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -1,3 +1,2 @@\n" +
+        " a\n" +
+        "-b\n" +
+        " c\n" +
+        "@@ -5,2 +4,3 @@\n" +
+        " e\n" +
+        "+f\n" +
+        " g\n",
+      udiff("a\nb\nc\nd\ne\ng\n", "a\nc\nd\ne\nf\ng\n", 1, 10));
+  }
+
+  @Test
+  public void orderKept() throws Exception {
+    // unlike the sorted diff a moved line shows up as a deletion and an insertion
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -1 +0,0 @@\n" +
+        "-a\n" +
+        "@@ -4,0 +4 @@\n" +
+        "+a\n",
+      udiff("a\nb\nc\nd\n", "b\nc\nd\na\n", 0, 10));
+  }
+
+  @Test
+  public void smallWindow() throws Exception {
+    // the common line d is beyond the window so all buffered lines are reported as changed
+    assertEquals("--- a\n" +
+        "+++ b\n" +
+        "@@ -1,2 +1,2 @@\n" +
+        "-a\n" +
+        "-b\n" +
+        "+x\n" +
+        "+y\n",
+      udiff("a\nb\nd\n", "x\ny\nd\n", 0, 2));
+  }
+
+  @Test
+  public void reconstruct() throws Exception {
+    Random rnd = new Random(17);
+    for (int run = 0; run < 100; run++) {
+      List<String> l1 = new ArrayList<>();
+      List<String> l2 = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String line = "l" + rnd.nextInt(300);
+        int x = rnd.nextInt(10);
+        if (x > 0) l1.add(line);
+        if (x != 1) l2.add(x == 2 ? "changed" + i : line);
+      }
+      List<String> r1 = new ArrayList<>();
+      List<String> r2 = new ArrayList<>();
+      WindowedLineDiff.diff(
+        UTF8IoUtils.readerFromString(String.join("\n", l1)),
+        UTF8IoUtils.readerFromString(String.join("\n", l2)),
+        1 + rnd.nextInt(50),
+        new SortedLineDiff.Handler() {
+          @Override
+          public void equal(String line) {
+            r1.add(line);
+            r2.add(line);
+          }
+
+          @Override
+          public void deleted(String line) {
+            r1.add(line);
+          }
+
+          @Override
+          public void inserted(String line) {
+            r2.add(line);
+          }
+        });
+      assertEquals(l1, r1);
+      assertEquals(l2, r2);
+    }
+  }
+}
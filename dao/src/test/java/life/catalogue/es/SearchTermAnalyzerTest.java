@@ -0,0 +1,20 @@
+package life.catalogue.es;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchTermAnalyzerTest {
+
+  @Test
+  public void analyzeSciNameWholeWords() {
+    assertArrayEquals(new String[]{"abies", "alba"}, SearchTermAnalyzer.analyzeSciNameWholeWords("Abies  alba "));
+    assertArrayEquals(new String[]{"heterodon", "xy"}, SearchTermAnalyzer.analyzeSciNameWholeWords("H(eterodon) x-y"));
+    assertArrayEquals(new String[]{"a", "b"}, SearchTermAnalyzer.analyzeSciNameWholeWords("a,b"));
+    assertArrayEquals(new String[]{"lobbs", "1887"}, SearchTermAnalyzer.analyzeSciNameWholeWords("L'obbs. 1887"));
+    assertArrayEquals(new String[0], SearchTermAnalyzer.analyzeSciNameWholeWords(" ( ) "));
+    // non ASCII phrases are left to Elasticsearch
+    assertNull(SearchTermAnalyzer.analyzeSciNameWholeWords("Abiés"));
+    assertNull(SearchTermAnalyzer.analyzeSciNameWholeWords("a".repeat(256)));
+  }
+}
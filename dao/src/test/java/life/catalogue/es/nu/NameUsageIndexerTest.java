@@ -0,0 +1,144 @@
+package life.catalogue.es.nu;
+
+import life.catalogue.api.TestEntityGenerator;
+import life.catalogue.api.search.NameUsageWrapper;
+import life.catalogue.es.EsException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicRequestLine;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests retries and batch size adaption of the indexer against a stubbed RestClient
+ * which answers bulk requests synchronously with scripted responses.
+ */
+public class NameUsageIndexerTest {
+  private static final String OK = "{\"errors\":false,\"items\":[]}";
+
+  // number of documents in each bulk request sent
+  final List<Integer> bulks = new ArrayList<>();
+  // scripted responses: an Integer status for failed requests or a String body for successful ones. Defaults to OK
+  final Queue<Object> responses = new ArrayDeque<>();
+  RestClient client;
+
+  @Before
+  public void init() {
+    client = mock(RestClient.class);
+    when(client.performRequestAsync(any(Request.class), any(ResponseListener.class))).thenAnswer(inv -> {
+      Request req = inv.getArgument(0);
+      ResponseListener listener = inv.getArgument(1);
+      bulks.add(StringUtils.countMatches(EntityUtils.toString(req.getEntity()), "\"_index\""));
+      Object resp = responses.isEmpty() ? OK : responses.poll();
+      if (resp instanceof Integer) {
+        listener.onFailure(new ResponseException(response((Integer) resp, null)));
+      } else {
+        listener.onSuccess(response(200, (String) resp));
+      }
+      return null;
+    });
+  }
+
+  private NameUsageIndexer indexer(int maxAttempts) {
+    return new NameUsageIndexer(client, "test", 2, maxAttempts, 0);
+  }
+
+  private static Response response(int status, String body) {
+    Response resp = mock(Response.class);
+    when(resp.getRequestLine()).thenReturn(new BasicRequestLine("POST", "/_bulk", HttpVersion.HTTP_1_1));
+    when(resp.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, status, null));
+    if (body != null) {
+      when(resp.getEntity()).thenReturn(new StringEntity(body, ContentType.APPLICATION_JSON));
+    }
+    return resp;
+  }
+
+  private static List<NameUsageWrapper> docs(int size) {
+    List<NameUsageWrapper> docs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      docs.add(TestEntityGenerator.newNameUsageTaxonWrapper());
+    }
+    return docs;
+  }
+
+  @Test
+  public void retryRejected() {
+    responses.add(429);
+    NameUsageIndexer indexer = indexer(5);
+    indexer.accept(docs(10));
+    indexer.flush();
+    assertEquals(List.of(10, 10), bulks);
+    assertEquals(10, indexer.documentsIndexed());
+    // halved by the rejection, then grown by a quarter after the fast response
+    assertEquals(625, indexer.getBatchSize());
+  }
+
+  @Test
+  public void retryServerErrors() {
+    // a failed request is retried as a whole, a single failed item on its own
+    responses.add(503);
+    responses.add("{\"errors\":true,\"items\":[{\"index\":{\"status\":201}},{\"index\":{\"status\":503}}]}");
+    NameUsageIndexer indexer = indexer(5);
+    indexer.accept(docs(2));
+    indexer.flush();
+    assertEquals(List.of(2, 2, 1), bulks);
+    assertEquals(2, indexer.documentsIndexed());
+  }
+
+  @Test
+  public void shrinkBatchSize() {
+    responses.add(429);
+    responses.add(429);
+    NameUsageIndexer indexer = indexer(5);
+    indexer.accept(docs(1000));
+    assertEquals(List.of(1000), bulks);
+    assertEquals(500, indexer.getBatchSize());
+
+    // the due retry is rejected again before the next, now smaller bulk is sent
+    indexer.accept(docs(500));
+    assertEquals(List.of(1000, 1000, 500), bulks);
+    assertEquals(312, indexer.getBatchSize());
+
+    indexer.flush();
+    assertEquals(List.of(1000, 1000, 500, 1000), bulks);
+    assertEquals(1500, indexer.documentsIndexed());
+  }
+
+  @Test
+  public void failFast() {
+    responses.add(503);
+    NameUsageIndexer indexer = indexer(1);
+    indexer.accept(docs(1000));
+    assertEquals(List.of(1000), bulks);
+    try {
+      indexer.accept(docs(1));
+      fail("Failed bulk request should be reported on the next accept");
+    } catch (EsException e) {
+      assertTrue(e.getCause() instanceof ResponseException);
+    }
+    assertEquals(0, indexer.documentsIndexed());
+    // the error is only reported once
+    indexer.flush();
+    assertEquals(List.of(1000), bulks);
+  }
+}
@@ -1,14 +1,30 @@
 package life.catalogue.matching;
 
+import life.catalogue.api.TestEntityGenerator;
+import life.catalogue.api.model.ArchivedNameUsage;
+import life.catalogue.api.model.Name;
+import life.catalogue.api.model.Taxon;
 import life.catalogue.common.tax.AuthorshipNormalizer;
 import life.catalogue.db.PgSetupRule;
 import life.catalogue.db.SqlSessionFactoryRule;
 import life.catalogue.db.TestDataRule;
+import life.catalogue.db.mapper.ArchivedNameUsageMapper;
+import life.catalogue.db.mapper.ArchivedNameUsageMatchMapper;
+import life.catalogue.db.mapper.NameMapper;
+import life.catalogue.db.mapper.NameMatchMapper;
 
+import org.gbif.nameparser.api.Rank;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ibatis.session.SqlSession;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+
 public class DatasetMatcherTest {
 
   @ClassRule
@@ -32,4 +48,75 @@ public class DatasetMatcherTest {
     m = new DatasetMatcher(SqlSessionFactoryRule.getSqlSessionFactory(), nidx);
     m.match(11, true);
   }
-}
\ No newline at end of file
+
+  /**
+   * Matching with several threads must result in the same matches and counters as matching sequentially,
+   * including the archived names of the apple project.
+   */
+  @Test
+  public void parallel() throws Exception {
+    final int archived = 2500;
+    try (SqlSession session = SqlSessionFactoryRule.getSqlSessionFactory().openSession(true)) {
+      var aum = session.getMapper(ArchivedNameUsageMapper.class);
+      for (int i = 0; i < archived; i++) {
+        Taxon t = TestEntityGenerator.newMinimalTaxon(11, "arch" + i, null, Rank.SPECIES, "Malus " + epithet(i));
+        ArchivedNameUsage u = new ArchivedNameUsage(t);
+        u.setLastReleaseKey(12);
+        // clear unsupported fields
+        TestEntityGenerator.setUserDate(u, null, null);
+        TestEntityGenerator.setUserDate(u.getName(), null, null);
+        aum.create(u);
+      }
+    }
+    NameIndex nidx = NameIndexFactory.memory(SqlSessionFactoryRule.getSqlSessionFactory(), AuthorshipNormalizer.createWithoutAuthormap()).started();
+
+    deleteMatches();
+    DatasetMatcher seq = new DatasetMatcher(SqlSessionFactoryRule.getSqlSessionFactory(), nidx, 1);
+    seq.match(11, true);
+    Map<String, String> seqMatches = matches();
+    assertEquals(archived, seq.getArchived());
+    assertEquals(seq.getTotal(), seqMatches.size());
+
+    deleteMatches();
+    DatasetMatcher par = new DatasetMatcher(SqlSessionFactoryRule.getSqlSessionFactory(), nidx, 4);
+    par.match(11, true);
+    assertEquals(seqMatches, matches());
+    assertEquals(seq.getTotal(), par.getTotal());
+    assertEquals(seq.getUpdated(), par.getUpdated());
+    assertEquals(seq.getNomatch(), par.getNomatch());
+    assertEquals(seq.getArchived(), par.getArchived());
+    assertEquals(1, par.getDatasets());
+  }
+
+  private static String epithet(int idx) {
+    StringBuilder sb = new StringBuilder();
+    do {
+      sb.append((char) ('a' + idx % 26));
+      idx = idx / 26;
+    } while (idx > 0);
+    return sb + "ensis";
+  }
+
+  private static void deleteMatches() {
+    try (SqlSession session = SqlSessionFactoryRule.getSqlSessionFactory().openSession(true)) {
+      session.getMapper(NameMatchMapper.class).truncate();
+      session.getMapper(ArchivedNameUsageMatchMapper.class).truncate();
+    }
+  }
+
+  /**
+   * @return all names and archived names of the apple project with their names index id and match type
+   */
+  private static Map<String, String> matches() {
+    Map<String, String> matches = new TreeMap<>();
+    try (SqlSession session = SqlSessionFactoryRule.getSqlSessionFactory().openSession(true)) {
+      for (Name n : session.getMapper(NameMapper.class).processDataset(11)) {
+        matches.put("name " + n.getId(), n.getNamesIndexId() + " " + n.getNamesIndexType());
+      }
+      for (Name n : session.getMapper(ArchivedNameUsageMapper.class).processArchivedNames(11)) {
+        matches.put("archived " + n.getId(), n.getNamesIndexId() + " " + n.getNamesIndexType());
+      }
+    }
+    return matches;
+  }
+}
@@ -0,0 +1,202 @@
+package life.catalogue.matching;
+
+import life.catalogue.api.TestEntityGenerator;
+import life.catalogue.api.model.IndexName;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NameIndexCompactStoreTest {
+  AtomicInteger keyGen = new AtomicInteger();
+  File dbf;
+  NameIndexCompactStore db;
+
+  @Before
+  public void init() throws Exception {
+    dbf = File.createTempFile("colNidxSnapshot",".kryo");
+    dbf.delete();
+    db = new NameIndexCompactStore(dbf);
+    db.start();
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    db.stop();
+    dbf.delete();
+    log().delete();
+  }
+
+  File log() {
+    return new File(dbf.getParentFile(), dbf.getName() + ".log");
+  }
+
+  @Test
+  public void created() throws Exception {
+    assertTrue(LocalDateTime.now().isAfter(db.created()));
+    assertTrue(LocalDateTime.now().minus(1, ChronoUnit.MINUTES).isBefore(db.created()));
+  }
+
+  @Test
+  public void size() throws Exception {
+    assertEquals(0, db.count());
+
+    addNameList("a", 1);
+    assertEquals(1, db.count());
+
+    addNameList("b", 2); // 2,3
+    assertEquals(3, db.count());
+
+    addNameList("a", 3); // 4,5,6
+    assertEquals(6, db.count());
+    assertEquals(4, db.get("a").size());
+
+    // add the same id, this should not increase the size
+    addName("a", 1);
+    assertEquals(6, db.count());
+    assertEquals(4, db.get("a").size());
+
+    // now shutdown and reopen from the snapshot
+    final LocalDateTime created = db.created();
+    db.stop();
+    assertTrue(dbf.exists());
+    db = new NameIndexCompactStore(dbf);
+    db.start();
+
+    assertEquals(6, db.count());
+    assertEquals(4, db.get("a").size());
+    assertEquals(2, db.get("b").size());
+    assertEquals(created, db.created());
+  }
+
+  @Test
+  public void appendLog() throws Exception {
+    addNameList("a", 3);
+    addName("b", 10, 10);
+    assertTrue(log().exists());
+
+    // simulate a crash without a snapshot and a truncated last record
+    var data = Files.readAllBytes(log().toPath());
+    Files.write(log().toPath(), Arrays.copyOf(data, data.length - 3));
+    db = new NameIndexCompactStore(dbf);
+    db.start();
+    assertEquals(3, db.count());
+    assertEquals(3, db.get("a").size());
+    assertFalse(db.containsKey("b"));
+    // the log was folded into a new snapshot
+    assertTrue(dbf.exists());
+    assertEquals(0, log().length());
+
+    addName("b", 10, 10);
+    db = new NameIndexCompactStore(dbf);
+    db.start();
+    assertEquals(4, db.count());
+    assertEquals(1, db.get("b").size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unmodifiable() throws Exception {
+    addNameList("a", 2);
+    db.get("a").clear();
+  }
+
+  @Test
+  public void corruptSnapshot() throws Exception {
+    db.stop();
+    Files.writeString(dbf.toPath(), "no kryo");
+    db = new NameIndexCompactStore(dbf);
+    db.start();
+    assertEquals(0, db.count());
+  }
+
+  @Test
+  public void get() throws Exception {
+    addName("b", 10, 10); // the canonical itself
+    addName("b", 12, 10);
+    addName("b", 13, 10);
+
+    assertNotNullProps(db.get(10));
+    assertNotNullProps(db.get(12));
+    assertNotNullProps(db.get(13));
+    assertNull(db.get(14));
+    assertTrue(db.get("c").isEmpty());
+    assertTrue(db.containsKey("b"));
+    assertFalse(db.containsKey("c"));
+  }
+
+  @Test
+  public void byCanonical() throws Exception {
+    addNameList("a", 4);
+
+    addName("b", 10, 10); // the canonical itself
+    addName("b", 12, 10);
+    addName("b", 13, 10);
+    assertEquals(7, db.count());
+
+    assertNull(db.byCanonical(1));
+    var res = db.byCanonical(10);
+    assertEquals(2, res.size());
+    assertNotNullProps(res);
+  }
+
+  @Test
+  public void compact() throws Exception {
+    addNameList("a", 4);
+
+    addName("b", 10, 10); // the canonical itself
+    addName("b", 12, 10);
+    addName("b", 13, 10);
+    addName("b", 12, 10);
+    assertEquals(7, db.count());
+    assertArrayEquals(new int[]{12,13}, db.debugCanonical(10));
+
+    db.compact();
+    assertEquals(7, db.count());
+    assertArrayEquals(new int[]{12,13}, db.debugCanonical(10));
+
+    var res = db.byCanonical(10);
+    assertEquals(2, res.size());
+  }
+
+  private void addName(String key, int id) {
+    addName(key, id, id);
+  }
+
+  private void addName(String key, int id, Integer canonicalID) {
+    IndexName n = new IndexName(TestEntityGenerator.newName());
+    n.setKey(id);
+    n.setCanonicalId(canonicalID);
+    db.add(key, n);
+  }
+
+  private void addNameList(String key, int size) {
+    for (int idx = 0; idx<size; idx++) {
+      IndexName n = new IndexName(TestEntityGenerator.newName());
+      n.setKey(keyGen.incrementAndGet());
+      n.setCanonicalId(n.getKey());
+      db.add(key, n);
+    }
+  }
+
+  private void assertNotNullProps(Iterable<IndexName> ns){
+    for (var n : ns) {
+      assertNotNullProps(n);
+    }
+  }
+
+  private void assertNotNullProps(IndexName n){
+    assertNotNull(n.getKey());
+    assertNotNull(n.getCanonicalId());
+    assertNotNull(n.getScientificName());
+    assertNotNull(n.getRank());
+  }
+}
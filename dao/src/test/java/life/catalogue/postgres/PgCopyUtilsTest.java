@@ -3,8 +3,10 @@ package life.catalogue.postgres;
 import life.catalogue.db.PgSetupRule;
 
 import java.io.File;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -16,7 +18,7 @@ import org.postgresql.jdbc.PgConnection;
 
 import com.google.common.collect.ImmutableMap;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class PgCopyUtilsTest {
   
@@ -57,6 +59,32 @@ public class PgCopyUtilsTest {
     PgCopyUtils.copy(con, "person", "/test.csv", defs, funcs);
   }
 
+  @Test
+  public void copyRows() throws Exception {
+    try (Statement st = con.createStatement()) {
+      st.execute("CREATE TABLE person (key int primary key, name text, tags text[], doc jsonb)");
+    }
+    List<Object[]> rows = List.of(
+      new Object[]{1, "Bernd\tder \"Brot\", Duméril", List.of("a", "b"), "{\"x\":\"back\\\\slash\"}"},
+      new Object[]{2, null, List.of(), null},
+      new Object[]{3, "multi\nline\\", null, "{}"}
+    );
+    assertEquals(3, PgCopyUtils.copy(con, "person", List.of("key", "name", "tags", "doc"), rows.iterator()));
+
+    try (Statement st = con.createStatement()) {
+      ResultSet rs = st.executeQuery("SELECT key, name, array_length(tags,1), doc->>'x' FROM person ORDER BY key");
+      rs.next();
+      assertEquals("Bernd\tder \"Brot\", Duméril", rs.getString(2));
+      assertEquals(2, rs.getInt(3));
+      assertEquals("back\\slash", rs.getString(4));
+      rs.next();
+      assertNull(rs.getString(2));
+      rs.next();
+      assertEquals("multi\nline\\", rs.getString(2));
+      assertFalse(rs.next());
+    }
+  }
+
   @Test
   public void dump() throws Exception {
     try (Statement st = con.createStatement()) {
@@ -261,14 +261,18 @@ public class WsServer extends Application<WsServerConfig> {
       env.healthChecks().register("elastic", new EsHealthCheck(esClient, cfg.es));
       indexService = new NameUsageIndexServiceEs(esClient, cfg.es, cfg.normalizer.scratchDir("nuproc"), getSqlSessionFactory());
       searchService = new NameUsageSearchServiceEs(cfg.es.nameUsage.name, esClient);
-      suggestService = new NameUsageSuggestionServiceEs(cfg.es.nameUsage.name, esClient);
+      suggestService = new NameUsageSuggestionServiceEs(cfg.es.nameUsage.name, esClient, env.metrics());
     }
 
     // images
     final ImageService imgService = new ImageServiceFS(cfg.img);
 
     // name index
-    ni = NameIndexFactory.persistentOrMemory(cfg.namesIndexFile, getSqlSessionFactory(), AuthorshipNormalizer.INSTANCE, cfg.namesIndexVerification);
+    if (cfg.namesIndexCompact) {
+      ni = NameIndexFactory.compact(cfg.namesIndexFile, getSqlSessionFactory(), AuthorshipNormalizer.INSTANCE, cfg.namesIndexVerification);
+    } else {
+      ni = NameIndexFactory.persistentOrMemory(cfg.namesIndexFile, getSqlSessionFactory(), AuthorshipNormalizer.INSTANCE, cfg.namesIndexVerification);
+    }
     // we do not start up the index automatically, we need to run 2 apps in parallel during deploys!
     managedService.manage(Component.NamesIndex, ni);
     env.healthChecks().register("names-index", new NamesIndexHealthCheck(ni));
@@ -279,10 +283,8 @@ public class WsServer extends Application<WsServerConfig> {
     final FileMetricsSectorDao fmsDao = new FileMetricsSectorDao(getSqlSessionFactory(), cfg.metricsRepo);
 
     // diff
-    DatasetDiffService dDiff = new DatasetDiffService(getSqlSessionFactory(), fmdDao, cfg.diffTimeout);
-    SectorDiffService sDiff = new SectorDiffService(getSqlSessionFactory(), fmsDao, cfg.diffTimeout);
-    env.healthChecks().register("dataset-diff", new DiffHealthCheck(dDiff));
-    env.healthChecks().register("sector-diff", new DiffHealthCheck(sDiff));
+    DatasetDiffService dDiff = new DatasetDiffService(getSqlSessionFactory(), fmdDao, cfg.diffTimeout, cfg.diffMaxLines);
+    SectorDiffService sDiff = new SectorDiffService(getSqlSessionFactory(), fmsDao, cfg.diffTimeout, cfg.diffMaxLines);
 
     // update db lookups
     try (Connection c = mybatis.getConnection()) {
@@ -306,7 +308,10 @@ public class WsServer extends Application<WsServerConfig> {
     SectorDao secdao = new SectorDao(getSqlSessionFactory(), indexService, tdao, validator);
     tdao.setSectorDao(secdao);
     SynonymDao sdao = new SynonymDao(getSqlSessionFactory(), validator);
-    TreeDao trDao = new TreeDao(getSqlSessionFactory(), searchService);
+    // materialized descendant counts, falling back to the search index until they are built
+    TaxonRankCounter rankCounter = new TaxonRankCounter(getSqlSessionFactory(), searchService);
+    env.lifecycle().manage(ManagedUtils.from(rankCounter));
+    TreeDao trDao = new TreeDao(getSqlSessionFactory(), rankCounter);
 
     // usage cache
     UsageCache uCache = UsageCache.mapDB(cfg.usageCacheFile, true, false, 64);
@@ -360,7 +365,7 @@ public class WsServer extends Application<WsServerConfig> {
     managedService.manage(Component.GBIFRegistrySync, gbifSync);
 
     // assembly
-    SyncManager assembly = new SyncManager(getSqlSessionFactory(), ni, syncFactory, env.metrics());
+    SyncManager assembly = new SyncManager(getSqlSessionFactory(), ni, syncFactory, cfg.syncThreads, env.metrics());
     managedService.manage(Component.SectorSynchronizer, assembly);
 
     // link assembly and import manager so they are aware of each other
@@ -380,7 +385,7 @@ public class WsServer extends Application<WsServerConfig> {
     j.register(new DatasetArchiveResource(cfg));
     j.register(new DatasetDiffResource(dDiff));
     j.register(new DatasetEditorResource(adao));
-    j.register(new DatasetExportResource(getSqlSessionFactory(), searchService, exportManager, cfg));
+    j.register(new DatasetExportResource(getSqlSessionFactory(), rankCounter, exportManager, cfg));
     j.register(new DatasetIssuesResource(getSqlSessionFactory()));
     j.register(new DatasetImportResource(diDao));
     j.register(new DatasetPatchResource());
@@ -435,6 +440,10 @@ public class WsServer extends Application<WsServerConfig> {
     bus.register(new PublicReleaseListener(cfg, getSqlSessionFactory(), exdao, doiService, converter));
     bus.register(doiUpdater);
     bus.register(uCache);
+    bus.register(rankCounter);
+    if (exportManager.getCache() != null) {
+      bus.register(exportManager.getCache());
+    }
   }
 
   @Override
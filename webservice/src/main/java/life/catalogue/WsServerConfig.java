@@ -116,11 +116,45 @@ public class WsServerConfig extends Configuration implements CorsBundleConfigura
   public long parserTimeout = 5000;
 
   /**
-   * The maximum allowed time in seconds for a unix diff to take before throwing a time out.
+   * Number of threads a single matching job uses to match names in parallel.
+   * Use 1 to match names sequentially in the calling job thread.
+   */
+  @Min(1)
+  public int matchingThreads = 4;
+
+  /**
+   * Maximum number of names that can be matched in a single synchronous batch request.
+   */
+  @Min(1)
+  public int matchingBatchLimit = 5000;
+
+  /**
+   * Maximum number of synchronous batch match requests processed at the same time.
+   * Further requests are rejected with HTTP 429 until a running one has finished.
+   */
+  @Min(1)
+  public int matchingBatchConcurrency = 2;
+
+  /**
+   * Maximum number of sector syncs or deletions to run in parallel.
+   * Sectors of the same project only run in parallel if their targets are in disjoint subtrees.
+   */
+  @Min(1)
+  public int syncThreads = 2;
+
+  /**
+   * The maximum allowed time in seconds for an in memory tree diff to take before throwing a time out.
    */
   @Min(1)
   public int diffTimeout = 30;
 
+  /**
+   * The maximum number of lines of each tree to diff in memory.
+   * Larger trees are compared with a streaming diff that only looks ahead a bounded window of lines.
+   */
+  @Min(1)
+  public int diffMaxLines = 2000000;
+
   /**
    * Names index kvp file to persist map on disk. If empty will use a volatile memory index.
    */
@@ -132,6 +166,12 @@ public class WsServerConfig extends Configuration implements CorsBundleConfigura
    */
   public boolean namesIndexVerification = true;
 
+  /**
+   * If true uses the compact heap based names index store instead of mapdb.
+   * A snapshot file named like the namesIndexFile plus a .kryo suffix is then read on startup and written on shutdown.
+   */
+  public boolean namesIndexCompact = false;
+
   /**
    * Usage cache mapdb file to persist map on disk. If empty will use a volatile memory index.
    */
@@ -193,6 +233,13 @@ public class WsServerConfig extends Configuration implements CorsBundleConfigura
   @Min(0)
   public int legacyDelay = 0;
 
+  /**
+   * Maximum size in megabytes of the in process response cache for public releases.
+   * Set to zero to disable the cache, e.g. if all traffic goes through varnish anyways.
+   */
+  @Min(0)
+  public int responseCacheSize = 128;
+
   @Override
   @JsonIgnore
   public CorsConfiguration getCorsConfiguration() {
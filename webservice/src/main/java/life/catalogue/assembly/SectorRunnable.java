@@ -12,6 +12,7 @@ import life.catalogue.api.vocab.Setting;
 import life.catalogue.common.util.LoggingUtils;
 import life.catalogue.dao.SectorDao;
 import life.catalogue.dao.SectorImportDao;
+import life.catalogue.dao.TaxonRankCounter;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.*;
 import life.catalogue.es.NameUsageIndexService;
@@ -126,10 +127,18 @@ abstract class SectorRunnable implements Runnable {
       // clear matcher cache?
       if (clearMatcherCache) {
         matcher.clear(sectorKey.getDatasetKey());
-        bus.post(new DatasetDataChanged(sectorKey.getDatasetKey()));
+        bus.post(new DatasetDataChanged(sectorKey));
       }
 
-      doWork();
+      final DSID<String> target = projectTarget();
+      if (target != null) {
+        TaxonRankCounter.deleteDescendants(factory, target);
+      }
+      try {
+        doWork();
+      } finally {
+        updateMaterializedTree(target);
+      }
 
       state.setState( ImportState.ANALYZING);
       LOG.info("Build metrics for sector {}", sectorKey);
@@ -257,6 +266,39 @@ abstract class SectorRunnable implements Runnable {
     LOG.info("Loaded {} sectors targeting taxa from sector {}", childSectors.size(), sectorKey);
   }
   
+  /**
+   * @return true if the runnable changes the data of the project itself, not of a release
+   */
+  boolean changesProject() {
+    return true;
+  }
+
+  /**
+   * @return the project taxon the sector is attached to or null if there is none or the project is not changed
+   */
+  private DSID<String> projectTarget() {
+    if (changesProject() && sector.getTargetID() != null) {
+      return sector.getTargetAsDSID();
+    }
+    return null;
+  }
+
+  /**
+   * Updates the materialized data of the project tree, i.e. rank counts, for the subtree below the target of the sector.
+   * Sectors without a target change the roots of the project which requires a rebuild of the entire project.
+   */
+  private void updateMaterializedTree(DSID<String> target) {
+    if (target != null) {
+      try {
+        TaxonRankCounter.rebuildSubtree(factory, target);
+      } catch (Exception e) {
+        LOG.error("Failed to update taxon rank counts below target {} of sector {}", target, sectorKey, e);
+      }
+    } else if (changesProject()) {
+      bus.post(new DatasetDataChanged(sectorKey.getDatasetKey()));
+    }
+  }
+
   abstract void doWork() throws Exception;
 
   abstract void doMetrics() throws Exception;
@@ -270,6 +312,10 @@ abstract class SectorRunnable implements Runnable {
   public DSID<Integer> getSectorKey() {
     return sectorKey;
   }
+
+  public Sector getSector() {
+    return sector;
+  }
   
   public LocalDateTime getCreated() {
     return created;
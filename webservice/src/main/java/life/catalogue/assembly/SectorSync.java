@@ -92,6 +92,11 @@ public class SectorSync extends SectorRunnable {
     }
   }
 
+  @Override
+  boolean changesProject() {
+    return project;
+  }
+
   @Override
   void doMetrics() throws Exception {
     // build metrics
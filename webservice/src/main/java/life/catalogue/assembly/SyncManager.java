@@ -9,6 +9,7 @@ import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.NameMapper;
 import life.catalogue.db.mapper.SectorImportMapper;
 import life.catalogue.db.mapper.SectorMapper;
+import life.catalogue.db.mapper.TaxonMapper;
 import life.catalogue.common.Idle;
 import life.catalogue.importer.ImportManager;
 import life.catalogue.matching.NameIndex;
@@ -18,10 +19,12 @@ import org.gbif.nameparser.utils.NamedThreadFactory;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -32,49 +35,119 @@ import org.neo4j.helpers.collection.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 
+/**
+ * Schedules sector syncs and deletions of all projects and runs them with a configurable number of threads.
+ * Syncs of different projects always run in parallel.
+ * Within the same project sectors are only run concurrently if their target subtrees are disjoint,
+ * i.e. no target is an ancestor of or the same as another target.
+ * Merge sectors match against the entire project and therefore never run concurrently with other sectors of the same project.
+ * Conflicting jobs are run in the order they were queued.
+ */
 public class SyncManager implements Managed, Idle {
   static  final Comparator<Sector> SECTOR_ORDER = Comparator.comparing(Sector::getTarget, Comparator.nullsLast(SimpleName::compareTo));
   private static final Logger LOG = LoggerFactory.getLogger(SyncManager.class);
   private static final String THREAD_NAME = "assembly-sync";
   
   private ExecutorService exec;
+  private final int threads;
   private ImportManager importManager;
   private final NameIndex nameIndex;
   private final SqlSessionFactory factory;
   private final SyncFactory syncFactory;
   private final Map<DSID<Integer>, SectorFuture> syncs = Collections.synchronizedMap(new LinkedHashMap<>());
+  // queued jobs which have not yet been handed to the executor, in the order they were queued
+  private final List<SectorFuture> pending = new ArrayList<>();
+  // target scopes of all jobs handed to the executor
+  private final Map<DSID<Integer>, TargetScope> running = new HashMap<>();
   private final Timer timer;
-  private final Map<Integer, AtomicInteger> counter = new HashMap<>(); // by dataset (project) key
-  private final Map<Integer, AtomicInteger> failed = new HashMap<>();  // by dataset (project) key
+  private final Timer waitTimer;
+  private final Meter completedMeter;
+  private final Meter failedMeter;
+  private final Map<Integer, AtomicInteger> counter = new ConcurrentHashMap<>(); // by dataset (project) key
+  private final Map<Integer, AtomicInteger> failed = new ConcurrentHashMap<>();  // by dataset (project) key
 
   static class SectorFuture {
     public final DSID<Integer> sectorKey;
-    public final Future<?> future;
+    public volatile Future<?> future;
     public final SectorImport state;
     public final boolean delete;
-    
-    private SectorFuture(SectorRunnable job, Future<?> future) {
-      this.sectorKey = DSID.copy(job.sectorKey);
+    private final SectorRunnable job;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final TargetScope scope;
+
+    private SectorFuture(SectorRunnable job, TargetScope scope) {
+      this.sectorKey = DSID.copy(job.getSectorKey());
       this.state = job.getState();
-      this.future = future;
+      this.job = job;
+      this.scope = scope;
       this.delete = job instanceof SectorDelete || job instanceof SectorDeleteFull;
     }
   }
-  
-  public SyncManager(SqlSessionFactory factory, NameIndex nameIndex, SyncFactory syncFactory, MetricRegistry registry) {
+
+  /**
+   * The part of a project tree a job modifies, given as the classification of its target.
+   */
+  static class TargetScope {
+    final int projectKey;
+    final String target;
+    // ids of the target and all its ancestors. Null if the entire project can be modified
+    final Set<String> path;
+
+    TargetScope(int projectKey, String target, Set<String> path) {
+      this.projectKey = projectKey;
+      this.target = target;
+      this.path = path;
+    }
+
+    static TargetScope project(int projectKey) {
+      return new TargetScope(projectKey, null, null);
+    }
+
+    boolean overlaps(TargetScope other) {
+      if (projectKey != other.projectKey) {
+        return false;
+      }
+      if (path == null || other.path == null) {
+        return true;
+      }
+      // one target is the same or inside the subtree of the other
+      return path.contains(other.target) || other.path.contains(target);
+    }
+  }
+
+  /**
+   * @param threads maximum number of sector jobs to run in parallel
+   */
+  public SyncManager(SqlSessionFactory factory, NameIndex nameIndex, SyncFactory syncFactory, int threads, MetricRegistry registry) {
     this.factory = factory;
     this.syncFactory = syncFactory;
     this.nameIndex = nameIndex;
+    this.threads = threads;
     timer = registry.timer("life.catalogue.assembly.timer");
+    waitTimer = registry.timer("life.catalogue.assembly.wait");
+    completedMeter = registry.meter("life.catalogue.assembly.completed");
+    failedMeter = registry.meter("life.catalogue.assembly.failed");
+    registry.register("life.catalogue.assembly.queue", (Gauge<Integer>) this::queueSize);
+    registry.register("life.catalogue.assembly.running", (Gauge<Integer>) this::runningSize);
+  }
+
+  synchronized int queueSize() {
+    return pending.size();
+  }
+
+  synchronized int runningSize() {
+    return running.size();
   }
   
   @Override
   public void start() throws Exception {
-    LOG.info("Starting assembly coordinator");
-    exec = Executors.newSingleThreadExecutor(new NamedThreadFactory(THREAD_NAME, Thread.MAX_PRIORITY, true));
+    LOG.info("Starting assembly coordinator with {} threads", threads);
+    exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(THREAD_NAME, Thread.MAX_PRIORITY, true));
 
     // cancel all existing syncs/deletions
     try (SqlSession session = factory.openSession(true)) {
@@ -96,15 +169,26 @@ public class SyncManager implements Managed, Idle {
 
   @Override
   public void stop() throws Exception {
-    if (exec != null) {
-      LOG.info("Stop assembly coordinator");
-      // orderly shutdown running syncs
-      for (SectorFuture df : syncs.values()) {
-        df.future.cancel(true);
+    ExecutorService executor;
+    synchronized (this) {
+      executor = exec;
+      exec = null;
+      if (executor != null) {
+        LOG.info("Stop assembly coordinator");
+        // orderly shutdown running syncs
+        pending.clear();
+        for (SectorFuture df : syncs.values()) {
+          if (df.future != null) {
+            df.future.cancel(true);
+          }
+        }
+        syncs.clear();
+        running.clear();
       }
+    }
+    if (executor != null) {
       // fully shutdown threadpool within given time
-      ExecutorUtils.shutdown(exec, ExecutorUtils.MILLIS_TO_DIE, TimeUnit.MILLISECONDS);
-      exec = null;
+      ExecutorUtils.shutdown(executor, ExecutorUtils.MILLIS_TO_DIE, TimeUnit.MILLISECONDS);
     }
   }
 
@@ -157,7 +241,7 @@ public class SyncManager implements Managed, Idle {
    * Makes sure the dataset has data and is currently not importing
    */
   private void assertStableData(SectorRunnable job) throws IllegalArgumentException {
-    Sector s = job.sector;
+    Sector s = job.getSector();
     try (SqlSession session = factory.openSession(true)) {
       try {
         //make sure dataset is currently not imported
@@ -210,7 +294,7 @@ public class SyncManager implements Managed, Idle {
    * @return true if it was actually queued
    * @throws IllegalArgumentException
    */
-  private synchronized boolean syncSector(DSID<Integer> sectorKey, User user) throws IllegalArgumentException {
+  private boolean syncSector(DSID<Integer> sectorKey, User user) throws IllegalArgumentException {
     SectorSync ss = syncFactory.project(sectorKey, this::successCallBack, this::errorCallBack, user);
     return queueJob(ss);
   }
@@ -231,26 +315,111 @@ public class SyncManager implements Managed, Idle {
   }
 
   /**
+   * The job is checked and its target scope is loaded before the monitor is acquired,
+   * so finishing jobs and other requests never wait for database queries.
+   *
    * @return true if it was actually queued
    * @throws IllegalArgumentException
    * @throws UnavailableException if sync manager or names index are not started
    */
-  private synchronized boolean queueJob(SectorRunnable job) throws IllegalArgumentException {
+  private boolean queueJob(SectorRunnable job) throws IllegalArgumentException {
     nameIndex.assertOnline();
     this.assertOnline();
     // is this sector already syncing?
-    if (syncs.containsKey(job.sectorKey)) {
-      LOG.info("{} already queued or running", job.sector);
+    if (syncs.containsKey(job.getSectorKey())) {
+      LOG.info("{} already queued or running", job.getSector());
       // ignore
       return false;
-
-    } else {
-      assertStableData(job);
-      syncs.put(job.sectorKey, new SectorFuture(job, exec.submit(job)));
-      LOG.info("Queued {} for {} targeting {}", job.getClass().getSimpleName(), job.sector, job.sector.getTarget());
+    }
+    assertStableData(job);
+    SectorFuture sf = new SectorFuture(job, scope(job));
+    synchronized (this) {
+      this.assertOnline();
+      // the same sector might have been queued while we were loading its scope
+      if (syncs.containsKey(job.getSectorKey())) {
+        LOG.info("{} already queued or running", job.getSector());
+        return false;
+      }
+      syncs.put(job.getSectorKey(), sf);
+      pending.add(sf);
+      LOG.info("Queued {} for {} targeting {}", job.getClass().getSimpleName(), job.getSector(), job.getSector().getTarget());
+      schedule();
       return true;
     }
   }
+
+  /**
+   * Hands over pending jobs to the executor as long as there are free threads
+   * and they do not conflict with running jobs or earlier pending jobs.
+   * Scopes are loaded when jobs are queued, so no database is accessed while holding the monitor.
+   */
+  private synchronized void schedule() {
+    if (exec == null) return;
+    // scopes of earlier jobs still waiting which must not be overtaken
+    List<TargetScope> blocked = new ArrayList<>();
+    Iterator<SectorFuture> iter = pending.iterator();
+    while (iter.hasNext() && running.size() < threads) {
+      SectorFuture sf = iter.next();
+      if (overlaps(sf.scope, running.values()) || overlaps(sf.scope, blocked)) {
+        blocked.add(sf.scope);
+        continue;
+      }
+      iter.remove();
+      running.put(sf.sectorKey, sf.scope);
+      waitTimer.update(Duration.between(sf.job.getCreated(), LocalDateTime.now()).toMillis(), TimeUnit.MILLISECONDS);
+      sf.future = exec.submit(() -> {
+        if (sf.started.compareAndSet(false, true)) {
+          try {
+            sf.job.run();
+          } finally {
+            finished(sf);
+          }
+        }
+      });
+      LOG.debug("Started {} for sector {}. {} jobs running, {} pending", sf.job.getClass().getSimpleName(), sf.sectorKey, running.size(), pending.size());
+    }
+  }
+
+  private static boolean overlaps(TargetScope scope, Collection<TargetScope> scopes) {
+    for (TargetScope s : scopes) {
+      if (scope.overlaps(s)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void finished(SectorFuture sf) {
+    synchronized (this) {
+      running.remove(sf.sectorKey);
+    }
+    schedule();
+  }
+
+  /**
+   * Determines the part of the project tree a job modifies based on the current classification of the sector target.
+   * Merge sectors or sectors without a resolvable target block the entire project.
+   * Must not be called while holding the monitor.
+   */
+  private TargetScope scope(SectorRunnable job) {
+    final int projectKey = job.getSectorKey().getDatasetKey();
+    Sector s = job.getSector();
+    if (s.getMode() == Sector.Mode.MERGE || s.getTarget() == null || s.getTarget().getId() == null) {
+      return TargetScope.project(projectKey);
+    }
+    final String target = s.getTarget().getId();
+    try (SqlSession session = factory.openSession(true)) {
+      Set<String> path = new HashSet<>();
+      path.add(target);
+      for (SimpleName p : session.getMapper(TaxonMapper.class).classificationSimple(DSID.of(projectKey, target))) {
+        path.add(p.getId());
+      }
+      return new TargetScope(projectKey, target, path);
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to load classification for target {} of sector {}. Block the entire project", target, job.getSectorKey(), e);
+      return TargetScope.project(projectKey);
+    }
+  }
   
   /**
    * We use old school callbacks here as you cannot easily cancel CompletableFutures.
@@ -260,9 +429,9 @@ public class SyncManager implements Managed, Idle {
     Duration durQueued = Duration.between(sync.getCreated(), sync.getStarted());
     Duration durRun = Duration.between(sync.getStarted(), LocalDateTime.now());
     LOG.info("Sector Sync {} finished. {} min queued, {} min to execute", sync.getSectorKey(), durQueued.toMinutes(), durRun.toMinutes());
-    counter.putIfAbsent(sync.sectorKey.getDatasetKey(), new AtomicInteger(0));
-    counter.get(sync.sectorKey.getDatasetKey()).incrementAndGet();
+    counter.computeIfAbsent(sync.getSectorKey().getDatasetKey(), k -> new AtomicInteger(0)).incrementAndGet();
     timer.update(durRun.getSeconds(), TimeUnit.SECONDS);
+    completedMeter.mark();
   }
   
   /**
@@ -271,15 +440,23 @@ public class SyncManager implements Managed, Idle {
   private void errorCallBack(SectorRunnable sync, Exception err) {
     syncs.remove(sync.getSectorKey());
     LOG.error("Sector Sync {} failed: {}", sync.getSectorKey(), err.getCause().getMessage(), err.getCause());
-    failed.putIfAbsent(sync.sectorKey.getDatasetKey(), new AtomicInteger(0));
-    failed.get(sync.sectorKey.getDatasetKey()).incrementAndGet();
+    failed.computeIfAbsent(sync.getSectorKey().getDatasetKey(), k -> new AtomicInteger(0)).incrementAndGet();
+    failedMeter.mark();
   }
 
   public synchronized void cancel(DSID<Integer> sectorKey, User user) {
     if (syncs.containsKey(sectorKey)) {
       LOG.info("Sync of sector {} cancelled by user {}", sectorKey, user);
       var sync = syncs.remove(sectorKey);
-      sync.future.cancel(true);
+      pending.remove(sync);
+      if (sync.future != null) {
+        sync.future.cancel(true);
+        // release the scope if the job never started
+        if (sync.started.compareAndSet(false, true)) {
+          running.remove(sectorKey);
+          schedule();
+        }
+      }
     }
   }
   
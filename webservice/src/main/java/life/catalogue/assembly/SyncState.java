@@ -5,6 +5,7 @@ import life.catalogue.api.vocab.ImportState;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -13,27 +14,31 @@ import org.slf4j.LoggerFactory;
 public class SyncState {
   private static final Logger LOG = LoggerFactory.getLogger(SyncState.class);
   
+  /**
+   * The longest running sync or null if none is running
+   */
   public final SectorImport running;
+  /**
+   * All currently running syncs, ordered by their start
+   */
+  public final List<SectorImport> runningAll = new ArrayList<>();
   public final List<SectorImport> queued = new ArrayList<>();
   public final int failed;
   public final int completed;
   
   SyncState(Collection<SyncManager.SectorFuture> syncs, int syncsFailed, int syncsCompleted) {
-    SectorImport run = null;
     for (SyncManager.SectorFuture sync : syncs) {
       if (sync.state.getState() == ImportState.WAITING) {
         queued.add(sync.state);
       } else if(sync.state.getState().isRunning()) {
-        if (run != null) {
-          LOG.error("Multiple running sector tasks. Ignore {} over {}", run, sync.state);
-        }
-        run = sync.state;
+        runningAll.add(sync.state);
       } else {
         // should not be the case
         throw new IllegalStateException("Non running or waiting sync with state "+sync.state.getState()+" found in queue for sector " + sync.sectorKey);
       }
     }
-    this.running = run;
+    runningAll.sort(Comparator.comparing(SectorImport::getStarted, Comparator.nullsLast(Comparator.naturalOrder())));
+    this.running = runningAll.isEmpty() ? null : runningAll.get(0);
     this.failed  = syncsFailed;
     this.completed= syncsCompleted;
   }
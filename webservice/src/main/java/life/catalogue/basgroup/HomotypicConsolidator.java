@@ -13,6 +13,7 @@ import life.catalogue.common.collection.CollectionUtils;
 import life.catalogue.common.collection.CountMap;
 import life.catalogue.common.tax.AuthorshipNormalizer;
 import life.catalogue.common.tax.SciNameNormalizer;
+import life.catalogue.dao.TaxonRankCounter;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.*;
 import life.catalogue.matching.authorship.AuthorComparator;
@@ -314,6 +315,9 @@ public class HomotypicConsolidator {
       vsm.addIssue(dsid.id(u.getId()), issue);
     }
 
+    // remove the subtree from the rank counts before it is detached from its parent
+    TaxonRankCounter.removeSubtree(session, dsid.id(u.getId()), u.getParentId());
+
     // synonymize all descendants!
     TreeTraversalParameter treeParams = TreeTraversalParameter.dataset(datasetKey, u.getId());
     treeParams.setSynonyms(true);
@@ -6,6 +6,7 @@ import life.catalogue.dao.Partitioner;
 import life.catalogue.db.InitDbUtils;
 import life.catalogue.db.MybatisFactory;
 import life.catalogue.db.PgConfig;
+import life.catalogue.matching.NameIndexFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -93,6 +94,11 @@ public class InitCmd extends AbstractPromptCmd {
         throw new IllegalStateException("Unable to delete names index at " + cfg.namesIndexFile.getAbsolutePath());
       }
     }
+    if (cfg.namesIndexFile != null) {
+      File snapshot = NameIndexFactory.compactSnapshot(cfg.namesIndexFile);
+      FileUtils.deleteQuietly(snapshot);
+      FileUtils.deleteQuietly(new File(snapshot.getParentFile(), snapshot.getName() + ".log"));
+    }
     
     // clear images, scratch dir & archive repo
     LOG.info("Clear image cache {}", cfg.img.repo);
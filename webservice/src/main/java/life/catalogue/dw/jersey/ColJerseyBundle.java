@@ -2,6 +2,7 @@ package life.catalogue.dw.jersey;
 
 import life.catalogue.WsServerConfig;
 import life.catalogue.api.event.DatasetChanged;
+import life.catalogue.api.event.DatasetDataChanged;
 import life.catalogue.api.vocab.DatasetOrigin;
 import life.catalogue.cache.LatestDatasetKeyCache;
 import life.catalogue.cache.LatestDatasetKeyCacheImpl;
@@ -27,6 +28,7 @@ public class ColJerseyBundle implements ConfiguredBundle<WsServerConfig> {
 
   private DatasetKeyRewriteFilter lrFilter;
   private CacheControlResponseFilter ccFilter;
+  private ReleaseCacheFilter rcFilter;
   private final LatestDatasetKeyCache cache = new LatestDatasetKeyCacheImpl(null); // we add the factory later - it is not available when we run the bundle!
 
   @Override
@@ -45,6 +47,10 @@ public class ColJerseyBundle implements ConfiguredBundle<WsServerConfig> {
     env.jersey().register(lrFilter);
     ccFilter = new CacheControlResponseFilter();
     env.jersey().register(ccFilter);
+    if (cfg.responseCacheSize > 0) {
+      rcFilter = new ReleaseCacheFilter(cfg.responseCacheSize);
+      env.jersey().register(rcFilter);
+    }
     env.jersey().register(new DeprecatedWarningResponseFilter(cfg.support, cfg.sunset));
     env.jersey().register(new DelayRequestFilter(cfg.legacyDelay));
 
@@ -58,6 +64,9 @@ public class ColJerseyBundle implements ConfiguredBundle<WsServerConfig> {
   // needed to populate the session factory in some filters
   public void setSqlSessionFactory(SqlSessionFactory factory) {
     cache.setSqlSessionFactory(factory);
+    if (rcFilter != null) {
+      rcFilter.setSqlSessionFactory(factory);
+    }
     try (SqlSession session = factory.openSession()){
       ccFilter.addAll(session.getMapper(DatasetMapper.class).keys(DatasetOrigin.RELEASE));
     }
@@ -69,6 +78,9 @@ public class ColJerseyBundle implements ConfiguredBundle<WsServerConfig> {
 
   @Subscribe
   public void datasetChanged(DatasetChanged d){
+    if (rcFilter != null) {
+      rcFilter.invalidate(d.key);
+    }
     if (d.obj!=null && d.obj.getOrigin() == DatasetOrigin.RELEASE) {
       ccFilter.addRelease(d.key);
       if (d.obj.getSourceKey() != null) {
@@ -77,4 +89,11 @@ public class ColJerseyBundle implements ConfiguredBundle<WsServerConfig> {
       }
     }
   }
+
+  @Subscribe
+  public void datasetDataChanged(DatasetDataChanged d){
+    if (rcFilter != null) {
+      rcFilter.invalidate(d.datasetKey);
+    }
+  }
 }
@@ -0,0 +1,297 @@
+package life.catalogue.dw.jersey.filter;
+
+import life.catalogue.api.model.Dataset;
+import life.catalogue.api.vocab.DatasetOrigin;
+import life.catalogue.db.mapper.DatasetMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+/**
+ * In process http response cache for GET requests to immutable, public releases.
+ * It covers the dataset metadata, the tree, taxa incl their classification and the name usage search.
+ *
+ * Responses carry a strong ETag derived from the release key, its attempt and the last modification of its metadata
+ * combined with the request URI incl its query and the requested media types, so each representation has its own tag.
+ * Clients and proxies can revalidate with If-None-Match and get a 304 without the request reaching any resource.
+ * As representations depend on the Accept header, responses also vary by Accept.
+ * Successful responses are captured when their entity is written and kept in a cache bounded by their total size in bytes.
+ *
+ * Entries of a dataset are invalidated whenever the dataset changes, see {@link #invalidate(int)}.
+ */
+@Priority(Priorities.USER)
+public class ReleaseCacheFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+  private static final Logger LOG = LoggerFactory.getLogger(ReleaseCacheFilter.class);
+  static final Pattern CACHED_PATH = Pattern.compile("^/?dataset/(\\d+)(?:/(?:tree|taxon|nameusage/search)(?:/.*)?)?/?$");
+  private static final String KEY_PROPERTY = ReleaseCacheFilter.class.getName() + ".key";
+  private static final String ETAG_PROPERTY = ReleaseCacheFilter.class.getName() + ".etag";
+  private static final String CAPTURE_PROPERTY = ReleaseCacheFilter.class.getName() + ".capture";
+  private static final Pattern VARY_ACCEPT = Pattern.compile("(^|,)\\s*(accept|\\*)\\s*(,|$)", Pattern.CASE_INSENSITIVE);
+  // we do not cache single responses larger than this
+  private static final int MAX_ENTRY_SIZE = 1024 * 1024;
+  private SqlSessionFactory factory;
+  private final Cache<CacheKey, CachedResponse> cache;
+  // dataset key -> optional etag, empty if the dataset is not a public release
+  private final LoadingCache<Integer, Optional<EntityTag>> etags;
+
+  static class CacheKey {
+    final int datasetKey;
+    final String uri;
+    final String accept;
+
+    CacheKey(int datasetKey, String uri, String accept) {
+      this.datasetKey = datasetKey;
+      this.uri = uri;
+      this.accept = accept;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof CacheKey)) return false;
+      CacheKey cacheKey = (CacheKey) o;
+      return datasetKey == cacheKey.datasetKey && uri.equals(cacheKey.uri) && Objects.equals(accept, cacheKey.accept);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(datasetKey, uri, accept);
+    }
+  }
+
+  static class CachedResponse {
+    final MediaType type;
+    final MultivaluedMap<String, Object> headers;
+    final byte[] body;
+
+    CachedResponse(MediaType type, MultivaluedMap<String, Object> headers, byte[] body) {
+      this.type = type;
+      this.headers = headers;
+      this.body = body;
+    }
+  }
+
+  /**
+   * Output stream that copies all bytes into a buffer until it exceeds the maximum entry size.
+   */
+  private static class CapturingOutputStream extends FilterOutputStream {
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    CapturingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      if (buffer != null) {
+        buffer.write(b);
+        checkSize();
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      if (buffer != null) {
+        buffer.write(b, off, len);
+        checkSize();
+      }
+    }
+
+    private void checkSize() {
+      if (buffer.size() > MAX_ENTRY_SIZE) {
+        buffer = null;
+      }
+    }
+
+    byte[] captured() {
+      return buffer == null ? null : buffer.toByteArray();
+    }
+  }
+
+  /**
+   * @param maxSize maximum size of all cached responses in megabytes
+   */
+  public ReleaseCacheFilter(int maxSize) {
+    cache = Caffeine.newBuilder()
+      .maximumWeight(maxSize * 1024L * 1024L)
+      .weigher((CacheKey k, CachedResponse r) -> r.body.length + k.uri.length())
+      .build();
+    etags = Caffeine.newBuilder()
+      .maximumSize(10000)
+      .expireAfterWrite(1, TimeUnit.HOURS)
+      .build(this::loadETag);
+  }
+
+  public void setSqlSessionFactory(SqlSessionFactory factory) {
+    this.factory = factory;
+  }
+
+  private Optional<EntityTag> loadETag(int datasetKey) {
+    try (SqlSession session = factory.openSession()) {
+      Dataset d = session.getMapper(DatasetMapper.class).get(datasetKey);
+      if (d != null && d.getOrigin() == DatasetOrigin.RELEASE && !d.isPrivat() && d.getDeleted() == null) {
+        return Optional.of(etag(d));
+      }
+    }
+    return Optional.empty();
+  }
+
+  static EntityTag etag(Dataset d) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(d.getKey())
+      .append("-")
+      .append(d.getAttempt());
+    if (d.getModified() != null) {
+      sb.append("-")
+        .append(d.getModified().toEpochSecond(ZoneOffset.UTC));
+    }
+    return new EntityTag(sb.toString());
+  }
+
+  /**
+   * @return the etag of a single representation of a release, i.e. a request URI and the accepted media types
+   */
+  static EntityTag etag(EntityTag release, CacheKey key) {
+    return new EntityTag(release.getValue() + "-" + Integer.toHexString(Objects.hash(key.uri, key.accept)));
+  }
+
+  /**
+   * Adds Accept to the Vary header keeping existing values.
+   */
+  static void varyAccept(MultivaluedMap<String, Object> headers) {
+    Object vary = headers.getFirst(HttpHeaders.VARY);
+    if (vary == null || vary.toString().isBlank()) {
+      headers.putSingle(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    } else if (!VARY_ACCEPT.matcher(vary.toString()).find()) {
+      headers.putSingle(HttpHeaders.VARY, vary + ", " + HttpHeaders.ACCEPT);
+    }
+  }
+
+  /**
+   * @return the dataset key of a cacheable request or null
+   */
+  private Integer datasetKey(ContainerRequestContext req) {
+    if (factory != null && HttpMethod.GET.equals(req.getMethod())) {
+      Matcher m = CACHED_PATH.matcher(req.getUriInfo().getPath());
+      if (m.find()) {
+        // parsing cannot fail, we have a pattern
+        return Integer.parseInt(m.group(1));
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void filter(ContainerRequestContext req) throws IOException {
+    Integer datasetKey = datasetKey(req);
+    if (datasetKey == null) {
+      return;
+    }
+    EntityTag release = etags.get(datasetKey).orElse(null);
+    if (release != null) {
+      CacheKey key = new CacheKey(datasetKey, req.getUriInfo().getRequestUri().toString(), req.getHeaderString(HttpHeaders.ACCEPT));
+      EntityTag etag = etag(release, key);
+      // the response filter adds the etag and vary header also to aborted responses
+      req.setProperty(ETAG_PROPERTY, etag);
+      // conditional request?
+      Response.ResponseBuilder builder = req.getRequest().evaluatePreconditions(etag);
+      if (builder != null) {
+        req.abortWith(builder.build());
+        return;
+      }
+      CachedResponse cached = cache.getIfPresent(key);
+      if (cached != null) {
+        Response.ResponseBuilder rb = Response.ok(cached.body, cached.type);
+        cached.headers.forEach((h, vals) -> vals.forEach(v -> rb.header(h, v)));
+        req.abortWith(rb.build());
+        return;
+      }
+      req.setProperty(KEY_PROPERTY, key);
+    }
+  }
+
+  @Override
+  public void filter(ContainerRequestContext req, ContainerResponseContext resp) throws IOException {
+    EntityTag etag = (EntityTag) req.getProperty(ETAG_PROPERTY);
+    if (etag != null && (resp.getStatus() == Response.Status.OK.getStatusCode() || resp.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode())) {
+      resp.getHeaders().putSingle(HttpHeaders.ETAG, etag);
+      varyAccept(resp.getHeaders());
+      if (resp.getStatus() == Response.Status.OK.getStatusCode() && resp.hasEntity() && req.getProperty(KEY_PROPERTY) != null) {
+        req.setProperty(CAPTURE_PROPERTY, true);
+      }
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext ctx) throws IOException {
+    CacheKey key = (CacheKey) ctx.getProperty(KEY_PROPERTY);
+    if (key == null || ctx.getProperty(CAPTURE_PROPERTY) == null) {
+      ctx.proceed();
+      return;
+    }
+    final OutputStream original = ctx.getOutputStream();
+    CapturingOutputStream out = new CapturingOutputStream(original);
+    ctx.setOutputStream(out);
+    try {
+      ctx.proceed();
+    } finally {
+      ctx.setOutputStream(original);
+    }
+    byte[] body = out.captured();
+    if (body != null) {
+      MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>(ctx.getHeaders());
+      headers.remove(HttpHeaders.CONTENT_TYPE);
+      headers.remove(HttpHeaders.CONTENT_LENGTH);
+      // set again by the response filter when replayed
+      headers.remove(HttpHeaders.ETAG);
+      headers.remove(HttpHeaders.VARY);
+      // CORS headers depend on the request origin
+      headers.keySet().removeIf(h -> h.regionMatches(true, 0, "Access-Control-", 0, 15));
+      cache.put(key, new CachedResponse(ctx.getMediaType(), headers, body));
+    }
+  }
+
+  /**
+   * Removes all cached responses of a dataset and forgets its etag.
+   */
+  public void invalidate(int datasetKey) {
+    etags.invalidate(datasetKey);
+    if (cache.asMap().keySet().removeIf(k -> k.datasetKey == datasetKey)) {
+      LOG.info("Flushed cached responses of dataset {}", datasetKey);
+    }
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+}
@@ -6,9 +6,11 @@ import life.catalogue.api.search.EstimateSearchRequest;
 import life.catalogue.api.vocab.DataFormat;
 import life.catalogue.api.vocab.DatasetOrigin;
 import life.catalogue.api.vocab.EntityType;
+import life.catalogue.common.collection.CompactIdSet;
 import life.catalogue.common.func.ThrowingBiConsumer;
 import life.catalogue.common.func.ThrowingConsumer;
 import life.catalogue.common.io.TermWriter;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.db.DatasetProcessable;
 import life.catalogue.db.NameProcessable;
 import life.catalogue.db.PgUtils;
@@ -29,10 +31,13 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import javax.ws.rs.core.UriBuilder;
 
-import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
@@ -49,11 +54,14 @@ import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 public abstract class ArchiveExport extends DatasetExportJob {
   private static final Logger LOG = LoggerFactory.getLogger(ArchiveExport.class);
   private static final String LOGO_FILENAME = "logo.png";
+  // max number of entities to read ahead per data file
+  private static final int PREFETCH_SIZE = 1000;
 
   protected boolean fullDataset;
-  protected final Set<String> nameIDs = new HashSet<>();
-  protected final Set<String> taxonIDs = new HashSet<>();
-  protected final Set<String> refIDs = new HashSet<>();
+  // ids of exported entities, only tracked for filtered exports
+  protected final CompactIdSet nameIDs = new CompactIdSet();
+  protected final CompactIdSet taxonIDs = new CompactIdSet();
+  protected final CompactIdSet refIDs = new CompactIdSet();
   protected final LoadingCache<String, String> refCache;
   protected final Int2IntMap sector2datasetKeys = new Int2IntOpenHashMap();
   private final UriBuilder logoUriBuilder;
@@ -61,8 +69,10 @@ public abstract class ArchiveExport extends DatasetExportJob {
   protected NameRelationMapper nameRelMapper;
   protected SqlSession session;
   protected TermWriter writer;
-  protected final DSID<String> entityKey = DSID.of(datasetKey, "");
   private final SXSSFWorkbook wb;
+  private ExecutorService exec;
+  private EntityFile<Reference> references;
+  private ExportCache cache;
 
   ArchiveExport(DataFormat requiredFormat, int userKey, ExportRequest req, SqlSessionFactory factory, WsServerConfig cfg, ImageService imageService) {
     super(req, userKey, requiredFormat, true, factory, cfg, imageService);
@@ -110,17 +120,111 @@ public abstract class ArchiveExport extends DatasetExportJob {
   protected void export() throws Exception {
     // do we have a full dataset export request?
     fullDataset = !req.hasFilter();
+    final boolean cacheable = cacheable();
+    if (cacheable) {
+      ExportCache.Info info = cache.restore(datasetKey, dataset.getAttempt(), req.getFormat(), tmpDir);
+      if (info != null) {
+        restore(info);
+        return;
+      }
+    }
+    exec = Executors.newFixedThreadPool(cfg.job.exportThreads, new NamedThreadFactory("export-" + datasetKey));
     try (SqlSession session = factory.openSession(false)) {
       this.session = session;
       init(session);
-      exportCore();
-      exportNameRels();
-      exportTaxonRels();
+      EntityFile<NameUsage> core = new EntityFile<NameUsage>(EntityType.NAME_USAGE, this::readCore, this::consumeUsage);
+      if (!core.enabled()) {
+        throw new IllegalStateException("Core name usage data must be exported");
+      }
+      List<EntityFile<?>> files = List.of(
+        nameRelation(EntityType.NAME_RELATION, NameRelationMapper.class, this::write),
+        nameRelation(EntityType.TYPE_MATERIAL, TypeMaterialMapper.class, this::write),
+        taxonExtension(EntityType.VERNACULAR, VernacularNameMapper.class, this::write),
+        taxonExtension(EntityType.DISTRIBUTION, DistributionMapper.class, this::write),
+        taxonExtension(EntityType.MEDIA, MediaMapper.class, this::write),
+        estimates(),
+        taxonRelation(EntityType.SPECIES_INTERACTION, SpeciesInteractionMapper.class, this::write),
+        taxonRelation(EntityType.TAXON_CONCEPT_RELATION, TaxonConceptRelationMapper.class, this::write)
+      );
+      references = references();
+      if (fullDataset) {
+        // all files are read from independent cursors, so we can read them concurrently right away.
+        // Prefetchers are started in the same order as they are consumed, so a limited pool cannot deadlock
+        core.prefetch();
+        files.forEach(EntityFile::prefetch);
+        references.prefetch();
+      }
+      core.export();
+      // filtered exports need the ids of the exported core usages first
+      files.forEach(EntityFile::prefetch);
+      for (EntityFile<?> f : files) {
+        f.export();
+      }
+      // references are only known after all other entities have been exported
       exportReferences();
       closeWriter();
+      finishDataFiles();
+      if (cacheable) {
+        store();
+      }
+
+    } finally {
+      exec.shutdownNow();
     }
   }
 
+  /**
+   * Called once all data files have been written. Override to close additional writers.
+   */
+  protected void finishDataFiles() throws IOException {
+  }
+
+  /**
+   * @param cache the cache to reuse data files of full exports from. If null nothing is cached.
+   */
+  void setCache(ExportCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * @return true if the data files of this export can be cached.
+   * Only full exports without Excel files of datasets that do not change without a new import attempt are cached, i.e. not projects.
+   * Cached files are never filtered, so filtered exports of the same attempt are read from postgres.
+   */
+  private boolean cacheable() {
+    if (cache == null || dataset.getOrigin() == DatasetOrigin.PROJECT || dataset.getAttempt() == null) {
+      return false;
+    }
+    if (!fullDataset || req.isExcel()) {
+      LOG.info("Filtered or Excel export {} of dataset {} cannot use the export cache", getKey(), datasetKey);
+      return false;
+    }
+    return true;
+  }
+
+  private void store() {
+    ExportCache.Info info = new ExportCache.Info();
+    info.taxa = counter.getTaxCounter().get();
+    info.synonyms = counter.getSynCounter().get();
+    info.bareNames = counter.getBareCounter().get();
+    info.taxaByRank = counter.getRankCounterMap();
+    info.sector2datasetKeys.putAll(sector2datasetKeys);
+    try {
+      cache.store(datasetKey, dataset.getAttempt(), req.getFormat(), tmpDir, info);
+    } catch (IOException e) {
+      // the export itself is fine, we just cannot reuse it
+      LOG.warn("Failed to cache data files of export {}", getKey(), e);
+    }
+  }
+
+  private void restore(ExportCache.Info info) {
+    LOG.info("Reuse cached data files for export {} of dataset {} attempt {}", getKey(), datasetKey, dataset.getAttempt());
+    counter.getTaxCounter().set(info.taxa);
+    counter.getSynCounter().set(info.synonyms);
+    counter.getBareCounter().set(info.bareNames);
+    counter.putRankCounter(info.taxaByRank);
+    sector2datasetKeys.putAll(info.sector2datasetKeys);
+  }
 
   @Override
   protected void exportMetadata() throws IOException {
@@ -189,34 +293,61 @@ public abstract class ArchiveExport extends DatasetExportJob {
     nameRelMapper = session.getMapper(NameRelationMapper.class);
   }
 
-  private void exportCore() throws IOException {
-    if (!newDataFile(define(EntityType.NAME_USAGE))) {
-      throw new IllegalStateException("Core name usage data must be exported");
+  /**
+   * A single data file of the archive which is read in a background thread
+   * and written by the exporting thread.
+   */
+  private class EntityFile<T> {
+    private final Term[] terms;
+    private final BiConsumer<SqlSession, Consumer<T>> producer;
+    private final ThrowingConsumer<T, IOException> consumer;
+    private EntityPrefetcher<T> prefetcher;
+
+    EntityFile(EntityType entity, BiConsumer<SqlSession, Consumer<T>> producer, ThrowingConsumer<T, IOException> consumer) {
+      this.terms = define(entity);
+      this.producer = producer;
+      this.consumer = consumer;
     }
-    try (SqlSession session = factory.openSession()) {
-      NameUsageMapper num = session.getMapper(NameUsageMapper.class);
-      final Cursor<NameUsageBase> cursor;
-      if (fullDataset) {
-        cursor = num.processDataset(datasetKey, null, null);
-      } else {
-        var ttp = TreeTraversalParameter.dataset(datasetKey, req.getTaxonID(), null, req.getMinRank(), req.getExtinct(), req.isSynonyms());
-        cursor = num.processTree(ttp, true);
+
+    boolean enabled() {
+      return terms != null && terms.length>2;
+    }
+
+    /**
+     * Starts reading the entities in the background unless the entity is not exported at all.
+     */
+    void prefetch() {
+      if (enabled() && prefetcher == null) {
+        prefetcher = new EntityPrefetcher<>(exec, factory, PREFETCH_SIZE, producer);
       }
-      PgUtils.consume(() -> cursor, this::consumeUsage);
-
-      // add bare names?
-      if (req.isBareNames()) {
-        PgUtils.consume(
-          () -> num.processDatasetBareNames(datasetKey, null, null),
-          this::consumeUsage
-        );
+    }
+
+    void export() throws IOException {
+      if (newDataFile(terms)) {
+        prefetch();
+        try (EntityPrefetcher<T> iter = prefetcher) {
+          while (iter.hasNext()) {
+            consumer.acceptThrows(iter.next());
+            writer.next();
+          }
+        } catch (RuntimeException e) {
+          catchTruncation(e);
+        }
       }
+    }
+  }
 
-    } catch (RuntimeException e) {
-      catchTruncation(e);
-    } finally {
-      taxonIDs.remove(null); // can happen
-      nameIDs.remove(null); // can happen
+  private void readCore(SqlSession session, Consumer<NameUsage> sink) {
+    NameUsageMapper num = session.getMapper(NameUsageMapper.class);
+    if (fullDataset) {
+      PgUtils.consume(() -> num.processDataset(datasetKey, null, null), sink::accept);
+    } else {
+      var ttp = TreeTraversalParameter.dataset(datasetKey, req.getTaxonID(), null, req.getMinRank(), req.getExtinct(), req.isSynonyms());
+      PgUtils.consume(() -> num.processTree(ttp, true), sink::accept);
+    }
+    // add bare names?
+    if (req.isBareNames()) {
+      PgUtils.consume(() -> num.processDatasetBareNames(datasetKey, null, null), sink::accept);
     }
   }
 
@@ -231,6 +362,14 @@ public abstract class ArchiveExport extends DatasetExportJob {
     }
   }
 
+  private void consumeUsage(NameUsage u) {
+    if (u instanceof BareName) {
+      consumeUsage((BareName) u);
+    } else {
+      consumeUsage((NameUsageBase) u);
+    }
+  }
+
   private void consumeUsage(NameUsageBase u){
     if (!fullDataset && u.isTaxon()) {
       taxonIDs.add(u.getId());
@@ -241,13 +380,7 @@ public abstract class ArchiveExport extends DatasetExportJob {
     }
     // metrics
     counter.inc(u);
-
-    try {
-      write(u);
-      writer.next();
-    } catch (final IOException e) {
-      throw new RuntimeException(e);
-    }
+    write(u);
   }
 
   private void consumeUsage(BareName u){
@@ -257,189 +390,102 @@ public abstract class ArchiveExport extends DatasetExportJob {
     }
     // metrics
     counter.inc(u);
-
-    try {
-      write(u);
-      writer.next();
-    } catch (final IOException e) {
-      throw new RuntimeException(e);
-    }
+    write(u);
   }
 
-  private void exportNameRels() throws IOException {
-    exportNameRelation(EntityType.NAME_RELATION, NameRelationMapper.class, this::write);
-    exportNameRelation(EntityType.TYPE_MATERIAL, TypeMaterialMapper.class, this::write);
-  }
-
-  private void exportTaxonRels() throws IOException {
-    exportTaxonExtension(EntityType.VERNACULAR, VernacularNameMapper.class, this::write);
-    exportTaxonExtension(EntityType.DISTRIBUTION, DistributionMapper.class, this::write);
-    exportTaxonExtension(EntityType.MEDIA, MediaMapper.class, this::write);
-    exportEstimates();
-    exportTaxonRelation(EntityType.SPECIES_INTERACTION, SpeciesInteractionMapper.class, this::write);
-    exportTaxonRelation(EntityType.TAXON_CONCEPT_RELATION, TaxonConceptRelationMapper.class, this::write);
+  protected void exportReferences() throws IOException {
+    references.export();
   }
 
-  protected void exportReferences() throws IOException {
-    if (newDataFile(define(EntityType.REFERENCE))) {
-      try (SqlSession session = factory.openSession()) {
-        ReferenceMapper rm = session.getMapper(ReferenceMapper.class);
-        if (fullDataset) {
-          PgUtils.consume(()->rm.processDataset(datasetKey), r -> {
-            try {
-              write(r);
-              writer.next();
-            } catch (final IOException e) {
-              throw new RuntimeException(e);
-            }
-          });
-        } else {
-          refIDs.remove(null); // can happen
-          for (String id : refIDs) {
-            var ref = rm.get(entityKey.id(id));
-            if (ref != null) {
-              write(ref);
-              writer.next();
-            } else {
-              LOG.warn("Reference ID {} used but does not exist in dataset {}", id, datasetKey);
-            }
+  private EntityFile<Reference> references() {
+    return new EntityFile<>(EntityType.REFERENCE, (session, sink) -> {
+      ReferenceMapper rm = session.getMapper(ReferenceMapper.class);
+      if (fullDataset) {
+        PgUtils.consume(() -> rm.processDataset(datasetKey), sink);
+      } else {
+        for (String id : refIDs) {
+          var ref = rm.get(DSID.of(datasetKey, id));
+          if (ref != null) {
+            sink.accept(ref);
+          } else {
+            LOG.warn("Reference ID {} used but does not exist in dataset {}", id, datasetKey);
           }
         }
       }
-    }
+    }, this::write);
   }
 
-  private <T extends SectorScopedEntity<Integer> &Referenced > void exportTaxonExtension(EntityType entity, Class < ? extends TaxonExtensionMapper<T>> mapperClass, ThrowingBiConsumer < String, T, IOException > consumer) throws IOException {
-    if (newDataFile(define(entity))) {
-      try (SqlSession session = factory.openSession()) {
-        TaxonExtensionMapper<T> exm = session.getMapper(mapperClass);
-        if (fullDataset) {
-          PgUtils.consume(()->exm.processDataset(datasetKey), x -> {
-            try {
-              trackRefId(x.getObj());
-              consumer.accept(x.getTaxonID(), x.getObj());
-              this.writer.next();
-            } catch (final IOException e) {
-              throw new RuntimeException(e);
-            }
-          });
-
-        } else {
-          for (String id : taxonIDs) {
-            for (T x : exm.listByTaxon(entityKey.id(id))) {
-              trackRefId(x);
-              consumer.accept(id, x);
-              this.writer.next();
-            }
+  private <T extends SectorScopedEntity<Integer> & Referenced> EntityFile<TaxonExtension<T>> taxonExtension(EntityType entity, Class<? extends TaxonExtensionMapper<T>> mapperClass, ThrowingBiConsumer<String, T, IOException> consumer) {
+    return new EntityFile<>(entity, (session, sink) -> {
+      TaxonExtensionMapper<T> exm = session.getMapper(mapperClass);
+      if (fullDataset) {
+        PgUtils.consume(() -> exm.processDataset(datasetKey), sink);
+      } else {
+        for (String id : taxonIDs) {
+          for (T x : exm.listByTaxon(DSID.of(datasetKey, id))) {
+            TaxonExtension<T> ext = new TaxonExtension<>();
+            ext.setTaxonID(id);
+            ext.setObj(x);
+            sink.accept(ext);
           }
         }
-      } catch (RuntimeException e) {
-        catchTruncation(e);
       }
-    }
+    }, x -> {
+      trackRefId(x.getObj());
+      consumer.acceptThrows(x.getTaxonID(), x.getObj());
+    });
   }
 
-  private <T extends DatasetScopedEntity & Referenced, M extends NameProcessable<T> & DatasetProcessable<T>> void exportNameRelation(EntityType type, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) throws IOException {
-    new NameRelExporter<T, M>().export(type, mapperClass, consumer);
-  }
-
-  private class NameRelExporter<T extends DatasetScopedEntity & Referenced, M extends NameProcessable<T> & DatasetProcessable<T>> {
-    void export(EntityType entity, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) throws IOException {
-      if (newDataFile(define(entity))) {
-        try (SqlSession session = factory.openSession()) {
-          M mapper = session.getMapper(mapperClass);
-          if (fullDataset) {
-            PgUtils.consume(()->mapper.processDataset(datasetKey), x -> {
-              try {
-                trackRefId(x);
-                consumer.accept(x);
-                writer.next();
-              } catch (final IOException e) {
-                throw new RuntimeException(e);
-              }
-            });
-          } else {
-            for (String id : nameIDs) {
-              for (T x : mapper.listByName(entityKey.id(id))) {
-                trackRefId(x);
-                consumer.accept(x);
-                writer.next();
-              }
-            }
-          }
-        } catch (RuntimeException e) {
-          catchTruncation(e);
+  private <T extends DatasetScopedEntity & Referenced, M extends NameProcessable<T> & DatasetProcessable<T>> EntityFile<T> nameRelation(EntityType entity, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) {
+    return new EntityFile<>(entity, (session, sink) -> {
+      M mapper = session.getMapper(mapperClass);
+      if (fullDataset) {
+        PgUtils.consume(() -> mapper.processDataset(datasetKey), sink);
+      } else {
+        for (String id : nameIDs) {
+          mapper.listByName(DSID.of(datasetKey, id)).forEach(sink);
         }
       }
-    }
+    }, x -> {
+      trackRefId(x);
+      consumer.acceptThrows(x);
+    });
   }
 
-  private <T extends DatasetScopedEntity<Integer> & Referenced, M extends TaxonProcessable<T> & DatasetProcessable<T>> void exportTaxonRelation(EntityType type, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) throws IOException {
-    new TaxonRelExporter<T, M>().export(type, mapperClass, consumer);
-  }
-
-  private class TaxonRelExporter<T extends DatasetScopedEntity<Integer> & Referenced, M extends TaxonProcessable<T> & DatasetProcessable<T>> {
-    void export(EntityType entity, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) throws IOException {
-      if (newDataFile(define(entity))) {
-        try (SqlSession session = factory.openSession()) {
-          M mapper = session.getMapper(mapperClass);
-          if (fullDataset) {
-            PgUtils.consume(()->mapper.processDataset(datasetKey), x -> {
-              try {
-                trackRefId(x);
-                consumer.accept(x);
-                writer.next();
-              } catch (final IOException e) {
-                throw new RuntimeException(e);
-              }
-            });
-          } else {
-            for (String id : taxonIDs) {
-              for (T x : mapper.listByTaxon(entityKey.id(id))) {
-                trackRefId(x);
-                consumer.accept(x);
-                writer.next();
-              }
-            }
-          }
-        } catch (RuntimeException e) {
-          catchTruncation(e);
+  private <T extends DatasetScopedEntity<Integer> & Referenced, M extends TaxonProcessable<T> & DatasetProcessable<T>> EntityFile<T> taxonRelation(EntityType entity, Class<M> mapperClass, ThrowingConsumer<T, IOException> consumer) {
+    return new EntityFile<>(entity, (session, sink) -> {
+      M mapper = session.getMapper(mapperClass);
+      if (fullDataset) {
+        PgUtils.consume(() -> mapper.processDataset(datasetKey), sink);
+      } else {
+        for (String id : taxonIDs) {
+          mapper.listByTaxon(DSID.of(datasetKey, id)).forEach(sink);
         }
       }
-    }
+    }, x -> {
+      trackRefId(x);
+      consumer.acceptThrows(x);
+    });
   }
 
-  private void exportEstimates() throws IOException {
-    if (newDataFile(define(EntityType.ESTIMATE))) {
-      try (SqlSession session = factory.openSession()) {
-        EstimateMapper mapper = session.getMapper(EstimateMapper.class);
-        if (fullDataset) {
-          PgUtils.consume(()->mapper.processDataset(datasetKey), x -> {
-            try {
-              trackRefId(x);
-              write(x);
-              writer.next();
-            } catch (final IOException e) {
-              throw new RuntimeException(e);
-            }
-          });
-        } else {
-          Page page = new Page(0,100);
-          EstimateSearchRequest req = new EstimateSearchRequest();
-          req.setDatasetKey(datasetKey);
-          for (String id : taxonIDs) {
-            req.setId(id);
-            for (SpeciesEstimate x : mapper.search(req, page)) {
-              trackRefId(x);
-              write(x);
-              writer.next();
-            }
-          }
+  private EntityFile<SpeciesEstimate> estimates() {
+    return new EntityFile<>(EntityType.ESTIMATE, (session, sink) -> {
+      EstimateMapper mapper = session.getMapper(EstimateMapper.class);
+      if (fullDataset) {
+        PgUtils.consume(() -> mapper.processDataset(datasetKey), sink);
+      } else {
+        Page page = new Page(0,100);
+        EstimateSearchRequest req = new EstimateSearchRequest();
+        req.setDatasetKey(datasetKey);
+        for (String id : taxonIDs) {
+          req.setId(id);
+          mapper.search(req, page).forEach(sink);
         }
-      } catch (RuntimeException e) {
-        catchTruncation(e);
       }
-    }
+    }, x -> {
+      trackRefId(x);
+      write(x);
+    });
   }
 
   private void closeWriter() throws IOException {
@@ -209,10 +209,16 @@ public class DwcaExport extends ArchiveExport {
   }
 
   @Override
-  protected void bundle() throws IOException {
+  protected void finishDataFiles() throws IOException {
     if (writer2 != null) {
       writer2.close();
+      writer2 = null;
     }
+  }
+
+  @Override
+  protected void bundle() throws IOException {
+    finishDataFiles();
     addMeta();
     super.bundle();
   }
@@ -0,0 +1,103 @@
+package life.catalogue.exporter;
+
+import life.catalogue.common.lang.InterruptedRuntimeException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * Reads entities in a background thread with its own SqlSession and hands them over to the consuming thread
+ * through a bounded queue. This allows several database cursors to be read and mapped concurrently
+ * while the entities are still being written by a single thread, keeping the memory footprint flat.
+ *
+ * The iterator must be closed to release the background thread and its database connection,
+ * even if it was not fully consumed.
+ */
+class EntityPrefetcher<T> implements Iterator<T>, AutoCloseable {
+  private static final Object EOF = new Object();
+  private final BlockingQueue<Object> queue;
+  private final Future<?> task;
+  private volatile boolean closed = false;
+  private Object next;
+
+  /**
+   * @param exec executor to run the reading task in
+   * @param capacity maximum number of entities to prefetch
+   * @param producer reads entities from the given session and passes them on to the consumer
+   */
+  EntityPrefetcher(ExecutorService exec, SqlSessionFactory factory, int capacity, BiConsumer<SqlSession, Consumer<T>> producer) {
+    queue = new ArrayBlockingQueue<>(capacity);
+    task = exec.submit(() -> {
+      try (SqlSession session = factory.openSession()) {
+        producer.accept(session, this::put);
+        put(EOF);
+      } catch (InterruptedRuntimeException e) {
+        // closed by the consumer
+      } catch (RuntimeException e) {
+        if (!closed) {
+          put(new Failure(e));
+        }
+      }
+    });
+  }
+
+  private static class Failure {
+    final RuntimeException e;
+
+    Failure(RuntimeException e) {
+      this.e = e;
+    }
+  }
+
+  private void put(Object obj) {
+    try {
+      queue.put(obj);
+    } catch (InterruptedException e) {
+      throw new InterruptedRuntimeException(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedRuntimeException(e);
+      }
+      if (next instanceof Failure) {
+        RuntimeException e = ((Failure) next).e;
+        next = EOF;
+        throw e;
+      }
+    }
+    return next != EOF;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T obj = (T) next;
+    next = null;
+    return obj;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    task.cancel(true);
+  }
+}
@@ -0,0 +1,240 @@
+package life.catalogue.exporter;
+
+import life.catalogue.api.event.DatasetChanged;
+import life.catalogue.api.event.DatasetDataChanged;
+import life.catalogue.api.jackson.ApiModule;
+import life.catalogue.api.vocab.DataFormat;
+import life.catalogue.concurrent.JobConfig;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * A file based cache for the data files of full archive exports.
+ * The data of a release or external dataset only changes with a new import attempt,
+ * so the data files can be reused for later exports of the same attempt and format
+ * without reading the entire dataset from postgres again, e.g. for forced reruns
+ * or when previous exports have been removed.
+ *
+ * The cache only serves exports which are identical to the cached one:
+ * full, unfiltered ColDP and DwC-A exports without Excel files.
+ * Cached files are never filtered or converted into other formats.
+ * Filters by root taxon, rank or status need the classification, which the flat data files do not hold,
+ * and the references, name relations and extensions to include depend on the selected usages.
+ * Filtered exports, Excel exports and ACEF exports, which are produced by SQL, are therefore always read from postgres.
+ *
+ * The cache is organised as {cacheDir}/{datasetKey}/{attempt}/{format}/ holding all data files
+ * and an info file with the usage metrics and sector mappings gathered during the export.
+ * Entries are first written to a temporary directory and then moved into place,
+ * so readers never see incomplete entries. Cached files of older attempts are removed whenever a new attempt is stored,
+ * entries not used for longer than the configured age are evicted and the least recently used entries are removed
+ * when the cache grows beyond its configured size.
+ * All entries of a dataset are removed when the dataset is deleted or its data changed.
+ */
+public class ExportCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ExportCache.class);
+  private static final String DATA_DIR = "data";
+  private static final String INFO_FILENAME = "info.json";
+  private static final String TMP_DIR = ".tmp";
+  private final File cacheDir;
+  private final long maxSize;
+  private final long maxAge;
+  // restores read entries, all other operations modify the cache exclusively
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Metrics and sector mappings of a cached export which are otherwise gathered while reading the data.
+   */
+  public static class Info {
+    public int taxa;
+    public int synonyms;
+    public int bareNames;
+    public Map<Rank, Integer> taxaByRank = new HashMap<>();
+    public Map<Integer, Integer> sector2datasetKeys = new HashMap<>();
+  }
+
+  /**
+   * @return a new cache for the configured cache directory or null if no directory is configured.
+   */
+  public static ExportCache create(JobConfig cfg) {
+    if (cfg.exportCacheDir == null) {
+      return null;
+    }
+    return new ExportCache(cfg.exportCacheDir, cfg.exportCacheMaxSize * 1024L * 1024L, Duration.ofDays(cfg.exportCacheMaxAge));
+  }
+
+  public ExportCache(File cacheDir, long maxSize, Duration maxAge) {
+    this.cacheDir = cacheDir;
+    this.maxSize = maxSize;
+    this.maxAge = maxAge.toMillis();
+  }
+
+  private File datasetDir(int datasetKey) {
+    return new File(cacheDir, String.valueOf(datasetKey));
+  }
+
+  private File dir(int datasetKey, int attempt, DataFormat format) {
+    return new File(new File(datasetDir(datasetKey), String.valueOf(attempt)), format.name().toLowerCase());
+  }
+
+  public boolean exists(int datasetKey, int attempt, DataFormat format) {
+    return new File(dir(datasetKey, attempt, format), INFO_FILENAME).exists();
+  }
+
+  /**
+   * Copies all cached data files into the given directory.
+   * @return the cached export info or null if nothing was cached
+   */
+  public Info restore(int datasetKey, int attempt, DataFormat format, File target) throws IOException {
+    lock.readLock().lock();
+    try {
+      File dir = dir(datasetKey, attempt, format);
+      File infoFile = new File(dir, INFO_FILENAME);
+      if (!infoFile.exists()) {
+        return null;
+      }
+      LOG.info("Copy cached export data files from {}", dir);
+      FileUtils.copyDirectory(new File(dir, DATA_DIR), target);
+      // the info file tracks the last usage for evictions
+      infoFile.setLastModified(System.currentTimeMillis());
+      return ApiModule.MAPPER.readValue(infoFile, Info.class);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stores a copy of all files in the given directory and removes all cached files of other attempts of the dataset.
+   * The files are copied to a temporary directory first which is then moved into place.
+   */
+  public void store(int datasetKey, int attempt, DataFormat format, File source, Info info) throws IOException {
+    final File dir = dir(datasetKey, attempt, format);
+    final File tmp = new File(new File(cacheDir, TMP_DIR), UUID.randomUUID().toString());
+    try {
+      FileUtils.copyDirectory(source, new File(tmp, DATA_DIR));
+      ApiModule.MAPPER.writeValue(new File(tmp, INFO_FILENAME), info);
+
+      lock.writeLock().lock();
+      try {
+        LOG.info("Cache export data files in {}", dir);
+        File attemptDir = dir.getParentFile();
+        File[] attempts = datasetDir(datasetKey).listFiles();
+        if (attempts != null) {
+          for (File f : attempts) {
+            if (!f.equals(attemptDir)) {
+              FileUtils.deleteDirectory(f);
+            }
+          }
+        }
+        FileUtils.deleteDirectory(dir);
+        attemptDir.mkdirs();
+        Files.move(tmp.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        evict();
+      } finally {
+        lock.writeLock().unlock();
+      }
+
+    } finally {
+      FileUtils.deleteQuietly(tmp);
+    }
+  }
+
+  /**
+   * Removes all cached entries of a dataset.
+   */
+  public void delete(int datasetKey) {
+    lock.writeLock().lock();
+    try {
+      File dir = datasetDir(datasetKey);
+      if (dir.exists()) {
+        LOG.info("Remove cached exports of dataset {}", datasetKey);
+        FileUtils.deleteQuietly(dir);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes entries not used for longer than the maximum age
+   * and then the least recently used entries until the cache is not larger than its maximum size.
+   * Must be called with the write lock held.
+   */
+  private void evict() {
+    final long now = System.currentTimeMillis();
+    List<Entry> entries = new ArrayList<>();
+    long total = 0;
+    for (File ddir : listDirs(cacheDir)) {
+      if (ddir.getName().equals(TMP_DIR)) continue;
+      for (File adir : listDirs(ddir)) {
+        for (File fdir : listDirs(adir)) {
+          File info = new File(fdir, INFO_FILENAME);
+          if (!info.exists() || now - info.lastModified() > maxAge) {
+            LOG.info("Evict expired export cache {}", fdir);
+            FileUtils.deleteQuietly(fdir);
+          } else {
+            Entry e = new Entry(fdir, info.lastModified(), FileUtils.sizeOfDirectory(fdir));
+            entries.add(e);
+            total += e.size;
+          }
+        }
+      }
+    }
+    if (total > maxSize) {
+      entries.sort(Comparator.comparingLong(e -> e.used));
+      Iterator<Entry> iter = entries.iterator();
+      while (total > maxSize && iter.hasNext()) {
+        Entry e = iter.next();
+        LOG.info("Evict least recently used export cache {} with {} bytes", e.dir, e.size);
+        FileUtils.deleteQuietly(e.dir);
+        total -= e.size;
+      }
+    }
+  }
+
+  private static File[] listDirs(File dir) {
+    File[] dirs = dir.listFiles(File::isDirectory);
+    return dirs == null ? new File[0] : dirs;
+  }
+
+  private static class Entry {
+    final File dir;
+    final long used;
+    final long size;
+
+    Entry(File dir, long used, long size) {
+      this.dir = dir;
+      this.used = used;
+      this.size = size;
+    }
+  }
+
+  @Subscribe
+  public void datasetChanged(DatasetChanged event){
+    if (event.isDeletion()) {
+      delete(event.key);
+    }
+  }
+
+  /**
+   * A new import attempt or the removal of data makes cached exports of a dataset obsolete.
+   */
+  @Subscribe
+  public void dataChanged(DatasetDataChanged event){
+    delete(event.datasetKey);
+  }
+}
@@ -34,6 +34,7 @@ public class ExportManager {
   private final JobExecutor executor;
   private final DatasetExportDao dao;
   private final DatasetImportDao diDao;
+  private final ExportCache cache;
 
   public ExportManager(WsServerConfig cfg, SqlSessionFactory factory, JobExecutor executor, ImageService imageService,
                        DatasetExportDao exportDao, DatasetImportDao diDao) {
@@ -43,6 +44,14 @@ public class ExportManager {
     this.imageService = imageService;
     dao = exportDao;
     this.diDao = diDao;
+    cache = ExportCache.create(cfg.job);
+  }
+
+  /**
+   * @return the cache for data files of full archive exports or null if none is configured
+   */
+  public ExportCache getCache() {
+    return cache;
   }
 
   /**
@@ -67,10 +76,14 @@ public class ExportManager {
     DatasetExportJob job;
     switch (req.getFormat()) {
       case COLDP:
-        job = new ColdpExport(req, userKey, factory, cfg, imageService);
+        ColdpExport coldp = new ColdpExport(req, userKey, factory, cfg, imageService);
+        coldp.setCache(cache);
+        job = coldp;
         break;
       case DWCA:
-        job = new DwcaExport(req, userKey, factory, cfg, imageService);
+        DwcaExport dwca = new DwcaExport(req, userKey, factory, cfg, imageService);
+        dwca.setCache(cache);
+        job = dwca;
         break;
       case ACEF:
         job = new AcefExport(req, userKey, factory, cfg, imageService);
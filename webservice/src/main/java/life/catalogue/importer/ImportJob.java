@@ -305,7 +305,7 @@ public class ImportJob implements Runnable {
         LOG.info("Normalizing {}", datasetKey);
         updateState(ImportState.PROCESSING);
         store = NeoDbFactory.create(datasetKey, getAttempt(), cfg.normalizer);
-        new Normalizer(dataset, store, sourceDir, index, imgService, validator, resolver).call();
+        new Normalizer(dataset, store, sourceDir, index, imgService, validator, resolver, cfg.normalizer).call();
   
         LOG.info("Fetching logo for {}", datasetKey);
         LogoUpdateJob.updateDatasetAsync(dataset.getDataset(), factory, downloader, cfg.normalizer::scratchFile, imgService, req.createdBy);
@@ -313,11 +313,12 @@ public class ImportJob implements Runnable {
         LOG.info("Writing {} to Postgres!", datasetKey);
         updateState(ImportState.INSERTING);
         store = NeoDbFactory.open(datasetKey, getAttempt(), cfg.normalizer);
-        new PgImport(di.getAttempt(), dataset, req.createdBy, store, factory, cfg.importer, dDao, indexService).call();
+        PgImport pgImport = new PgImport(di.getAttempt(), dataset, req.createdBy, store, factory, cfg.importer, dDao, indexService);
+        pgImport.call();
 
         LOG.info("Build import metrics for dataset {}", datasetKey);
         updateState(ImportState.ANALYZING);
-        dao.updateMetrics(di, datasetKey);
+        dao.updateMetrics(di, datasetKey, pgImport.getMetrics());
 
         bus.post(new DatasetDataChanged(datasetKey));
 
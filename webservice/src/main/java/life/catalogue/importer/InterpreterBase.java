@@ -18,6 +18,7 @@ import java.time.Year;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,6 +51,8 @@ public class InterpreterBase {
   protected final NameInterpreter nameInterpreter;
   private final Gazetteer distributionStandard;
   protected final ReferenceFactory refFactory;
+  // reference lookups and creations collected by the current thread while interpreting records concurrently
+  private static final ThreadLocal<List<Runnable>> DEFERRED_REFERENCES = new ThreadLocal<>();
 
   public InterpreterBase(DatasetSettings settings, ReferenceFactory refFactory, NeoDb store) {
     this.settings = settings;
@@ -162,24 +165,28 @@ public class InterpreterBase {
 
   protected void setAccordingTo(NameUsage u, String accordingTo, VerbatimRecord v) {
     if (accordingTo != null) {
-      Reference ref = buildReference(accordingTo, v);
-      if (ref != null) {
-        if (u.getAccordingToId() != null) {
-          v.addIssue(Issue.ACCORDING_TO_CONFLICT);
+      applyReference(() -> {
+        Reference ref = buildReference(accordingTo, v);
+        if (ref != null) {
+          if (u.getAccordingToId() != null) {
+            v.addIssue(Issue.ACCORDING_TO_CONFLICT);
+          }
+          u.setAccordingToId(ref.getId());
+          u.setAccordingTo(accordingTo);
         }
-        u.setAccordingToId(ref.getId());
-        u.setAccordingTo(accordingTo);
-      }
+      });
     }
   }
 
   protected void setPublishedIn(Name n, String publishedIn, VerbatimRecord v) {
-    Reference ref = buildReference(publishedIn, v);
-    if (ref != null) {
-      n.setPublishedInId(ref.getId());
-      n.setPublishedInPage(ref.getPage());
-      n.setPublishedInYear(ref.getYear());
-    }
+    applyReference(() -> {
+      Reference ref = buildReference(publishedIn, v);
+      if (ref != null) {
+        n.setPublishedInId(ref.getId());
+        n.setPublishedInPage(ref.getPage());
+        n.setPublishedInYear(ref.getYear());
+      }
+    });
   }
 
   protected Reference buildReference(String citation, VerbatimRecord v) {
@@ -195,6 +202,34 @@ public class InterpreterBase {
     return ref;
   }
 
+  /**
+   * Runs an action which looks up or creates references right away,
+   * or defers it if the current thread interprets records concurrently, see {@link #deferReferences(List, Supplier)}.
+   * Actions must therefore not be relied on to have run before the interpretation is done.
+   */
+  protected static void applyReference(Runnable action) {
+    List<Runnable> deferred = DEFERRED_REFERENCES.get();
+    if (deferred == null) {
+      action.run();
+    } else {
+      deferred.add(action);
+    }
+  }
+
+  /**
+   * Runs an interpretation collecting all reference actions instead of running them.
+   * Reference lookups and creations change the shared reference store, so the collected actions must be run
+   * by a single thread in the order of the source records to create the same references with the same ids in every import.
+   */
+  static <R> R deferReferences(List<Runnable> deferred, Supplier<R> interpretation) {
+    DEFERRED_REFERENCES.set(deferred);
+    try {
+      return interpretation.get();
+    } finally {
+      DEFERRED_REFERENCES.remove();
+    }
+  }
+
   protected List<VernacularName> interpretVernacular(VerbatimRecord rec, BiConsumer<VernacularName, VerbatimRecord> addReference,
                                                      Term name, Term translit, Term lang, Term sex, Term area, Term... countryTerms) {
     String vname = rec.get(name);
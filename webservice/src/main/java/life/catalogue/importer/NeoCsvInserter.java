@@ -8,6 +8,8 @@ import life.catalogue.api.vocab.Issue;
 import life.catalogue.api.vocab.Setting;
 import life.catalogue.common.collection.DefaultMap;
 import life.catalogue.common.lang.InterruptedRuntimeException;
+import life.catalogue.concurrent.ExecutorUtils;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.csv.CsvReader;
 import life.catalogue.csv.MappingInfos;
 import life.catalogue.csv.Schema;
@@ -22,11 +24,11 @@ import life.catalogue.metadata.MetadataFactory;
 import org.gbif.dwc.terms.Term;
 
 import java.nio.file.Path;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -35,6 +37,8 @@ import org.neo4j.graphdb.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 import static life.catalogue.common.lang.Exceptions.interruptIfCancelled;
 import static life.catalogue.common.lang.Exceptions.runtimeInterruptIfCancelled;
 
@@ -47,6 +51,8 @@ import static life.catalogue.common.lang.Exceptions.runtimeInterruptIfCancelled;
 public abstract class NeoCsvInserter implements NeoInserter {
   private static final Logger LOG = LoggerFactory.getLogger(NeoCsvInserter.class);
   private static final String INTERRUPT_MESSAGE = "NeoInserter interrupted, exit early with incomplete import";
+  // max number of records per thread being interpreted ahead of the writer
+  private static final int INTERPRETER_QUEUE = 1000;
 
   protected final DatasetSettings settings;
   protected final NeoDb store;
@@ -55,6 +61,8 @@ public abstract class NeoCsvInserter implements NeoInserter {
   protected final ReferenceFactory refFactory;
   private int vcounter;
   private Map<Term, AtomicInteger> badTaxonFks = DefaultMap.createCounter();
+  // threads used to interpret records concurrently, mostly spent on name parsing
+  private int interpreterThreads = 1;
 
   protected NeoCsvInserter(Path folder, CsvReader reader, NeoDb store, DatasetSettings settings, ReferenceFactory refFactory) {
     this.folder = folder;
@@ -102,6 +110,14 @@ public abstract class NeoCsvInserter implements NeoInserter {
     }
   }
 
+  /**
+   * @param threads number of threads used to interpret records of entities supporting it, 1 interprets all records sequentially
+   */
+  public void setInterpreterThreads(int threads) {
+    Preconditions.checkArgument(threads > 0, "At least one interpreter thread required");
+    this.interpreterThreads = threads;
+  }
+
   /**
    * @throws NormalizationFailedException
    * @throws InterruptedException InterruptedRuntimeException thrown by any processing are converted into regular InterruptedException by this method
@@ -140,33 +156,115 @@ public abstract class NeoCsvInserter implements NeoInserter {
   }
 
   private void processVerbatim(final CsvReader reader, final Term classTerm, Predicate<VerbatimRecord> proc) {
+    processVerbatim(reader, classTerm, false, Function.identity(), (rec, x) -> proc.test(rec));
+  }
+
+  /**
+   * Processes all records of a given row type in two steps: a potentially expensive interpretation, e.g. name parsing,
+   * followed by adding the interpreted result to the store.
+   * If concurrent, interpretations run in a thread pool while records are still read and added in the original file order
+   * by the calling thread which remains the single writer to the store.
+   * References are not created by concurrent interpretations, but deferred and applied by the writer before the record is added,
+   * so reference ids do not depend on thread scheduling.
+   * The window of pending interpretations is bounded to keep memory in check.
+   *
+   * Every verbatim record is persisted exactly once after it has been fully processed.
+   *
+   * @param concurrent if true the interpret function must be thread safe
+   */
+  private <R> void processVerbatim(final CsvReader reader, final Term classTerm, boolean concurrent,
+                                   Function<VerbatimRecord, R> interpret, BiPredicate<VerbatimRecord, R> add) {
     runtimeInterruptIfCancelled(INTERRUPT_MESSAGE);
     final AtomicInteger counter = new AtomicInteger(0);
     final AtomicInteger success = new AtomicInteger(0);
-    reader.stream(classTerm).forEach(rec -> {
-      runtimeInterruptIfCancelled(INTERRUPT_MESSAGE);
-      store.put(rec);
-      if (proc.test(rec)) {
+    final Consumer<Interpretation<R>> writer = ir -> {
+      R result = ir.get();
+      ir.references.forEach(Runnable::run);
+      if (add.test(ir.rec, result)) {
         success.incrementAndGet();
       } else {
-        rec.addIssue(Issue.NOT_INTERPRETED);
+        ir.rec.addIssue(Issue.NOT_INTERPRETED);
       }
-      // processing might already have flagged issues, load and merge them
-      VerbatimRecord old = store.getVerbatim(rec.getId());
-      rec.addIssues(old.getIssues());
-      store.put(rec);
+      store.release(ir.rec);
       counter.incrementAndGet();
-    });
+    };
+
+    if (concurrent && interpreterThreads > 1) {
+      final int maxPending = INTERPRETER_QUEUE * interpreterThreads;
+      ExecutorService exec = Executors.newFixedThreadPool(interpreterThreads, new NamedThreadFactory("interpreter-" + classTerm.simpleName()));
+      try {
+        final Deque<Interpretation<R>> window = new ArrayDeque<>();
+        reader.stream(classTerm).forEach(rec -> {
+          runtimeInterruptIfCancelled(INTERRUPT_MESSAGE);
+          store.reserve(rec);
+          final List<Runnable> references = new ArrayList<>();
+          window.add(new Interpretation<>(rec, references, exec.submit(() -> InterpreterBase.deferReferences(references, () -> interpret.apply(rec)))));
+          if (window.size() >= maxPending) {
+            writer.accept(window.poll());
+          }
+        });
+        while (!window.isEmpty()) {
+          runtimeInterruptIfCancelled(INTERRUPT_MESSAGE);
+          writer.accept(window.poll());
+        }
+      } finally {
+        ExecutorUtils.shutdown(exec);
+      }
+
+    } else {
+      reader.stream(classTerm).forEach(rec -> {
+        runtimeInterruptIfCancelled(INTERRUPT_MESSAGE);
+        store.reserve(rec);
+        writer.accept(new Interpretation<>(rec, List.of(), CompletableFuture.completedFuture(interpret.apply(rec))));
+      });
+    }
     LOG.info("Inserted {} verbatim, {} successfully processed {}", counter.get(), success.get(), classTerm.prefixedName());
     vcounter += counter.get();
   }
-  
+
+  private static class Interpretation<R> {
+    final VerbatimRecord rec;
+    // deferred reference lookups and creations, only to be accessed once the result is done
+    final List<Runnable> references;
+    final Future<R> result;
+
+    Interpretation(VerbatimRecord rec, List<Runnable> references, Future<R> result) {
+      this.rec = rec;
+      this.references = references;
+      this.result = result;
+    }
+
+    R get() {
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        throw new InterruptedRuntimeException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
   protected <T extends VerbatimEntity > void insertEntities(final CsvReader reader, final Term classTerm,
                                                            Function<VerbatimRecord, Optional<T>> interpret,
                                                            Predicate<T> add
   ) {
-    processVerbatim(reader, classTerm, rec -> {
-      Optional<T> opt = interpret.apply(rec);
+    insertEntities(reader, classTerm, false, interpret, add);
+  }
+
+  /**
+   * @param concurrent if true interpretations run in parallel, which requires a thread safe interpret function.
+   *                   References must be created via the InterpreterBase which defers them to the ordered writer.
+   *                   The add predicate is always executed sequentially in the order of the source records.
+   */
+  protected <T extends VerbatimEntity > void insertEntities(final CsvReader reader, final Term classTerm, boolean concurrent,
+                                                           Function<VerbatimRecord, Optional<T>> interpret,
+                                                           Predicate<T> add
+  ) {
+    processVerbatim(reader, classTerm, concurrent, interpret, (rec, opt) -> {
       if (opt.isPresent()) {
         T obj = opt.get();
         obj.setVerbatimKey(rec.getId());
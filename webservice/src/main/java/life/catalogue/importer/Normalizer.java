@@ -6,6 +6,9 @@ import life.catalogue.common.collection.IterUtils;
 import life.catalogue.common.collection.MapUtils;
 import life.catalogue.common.lang.Exceptions;
 import life.catalogue.common.tax.MisappliedNameMatcher;
+import life.catalogue.config.NormalizerConfig;
+import life.catalogue.concurrent.ExecutorUtils;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.csv.MappingInfos;
 import life.catalogue.dao.DatasetDao;
 import life.catalogue.dao.ReferenceFactory;
@@ -33,10 +36,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -64,6 +69,7 @@ import it.unimi.dsi.fastutil.longs.LongSet;
  */
 public class Normalizer implements Callable<Boolean> {
   private static final Logger LOG = LoggerFactory.getLogger(Normalizer.class);
+  private static final int MATCHER_BATCH_SIZE = 1000;
   private final DataFormat format;
   private final Path sourceDir;
   private final int datasetKey;
@@ -73,10 +79,17 @@ public class Normalizer implements Callable<Boolean> {
   private final NameIndex index;
   private final DatasetWithSettings dataset;
   private final Validator validator;
+  private final NormalizerConfig cfg;
   private MappingInfos meta;
 
 
   public Normalizer(DatasetWithSettings dataset, NeoDb store, Path sourceDir, NameIndex index, ImageService imgService, Validator validator, @Nullable DoiResolver resolver) {
+    this(dataset, store, sourceDir, index, imgService, validator, resolver, new NormalizerConfig());
+  }
+
+  public Normalizer(DatasetWithSettings dataset, NeoDb store, Path sourceDir, NameIndex index, ImageService imgService, Validator validator, @Nullable DoiResolver resolver,
+                    NormalizerConfig cfg) {
+    this.cfg = cfg;
     this.format = Preconditions.checkNotNull(dataset.getDataFormat(), "Data format not given");
     this.dataset = dataset;
     this.sourceDir = sourceDir;
@@ -303,15 +316,50 @@ public class Normalizer implements Callable<Boolean> {
     return obj;
   }
 
-  private void matchAndCount() {
+  /**
+   * Matches all names to the names index.
+   * Matching is done concurrently in batches without inserting new names into the index.
+   * Results are applied to the store by the calling thread in the original order of names,
+   * which also inserts missing names into the index so new index ids, duplicate detection and counts are deterministic.
+   */
+  private void matchAndCount() throws InterruptedException {
     final Map<MatchType, AtomicInteger> counts = Maps.newHashMap();
     for (MatchType mt : MatchType.values()) {
       counts.put(mt, new AtomicInteger(0));
     }
     // track duplicates, map index name ids to first verbatim key
     final Int2IntMap nameIds = new Int2IntOpenHashMap();
-    store.names().all().forEach(nn -> {
-      NameMatch m = index.match(nn.getName(), true, false);
+    ExecutorService exec = Executors.newFixedThreadPool(cfg.matcherThreads, new NamedThreadFactory("normalizer-matcher-" + datasetKey));
+    try {
+      List<NeoName> batch = new ArrayList<>(MATCHER_BATCH_SIZE);
+      var iter = store.names().all().iterator();
+      while (iter.hasNext()) {
+        batch.add(iter.next());
+        if (batch.size() >= MATCHER_BATCH_SIZE || !iter.hasNext()) {
+          matchBatch(exec, batch, counts, nameIds);
+          batch.clear();
+          checkIfCancelled();
+        }
+      }
+    } finally {
+      ExecutorUtils.shutdown(exec);
+    }
+    LOG.info("Matched all {} names: {}", MapUtils.sumValues(counts), Joiner.on(',').withKeyValueSeparator("=").join(counts));
+  }
+
+  private void matchBatch(ExecutorService exec, List<NeoName> batch, Map<MatchType, AtomicInteger> counts, Int2IntMap nameIds) throws InterruptedException {
+    List<Future<NameMatch>> matches = new ArrayList<>(batch.size());
+    for (NeoName nn : batch) {
+      matches.add(exec.submit(() -> index.match(nn.getName(), false, false)));
+    }
+    // apply results in the original order
+    for (int i = 0; i < batch.size(); i++) {
+      NeoName nn = batch.get(i);
+      NameMatch m = getMatch(matches.get(i));
+      if (needsInsert(nn.getName(), m)) {
+        // match again allowing inserts which might also find a name inserted by a previous name of this dataset
+        m = index.match(nn.getName(), true, false);
+      }
       nn.namesIndexMatchType = m.getType();
       if (m.hasMatch()) {
         int nKey = m.getName().getKey();
@@ -328,9 +376,25 @@ public class Normalizer implements Callable<Boolean> {
         }
       }
       counts.get(m.getType()).incrementAndGet();
-      Exceptions.runtimeInterruptIfCancelled();
-    });
-    LOG.info("Matched all {} names: {}", MapUtils.sumValues(counts), Joiner.on(',').withKeyValueSeparator("=").join(counts));
+    }
+  }
+
+  /**
+   * @return true if the names index would insert the name when inserts are allowed
+   */
+  private static boolean needsInsert(Name n, NameMatch m) {
+    return !m.hasMatch() || (n.hasAuthorship() && m.getType() == MatchType.CANONICAL);
+  }
+
+  private static NameMatch getMatch(Future<NameMatch> f) throws InterruptedException {
+    try {
+      return f.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
   }
 
   private void normalize() throws InterruptedException {
@@ -911,6 +975,9 @@ public class Normalizer implements Callable<Boolean> {
         default:
           throw new NormalizationFailedException("Unsupported data format " + format);
       }
+      if (inserter instanceof NeoCsvInserter) {
+        ((NeoCsvInserter) inserter).setInterpreterThreads(cfg.interpreterThreads);
+      }
       // first metadata, the key will be preserved by the store
       inserter.readMetadata().ifPresent(d -> DatasetDao.patchMetadata(dataset, d.getDataset(), validator));
       // data
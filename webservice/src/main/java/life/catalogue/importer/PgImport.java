@@ -1,18 +1,25 @@
 package life.catalogue.importer;
 
+import org.gbif.dwc.terms.Term;
+
+import life.catalogue.api.jackson.ApiModule;
 import life.catalogue.api.model.*;
 import life.catalogue.api.search.NameUsageWrapper;
 import life.catalogue.api.search.SimpleDecision;
 import life.catalogue.api.vocab.Issue;
 import life.catalogue.api.vocab.Setting;
 import life.catalogue.api.vocab.Users;
+import life.catalogue.common.lang.Exceptions;
 import life.catalogue.common.lang.InterruptedRuntimeException;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.config.ImporterConfig;
 import life.catalogue.dao.DatasetDao;
+import life.catalogue.dao.ImportMetricsCollector;
 import life.catalogue.dao.Partitioner;
 import life.catalogue.db.Create;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.*;
+import life.catalogue.db.type.TermTypeHandler;
 import life.catalogue.es.NameUsageIndexService;
 import life.catalogue.importer.neo.NeoDb;
 import life.catalogue.importer.neo.NeoDbUtils;
@@ -22,9 +29,13 @@ import life.catalogue.importer.neo.model.NeoUsage;
 import life.catalogue.importer.neo.model.RelType;
 import life.catalogue.importer.neo.traverse.StartEndHandler;
 import life.catalogue.importer.neo.traverse.TreeWalker;
+import life.catalogue.postgres.PgCopyUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -39,11 +50,13 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
+import org.postgresql.jdbc.PgConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 
 import static life.catalogue.common.lang.Exceptions.interruptIfCancelled;
@@ -58,16 +71,20 @@ import static life.catalogue.common.lang.Exceptions.runtimeInterruptIfCancelled;
  */
 public class PgImport implements Callable<Boolean> {
   private static final Logger LOG = LoggerFactory.getLogger(PgImport.class);
+  private static final ObjectWriter TERMS_WRITER = ApiModule.MAPPER.writerFor(new TypeReference<Map<Term, String>>() {});
+  private static final List<String> VERBATIM_COLUMNS = List.of("id", "dataset_key", "line", "file", "type", "terms", "issues");
   
   private final NeoDb store;
   private final int batchSize;
+  private final int threads;
+  private final boolean copy;
   private final SqlSessionFactory sessionFactory;
   private final DatasetDao datasetDao;
   private final NameUsageIndexService indexService;
   private final int attempt;
   private final DatasetWithSettings dataset;
+  // only modified while inserting verbatim records, read concurrently afterwards
   private final Map<Integer, Integer> verbatimKeys = new HashMap<>();
-  private LoadingCache<Integer, Set<Issue>> verbatimIssueCache;
   private final Set<String> proParteIds = new HashSet<>();
   private final AtomicInteger nCounter = new AtomicInteger(0);
   private final AtomicInteger tCounter = new AtomicInteger(0);
@@ -80,10 +97,11 @@ public class PgImport implements Callable<Boolean> {
   private final AtomicInteger vCounter = new AtomicInteger(0);
   private final AtomicInteger tmCounter = new AtomicInteger(0);
   private final AtomicInteger eCounter = new AtomicInteger(0);
-  private int nRelCounter;
-  private int tRelCounter;
-  private int sRelCounter;
+  private volatile int nRelCounter;
+  private volatile int tRelCounter;
+  private volatile int sRelCounter;
   private int userKey;
+  private final ImportMetricsCollector metrics = new ImportMetricsCollector();
 
   public PgImport(int attempt, DatasetWithSettings dataset, int userKey, NeoDb store,
                   SqlSessionFactory sessionFactory, ImporterConfig cfg, DatasetDao datasetDao, NameUsageIndexService indexService) {
@@ -92,12 +110,18 @@ public class PgImport implements Callable<Boolean> {
     this.userKey = userKey;
     this.store = store;
     this.batchSize = cfg.batchSize;
+    this.threads = cfg.pgThreads;
+    this.copy = cfg.pgCopy;
     this.sessionFactory = sessionFactory;
     this.indexService = indexService;
     this.datasetDao = datasetDao;
-    verbatimIssueCache = Caffeine.newBuilder()
-      .maximumSize(10000)
-      .build(key -> store.getVerbatim(key).getIssues());
+  }
+
+  /**
+   * @return metrics of all records written to postgres so far
+   */
+  public ImportMetricsCollector getMetrics() {
+    return metrics;
   }
   
   @Override
@@ -113,14 +137,24 @@ public class PgImport implements Callable<Boolean> {
     insertReferences();
     
     insertNames();
-    
-    insertNameRelations();
 
-    insertTypeMaterial();
-
-    insertUsages();
-
-    insertUsageRelations();
+    // the remaining entities only depend on verbatim records, references and names
+    // so we can write them concurrently, each with its own batch session
+    runConcurrently(
+      () -> {
+        insertNameRelations();
+        return null;
+      },
+      () -> {
+        insertTypeMaterial();
+        return null;
+      },
+      () -> {
+        insertUsages();
+        insertUsageRelations();
+        return null;
+      }
+    );
 
     updateMetadata();
 		LOG.info("Completed dataset {} insert with {} verbatim records, " +
@@ -135,6 +169,52 @@ public class PgImport implements Callable<Boolean> {
 		return true;
 	}
 
+  /**
+   * Runs the given insert tasks concurrently using at most the configured number of threads and waits for all of them to finish.
+   * If any task fails all others are cancelled and the exception is rethrown.
+   * With a single configured thread the tasks are executed sequentially in the calling thread.
+   */
+  @SafeVarargs
+  private void runConcurrently(Callable<Void>... tasks) throws InterruptedException {
+    if (threads < 2) {
+      for (var t : tasks) {
+        callTask(t);
+      }
+      return;
+    }
+
+    ExecutorService exec = Executors.newFixedThreadPool(Math.min(threads, tasks.length), new NamedThreadFactory("pgimport-" + dataset.getKey()));
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (var t : tasks) {
+        futures.add(exec.submit(t));
+      }
+      for (var f : futures) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof InterruptedException) {
+            throw (InterruptedException) e.getCause();
+          }
+          throw Exceptions.asRuntimeException(e.getCause());
+        }
+      }
+    } finally {
+      // interrupts any still running tasks in case of errors
+      exec.shutdownNow();
+    }
+  }
+
+  private static void callTask(Callable<Void> task) throws InterruptedException {
+    try {
+      task.call();
+    } catch (InterruptedException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
 	@VisibleForTesting
   void updateMetadata() {
     try (SqlSession session = sessionFactory.openSession(true)) {
@@ -172,6 +252,10 @@ public class PgImport implements Callable<Boolean> {
   }
 
   private void insertVerbatim() throws InterruptedException {
+    if (copy) {
+      copyVerbatim();
+      return;
+    }
     try (final SqlSession session = sessionFactory.openSession(ExecutorType.BATCH, false)) {
       VerbatimRecordMapper mapper = session.getMapper(VerbatimRecordMapper.class);
       int counter = 0;
@@ -181,6 +265,7 @@ public class PgImport implements Callable<Boolean> {
         v.setId(null);
         v.setDatasetKey(dataset.getKey());
         mapper.create(v);
+        metrics.addVerbatim(v);
         batchCache.put(storeKey, v);
         if (++counter % batchSize == 0) {
           commitVerbatimBatch(session, batchCache);
@@ -192,6 +277,52 @@ public class PgImport implements Callable<Boolean> {
     }
   }
   
+  /**
+   * Streams all verbatim records via a single COPY command into postgres.
+   * As the partition or its data has been freshly (re)created we can reuse the neo store keys as the verbatim ids
+   * and avoid a roundtrip for every record to obtain its generated key.
+   * The id sequence is updated to the max id at the end.
+   */
+  private void copyVerbatim() throws InterruptedException {
+    final int datasetKey = dataset.getKey();
+    try (SqlSession session = sessionFactory.openSession(false)) {
+      PgConnection con = session.getConnection().unwrap(PgConnection.class);
+      final Iterator<VerbatimRecord> iter = store.verbatimList().iterator();
+      long cnt = PgCopyUtils.copy(con, "verbatim", VERBATIM_COLUMNS, new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return iter.hasNext();
+        }
+
+        @Override
+        public Object[] next() {
+          VerbatimRecord v = iter.next();
+          verbatimKeys.put(v.getId(), v.getId());
+          metrics.addVerbatim(v);
+          if (verbatimKeys.size() % batchSize == 0) {
+            runtimeInterruptIfCancelled();
+            LOG.debug("Copied {} verbatim records so far", verbatimKeys.size());
+          }
+          try {
+            return new Object[]{v.getId(), datasetKey, v.getLine(), v.getFile(),
+              v.getType() == null ? null : TermTypeHandler.toString(v.getType()),
+              v.getTerms() == null ? null : TERMS_WRITER.writeValueAsString(v.getTerms()),
+              v.getIssues()
+            };
+          } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      });
+      session.getMapper(DatasetPartitionMapper.class).updateIdSequence("verbatim", datasetKey);
+      session.commit();
+      LOG.info("Copied {} verbatim records", cnt);
+
+    } catch (IOException | SQLException e) {
+      throw new RuntimeException("Failed to copy verbatim records for dataset " + datasetKey, e);
+    }
+  }
+
   private void commitVerbatimBatch(SqlSession session, Map<Integer, VerbatimRecord> batchCache) throws InterruptedException {
     interruptIfCancelled();
     session.commit();
@@ -259,6 +390,7 @@ public class PgImport implements Callable<Boolean> {
         updateVerbatimUserEntity(r);
         updateUser(r);
         mapper.create(r);
+        metrics.addReference(r);
         rCounter.incrementAndGet();
         if (counter++ % batchSize == 0) {
           interruptIfCancelled();
@@ -286,6 +418,7 @@ public class PgImport implements Callable<Boolean> {
         updateVerbatimUserEntity(n.getName());
         updateReferenceKey(n.getName().getPublishedInId(), n.getName()::setPublishedInId);
         nm.create(n.getName());
+        metrics.addName(n.getName());
         if (n.namesIndexId != null) {
           nmm.create(n.getName(), n.getName().getSectorKey(), n.namesIndexId, n.namesIndexMatchType);
         }
@@ -307,7 +440,8 @@ public class PgImport implements Callable<Boolean> {
     nRelCounter = insertRelations(
       RelType::isNameRel,
       NameRelationMapper.class,
-      store::toNameRelation
+      store::toNameRelation,
+      metrics::addNameRelation
     );
   }
 
@@ -321,6 +455,7 @@ public class PgImport implements Callable<Boolean> {
         updateVerbatimUserEntity(tm);
         updateReferenceKey(tm);
         tmm.create(tm);
+        metrics.addTypeMaterial(tm);
         if (tmCounter.incrementAndGet() % batchSize == 0) {
           interruptIfCancelled();
           session.commit();
@@ -389,12 +524,14 @@ public class PgImport implements Callable<Boolean> {
                 }
               }
               synMapper.create(u.asSynonym());
+              metrics.addUsage(u.asSynonym());
               sCounter.incrementAndGet();
 
             } else if (u.isTaxon()){
               taxonMapper.create(updateUser(u.asTaxon()));
               tCounter.incrementAndGet();
               Taxon acc = u.asTaxon();
+              metrics.addUsage(acc);
 
               // push new postgres key onto stack for this taxon as we traverse in depth first
               // ES indexes only id,rank & name
@@ -406,6 +543,7 @@ public class PgImport implements Callable<Boolean> {
                 updateVerbatimUserEntity(vn, vKeys);
                 updateReferenceKey(vn);
                 vernacularMapper.create(vn, acc.getId());
+                metrics.addVernacular(vn);
                 vCounter.incrementAndGet();
               }
 
@@ -414,6 +552,7 @@ public class PgImport implements Callable<Boolean> {
                 updateVerbatimUserEntity(d, vKeys);
                 updateReferenceKey(d);
                 distributionMapper.create(d, acc.getId());
+                metrics.addDistribution(d);
                 diCounter.incrementAndGet();
               }
 
@@ -422,6 +561,7 @@ public class PgImport implements Callable<Boolean> {
                 u.treatment.setId(acc.getId());
                 updateVerbatimUserEntity(u.treatment, vKeys);
                 treatmentMapper.create(u.treatment);
+                metrics.addTreatment(u.treatment);
                 trCounter.incrementAndGet();
               }
 
@@ -430,6 +570,7 @@ public class PgImport implements Callable<Boolean> {
                 updateVerbatimUserEntity(m, vKeys);
                 updateReferenceKey(m);
                 mediaMapper.create(m, acc.getId());
+                metrics.addMedia(m);
                 mCounter.incrementAndGet();
               }
 
@@ -439,6 +580,7 @@ public class PgImport implements Callable<Boolean> {
                 updateReferenceKey(e);
                 e.setTarget(SimpleNameLink.of(acc.getId()));
                 estimateMapper.create(e);
+                metrics.addEstimate(e);
                 eCounter.incrementAndGet();
               }
 
@@ -488,6 +630,7 @@ public class PgImport implements Callable<Boolean> {
         while (iter.hasNext()) {
           Set<Integer> vKeys = new HashSet<>();
           NeoName nn = updateNeoName(iter.next(), vKeys);
+          metrics.addBareName();
           BareName bn = new BareName(nn.getName());
           NameUsageWrapper nuw = new NameUsageWrapper(bn);
           nuw.setPublisherKey(dataset.getGbifPublisherKey());
@@ -503,7 +646,10 @@ public class PgImport implements Callable<Boolean> {
     Set<Issue> issues = EnumSet.noneOf(Issue.class);
     for (Integer vk : vKeys) {
       if (vk != null) {
-        issues.addAll(verbatimIssueCache.get(vk));
+        Set<Issue> vIssues = store.getVerbatimIssues(vk);
+        if (vIssues != null) {
+          issues.addAll(vIssues);
+        }
       }
     }
     return issues;
@@ -552,21 +698,24 @@ public class PgImport implements Callable<Boolean> {
     tRelCounter = insertRelations(
       RelType::isTaxonConceptRel,
       TaxonConceptRelationMapper.class,
-      store::toConceptRelation
+      store::toConceptRelation,
+      metrics::addTaxonConceptRelation
     );
 
     // species interactions
     sRelCounter = insertRelations(
       RelType::isSpeciesInteraction,
       SpeciesInteractionMapper.class,
-      store::toSpeciesInteraction
+      store::toSpeciesInteraction,
+      metrics::addSpeciesInteraction
     );
   }
 
   private <T extends DatasetScopedEntity<Integer> & Referenced> int insertRelations (
     Predicate<RelType> filter,
     Class<? extends Create<T>> relMapperClass,
-    Function<Relationship, T> creator
+    Function<Relationship, T> creator,
+    Consumer<T> collector
   ) {
     int total = 0;
     String type = null;
@@ -584,6 +733,7 @@ public class PgImport implements Callable<Boolean> {
             T nr = creator.apply(rel);
             updateReferenceKey(nr);
             relMapper.create(updateUser(nr));
+            collector.accept(nr);
             if (counter.incrementAndGet() % batchSize == 0) {
               runtimeInterruptIfCancelled();
               session.commit();
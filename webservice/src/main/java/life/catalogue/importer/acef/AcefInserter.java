@@ -65,7 +65,7 @@ public class AcefInserter extends NeoCsvInserter {
     );
 
     // species
-    insertEntities(reader, AcefTerm.AcceptedSpecies,
+    insertEntities(reader, AcefTerm.AcceptedSpecies, true,
         inter::interpretSpecies,
         u -> store.createNameAndUsage(u) != null
     );
@@ -74,13 +74,13 @@ public class AcefInserter extends NeoCsvInserter {
     // accepted infraspecific names in ACEF have no genus or species
     // but a link to their parent species ID.
     // so we cannot update the scientific name yet - we do this in the relation inserter instead!
-    insertEntities(reader, AcefTerm.AcceptedInfraSpecificTaxa,
+    insertEntities(reader, AcefTerm.AcceptedInfraSpecificTaxa, true,
         inter::interpretInfraspecies,
         u -> store.createNameAndUsage(u) != null
     );
 
     // synonyms
-    insertEntities(reader, AcefTerm.Synonyms,
+    insertEntities(reader, AcefTerm.Synonyms, true,
         inter::interpretSynonym,
         this::createSynonymNameUsage
     );
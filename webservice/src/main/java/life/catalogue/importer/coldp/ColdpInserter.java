@@ -79,13 +79,13 @@ public class ColdpInserter extends NeoCsvInserter {
     insertExtendedReferences();
 
     // name_usage combination
-    insertEntities(reader, ColdpTerm.NameUsage,
+    insertEntities(reader, ColdpTerm.NameUsage, true,
       inter::interpretNameUsage,
       u -> store.createNameAndUsage(u) != null
     );
 
     // name & relations
-    insertEntities(reader, ColdpTerm.Name,
+    insertEntities(reader, ColdpTerm.Name, true,
         inter::interpretName,
         n -> store.names().create(n) != null
     );
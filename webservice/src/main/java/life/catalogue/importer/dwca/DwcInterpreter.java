@@ -17,6 +17,7 @@ import life.catalogue.parser.*;
 import org.gbif.dwc.terms.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +39,7 @@ public class DwcInterpreter extends InterpreterBase {
 
   private final MappingInfos mappingFlags;
   private final Term idTerm;
-  private final Map<String, String> dwcaID2taxonID = new HashMap<>();
+  private final Map<String, String> dwcaID2taxonID = new ConcurrentHashMap<>();
 
   public DwcInterpreter(DatasetSettings settings, MappingInfos mappingFlags, ReferenceFactory refFactory, NeoDb store) {
     super(settings, refFactory, store);
@@ -226,16 +227,18 @@ public class DwcInterpreter extends InterpreterBase {
     if (opt.isPresent()) {
       Name n = opt.get().getName();
       if (v.hasTerm(DwcTerm.namePublishedInID) || v.hasTerm(DwcTerm.namePublishedIn)) {
-        Reference ref = refFactory.fromDWC(v.getRaw(DwcTerm.namePublishedInID), v.get(DwcTerm.namePublishedIn), v.get(DwcTerm.namePublishedInYear), v);
-        if (ref != null) {
-          if (ref.getVerbatimKey() == null) {
-            // create new reference with verbatim key, we've never seen this before!
-            ref.setVerbatimKey(v.getId());
-            store.references().create(ref);
+        applyReference(() -> {
+          Reference ref = refFactory.fromDWC(v.getRaw(DwcTerm.namePublishedInID), v.get(DwcTerm.namePublishedIn), v.get(DwcTerm.namePublishedInYear), v);
+          if (ref != null) {
+            if (ref.getVerbatimKey() == null) {
+              // create new reference with verbatim key, we've never seen this before!
+              ref.setVerbatimKey(v.getId());
+              store.references().create(ref);
+            }
+            n.setPublishedInId(ref.getId());
+            n.setPublishedInPage(ref.getPage());
           }
-          n.setPublishedInId(ref.getId());
-          n.setPublishedInPage(ref.getPage());
-        }
+        });
       }
     }
     return opt;
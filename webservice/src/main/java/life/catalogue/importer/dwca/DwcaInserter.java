@@ -48,7 +48,7 @@ public class DwcaInserter extends NeoCsvInserter {
     inter = new DwcInterpreter(settings, reader.getMappingFlags(), refFactory, store);
 
     // taxon core only, extensions are interpreted later
-    insertEntities(reader, DwcTerm.Taxon,
+    insertEntities(reader, DwcTerm.Taxon, true,
         inter::interpretUsage,
         u -> store.createNameAndUsage(u) != null
     );
@@ -5,7 +5,6 @@ import life.catalogue.api.vocab.Issue;
 import life.catalogue.api.vocab.Origin;
 import life.catalogue.api.vocab.TaxonomicStatus;
 import life.catalogue.common.io.UTF8IoUtils;
-import life.catalogue.common.kryo.map.MapDbObjectSerializer;
 import life.catalogue.common.lang.Exceptions;
 import life.catalogue.importer.IdGenerator;
 import life.catalogue.importer.NormalizationFailedException;
@@ -23,19 +22,20 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.mapdb.DB;
-import org.mapdb.Serializer;
 import org.neo4j.graphalgo.LabelPropagationProc;
 import org.neo4j.graphalgo.UnionFindProc;
 import org.neo4j.graphdb.*;
@@ -60,6 +60,7 @@ import static life.catalogue.common.tax.NameFormatter.HYBRID_MARKER;
 /**
  * A persistence mechanism for storing core taxonomy & names propLabel and relations in an embedded
  * Neo4j database, while keeping a large BLOB of information in a separate MapDB storage.
+ * Verbatim records are kept in their own append only {@link VerbatimStore}.
  * <p>
  * Neo4j does not perform well storing large propLabel in its node and it is recommended to keep
  * large BLOBs or strings externally: https://neo4j.com/blog/dark-side-neo4j-worst-practices/
@@ -82,7 +83,9 @@ public class NeoDb {
 
   // verbatimKey sequence and lookup
   private final AtomicInteger verbatimSequence = new AtomicInteger(0);
-  private final Map<Integer, VerbatimRecord> verbatim;
+  private final VerbatimStore verbatim;
+  // verbatim records with a reserved key which are still being processed and not yet persisted
+  private final Map<Integer, VerbatimRecord> pending = new ConcurrentHashMap<>();
   private final ReferenceMapStore references;
   private final MapStore<TypeMaterial> typeMaterial;
   private final NeoNameStore names;
@@ -112,10 +115,8 @@ public class NeoDb {
     
     try {
       pool = new NeoKryoPool(8);
-      verbatim = mapDb.hashMap("verbatim")
-          .keySerializer(Serializer.INTEGER)
-          .valueSerializer(new MapDbObjectSerializer(VerbatimRecord.class, pool, 128))
-          .createOrOpen();
+      verbatim = new VerbatimStore(neoDir, pool);
+      verbatimSequence.set(verbatim.maxKey());
       references = new ReferenceMapStore(mapDb, pool, this::addIssues);
       typeMaterial = new MapStore<>(TypeMaterial.class, "tm", mapDb, pool, this::addIssues);
 
@@ -136,6 +137,9 @@ public class NeoDb {
    * Fully closes the dao leaving any potentially existing persistence files untouched.
    */
   public void close() {
+    if (verbatim != null) {
+      verbatim.close();
+    }
     try {
       if (mapDb != null && !mapDb.isClosed()) {
         mapDb.close();
@@ -581,15 +585,37 @@ public class NeoDb {
    * If created a new key is issued.
    */
   public void put(VerbatimRecord v) {
+    if (v.getId() != null && pending.containsKey(v.getId())) {
+      // reserved records are persisted once when released
+      return;
+    }
     if (v.hasChanged()) {
       if (v.getId() == null) {
         v.setId(verbatimSequence.incrementAndGet());
       }
-      verbatim.put(v.getId(), v);
+      verbatim.put(v);
       v.setHashCode();
     }
   }
 
+  /**
+   * Issues a new key for a verbatim record without persisting it yet.
+   * Until it is released the record is kept in memory and all lookups via getVerbatim return the very same instance,
+   * so issues flagged while processing the record end up in a single write.
+   */
+  public void reserve(VerbatimRecord v) {
+    v.setId(verbatimSequence.incrementAndGet());
+    pending.put(v.getId(), v);
+  }
+
+  /**
+   * Persists a previously reserved verbatim record.
+   */
+  public void release(VerbatimRecord v) {
+    pending.remove(v.getId());
+    put(v);
+  }
+
   /**
    * Creates a new name or taxon relation linking the 2 given nodes.
    * Additional NeoRel properties are stored as relation properties.
@@ -608,13 +634,28 @@ public class NeoDb {
    * @return the verbatim record belonging to the requested key as assigned from verbatimSequence
    */
   public VerbatimRecord getVerbatim(int key) {
-    VerbatimRecord rec = verbatim.get(key);
+    VerbatimRecord rec = pending.get(key);
+    if (rec != null) {
+      return rec;
+    }
+    rec = verbatim.get(key);
     if (rec != null) {
       rec.setHashCode();
     }
     return rec;
   }
   
+  /**
+   * @return the issues of the verbatim record belonging to the requested key without reading the entire record
+   */
+  public Set<Issue> getVerbatimIssues(int key) {
+    VerbatimRecord rec = pending.get(key);
+    if (rec != null) {
+      return rec.getIssues();
+    }
+    return verbatim.getIssues(key);
+  }
+
   /**
    * @return a lazy supplier for the verbatim record belonging to the requested key as assigned from verbatimSequence
    */
@@ -645,26 +686,29 @@ public class NeoDb {
   
   public void addIssues(Integer verbatimKey, Issue... issue) {
     if (verbatimKey != null) {
-      VerbatimRecord v = getVerbatim(verbatimKey);
-      if (v == null) {
-        LOG.warn("No verbatim exists for verbatim key {}", verbatimKey);
-      } else {
+      // existing records only get their issue bits updated in place
+      VerbatimRecord v = pending.get(verbatimKey);
+      if (v != null) {
         for (Issue is : issue) {
           if (is != null) {
             v.addIssue(is);
           }
         }
-        put(v);
+      } else if (!verbatim.addIssues(verbatimKey, issue)) {
+        LOG.warn("No verbatim exists for verbatim key {}", verbatimKey);
       }
     }
   }
 
+  /**
+   * @return all verbatim records read sequentially in the order they were written
+   */
   public Iterable<VerbatimRecord> verbatimList() {
-    return verbatim.values();
+    return verbatim;
   }
 
   public Stream<VerbatimRecord> verbatimList(Term rowType) {
-    return verbatim.values().stream().filter(v -> v.getType().equals(rowType));
+    return StreamSupport.stream(verbatim.spliterator(), false).filter(v -> v.getType().equals(rowType));
   }
 
   /**
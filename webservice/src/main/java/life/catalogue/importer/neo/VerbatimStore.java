@@ -0,0 +1,398 @@
+package life.catalogue.importer.neo;
+
+import life.catalogue.api.model.VerbatimRecord;
+import life.catalogue.api.vocab.Issue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import javax.annotation.Nullable;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.Pool;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Append only store for verbatim records keyed by their int verbatim key.
+ *
+ * Records are serialized with kryo into a memory mapped log file, each entry prefixed by its key and length.
+ * The log position of the latest entry of each key is kept in a primitive offset list indexed by the key.
+ * Issues are not part of the log but are kept as a fixed width bitset per key in a second memory mapped file,
+ * so flagging issues on existing records updates a few bits in place without deserializing or rewriting the record.
+ * A record is only appended again if its serialized content other than issues differs from its latest log entry.
+ *
+ * Iterating the store reads the log sequentially in the order records were written, skipping outdated entries.
+ * Existing files are scanned when the store is opened, so a persistent NeoDb can be reopened.
+ *
+ * All methods are thread safe.
+ */
+public class VerbatimStore implements AutoCloseable, Iterable<VerbatimRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(VerbatimStore.class);
+  private static final Issue[] ISSUES = Issue.values();
+  // log entry header: key and length of the serialized record
+  private static final int HEADER = 8;
+  private static final int LOG_SEGMENT_BITS = 26;
+  private static final long LOG_SEGMENT_SIZE = 1L << LOG_SEGMENT_BITS;
+  private static final long LOG_SEGMENT_MASK = LOG_SEGMENT_SIZE - 1;
+  // issue bitset rows
+  private static final int ISSUE_WORDS = (ISSUES.length + 63) / 64;
+  private static final int ISSUE_ROW_SIZE = ISSUE_WORDS * 8;
+  private static final int ISSUE_SEGMENT_BITS = 16;
+  private static final int ISSUE_SEGMENT_ROWS = 1 << ISSUE_SEGMENT_BITS;
+  private static final int ISSUE_SEGMENT_MASK = ISSUE_SEGMENT_ROWS - 1;
+
+  private final File logFile;
+  private final File issueFile;
+  private final FileChannel logChannel;
+  private final FileChannel issueChannel;
+  private final List<MappedByteBuffer> logSegments = new ArrayList<>();
+  private final List<MappedByteBuffer> issueSegments = new ArrayList<>();
+  private final Pool<Kryo> pool;
+  private final Output output = new Output(1024, -1);
+  // key -> log position of the latest entry, -1 if not existing
+  private final LongArrayList offsets = new LongArrayList();
+  private long end = 0;
+  private int size = 0;
+  private int maxKey = 0;
+
+  /**
+   * Opens or creates a verbatim store in the given directory.
+   */
+  public VerbatimStore(File dir, Pool<Kryo> pool) {
+    this.pool = pool;
+    this.logFile = new File(dir, "verbatim.log");
+    this.issueFile = new File(dir, "verbatim-issues.bin");
+    try {
+      logChannel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      issueChannel = FileChannel.open(issueFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      scan();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open verbatim store at " + dir, e);
+    }
+  }
+
+  /**
+   * Rebuilds the offset index from an existing log.
+   */
+  private void scan() throws IOException {
+    final long fileSize = logChannel.size();
+    long pos = 0;
+    while (pos + HEADER <= fileSize) {
+      if (logOffset(pos) + HEADER > LOG_SEGMENT_SIZE) {
+        pos = nextLogSegment(pos);
+        continue;
+      }
+      MappedByteBuffer seg = logSegment(pos);
+      int off = logOffset(pos);
+      int key = seg.getInt(off);
+      if (key == 0) {
+        // unused remainder of a segment
+        pos = nextLogSegment(pos);
+        continue;
+      }
+      index(key, pos);
+      pos += HEADER + seg.getInt(off + 4);
+      end = pos;
+    }
+    if (size > 0) {
+      LOG.info("Opened existing verbatim store with {} records at {}", size, logFile);
+    }
+  }
+
+  /**
+   * Writes a verbatim record with an existing key.
+   * If only its issues have changed since it was last written only the issue bitset is updated.
+   */
+  public synchronized void put(VerbatimRecord v) {
+    final int key = Objects.requireNonNull(v.getId(), "verbatim key required");
+    final int len = serialize(v);
+    if (!exists(key) || !isLatest(key, len)) {
+      append(key, len);
+    }
+    writeIssues(key, v.getIssues());
+  }
+
+  /**
+   * Serializes a record without its issues into the output buffer.
+   * @return length of the serialized record
+   */
+  private int serialize(VerbatimRecord v) {
+    // issues are kept in their own column
+    Set<Issue> issues = v.getIssues();
+    v.setIssues(EnumSet.noneOf(Issue.class));
+    Kryo kryo = pool.obtain();
+    try {
+      output.reset();
+      kryo.writeObject(output, v);
+    } finally {
+      pool.free(kryo);
+      v.setIssues(issues);
+    }
+    return output.position();
+  }
+
+  /**
+   * @return true if the serialized record in the output buffer equals the latest log entry of the key
+   */
+  private boolean isLatest(int key, int len) {
+    long pos = offsets.getLong(key);
+    MappedByteBuffer seg = logSegment(pos);
+    int off = logOffset(pos);
+    if (seg.getInt(off + 4) != len) {
+      return false;
+    }
+    ByteBuffer stored = seg.duplicate();
+    stored.limit(off + HEADER + len);
+    stored.position(off + HEADER);
+    return stored.equals(ByteBuffer.wrap(output.getBuffer(), 0, len));
+  }
+
+  private void append(int key, int len) {
+    if (len + HEADER > LOG_SEGMENT_SIZE) {
+      throw new IllegalArgumentException("Verbatim record " + key + " too large to be stored: " + len + " bytes");
+    }
+    long pos = end;
+    if (logOffset(pos) + HEADER + len > LOG_SEGMENT_SIZE) {
+      pos = nextLogSegment(pos);
+    }
+    MappedByteBuffer seg = logSegment(pos);
+    int off = logOffset(pos);
+    seg.putInt(off, key);
+    seg.putInt(off + 4, len);
+    ByteBuffer buf = seg.duplicate();
+    buf.position(off + HEADER);
+    buf.put(output.getBuffer(), 0, len);
+    end = pos + HEADER + len;
+    index(key, pos);
+  }
+
+  private void index(int key, long pos) {
+    while (offsets.size() <= key) {
+      offsets.add(-1L);
+    }
+    if (offsets.getLong(key) < 0) {
+      size++;
+    }
+    offsets.set(key, pos);
+    if (key > maxKey) {
+      maxKey = key;
+    }
+  }
+
+  /**
+   * @return the verbatim record incl its issues or null if not existing
+   */
+  public synchronized VerbatimRecord get(int key) {
+    return exists(key) ? read(offsets.getLong(key), key) : null;
+  }
+
+  /**
+   * @return the issues of a verbatim record without reading the record itself, null if the record does not exist
+   */
+  @Nullable
+  public synchronized Set<Issue> getIssues(int key) {
+    return exists(key) ? readIssues(key) : null;
+  }
+
+  /**
+   * Adds issues to an existing record, updating its bitset in place.
+   * @return false if no record exists for the key
+   */
+  public synchronized boolean addIssues(int key, Issue... issues) {
+    if (!exists(key)) {
+      return false;
+    }
+    MappedByteBuffer seg = issueSegment(key);
+    int off = issueOffset(key);
+    for (Issue is : issues) {
+      if (is != null) {
+        int idx = off + (is.ordinal() >>> 6) * 8;
+        seg.putLong(idx, seg.getLong(idx) | (1L << (is.ordinal() & 63)));
+      }
+    }
+    return true;
+  }
+
+  public synchronized boolean exists(int key) {
+    return key > 0 && key < offsets.size() && offsets.getLong(key) >= 0;
+  }
+
+  /**
+   * @return number of distinct records
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return the largest key of all stored records, 0 if empty
+   */
+  public synchronized int maxKey() {
+    return maxKey;
+  }
+
+  private VerbatimRecord read(long pos, int key) {
+    MappedByteBuffer seg = logSegment(pos);
+    int off = logOffset(pos);
+    byte[] bytes = new byte[seg.getInt(off + 4)];
+    ByteBuffer buf = seg.duplicate();
+    buf.position(off + HEADER);
+    buf.get(bytes);
+    Kryo kryo = pool.obtain();
+    try {
+      VerbatimRecord v = kryo.readObject(new Input(bytes), VerbatimRecord.class);
+      v.setIssues(readIssues(key));
+      return v;
+    } finally {
+      pool.free(kryo);
+    }
+  }
+
+  private Set<Issue> readIssues(int key) {
+    Set<Issue> issues = EnumSet.noneOf(Issue.class);
+    MappedByteBuffer seg = issueSegment(key);
+    int off = issueOffset(key);
+    for (int w = 0; w < ISSUE_WORDS; w++) {
+      long word = seg.getLong(off + w * 8);
+      while (word != 0) {
+        int bit = Long.numberOfTrailingZeros(word);
+        issues.add(ISSUES[w * 64 + bit]);
+        word &= word - 1;
+      }
+    }
+    return issues;
+  }
+
+  private void writeIssues(int key, Set<Issue> issues) {
+    long[] words = new long[ISSUE_WORDS];
+    if (issues != null) {
+      for (Issue is : issues) {
+        words[is.ordinal() >>> 6] |= 1L << (is.ordinal() & 63);
+      }
+    }
+    MappedByteBuffer seg = issueSegment(key);
+    int off = issueOffset(key);
+    for (int w = 0; w < ISSUE_WORDS; w++) {
+      seg.putLong(off + w * 8, words[w]);
+    }
+  }
+
+  /**
+   * Iterates over all records in the order they were last written.
+   * Records written while iterating are not included.
+   */
+  @NotNull
+  @Override
+  public Iterator<VerbatimRecord> iterator() {
+    return new LogIterator();
+  }
+
+  private class LogIterator implements Iterator<VerbatimRecord> {
+    private final long last;
+    private long pos = 0;
+    private VerbatimRecord next;
+
+    LogIterator() {
+      synchronized (VerbatimStore.this) {
+        last = end;
+      }
+      next = fetch();
+    }
+
+    private VerbatimRecord fetch() {
+      synchronized (VerbatimStore.this) {
+        while (pos < last) {
+          if (logOffset(pos) + HEADER > LOG_SEGMENT_SIZE) {
+            pos = nextLogSegment(pos);
+            continue;
+          }
+          MappedByteBuffer seg = logSegment(pos);
+          int off = logOffset(pos);
+          int key = seg.getInt(off);
+          if (key == 0) {
+            pos = nextLogSegment(pos);
+            continue;
+          }
+          long curr = pos;
+          pos += HEADER + seg.getInt(off + 4);
+          // skip outdated entries of records that were appended again later
+          if (offsets.getLong(key) == curr) {
+            return read(curr, key);
+          }
+        }
+        return null;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public VerbatimRecord next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      VerbatimRecord v = next;
+      next = fetch();
+      return v;
+    }
+  }
+
+  private static int logOffset(long pos) {
+    return (int) (pos & LOG_SEGMENT_MASK);
+  }
+
+  private static long nextLogSegment(long pos) {
+    return ((pos >>> LOG_SEGMENT_BITS) + 1) << LOG_SEGMENT_BITS;
+  }
+
+  private MappedByteBuffer logSegment(long pos) {
+    int idx = (int) (pos >>> LOG_SEGMENT_BITS);
+    return segment(logSegments, idx, logChannel, LOG_SEGMENT_SIZE, logFile);
+  }
+
+  private static int issueOffset(int key) {
+    return (key & ISSUE_SEGMENT_MASK) * ISSUE_ROW_SIZE;
+  }
+
+  private MappedByteBuffer issueSegment(int key) {
+    int idx = key >>> ISSUE_SEGMENT_BITS;
+    return segment(issueSegments, idx, issueChannel, (long) ISSUE_SEGMENT_ROWS * ISSUE_ROW_SIZE, issueFile);
+  }
+
+  private static MappedByteBuffer segment(List<MappedByteBuffer> segments, int idx, FileChannel channel, long size, File file) {
+    while (idx >= segments.size()) {
+      try {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * size, size));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to extend verbatim store " + file, e);
+      }
+    }
+    return segments.get(idx);
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      logChannel.close();
+      issueChannel.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close verbatim store {}", logFile, e);
+    }
+  }
+}
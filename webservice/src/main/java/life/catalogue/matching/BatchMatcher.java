@@ -0,0 +1,106 @@
+package life.catalogue.matching;
+
+import life.catalogue.api.model.*;
+import life.catalogue.api.vocab.Issue;
+import life.catalogue.concurrent.ParallelOrderedMapper;
+import life.catalogue.importer.NameInterpreter;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * Interprets and matches names in batches against a single dataset,
+ * prefetching the candidates and classifications of an entire batch at once.
+ * Used by matching jobs and the synchronous batch matching of the matching resource.
+ */
+public class BatchMatcher {
+  public static final int BATCH_SIZE = 100;
+  private final int datasetKey;
+  private final UsageMatcherGlobal matcher;
+  private final NameInterpreter interpreter = new NameInterpreter(new DatasetSettings());
+
+  public static class IssueName {
+    public final SimpleNameClassified<SimpleName> name;
+    public final IssueContainer issues;
+
+    public IssueName(SimpleNameClassified<SimpleName> name) {
+      this(name, new IssueContainer.Simple());
+    }
+
+    public IssueName(SimpleNameClassified<SimpleName> name, IssueContainer issues) {
+      this.issues = issues;
+      this.name = name;
+    }
+  }
+
+  public BatchMatcher(int datasetKey, UsageMatcherGlobal matcher) {
+    this.datasetKey = datasetKey;
+    this.matcher = matcher;
+  }
+
+  /**
+   * Matches all names and passes the results to the consumer in the original order of names.
+   * The consumer is always called from the calling thread.
+   *
+   * @param threads number of threads to match batches in parallel, 1 to match in the calling thread
+   * @param name name used for the worker threads
+   * @return number of matched names
+   */
+  public int matchAll(Iterator<IssueName> names, int threads, String name, Consumer<UsageMatchWithOriginal> consumer) throws InterruptedException {
+    if (threads > 1) {
+      try (var mapper = ParallelOrderedMapper.<IssueName, UsageMatchWithOriginal>batched(name, threads, BATCH_SIZE, this::matchBatch)) {
+        return mapper.process(names, consumer);
+      }
+    }
+    int counter = 0;
+    var iter = Iterators.partition(names, BATCH_SIZE);
+    while (iter.hasNext()) {
+      var batch = iter.next();
+      matchBatch(batch).forEach(consumer);
+      counter += batch.size();
+    }
+    return counter;
+  }
+
+  /**
+   * Interprets and matches a batch of names, prefetching all candidates of the batch at once.
+   * This method is thread safe.
+   */
+  public List<UsageMatchWithOriginal> matchBatch(List<IssueName> batch) {
+    List<NameUsageBase> usages = new ArrayList<>(batch.size());
+    for (IssueName n : batch) {
+      usages.add(interpret(n));
+    }
+    matcher.prefetch(datasetKey, usages.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+
+    List<UsageMatchWithOriginal> matches = new ArrayList<>(batch.size());
+    for (int idx = 0; idx < batch.size(); idx++) {
+      matches.add(match(batch.get(idx), usages.get(idx)));
+    }
+    return matches;
+  }
+
+  private NameUsageBase interpret(IssueName n) {
+    var opt = interpreter.interpret(n.name, n.issues);
+    if (opt.isPresent()) {
+      return (NameUsageBase) NameUsage.create(n.name.getStatus(), opt.get().getName());
+    }
+    n.issues.addIssue(Issue.UNPARSABLE_NAME);
+    return null;
+  }
+
+  private UsageMatchWithOriginal match(IssueName n, @Nullable NameUsageBase nu) {
+    UsageMatch match;
+    if (nu != null) {
+      match = matcher.match(datasetKey, nu, n.name.getClassification());
+    } else {
+      match = UsageMatch.empty(0);
+    }
+    return new UsageMatchWithOriginal(match, n.issues, n.name);
+  }
+}
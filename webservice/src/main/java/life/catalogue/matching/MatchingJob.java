@@ -19,16 +19,14 @@ import life.catalogue.csv.CsvReader;
 import life.catalogue.dao.TreeStreams;
 import life.catalogue.db.mapper.NameUsageMapper;
 import life.catalogue.db.mapper.TaxonMapper;
-import life.catalogue.importer.NameInterpreter;
+import life.catalogue.matching.BatchMatcher.IssueName;
 import life.catalogue.parser.*;
 
 import org.gbif.dwc.terms.DwcTerm;
 import org.gbif.dwc.terms.Term;
 
 import java.io.*;
-import java.util.List;
-import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.*;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -55,7 +53,6 @@ public class MatchingJob extends DatasetBlockingJob {
   private static final Logger LOG = LoggerFactory.getLogger(MatchingJob.class);
   private final SqlSessionFactory factory;
   private final UsageMatcherGlobal matcher;
-  private final NameInterpreter interpreter = new NameInterpreter(new DatasetSettings());
   private final WsServerConfig cfg;
   // job specifics
   private final MatchingRequest req;
@@ -143,17 +140,7 @@ public class MatchingJob extends DatasetBlockingJob {
     }
   }
 
-  static class IssueName {
-    final SimpleNameClassified<SimpleName> name;
-    final IssueContainer issues;
-
-    IssueName(SimpleNameClassified<SimpleName> name, IssueContainer issues) {
-      this.issues = issues;
-      this.name = name;
-    }
-  }
-
-  private void writeMatches(AbstractWriter<?> writer, Stream<IssueName> names) throws IOException {
+  private void writeMatches(AbstractWriter<?> writer, Stream<IssueName> names) throws IOException, InterruptedException {
     // write header
     writer.writeHeaders(
       "inputID",
@@ -173,48 +160,51 @@ public class MatchingJob extends DatasetBlockingJob {
     );
 
     // match & write to file
-    names.map(this::match).forEach(m -> {
-      var row = new String[13];
-      row[0] = m.original.getId();
-      row[1] = str(m.original.getRank());
-      row[2] = m.original.getLabel();
-      row[3] = str(m.type);
-      if (m.usage != null) {
-        row[4] = m.usage.getId();
-        row[5] = str(m.usage.getRank());
-        row[6] = m.usage.getLabel();
-        row[7] = m.usage.getName();
-        row[8] = m.usage.getAuthorship();
-        row[9] = str(m.usage.getStatus());
-        if (m.usage.getStatus().isSynonym() && !m.usage.getClassification().isEmpty()) {
-          row[10] = m.usage.getClassification().get(0).getLabel();
-        } else {
-          row[10] = null;
-        }
-        row[11] = str(m.usage.getClassification());
-        row[12] = concat(m.issues);
-      }
-      writer.writeRow(row);
-    });
+    final long start = System.currentTimeMillis();
+    if (cfg.matchingThreads > 1) {
+      LOG.info("Match names in parallel using {} threads", cfg.matchingThreads);
+    }
+    new BatchMatcher(datasetKey, matcher).matchAll(names.iterator(), cfg.matchingThreads, "matching-" + getKey(), m -> writeMatch(writer, m));
     writer.flush();
+    final long millis = Math.max(1, System.currentTimeMillis() - start);
+    LOG.info("Matched {} names in {}s, {} names/s", counter.size(), millis / 1000, counter.size() * 1000L / millis);
   }
 
-  private UsageMatchWithOriginal match(IssueName n) {
-    UsageMatch match;
-    var opt = interpreter.interpret(n.name, n.issues);
-    if (opt.isPresent()) {
-      NameUsageBase nu = (NameUsageBase) NameUsage.create(n.name.getStatus(), opt.get().getName());
-      match = matcher.match(datasetKey, nu, n.name.getClassification());
-    } else {
-      match = UsageMatch.empty(0);
-      n.issues.addIssue(Issue.UNPARSABLE_NAME);
+  private void writeMatch(AbstractWriter<?> writer, UsageMatchWithOriginal m) {
+    counter.inc(m.original);
+    var row = new String[13];
+    row[0] = m.original.getId();
+    row[1] = str(m.original.getRank());
+    row[2] = m.original.getLabel();
+    row[3] = str(m.type);
+    if (m.usage != null) {
+      row[4] = m.usage.getId();
+      row[5] = str(m.usage.getRank());
+      row[6] = m.usage.getLabel();
+      row[7] = m.usage.getName();
+      row[8] = m.usage.getAuthorship();
+      row[9] = str(m.usage.getStatus());
+      if (m.usage.getStatus().isSynonym() && !m.usage.getClassification().isEmpty()) {
+        row[10] = m.usage.getClassification().get(0).getLabel();
+      } else {
+        row[10] = null;
+      }
+      row[11] = str(m.usage.getClassification());
+      row[12] = concat(m.issues);
     }
-    return new UsageMatchWithOriginal(match, n.issues, n.name);
+    writer.writeRow(row);
   }
 
   private Stream<IssueName> streamUpload() throws IOException {
-    final InputStream data = new FileInputStream(req.getUpload());
-    final AbstractParser<?> parser = req.getUpload().getName().endsWith("csv") ?
+    return streamTabular(new FileInputStream(req.getUpload()), req.getUpload().getName().endsWith("csv"));
+  }
+
+  /**
+   * Reads names from CSV or TSV data with a header row using ColDP or DwC terms as column names.
+   * A scientificName column is required.
+   */
+  public static Stream<IssueName> streamTabular(InputStream data, boolean csv) throws IOException {
+    final AbstractParser<?> parser = csv ?
                                CsvReader.newParser(CsvReader.csvSetting()) :
                                CsvReader.newParser(CsvReader.tsvSetting());
 
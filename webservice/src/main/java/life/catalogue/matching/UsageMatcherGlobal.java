@@ -13,6 +13,7 @@ import life.catalogue.db.mapper.NameUsageMapper;
 import org.gbif.nameparser.api.Rank;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.ibatis.session.SqlSession;
@@ -22,8 +23,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 
 import javax.annotation.Nullable;
 
@@ -32,9 +35,14 @@ import javax.annotation.Nullable;
  * but implements some further logic for canonical names and cross code homonyms.
  *
  * Matches are retrieved from the database and are cached in particular for uninomials / higher taxa.
+ * Names without any usage in a dataset are cached as empty candidate lists, but only for a short time
+ * as usages might be added to the dataset without passing through {@link #add(NameUsageBase)}.
  */
 public class UsageMatcherGlobal {
   private final static Logger LOG = LoggerFactory.getLogger(UsageMatcherGlobal.class);
+  private final static int PREFETCH_CHUNK_SIZE = 1000;
+  // time in minutes after which cached names without any usage are looked up again
+  private final static long EMPTY_EXPIRY = 10;
   private final NameIndex nameIndex;
   private final UsageCache uCache;
   private final SqlSessionFactory factory;
@@ -42,17 +50,42 @@ public class UsageMatcherGlobal {
   // key = datasetKey + canonical nidx
   private final LoadingCache<DSID<Integer>, List<SimpleNameWithPub>> usages = Caffeine.newBuilder()
                                                                                          .maximumSize(100_000)
+                                                                                         .expireAfter(new EmptyExpiry())
                                                                                          .build(this::loadUsagesByNidx);
 
+  /**
+   * Expires empty candidate lists after EMPTY_EXPIRY minutes while all other lists stay until they get evicted or cleared.
+   */
+  private static class EmptyExpiry implements Expiry<DSID<Integer>, List<SimpleNameWithPub>> {
+    private static long duration(List<SimpleNameWithPub> value) {
+      return value.isEmpty() ? TimeUnit.MINUTES.toNanos(EMPTY_EXPIRY) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public long expireAfterCreate(DSID<Integer> key, List<SimpleNameWithPub> value, long currentTime) {
+      return duration(value);
+    }
+
+    @Override
+    public long expireAfterUpdate(DSID<Integer> key, List<SimpleNameWithPub> value, long currentTime, long currentDuration) {
+      return duration(value);
+    }
+
+    @Override
+    public long expireAfterRead(DSID<Integer> key, List<SimpleNameWithPub> value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+
   /**
    * @param nidx a names index id wrapped by a datasetKey
-   * @return list of matching usages for the requested dataset only
+   * @return list of matching usages for the requested dataset only, empty if there are none
    */
   private List<SimpleNameWithPub> loadUsagesByNidx(@NonNull DSID<Integer> nidx) {
     try (SqlSession session = factory.openSession(true)) {
       var result = session.getMapper(NameUsageMapper.class).listByCanonNIDX(nidx.getDatasetKey(), nidx.getId());
-      // avoid empty lists which get cached
-      return result == null || result.isEmpty() ? null : result;
+      // empty lists are cached, but expire soon
+      return result == null ? List.of() : result;
     }
   }
 
@@ -142,13 +175,66 @@ public class UsageMatcherGlobal {
     var canonNidx = matchNidxIfNeeded(datasetKey, nu);
     if (canonNidx != null) {
       var existing = usages.get(canonNidx);
-      if (existing != null && !existing.isEmpty()) {
-        return match(datasetKey, nu, existing, parents);
+      if (!existing.isEmpty()) {
+        // copy the cached list as matching modifies it and we might be called concurrently
+        return match(datasetKey, nu, new ArrayList<>(existing), parents);
       }
     }
     return UsageMatch.empty(datasetKey);
   }
 
+  /**
+   * Prefetches all match candidates for a batch of usages together with the full classification of all candidates
+   * in just a few set based queries, populating the matcher and the usage cache.
+   * Subsequent matches of the same usages will then not hit the database anymore.
+   * Usages without any candidate are cached as empty lists which expire like the ones loaded for single matches.
+   * The usages will be matched to the names index if they do not have a names index id yet.
+   *
+   * @param datasetKey the target dataset to match against
+   * @param batch usages to be matched afterwards
+   */
+  public void prefetch(int datasetKey, Collection<? extends NameUsageBase> batch) {
+    Set<Integer> missing = new HashSet<>();
+    for (var nu : batch) {
+      var canonNidx = matchNidxIfNeeded(datasetKey, nu);
+      if (canonNidx != null && usages.getIfPresent(canonNidx) == null) {
+        missing.add(canonNidx.getId());
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    try (SqlSession session = factory.openSession(true)) {
+      var num = session.getMapper(NameUsageMapper.class);
+      Map<Integer, List<SimpleNameWithPub>> candidates = new HashMap<>();
+      for (var chunk : Iterables.partition(missing, PREFETCH_CHUNK_SIZE)) {
+        for (var sn : num.listByCanonNIDXs(datasetKey, chunk)) {
+          candidates.computeIfAbsent(sn.getCanonicalId(), k -> new ArrayList<>()).add(sn);
+        }
+      }
+      // load all parents not yet cached together with their ancestors
+      Set<String> parentIDs = new HashSet<>();
+      for (var group : candidates.values()) {
+        for (var sn : group) {
+          if (sn.getParent() != null && !uCache.contains(DSID.of(datasetKey, sn.getParent()))) {
+            parentIDs.add(sn.getParent());
+          }
+        }
+      }
+      for (var chunk : Iterables.partition(parentIDs, PREFETCH_CHUNK_SIZE)) {
+        for (var p : num.listSimplePubWithAncestors(datasetKey, chunk)) {
+          uCache.put(datasetKey, p);
+        }
+      }
+      // also cache names without any candidate so their matches do not query the database again until they expire
+      for (Integer cid : missing) {
+        usages.put(DSID.of(datasetKey, cid), candidates.getOrDefault(cid, List.of()));
+      }
+      LOG.debug("Prefetched {} candidates for {} canonical names and {} parents in dataset {}", candidates.size(), missing.size(), parentIDs.size(), datasetKey);
+    }
+  }
+
   public SimpleNameWithNidx toSimpleName(NameUsageBase nu) {
     if (nu != null) {
       var canonNidx = matchNidxIfNeeded(nu.getDatasetKey(), nu);
@@ -353,13 +439,12 @@ public class UsageMatcherGlobal {
     if (canonNidx != null) {
 
       var before = usages.get(canonNidx);
-      if (before == null) {
-        // nothing existing, even after loading the cache from the db. Create a new list
-        before = new ArrayList<>();
-        usages.put(canonNidx, before);
-      }
+      // never modify cached lists in place as they might be read concurrently, replace them with a copy.
+      // This also replaces cached empty lists so the new usage is found right away
+      var after = new ArrayList<>(before);
       var sn = new SimpleNameWithPub(nu, canonNidx.getId());
-      before.add(sn);
+      after.add(sn);
+      usages.put(canonNidx, after);
       return sn;
 
     } else {
@@ -5,13 +5,21 @@ import life.catalogue.api.vocab.DatasetOrigin;
 import life.catalogue.api.vocab.ImportState;
 import life.catalogue.common.lang.Exceptions;
 import life.catalogue.concurrent.DatasetBlockingJob;
+import life.catalogue.concurrent.JobConfig;
 import life.catalogue.concurrent.JobPriority;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.dao.*;
 import life.catalogue.db.CopyDataset;
 import life.catalogue.db.mapper.*;
 import life.catalogue.es.NameUsageIndexService;
 
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
 
 import javax.validation.Validator;
 
@@ -20,11 +28,17 @@ import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import static life.catalogue.common.lang.Exceptions.interruptIfCancelled;
 
 /**
  * Abstract job that copies a project with all its data into a new dataset
  * and allows for custom pre/post work to be done.
+ *
+ * Tables are copied concurrently into the new, not yet attached partition tables.
+ * Their keys and indices are then built concurrently before the partitions are finally attached,
+ * so attaching only needs to validate foreign keys.
  */
 public abstract class AbstractProjectCopy extends DatasetBlockingJob {
   protected static final Logger LOG = LoggerFactory.getLogger(AbstractProjectCopy.class);
@@ -44,7 +58,10 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
   private final DatasetOrigin newDatasetOrigin;
   protected final boolean mapIds;
   protected DatasetSettings settings;
-
+  // copied records by entity
+  private final Map<String, Integer> copied = new ConcurrentHashMap<>();
+  // partition tables with all keys and indices built
+  private final Set<String> indexed = ConcurrentHashMap.newKeySet();
 
   public AbstractProjectCopy(String actionName, SqlSessionFactory factory, DatasetImportDao diDao, DatasetDao dDao, NameUsageIndexService indexService, Validator validator,
                              int userKey, int datasetKey, boolean mapIds) {
@@ -90,6 +107,22 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
     return metrics;
   }
 
+  /**
+   * @return number of copied records for each entity copied so far
+   */
+  @JsonProperty
+  public Map<String, Integer> getCopiedRecords() {
+    return Map.copyOf(copied);
+  }
+
+  /**
+   * @return partition tables for which all indices have been built so far
+   */
+  @JsonProperty
+  public Set<String> getIndexedTables() {
+    return Set.copyOf(indexed);
+  }
+
   void prepWork() throws Exception {
     // dont do nothing - override if needed
   }
@@ -113,10 +146,6 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
       // prepare new tables
       updateState(ImportState.PROCESSING);
       Partitioner.partition(factory, newDatasetKey, newDatasetOrigin);
-      // TODO: build indices concurrently AFTER copying data to be much quicker
-      // Note: attaching also creates missing indices and constraint from the master partition - if they are missing that takes long and blocks queries meanwhile
-      // build indices and attach partition - the actual copy commands use the concrete table names so we can load them without being attached yet
-      Partitioner.attach(factory, newDatasetKey, newDatasetOrigin);
 
       // is an id mapping table needed?
       if (mapIds) {
@@ -140,15 +169,20 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
       checkIfCancelled();
       prepWork();
 
-      // copy data
+      // copy data - the actual copy commands use the concrete table names so we can load them without being attached yet
       checkIfCancelled();
       copyData();
 
+      // attaching also creates missing indices and constraints from the master partition which takes long and blocks queries meanwhile
+      // so we build them concurrently before
+      checkIfCancelled();
+      buildIndices();
+      checkIfCancelled();
+      Partitioner.attach(factory, newDatasetKey, newDatasetOrigin);
+
       // at last copy name matches - we need an attached table for this to fulfill constraints
       checkIfCancelled();
-      try (SqlSession session = factory.openSession(true)) {
-        copyTable(NameMatch.class, NameMatchMapper.class, session);
-      }
+      copyTask(NameMatch.class, NameMatchMapper.class).call();
 
       // subclass specifics
       checkIfCancelled();
@@ -215,29 +249,106 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
     diDao.update(metrics);
   }
 
+  private int threads() {
+    JobConfig cfg = getCfg();
+    return cfg == null ? 1 : cfg.copyThreads;
+  }
+
+  /**
+   * Copies all tables concurrently. The partition tables are not attached yet and have no foreign keys,
+   * so the order of copying does not matter. The largest tables are started first.
+   */
   private void copyData() throws InterruptedException {
-    LOG.info("Copy data into dataset {}", newDatasetKey);
+    LOG.info("Copy data into dataset {} using {} threads", newDatasetKey, threads());
     updateState(ImportState.INSERTING);
-    try (SqlSession session = factory.openSession(true)) {
-      copyTable(Sector.class, SectorMapper.class, session);
-      copyTable(EditorialDecision.class, DecisionMapper.class, session);
-      copyTable(SpeciesEstimate.class, EstimateMapper.class, session);
-
-      copyTable(VerbatimRecord.class, VerbatimRecordMapper.class, session);
-
-      copyTable(Reference.class, ReferenceMapper.class, session);
+    runConcurrently("copy", List.of(
+      copyTask(NameUsage.class, NameUsageMapper.class),
+      copyTask(Name.class, NameMapper.class),
+      copyTask(VerbatimRecord.class, VerbatimRecordMapper.class),
+      copyTask(VerbatimSource.class, VerbatimSourceMapper.class),
+      copyTask(Reference.class, ReferenceMapper.class),
+      copyTask(NameRelation.class, NameRelationMapper.class),
+      copyTask(TypeMaterial.class, TypeMaterialMapper.class),
+      copyTask(VernacularName.class, VernacularNameMapper.class),
+      copyTask(Distribution.class, DistributionMapper.class),
+      copyTask(Treatment.class, TreatmentMapper.class),
+      copyTask(Media.class, MediaMapper.class),
+      copyTask(Sector.class, SectorMapper.class),
+      copyTask(EditorialDecision.class, DecisionMapper.class),
+      copyTask(SpeciesEstimate.class, EstimateMapper.class)
+    ));
+  }
 
-      copyTable(Name.class, NameMapper.class, session);
-      copyTable(NameRelation.class, NameRelationMapper.class, session);
-      copyTable(TypeMaterial.class, TypeMaterialMapper.class, session);
+  private <M extends CopyDataset> Callable<Void> copyTask(Class<?> entity, Class<M> mapperClass) {
+    return () -> {
+      interruptIfCancelled();
+      final long start = System.currentTimeMillis();
+      try (SqlSession session = factory.openSession(true)) {
+        copied.put(entity.getSimpleName(), copyTable(entity, mapperClass, session));
+      }
+      LOG.debug("Copying {}s into dataset {} took {}ms", entity.getSimpleName(), newDatasetKey, System.currentTimeMillis() - start);
+      return null;
+    };
+  }
 
-      copyTable(NameUsage.class, NameUsageMapper.class, session);
-      copyTable(VerbatimSource.class, VerbatimSourceMapper.class, session);
+  /**
+   * Builds all keys and indices of the main tables on the new, not yet attached partition tables.
+   * Each table is handled by a single thread, adding keys first which require an exclusive table lock.
+   */
+  private void buildIndices() throws InterruptedException {
+    LOG.info("Build indices for dataset {} using {} threads", newDatasetKey, threads());
+    List<Callable<Void>> tasks = new ArrayList<>();
+    List<String> tables = new ArrayList<>(DatasetPartitionMapper.PARTITIONED_TABLES);
+    tables.addAll(DatasetPartitionMapper.PROJECT_TABLES);
+    for (String table : tables) {
+      tasks.add(() -> {
+        interruptIfCancelled();
+        final long start = System.currentTimeMillis();
+        try (SqlSession session = factory.openSession(true);
+             Statement st = session.getConnection().createStatement()
+        ) {
+          List<String> keys = Partitioner.keyDefinitions(session.getConnection(), table, newDatasetKey);
+          List<String> indices = Partitioner.indexDefinitions(session.getConnection(), table, newDatasetKey);
+          for (String ddl : keys) {
+            st.execute(ddl);
+          }
+          for (String ddl : indices) {
+            interruptIfCancelled();
+            st.execute(ddl);
+          }
+          indexed.add(table + "_" + newDatasetKey);
+          LOG.info("Built {} keys and {} indices for table {}_{} in {}ms", keys.size(), indices.size(), table, newDatasetKey, System.currentTimeMillis() - start);
+        }
+        return null;
+      });
+    }
+    runConcurrently("index", tasks);
+  }
 
-      copyTable(VernacularName.class, VernacularNameMapper.class, session);
-      copyTable(Distribution.class, DistributionMapper.class, session);
-      copyTable(Treatment.class, TreatmentMapper.class, session);
-      copyTable(Media.class, MediaMapper.class, session);
+  /**
+   * Runs the given tasks concurrently using at most the configured number of threads and waits for all of them to finish.
+   * If any task fails all others are cancelled and the exception is rethrown.
+   */
+  private void runConcurrently(String name, List<Callable<Void>> tasks) throws InterruptedException {
+    ExecutorService exec = Executors.newFixedThreadPool(Math.min(threads(), tasks.size()), new NamedThreadFactory(name + "-" + newDatasetKey));
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (var t : tasks) {
+        futures.add(exec.submit(t));
+      }
+      for (var f : futures) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof InterruptedException) {
+            throw (InterruptedException) e.getCause();
+          }
+          throw Exceptions.asRuntimeException(e.getCause());
+        }
+      }
+    } finally {
+      // interrupts any still running tasks in case of errors
+      exec.shutdownNow();
     }
   }
 
@@ -259,9 +370,14 @@ public abstract class AbstractProjectCopy extends DatasetBlockingJob {
     indexService.indexDataset(newDatasetKey);
   }
 
-  <M extends CopyDataset> void copyTable(Class entity, Class<M> mapperClass, SqlSession session){
+  /**
+   * Copies a single table. Called concurrently for different tables, each with its own session.
+   * @return number of copied records
+   */
+  <M extends CopyDataset> int copyTable(Class entity, Class<M> mapperClass, SqlSession session){
     int count = session.getMapper(mapperClass).copyDataset(datasetKey, newDatasetKey, mapIds);
     LOG.info("Copied {} {}s from {} to {}", count, entity.getSimpleName(), datasetKey, newDatasetKey);
+    return count;
   }
 
 }
@@ -10,7 +10,9 @@ import life.catalogue.common.collection.IterUtils;
 import life.catalogue.common.id.IdConverter;
 import life.catalogue.common.io.TabWriter;
 import life.catalogue.common.io.UTF8IoUtils;
+import life.catalogue.common.lang.InterruptedRuntimeException;
 import life.catalogue.common.text.StringUtils;
+import life.catalogue.concurrent.NamedThreadFactory;
 import life.catalogue.config.ReleaseConfig;
 import life.catalogue.db.PgUtils;
 import life.catalogue.db.mapper.*;
@@ -22,6 +24,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.session.ExecutorType;
@@ -31,6 +37,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 
 import it.unimi.dsi.fastutil.ints.*;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
@@ -102,8 +109,12 @@ public class IdProvider {
   }
 
   public IdReport run() {
-    prepare();
-    mapIds();
+    try {
+      prepare();
+      mapIds();
+    } finally {
+      ids.close();
+    }
     report();
     LOG.info("ID provision done. Reused {} stable IDs for project release {}-{} ({}), resurrected={}, newly created={}, deleted={}", reused, projectKey, attempt, releaseDatasetKey, resurrected.size(), created.size(), deleted.size());
     return getReport();
@@ -432,8 +443,13 @@ public class IdProvider {
 
   @VisibleForTesting
   protected void mapIds(Iterable<SimpleNameWithNidx> names){
-    LOG.info("Map name usage IDs");
+    LOG.info("Map name usage IDs using {} threads", cfg.idThreads);
     final int lastRelIds = ids.maxAttemptIdCount();
+    final int window = 4 * cfg.idThreads;
+    // canonical groups are matched concurrently, but their results are applied in the original order
+    // so that new ids are always issued in the same sequence
+    final Deque<Future<List<IdGroup>>> queue = new ArrayDeque<>(window + 1);
+    final ExecutorService exec = Executors.newFixedThreadPool(cfg.idThreads, new NamedThreadFactory("id-provider-" + projectKey));
     AtomicInteger counter = new AtomicInteger();
     try (SqlSession writeSession = factory.openSession(false);
          Writer nomatchWriter = UTF8IoUtils.writerFromFile(new File(reportDir, "nomatch.txt"))
@@ -444,29 +460,85 @@ public class IdProvider {
       List<SimpleNameWithNidx> group = new ArrayList<>();
       for (SimpleNameWithNidx u : names) {
         if (!Objects.equals(lastCanonID, u.getCanonicalId()) && !group.isEmpty()) {
-          mapCanonicalGroup(group, nomatchWriter);
-          int before = counter.get() / batchSize;
-          int after = counter.addAndGet(group.size()) / batchSize;
-          if (before != after) {
-            writeSession.commit();
+          final List<SimpleNameWithNidx> canonGroup = group;
+          queue.add(exec.submit(() -> matchCanonicalGroup(canonGroup)));
+          while (queue.size() > window) {
+            int size = applyGroup(queue.poll(), nomatchWriter);
+            int before = counter.get() / batchSize;
+            int after = counter.addAndGet(size) / batchSize;
+            if (before != after) {
+              writeSession.commit();
+            }
           }
-          group.clear();
+          group = new ArrayList<>();
         }
         lastCanonID = u.getCanonicalId();
         group.add(u);
       }
-      mapCanonicalGroup(group, nomatchWriter);
+      final List<SimpleNameWithNidx> canonGroup = group;
+      queue.add(exec.submit(() -> matchCanonicalGroup(canonGroup)));
+      while (!queue.isEmpty()) {
+        applyGroup(queue.poll(), nomatchWriter);
+      }
       writeSession.commit();
 
     } catch (IOException e) {
       LOG.error("Failed to write ID reports for project " + projectKey, e);
+    } finally {
+      exec.shutdownNow();
     }
     // ids remaining from the current attempt will be deleted
     deleted = ids.maxAttemptIds();
     reused = lastRelIds - deleted.size();
   }
 
-  private void mapCanonicalGroup(List<SimpleNameWithNidx> group, Writer nomatchWriter) throws IOException {
+  /**
+   * All usages of a canonical group sharing the same names index id
+   * together with the previously released ids they were matched to.
+   */
+  private static class IdGroup {
+    final Integer nidx;
+    final List<SimpleNameWithNidx> names;
+    final List<ScoreMatrix.ReleaseMatch> released = new ArrayList<>();
+
+    IdGroup(Integer nidx, List<SimpleNameWithNidx> names) {
+      this.nidx = nidx;
+      this.names = names;
+    }
+  }
+
+  /**
+   * Waits for the matches of a canonical group and persists them,
+   * removing the released ids and issuing new ids for all unmatched usages.
+   * Must only be called from the main thread.
+   * @return number of usages in the group
+   */
+  private int applyGroup(Future<List<IdGroup>> future, Writer nomatchWriter) throws IOException {
+    List<IdGroup> idGroups;
+    try {
+      idGroups = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedRuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new RuntimeException(e.getCause());
+    }
+    int size = 0;
+    for (IdGroup g : idGroups) {
+      size += g.names.size();
+      issueIDs(g, nomatchWriter);
+    }
+    return size;
+  }
+
+  /**
+   * Matches all usages of a canonical group against the previously released ids.
+   * This only reads released ids and can be run concurrently for different canonical groups
+   * as they never share a names index id.
+   */
+  private List<IdGroup> matchCanonicalGroup(List<SimpleNameWithNidx> group) {
+    List<IdGroup> idGroups = new ArrayList<>();
     if (!group.isEmpty()) {
       // workaround for names index duplicates bug
       if (cfg.nidxDeduplication) {
@@ -476,10 +548,15 @@ public class IdProvider {
       // make sure we have the names sorted by their nidx
       group.sort(Comparator.comparing(SimpleNameWithNidx::getNamesIndexId, nullsLast(naturalOrder())));
       // now split the canonical group into subgroups for each nidx to match them individually
-      for (List<SimpleNameWithNidx> idGroup : IterUtils.group(group, Comparator.comparing(SimpleNameWithNidx::getNamesIndexId, nullsLast(naturalOrder())))) {
-        issueIDs(idGroup.get(0).getNamesIndexId(), idGroup, nomatchWriter);
+      for (List<SimpleNameWithNidx> names : IterUtils.group(group, Comparator.comparing(SimpleNameWithNidx::getNamesIndexId, nullsLast(naturalOrder())))) {
+        IdGroup g = new IdGroup(names.get(0).getNamesIndexId(), names);
+        if (g.nidx != null) {
+          matchIDs(g);
+        }
+        idGroups.add(g);
       }
     }
+    return idGroups;
   }
 
   /**
@@ -513,38 +590,47 @@ public class IdProvider {
   }
 
   /**
-   * Populates sn.canonicalId with either an existing or new int based ID
+   * Populates sn.canonicalId with the best matching, previously released id if existing
+   * and keeps the released matches in the group.
    */
-  private void issueIDs(Integer nidx, List<SimpleNameWithNidx> names, Writer nomatchWriter) throws IOException {
-    if (nidx == null) {
-      LOG.warn("{} usages with no name match, e.g. {} - keep temporary ids", names.size(), names.get(0).getId());
-      for (SimpleNameWithNidx n : names) {
+  private void matchIDs(IdGroup g) {
+    // convenient "hack": we keep the new identifiers as the canonicalID property of SimpleNameWithNidx
+    g.names.forEach(n->n.setCanonicalId(null));
+    // how many released ids do exist for this names index id?
+    ReleasedId[] rids = ids.byNxId(g.nidx);
+    if (rids != null) {
+      IntSet ids = new IntOpenHashSet();
+      ScoreMatrix scores = new ScoreMatrix(g.names, rids, this::matchScore);
+      List<ScoreMatrix.ReleaseMatch> best = scores.highest();
+      while (!best.isEmpty()) {
+        // best is sorted, issue as they come but avoid already released ids
+        for (ScoreMatrix.ReleaseMatch m : best) {
+          if (!ids.contains(m.rid.id)) {
+            m.name.setCanonicalId(m.rid.id);
+            scores.remove(m);
+            g.released.add(m);
+            ids.add(m.rid.id);
+          }
+        }
+        best = scores.highest();
+      }
+    }
+  }
+
+  /**
+   * Releases the matched ids and persists the mappings, issuing new ids for missing ones.
+   */
+  private void issueIDs(IdGroup g, Writer nomatchWriter) throws IOException {
+    if (g.nidx == null) {
+      LOG.warn("{} usages with no name match, e.g. {} - keep temporary ids", g.names.size(), g.names.get(0).getId());
+      for (SimpleNameWithNidx n : g.names) {
         nomatchWriter.write(n.toStringBuilder().toString());
         nomatchWriter.write("\n");
       }
 
     } else {
-      // convenient "hack": we keep the new identifiers as the canonicalID property of SimpleNameWithNidx
-      names.forEach(n->n.setCanonicalId(null));
-      // how many released ids do exist for this names index id?
-      ReleasedId[] rids = ids.byNxId(nidx);
-      if (rids != null) {
-        IntSet ids = new IntOpenHashSet();
-        ScoreMatrix scores = new ScoreMatrix(names, rids, this::matchScore);
-        List<ScoreMatrix.ReleaseMatch> best = scores.highest();
-        while (!best.isEmpty()) {
-          // best is sorted, issue as they come but avoid already released ids
-          for (ScoreMatrix.ReleaseMatch m : best) {
-            if (!ids.contains(m.rid.id)) {
-              release(m, scores);
-              ids.add(m.rid.id);
-            }
-          }
-          best = scores.highest();
-        }
-      }
-      // persist mappings, issuing new ids for missing ones
-      for (SimpleNameWithNidx sn : names) {
+      g.released.forEach(this::release);
+      for (SimpleNameWithNidx sn : g.names) {
         if (sn.getCanonicalId() == null) {
           issueNewId(sn);
         }
@@ -553,16 +639,14 @@ public class IdProvider {
     }
   }
 
-  private void release(ScoreMatrix.ReleaseMatch rm, ScoreMatrix scores){
+  private void release(ScoreMatrix.ReleaseMatch rm){
     if (!ids.containsId(rm.rid.id)) {
       throw new IllegalArgumentException("Cannot release " + rm.rid.id + " which does not exist (anymore)");
     }
-    var rid = ids.remove(rm.rid.id);
-    rm.name.setCanonicalId(rm.rid.id);
+    ids.remove(rm.rid.id);
     if (rm.rid.attempt < ids.getMaxAttempt()) {
       resurrected.put(rm.rid.id, rm.rid.attempt);
     }
-    scores.remove(rm);
   }
 
   private void issueNewId(SimpleNameWithNidx n) {
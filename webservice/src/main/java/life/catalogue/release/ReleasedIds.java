@@ -7,25 +7,71 @@ import life.catalogue.common.id.IdConverter;
 
 import org.gbif.nameparser.api.Rank;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 /**
  * Tracks released ids incl historic releases.
  * Each ID is only represented by the most recent, i.e. highest release attempt.
+ *
+ * To keep the heap small for large projects all ids are kept as fixed width rows in a memory mapped temporary file.
+ * Enums are stored as their ordinal and strings (authorship, phrase and parent) are interned in dictionaries,
+ * so each distinct value is kept only once. Rows sharing the same names index id are chained through a next row pointer,
+ * ReleasedId instances are only created on demand when reading.
+ *
+ * Once all ids are loaded lookups by nxId can be done concurrently as long as
+ * ids are only being removed and each thread reads distinct nxIds.
  */
-public class ReleasedIds {
+public class ReleasedIds implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(ReleasedIds.class);
+  // row layout
+  private static final int ID = 0;
+  private static final int NXID = 4;
+  private static final int ATTEMPT = 8;
+  private static final int NEXT = 12;
+  private static final int AUTHORSHIP = 16;
+  private static final int PHRASE = 20;
+  private static final int PARENT = 24;
+  private static final int MATCH_TYPE = 28;
+  private static final int RANK = 29;
+  private static final int STATUS = 30;
+  private static final int REMOVED = 31;
+  private static final int ROW_SIZE = 32;
+  private static final int SEGMENT_BITS = 16;
+  private static final int SEGMENT_ROWS = 1 << SEGMENT_BITS;
+  private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+  private static final MatchType[] MATCH_TYPES = MatchType.values();
+  private static final Rank[] RANKS = Rank.values();
+  private static final TaxonomicStatus[] STATUS_VALUES = TaxonomicStatus.values();
 
+  private final File file;
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private int rows = 0;
   private int maxKey = 0;
   private int maxAttempt = 0;
-  private final Int2ObjectMap<ReleasedId> byId = new Int2ObjectOpenHashMap<>();
-  private final Int2ObjectMap<ReleasedId[]> byNxId = new Int2ObjectOpenHashMap<>();
+  // id -> row
+  private final Int2IntMap byId = new Int2IntOpenHashMap();
+  // nxId -> first row
+  private final Int2IntMap byNxId = new Int2IntOpenHashMap();
+  private final Dictionary authorships = new Dictionary();
+  private final Dictionary phrases = new Dictionary();
+  private final Dictionary parents = new Dictionary();
 
   public static class ReleasedId {
     public final int id;
@@ -46,15 +92,19 @@ public class ReleasedIds {
     }
 
     public ReleasedId(int id, int attempt, SimpleNameWithNidx sn) {
+      this(id, sn.getNamesIndexId(), attempt, sn.getNamesIndexMatchType(), sn.getRank(), sn.getAuthorship(), sn.getPhrase(), sn.getStatus(), sn.getParent());
+    }
+
+    private ReleasedId(int id, int nxId, int attempt, MatchType matchType, Rank rank, String authorship, String phrase, TaxonomicStatus status, String parent) {
       this.id = id;
-      this.nxId = sn.getNamesIndexId();
+      this.nxId = nxId;
       this.attempt = attempt;
-      this.matchType = sn.getNamesIndexMatchType();
-      this.rank = sn.getRank();
-      this.authorship = sn.getAuthorship();
-      this.phrase = sn.getPhrase();
-      this.status = sn.getStatus();
-      this.parent = sn.getParent();
+      this.matchType = matchType;
+      this.rank = rank;
+      this.authorship = authorship;
+      this.phrase = phrase;
+      this.status = status;
+      this.parent = parent;
     }
 
     public String id() {
@@ -62,6 +112,50 @@ public class ReleasedIds {
     }
   }
 
+  /**
+   * Interns strings to int codes with 0 representing null.
+   */
+  private static class Dictionary {
+    private final Object2IntMap<String> codes = new Object2IntOpenHashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    Dictionary() {
+      values.add(null);
+    }
+
+    int encode(String x) {
+      if (x == null) {
+        return 0;
+      }
+      int code = codes.getInt(x);
+      if (code == 0) {
+        code = values.size();
+        values.add(x);
+        codes.put(x, code);
+      }
+      return code;
+    }
+
+    String decode(int code) {
+      return values.get(code);
+    }
+  }
+
+  /**
+   * Creates a new store backed by a temporary file.
+   */
+  public ReleasedIds() {
+    try {
+      file = File.createTempFile("released-ids-", ".bin");
+      file.deleteOnExit();
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create released ids store", e);
+    }
+    byId.defaultReturnValue(-1);
+    byNxId.defaultReturnValue(-1);
+  }
+
   public int size() {
     return byId.size();
   }
@@ -75,22 +169,24 @@ public class ReleasedIds {
   }
 
   public void log() {
-    System.out.println(
-      byId.keySet().stream().sorted().map(String::valueOf).collect(Collectors.joining(" "))
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Released ids: {}",
+        byId.keySet().intStream().sorted().mapToObj(String::valueOf).collect(Collectors.joining(" "))
+      );
+    }
   }
 
+  /**
+   * Removes an id which is then ignored in all lookups.
+   * The row itself is kept in the store and only flagged as removed.
+   */
   public ReleasedId remove(int id) throws IllegalArgumentException {
-    ReleasedId r = byId.remove(id);
-    if (r != null) {
-      ReleasedId[] rids = ArrayUtils.removeAllOccurences(byNxId.get(r.nxId), r);
-      if (rids == null || rids.length == 0) {
-        byNxId.remove(r.nxId);
-      } else {
-        byNxId.put(r.nxId, rids);
-      }
+    int row = byId.remove(id);
+    if (row < 0) {
+      return null;
     }
-    return r;
+    segment(row).put(offset(row) + REMOVED, (byte) 1);
+    return read(row);
   }
 
   /**
@@ -98,9 +194,9 @@ public class ReleasedIds {
    */
   public Int2IntMap maxAttemptIds(){
     Int2IntMap ids = new Int2IntOpenHashMap();
-    for (ReleasedId rid : byId.values()) {
-      if (rid.attempt == maxAttempt) {
-        ids.put(rid.id, rid.attempt);
+    for (int row : byId.values()) {
+      if (attempt(row) == maxAttempt) {
+        ids.put(id(row), maxAttempt);
       }
     }
     return ids;
@@ -111,8 +207,8 @@ public class ReleasedIds {
    */
   public int maxAttemptIdCount(){
     int counter = 0;
-    for (ReleasedId rid : byId.values()) {
-      if (rid.attempt == maxAttempt) {
+    for (int row : byId.values()) {
+      if (attempt(row) == maxAttempt) {
         counter++;
       }
     }
@@ -122,32 +218,64 @@ public class ReleasedIds {
   void add (ReleasedId id) {
     if (byId.containsKey(id.id)) {
       // ignore already existing ids, but make sure the existing attempt is more recent, i.e. higher!
-      if (byId.get(id.id).attempt < id.attempt) {
+      if (attempt(byId.get(id.id)) < id.attempt) {
         throw new IllegalStateException("releases need to be sorted by attempt before adding");
       }
       return;
     }
-    byId.put(id.id, id);
-    if (byNxId.containsKey(id.nxId)) {
-      byNxId.put(id.nxId, ArrayUtils.add(byNxId.get(id.nxId), id));
-    } else {
-      byNxId.put(id.nxId, new ReleasedId[]{id});
-    }
+    final int row = rows++;
+    MappedByteBuffer seg = segment(row);
+    int off = offset(row);
+    seg.putInt(off + ID, id.id);
+    seg.putInt(off + NXID, id.nxId);
+    seg.putInt(off + ATTEMPT, id.attempt);
+    // new rows become the head of the nxId chain
+    seg.putInt(off + NEXT, byNxId.get(id.nxId));
+    seg.putInt(off + AUTHORSHIP, authorships.encode(id.authorship));
+    seg.putInt(off + PHRASE, phrases.encode(id.phrase));
+    seg.putInt(off + PARENT, parents.encode(id.parent));
+    seg.put(off + MATCH_TYPE, ordinal(id.matchType));
+    seg.put(off + RANK, ordinal(id.rank));
+    seg.put(off + STATUS, ordinal(id.status));
+    seg.put(off + REMOVED, (byte) 0);
+    byId.put(id.id, row);
+    byNxId.put(id.nxId, row);
     if (id.id > maxKey) {
       maxKey = id.id;
     }
     if (id.attempt > maxAttempt) {
       maxAttempt = id.attempt;
     }
-
   }
 
+  /**
+   * @return all not removed ids for the given names index id in the order they were added or null if none exist
+   */
   public ReleasedId[] byNxId(int nxId) {
-    return byNxId.getOrDefault(nxId, null);
+    List<ReleasedId> rids = new ArrayList<>();
+    int row = byNxId.get(nxId);
+    while (row >= 0) {
+      MappedByteBuffer seg = segment(row);
+      int off = offset(row);
+      if (seg.get(off + REMOVED) == 0) {
+        rids.add(read(row));
+      }
+      row = seg.getInt(off + NEXT);
+    }
+    if (rids.isEmpty()) {
+      return null;
+    }
+    // the chain starts with the most recently added row
+    ReleasedId[] result = new ReleasedId[rids.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = rids.get(result.length - 1 - i);
+    }
+    return result;
   }
 
   public ReleasedId byId(int id) {
-    return byId.get(id);
+    int row = byId.get(id);
+    return row < 0 ? null : read(row);
   }
 
   public boolean hasId(int id) {
@@ -164,4 +292,64 @@ public class ReleasedIds {
   public int getMaxAttempt() {
     return maxAttempt;
   }
+
+  private ReleasedId read(int row) {
+    MappedByteBuffer seg = segment(row);
+    int off = offset(row);
+    return new ReleasedId(
+      seg.getInt(off + ID),
+      seg.getInt(off + NXID),
+      seg.getInt(off + ATTEMPT),
+      value(MATCH_TYPES, seg.get(off + MATCH_TYPE)),
+      value(RANKS, seg.get(off + RANK)),
+      authorships.decode(seg.getInt(off + AUTHORSHIP)),
+      phrases.decode(seg.getInt(off + PHRASE)),
+      value(STATUS_VALUES, seg.get(off + STATUS)),
+      parents.decode(seg.getInt(off + PARENT))
+    );
+  }
+
+  private int id(int row) {
+    return segment(row).getInt(offset(row) + ID);
+  }
+
+  private int attempt(int row) {
+    return segment(row).getInt(offset(row) + ATTEMPT);
+  }
+
+  private static byte ordinal(Enum<?> val) {
+    return (byte) (val == null ? 0 : val.ordinal() + 1);
+  }
+
+  private static <T> T value(T[] values, byte ordinal) {
+    int idx = Byte.toUnsignedInt(ordinal);
+    return idx == 0 ? null : values[idx - 1];
+  }
+
+  private static int offset(int row) {
+    return (row & SEGMENT_MASK) * ROW_SIZE;
+  }
+
+  private MappedByteBuffer segment(int row) {
+    int idx = row >>> SEGMENT_BITS;
+    if (idx == segments.size()) {
+      try {
+        long size = (long) SEGMENT_ROWS * ROW_SIZE;
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, idx * size, size));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to extend released ids store " + file, e);
+      }
+    }
+    return segments.get(idx);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close released ids store {}", file, e);
+    }
+    file.delete();
+  }
 }
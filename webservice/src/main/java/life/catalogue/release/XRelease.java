@@ -163,9 +163,10 @@ public class XRelease extends ProjectRelease {
    * We copy the tables of the base release here, not the project
    */
   @Override
-  <M extends CopyDataset> void copyTable(Class entity, Class<M> mapperClass, SqlSession session) {
+  <M extends CopyDataset> int copyTable(Class entity, Class<M> mapperClass, SqlSession session) {
     int count = session.getMapper(mapperClass).copyDataset(baseReleaseKey, newDatasetKey, false);
     LOG.info("Copied {} {}s from {} to {}", count, entity.getSimpleName(), baseReleaseKey, newDatasetKey);
+    return count;
   }
 
   /**
@@ -7,12 +7,12 @@ import life.catalogue.api.util.ObjectUtils;
 import life.catalogue.api.vocab.DataFormat;
 import life.catalogue.common.ws.MoreMediaTypes;
 import life.catalogue.dao.DatasetImportDao;
+import life.catalogue.dao.TaxonCounter;
 import life.catalogue.db.mapper.NameUsageMapper;
 import life.catalogue.db.mapper.VerbatimRecordMapper;
 import life.catalogue.db.tree.*;
 import life.catalogue.dw.jersey.Redirect;
 import life.catalogue.dw.jersey.filter.VaryAccept;
-import life.catalogue.es.NameUsageSearchService;
 import life.catalogue.exporter.ExportManager;
 
 import org.gbif.nameparser.api.Rank;
@@ -52,7 +52,7 @@ import io.dropwizard.auth.Auth;
 @Produces(MediaType.APPLICATION_JSON)
 public class DatasetExportResource {
   private final SqlSessionFactory factory;
-  private final NameUsageSearchService searchService;
+  private final TaxonCounter taxonCounter;
   private final ExportManager exportManager;
   private final WsServerConfig cfg;
   private static final Object[][] EXPORT_HEADERS = new Object[1][];
@@ -63,9 +63,9 @@ public class DatasetExportResource {
   @SuppressWarnings("unused")
   private static final Logger LOG = LoggerFactory.getLogger(DatasetExportResource.class);
 
-  public DatasetExportResource(SqlSessionFactory factory, NameUsageSearchService searchService, ExportManager exportManager, WsServerConfig cfg) {
+  public DatasetExportResource(SqlSessionFactory factory, TaxonCounter taxonCounter, ExportManager exportManager, WsServerConfig cfg) {
     this.factory = factory;
-    this.searchService = searchService;
+    this.taxonCounter = taxonCounter;
     this.exportManager = exportManager;
     this.cfg = cfg;
   }
@@ -147,7 +147,7 @@ public class DatasetExportResource {
     params.init();
     StreamingOutput stream = os -> {
       Writer writer = new BufferedWriter(new OutputStreamWriter(os));
-      TextTreePrinter printer = PrinterFactory.dataset(TextTreePrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, searchService, factory, writer);
+      TextTreePrinter printer = PrinterFactory.dataset(TextTreePrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, taxonCounter, factory, writer);
       if (showID) printer.showIDs();
       printer.print();
       writer.flush();
@@ -167,9 +167,9 @@ public class DatasetExportResource {
       Writer writer = new BufferedWriter(new OutputStreamWriter(os));
       AbstractTreePrinter printer;
       if (flat) {
-        printer = PrinterFactory.dataset(JsonFlatPrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, searchService, factory, writer);
+        printer = PrinterFactory.dataset(JsonFlatPrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, taxonCounter, factory, writer);
       } else {
-        printer = PrinterFactory.dataset(JsonTreePrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, searchService, factory, writer);
+        printer = PrinterFactory.dataset(JsonTreePrinter.class, params.toTreeTraversalParameter(key), params.ranks, params.countBy, taxonCounter, factory, writer);
       }
       printer.print();
       writer.flush();
@@ -68,7 +68,7 @@ public class DatasetIssuesResource {
                                     @Context SqlSession session) {
     // export entire dataset with issues
     VerbatimRecordMapper vm = session.getMapper(VerbatimRecordMapper.class);
-    vm.createTmpIssuesTable(datasetKey, null);
+    vm.createTmpIssuesTable(datasetKey, null, false);
     return Stream.concat(
       Stream.of(EXPORT_HEADERS),
       Streams.stream(vm.processIssues(datasetKey))
@@ -1,16 +1,18 @@
 package life.catalogue.resources;
 
 import life.catalogue.WsServerConfig;
+import life.catalogue.api.exception.TooManyRequestsException;
+import life.catalogue.api.jackson.ApiModule;
 import life.catalogue.api.model.*;
 import life.catalogue.api.util.ObjectUtils;
 import life.catalogue.api.vocab.Issue;
 import life.catalogue.api.vocab.TaxonomicStatus;
+import life.catalogue.common.lang.InterruptedRuntimeException;
 import life.catalogue.common.ws.MoreMediaTypes;
 import life.catalogue.concurrent.JobExecutor;
 import life.catalogue.importer.NameInterpreter;
 import life.catalogue.matching.*;
-
-import org.apache.commons.lang3.StringUtils;
+import life.catalogue.matching.BatchMatcher.IssueName;
 
 import org.gbif.nameparser.api.NomCode;
 import org.gbif.nameparser.api.Rank;
@@ -18,17 +20,35 @@ import org.gbif.nameparser.api.Rank;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
 import io.dropwizard.auth.Auth;
 
 @Path("/dataset/{key}/match/nameusage")
@@ -37,18 +57,22 @@ import io.dropwizard.auth.Auth;
 @SuppressWarnings("static-method")
 public class NameUsageMatchingResource {
   private static final Logger LOG = LoggerFactory.getLogger(NameUsageMatchingResource.class);
+  private static final ObjectReader NAME_READER = ApiModule.MAPPER.readerFor(new TypeReference<SimpleNameClassified<SimpleName>>() {});
 
   private final WsServerConfig cfg;
   private final JobExecutor exec;
   private final SqlSessionFactory factory;
   private final UsageMatcherGlobal matcher;
   private final NameInterpreter interpreter = new NameInterpreter(new DatasetSettings());
+  // limits the synchronous batch requests matching at the same time, each using its own matching threads
+  private final Semaphore batchPermits;
 
   public NameUsageMatchingResource(WsServerConfig cfg, JobExecutor exec, SqlSessionFactory factory, UsageMatcherGlobal matcher) {
     this.cfg = cfg;
     this.exec = exec;
     this.factory = factory;
     this.matcher = matcher;
+    this.batchPermits = new Semaphore(cfg.matchingBatchConcurrency);
   }
 
   private UsageMatchWithOriginal match(int datasetKey, SimpleNameClassified<SimpleName> sn) {
@@ -95,6 +119,94 @@ public class NameUsageMatchingResource {
     return match(datasetKey, orig);
   }
 
+  /**
+   * Matches a list of names synchronously and streams the matches back in the same order as the names were given.
+   * Names are matched in batches in parallel. For larger inputs a matching job should be used.
+   * The JSON array is read name by name so too large requests are rejected without reading them entirely.
+   */
+  @POST
+  @Path("batch")
+  public Response matchBatch(@PathParam("key") int datasetKey, InputStream data) throws IOException {
+    if (data == null) {
+      throw new IllegalArgumentException("List of names to match required");
+    }
+    return streamMatches(datasetKey, streamJson(data));
+  }
+
+  @POST
+  @Path("batch")
+  @Consumes({MoreMediaTypes.TEXT_CSV})
+  public Response matchBatchCsv(@PathParam("key") int datasetKey, InputStream data) throws IOException {
+    return streamMatches(datasetKey, MatchingJob.streamTabular(data, true));
+  }
+
+  @POST
+  @Path("batch")
+  @Consumes({MediaType.TEXT_PLAIN, MoreMediaTypes.TEXT_TSV})
+  public Response matchBatchTsv(@PathParam("key") int datasetKey, InputStream data) throws IOException {
+    return streamMatches(datasetKey, MatchingJob.streamTabular(data, false));
+  }
+
+  /**
+   * Lazily reads names from a JSON array.
+   */
+  private static Stream<IssueName> streamJson(InputStream data) throws IOException {
+    Iterator<SimpleNameClassified<SimpleName>> iter = NAME_READER.readValues(data);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, Spliterator.ORDERED), false)
+      .map(IssueName::new);
+  }
+
+  private Response streamMatches(int datasetKey, Stream<IssueName> input) {
+    matcher.assertComponentsOnline();
+    if (!batchPermits.tryAcquire()) {
+      throw new TooManyRequestsException("Too many concurrent batch matching requests. Please try again later or use a matching job instead");
+    }
+    boolean streaming = false;
+    try {
+      // read all names first so we can reject too large requests before we start streaming results
+      final List<IssueName> names;
+      try {
+        names = input
+          .limit(cfg.matchingBatchLimit + 1L)
+          .collect(Collectors.toList());
+      } catch (RuntimeJsonMappingException e) {
+        throw new IllegalArgumentException("Invalid JSON list of names: " + e.getMessage(), e);
+      } catch (RuntimeException e) {
+        // the lazy JSON iterator wraps parsing errors of broken JSON in plain runtime exceptions
+        if (e.getCause() instanceof JsonProcessingException) {
+          throw new IllegalArgumentException("Invalid JSON list of names: " + e.getCause().getMessage(), e);
+        }
+        throw e;
+      }
+      if (names.size() > cfg.matchingBatchLimit) {
+        throw new IllegalArgumentException("A maximum of " + cfg.matchingBatchLimit + " names can be matched at once. Please use a matching job instead");
+      }
+      StreamingOutput stream = os -> {
+        try (SequenceWriter writer = ApiModule.MAPPER.writer().writeValuesAsArray(os)) {
+          new BatchMatcher(datasetKey, matcher).matchAll(names.iterator(), cfg.matchingThreads, "batch-matching-" + datasetKey, m -> {
+            try {
+              writer.write(m);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+        } catch (InterruptedException e) {
+          throw new InterruptedRuntimeException(e);
+        } finally {
+          batchPermits.release();
+        }
+      };
+      Response resp = Response.ok(stream, MediaType.APPLICATION_JSON_TYPE).build();
+      streaming = true;
+      return resp;
+
+    } finally {
+      if (!streaming) {
+        batchPermits.release();
+      }
+    }
+  }
+
   private MatchingJob submit(MatchingRequest req, User user) {
     MatchingJob job = new MatchingJob(req, user.getKey(), factory, matcher, cfg);
     exec.submit(job);
@@ -13,7 +13,7 @@ import life.catalogue.dw.auth.Roles;
 import life.catalogue.importer.NameInterpreter;
 import life.catalogue.matching.NameIndex;
 import life.catalogue.matching.NameIndexImpl;
-import life.catalogue.matching.NameIndexMapDBStore;
+import life.catalogue.matching.NameIndexStore;
 
 import life.catalogue.matching.NidxExportJob;
 
@@ -137,7 +137,7 @@ public class NamesIndexResource {
     return store().debugCanonical(key);
   }
 
-  private NameIndexMapDBStore store() {
+  private NameIndexStore store() {
     return ((NameIndexImpl) ni).store();
   }
 
@@ -12,18 +12,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
-import java.util.Map;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.function.Supplier;
 
-
 import org.apache.commons.io.FileUtils;
-import org.mapdb.DB;
-import org.mapdb.DBException;
-import org.mapdb.DBMaker;
-import org.mapdb.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Maps legacy COL IDs to name usage IDs, loaded from a TSV file.
+ * The map is an immutable {@link SortedStringTable} which is memory mapped from a file if one is given,
+ * so a restart does not need to reload the TSV.
+ * A reload builds a new table while the current one keeps serving lookups and swaps it in atomically once it is complete.
+ */
 public class IdMap implements Managed {
   private static final Logger LOG = LoggerFactory.getLogger(IdMap.class);
   private static final String SERVICE_NAME = "legacy ID redirection";
@@ -31,9 +34,7 @@ public class IdMap implements Managed {
   private final Supplier<InputStream> tsvSupplier;
   private final String tsvName;
   private final File file;
-  private final DBMaker.Maker dbMaker;
-  private DB mapDb;
-  private Map<String, String> map;
+  private volatile SortedStringTable table;
 
   private IdMap(File file, String tsvName, ThrowingSupplier<InputStream, IOException> tsvSupplier) throws IOException {
     this.file = file;
@@ -41,7 +42,6 @@ public class IdMap implements Managed {
     this.tsvSupplier = tsvSupplier;
     if (file == null) {
       LOG.info("Create new memory IdMap");
-      dbMaker = DBMaker.memoryDB();
     } else {
       if (!file.exists()) {
         FileUtils.forceMkdirParent(file);
@@ -49,9 +49,6 @@ public class IdMap implements Managed {
       } else {
         LOG.info("Use persistent IdMap at {}", file.getAbsolutePath());
       }
-      dbMaker = DBMaker
-        .fileDB(file)
-        .fileMmapEnableIfSupported();
     }
   }
 
@@ -71,11 +68,12 @@ public class IdMap implements Managed {
   }
 
   /**
-   * @return the persistent map and make sure it is working and online
+   * @return the current table and make sure it is online
    */
-  private Map<String, String> onlineMap() {
-    if (map != null && mapDb != null && !mapDb.isClosed()) {
-      return map;
+  private SortedStringTable onlineTable() {
+    SortedStringTable t = table;
+    if (t != null) {
+      return t;
     }
     throw UnavailableException.unavailable(SERVICE_NAME);
   }
@@ -91,8 +89,12 @@ public class IdMap implements Managed {
     return false;
   }
 
-  public void reload(InputStream data) throws IOException {
-    map.clear();
+  /**
+   * Builds a new table from the TSV data and swaps it in once it is complete.
+   * The previous table keeps serving lookups until then.
+   */
+  public synchronized void reload(InputStream data) throws IOException {
+    SortedMap<String, String> entries = new TreeMap<>();
     try (BufferedReader br = UTF8IoUtils.readerFromStream(data)) {
       String line;
       while ((line = br.readLine()) != null) {
@@ -102,72 +104,62 @@ public class IdMap implements Managed {
         int tabIdx2 = line.indexOf('\t', tabIdx+1);
         String usageID = line.substring(tabIdx + 1, tabIdx2<0 ? line.length() : tabIdx2);
         if (legacyID.length() > 0 && usageID.length() > 0) {
-          map.put(legacyID, usageID);
+          entries.put(legacyID, usageID);
         }
       }
     }
-    LOG.info("Loaded {} entries into IdMap", map.size());
+    swap(entries);
+    LOG.info("Loaded {} entries into IdMap", entries.size());
+  }
+
+  private void swap(SortedMap<String, String> entries) throws IOException {
+    table = file == null ? SortedStringTable.build(entries) : SortedStringTable.write(entries, file);
   }
 
   public boolean contains(String id) {
-    return id != null && onlineMap().containsKey(id);
+    return id != null && onlineTable().contains(id);
   }
 
   public String lookup(String id) {
-    return onlineMap().get(id);
+    return onlineTable().get(id);
   }
 
   public int size() {
-    return onlineMap().size();
+    return onlineTable().size();
   }
 
-  public void clear() {
-    onlineMap().clear();
+  public synchronized void clear() throws IOException {
+    onlineTable();
+    swap(Collections.emptySortedMap());
   }
 
   @Override
-  public void start() throws IOException {
-    if (mapDb == null || mapDb.isClosed()) {
+  public synchronized void start() throws IOException {
+    if (table == null && file != null && file.exists()) {
       try {
-        mapDb = dbMaker.make();
-      } catch (DBException.DataCorruption e) {
-        if (file != null) {
-          LOG.warn("IdMap mapdb was corrupt. Remove and rebuild from scratch. {}", e.getMessage());
-          file.delete();
-          mapDb = dbMaker.make();
-        } else {
-          throw e;
-        }
+        table = SortedStringTable.open(file);
+        LOG.info("Opened IdMap with {} entries from {}", table.size(), file.getAbsolutePath());
+      } catch (IOException e) {
+        LOG.warn("IdMap table was corrupt. Remove and rebuild from scratch. {}", e.getMessage());
+        file.delete();
       }
-      map = mapDb.hashMap("legacy")
-        .keySerializer(Serializer.STRING)
-        .valueSerializer(Serializer.STRING)
-        .createOrOpen();
     }
     // reload if empty
-    if (map.isEmpty()) {
-      reload();
+    if (table == null || table.size() == 0) {
+      if (!reload() && table == null) {
+        swap(Collections.emptySortedMap());
+      }
     }
   }
 
   @Override
-  public void stop() {
-    try {
-      if (mapDb != null && !mapDb.isClosed()) {
-        mapDb.close();
-      }
-    } catch (Exception e) {
-      LOG.error("Failed to close mapDb for legacy IdMap at {}", file, e);
-    }
+  public synchronized void stop() {
+    // a memory mapped table gets unmapped once it is garbage collected
+    table = null;
   }
 
   @Override
   public boolean hasStarted() {
-    try {
-      var notNeeded = onlineMap().get("something1234567");
-      return true;
-    } catch (UnavailableException | IllegalAccessError e) {
-      return false;
-    }
+    return table != null;
   }
-}
\ No newline at end of file
+}
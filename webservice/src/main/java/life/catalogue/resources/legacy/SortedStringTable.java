@@ -0,0 +1,181 @@
+package life.catalogue.resources.legacy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable table of string keys and values sorted by key which can be memory mapped from a file.
+ * Lookups do a binary search directly on the underlying buffer and do not allocate any objects apart from returned values.
+ *
+ * The layout starts with a magic number and the number of entries,
+ * followed by the start offset of every entry plus the end offset of the last one, counted in chars from the start of the data section.
+ * Each entry in the data section consists of the key length as a single char, the key chars and the value chars.
+ */
+class SortedStringTable {
+  private static final int MAGIC = 0x434f4c31;
+  private static final int HEADER = 8;
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int dataStart;
+
+  private SortedStringTable(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a sorted string table");
+    }
+    this.buffer = buffer;
+    this.size = buffer.getInt(4);
+    this.dataStart = HEADER + (size + 1) * 4;
+    if (size < 0 || buffer.capacity() != dataStart + buffer.getInt(HEADER + size * 4) * 2) {
+      throw new IOException("Corrupt sorted string table of " + size + " entries");
+    }
+  }
+
+  /**
+   * Memory maps an existing table file.
+   */
+  static SortedStringTable open(File file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (ch.size() > Integer.MAX_VALUE) {
+        throw new IOException("Sorted string table " + file + " too large");
+      }
+      return new SortedStringTable(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+    }
+  }
+
+  /**
+   * Builds a new table on the heap.
+   */
+  static SortedStringTable build(SortedMap<String, String> entries) throws IOException {
+    return new SortedStringTable(serialize(entries));
+  }
+
+  /**
+   * Writes a new table to a temporary file first which then replaces the given file atomically before it gets memory mapped.
+   * Existing mappings of a replaced file stay valid.
+   */
+  static SortedStringTable write(SortedMap<String, String> entries, File file) throws IOException {
+    ByteBuffer buffer = serialize(entries);
+    File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+    try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        ch.write(buffer);
+      }
+      ch.force(true);
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return open(file);
+  }
+
+  private static ByteBuffer serialize(SortedMap<String, String> entries) throws IOException {
+    if (entries.comparator() != null) {
+      throw new IllegalArgumentException("Entries must be sorted by their natural order");
+    }
+    long chars = 0;
+    for (Map.Entry<String, String> e : entries.entrySet()) {
+      if (e.getKey().length() > Character.MAX_VALUE) {
+        throw new IllegalArgumentException("Key too long: " + e.getKey().substring(0, 100) + "...");
+      }
+      chars += 1 + e.getKey().length() + e.getValue().length();
+    }
+    long bytes = HEADER + (entries.size() + 1) * 4L + chars * 2;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IOException("Too many entries for a sorted string table: " + entries.size());
+    }
+    ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+    buffer.putInt(MAGIC);
+    buffer.putInt(entries.size());
+    int offset = 0;
+    for (Map.Entry<String, String> e : entries.entrySet()) {
+      buffer.putInt(offset);
+      offset += 1 + e.getKey().length() + e.getValue().length();
+    }
+    buffer.putInt(offset);
+    for (Map.Entry<String, String> e : entries.entrySet()) {
+      buffer.putChar((char) e.getKey().length());
+      putChars(buffer, e.getKey());
+      putChars(buffer, e.getValue());
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void putChars(ByteBuffer buffer, String x) {
+    for (int i = 0; i < x.length(); i++) {
+      buffer.putChar(x.charAt(i));
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean contains(String key) {
+    return find(key) >= 0;
+  }
+
+  @Nullable
+  String get(String key) {
+    int idx = find(key);
+    if (idx < 0) {
+      return null;
+    }
+    int pos = start(idx);
+    int start = pos + 2 + buffer.getChar(pos) * 2;
+    char[] value = new char[(start(idx + 1) - start) / 2];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = buffer.getChar(start + i * 2);
+    }
+    return new String(value);
+  }
+
+  /**
+   * @return byte position of the entry with the given index
+   */
+  private int start(int idx) {
+    return dataStart + buffer.getInt(HEADER + idx * 4) * 2;
+  }
+
+  private int find(String key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareKey(mid, key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Compares the key of an entry with the given key just like String.compareTo does.
+   */
+  private int compareKey(int idx, String key) {
+    int pos = start(idx);
+    int len = buffer.getChar(pos);
+    pos += 2;
+    int n = Math.min(len, key.length());
+    for (int i = 0; i < n; i++) {
+      char c = buffer.getChar(pos + i * 2);
+      char k = key.charAt(i);
+      if (c != k) {
+        return c - k;
+      }
+    }
+    return len - key.length();
+  }
+}
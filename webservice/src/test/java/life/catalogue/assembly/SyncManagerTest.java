@@ -0,0 +1,301 @@
+package life.catalogue.assembly;
+
+import life.catalogue.api.TestEntityGenerator;
+import life.catalogue.api.model.*;
+import life.catalogue.api.vocab.ImportState;
+import life.catalogue.db.mapper.NameMapper;
+import life.catalogue.db.mapper.SectorImportMapper;
+import life.catalogue.db.mapper.TaxonMapper;
+import life.catalogue.matching.NameIndex;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import static life.catalogue.assembly.SyncManager.TargetScope;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the scheduling of sector jobs with mocked syncs which only finish once they are released by the test.
+ * The project tree of the mocked classifications is:
+ * root > ani > art > ins
+ * root > pla
+ * root > fun
+ */
+public class SyncManagerTest {
+  static final User USER = TestEntityGenerator.USER_EDITOR;
+  static final Map<String, List<SimpleName>> CLASSIFICATION = Map.of(
+    "ani", List.of(sn("root")),
+    "art", List.of(sn("ani"), sn("root")),
+    "ins", List.of(sn("art"), sn("ani"), sn("root")),
+    "pla", List.of(sn("root")),
+    "fun", List.of(sn("root"))
+  );
+
+  final Map<Integer, TestJob> jobs = new HashMap<>();
+  // sector keys in the order their jobs were started
+  final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+  SqlSessionFactory factory;
+  SyncFactory syncFactory;
+  SyncManager manager;
+
+  static SimpleName sn(String id) {
+    return new SimpleName(id, id, Rank.UNRANKED);
+  }
+
+  /**
+   * A mocked sync which waits until it gets released.
+   */
+  class TestJob {
+    final Sector sector;
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    TestJob(int projectKey, int sectorKey, Sector.Mode mode, String target) {
+      sector = new Sector();
+      sector.setDatasetKey(projectKey);
+      sector.setId(sectorKey);
+      sector.setSubjectDatasetKey(100);
+      sector.setMode(mode);
+      if (target != null) {
+        sector.setTarget(SimpleNameLink.of(target, target, Rank.UNRANKED));
+      }
+      jobs.put(sectorKey, this);
+    }
+
+    SectorSync create(DSID<Integer> key, Consumer<SectorRunnable> successCallback) {
+      SectorImport state = new SectorImport();
+      state.setState(ImportState.WAITING);
+      SectorSync job = mock(SectorSync.class);
+      when(job.getSectorKey()).thenReturn(key);
+      when(job.getSector()).thenReturn(sector);
+      when(job.getState()).thenReturn(state);
+      when(job.getCreated()).thenReturn(LocalDateTime.now());
+      when(job.getStarted()).thenReturn(LocalDateTime.now());
+      doAnswer(inv -> {
+        state.setState(ImportState.PREPARING);
+        started.add(sector.getId());
+        running.countDown();
+        try {
+          release.await();
+          successCallback.accept(job);
+        } catch (InterruptedException e) {
+          // cancelled jobs are already removed from the manager
+        }
+        return null;
+      }).when(job).run();
+      return job;
+    }
+
+    void queue() {
+      manager.sync(sector.getDatasetKey(), RequestScope.sector(DSID.of(sector.getDatasetKey(), sector.getId())), USER);
+    }
+
+    void awaitRunning() throws InterruptedException {
+      assertTrue("Sector " + sector.getId() + " not started", running.await(5, TimeUnit.SECONDS));
+    }
+
+    boolean hasStarted() {
+      return running.getCount() == 0;
+    }
+  }
+
+  @Before
+  public void init() throws Exception {
+    SqlSession session = mock(SqlSession.class);
+    NameMapper nm = mock(NameMapper.class);
+    when(nm.hasData(anyInt())).thenReturn(true);
+    TaxonMapper tm = mock(TaxonMapper.class);
+    when(tm.classificationSimple(any())).thenAnswer(inv -> {
+      DSID<String> key = inv.getArgument(0);
+      return CLASSIFICATION.getOrDefault(key.getId(), List.of());
+    });
+    when(session.getMapper(NameMapper.class)).thenReturn(nm);
+    when(session.getMapper(TaxonMapper.class)).thenReturn(tm);
+    when(session.getMapper(SectorImportMapper.class)).thenReturn(mock(SectorImportMapper.class));
+    factory = mock(SqlSessionFactory.class);
+    when(factory.openSession(anyBoolean())).thenReturn(session);
+
+    syncFactory = mock(SyncFactory.class);
+    when(syncFactory.project(any(), any(), any(), any())).thenAnswer(inv -> {
+      DSID<Integer> key = inv.getArgument(0);
+      return jobs.get(key.getId()).create(key, inv.getArgument(1));
+    });
+  }
+
+  private void start(int threads) throws Exception {
+    manager = new SyncManager(factory, mock(NameIndex.class), syncFactory, threads, new MetricRegistry());
+    manager.start();
+  }
+
+  @After
+  public void stop() throws Exception {
+    if (manager != null) {
+      jobs.values().forEach(j -> j.release.countDown());
+      manager.stop();
+    }
+  }
+
+  @Test
+  public void overlaps() {
+    // root > Animalia > Arthropoda > Insecta
+    TargetScope insecta = new TargetScope(3, "ins", Set.of("ins", "art", "ani", "root"));
+    TargetScope arthropoda = new TargetScope(3, "art", Set.of("art", "ani", "root"));
+    TargetScope plantae = new TargetScope(3, "pla", Set.of("pla", "root"));
+
+    assertTrue(insecta.overlaps(insecta));
+    assertTrue(insecta.overlaps(arthropoda));
+    assertTrue(arthropoda.overlaps(insecta));
+    assertFalse(insecta.overlaps(plantae));
+    assertFalse(plantae.overlaps(arthropoda));
+
+    // entire project
+    assertTrue(TargetScope.project(3).overlaps(plantae));
+    assertTrue(plantae.overlaps(TargetScope.project(3)));
+
+    // other projects never overlap
+    assertFalse(TargetScope.project(4).overlaps(plantae));
+    assertFalse(new TargetScope(4, "ins", Set.of("ins", "art", "ani", "root")).overlaps(insecta));
+  }
+
+  /**
+   * Disjoint targets and other projects run in parallel up to the number of threads.
+   */
+  @Test
+  public void schedule() throws Exception {
+    start(2);
+    TestJob ins = new TestJob(3, 1, Sector.Mode.ATTACH, "ins");
+    TestJob pla = new TestJob(3, 2, Sector.Mode.UNION, "pla");
+    TestJob other = new TestJob(4, 3, Sector.Mode.MERGE, null);
+
+    ins.queue();
+    pla.queue();
+    ins.awaitRunning();
+    pla.awaitRunning();
+    // all threads busy
+    other.queue();
+    assertEquals(2, manager.runningSize());
+    assertEquals(1, manager.queueSize());
+    assertFalse(other.hasStarted());
+    assertEquals(2, manager.getState().runningAll.size());
+    assertEquals(1, manager.getState().queued.size());
+
+    // sectors already queued are ignored
+    ins.queue();
+    assertEquals(1, manager.queueSize());
+
+    ins.release.countDown();
+    other.awaitRunning();
+    assertEquals(0, manager.queueSize());
+
+    pla.release.countDown();
+    other.release.countDown();
+    awaitIdle();
+    assertEquals(3, manager.getState().completed);
+    assertEquals(0, manager.runningSize());
+  }
+
+  /**
+   * Overlapping jobs of the same project run in the order they were queued
+   * and never overtake earlier jobs they conflict with.
+   */
+  @Test
+  public void order() throws Exception {
+    start(4);
+    TestJob art = new TestJob(3, 1, Sector.Mode.ATTACH, "art");
+    TestJob ins = new TestJob(3, 2, Sector.Mode.ATTACH, "ins");
+    TestJob pla = new TestJob(3, 3, Sector.Mode.ATTACH, "pla");
+    TestJob merge = new TestJob(3, 4, Sector.Mode.MERGE, "root");
+    TestJob fun = new TestJob(3, 5, Sector.Mode.ATTACH, "fun");
+
+    art.queue();
+    art.awaitRunning();
+    // inside the running art subtree
+    ins.queue();
+    pla.queue();
+    pla.awaitRunning();
+    // merge sectors block the entire project
+    merge.queue();
+    // fun is disjoint from all running jobs, but must not overtake the earlier merge
+    fun.queue();
+    assertEquals(2, manager.runningSize());
+    assertEquals(3, manager.queueSize());
+
+    art.release.countDown();
+    ins.awaitRunning();
+    assertFalse(merge.hasStarted());
+    assertFalse(fun.hasStarted());
+
+    ins.release.countDown();
+    pla.release.countDown();
+    merge.awaitRunning();
+    assertEquals(1, manager.runningSize());
+    assertFalse(fun.hasStarted());
+
+    merge.release.countDown();
+    fun.awaitRunning();
+    fun.release.countDown();
+    awaitIdle();
+    assertEquals(List.of(1, 3, 2, 4, 5), started);
+  }
+
+  @Test
+  public void cancel() throws Exception {
+    start(1);
+    TestJob j1 = new TestJob(3, 1, Sector.Mode.ATTACH, "ins");
+    TestJob j2 = new TestJob(3, 2, Sector.Mode.ATTACH, "pla");
+    TestJob j3 = new TestJob(3, 3, Sector.Mode.ATTACH, "fun");
+
+    j1.queue();
+    j1.awaitRunning();
+    j2.queue();
+    j3.queue();
+    assertEquals(2, manager.queueSize());
+
+    // cancel a pending job
+    manager.cancel(DSID.of(3, 2), USER);
+    assertEquals(1, manager.queueSize());
+    assertEquals(2, manager.getState().queued.size() + manager.getState().runningAll.size());
+
+    // cancel the running job, which frees the thread for the next one
+    manager.cancel(DSID.of(3, 1), USER);
+    j3.awaitRunning();
+    assertFalse(j2.hasStarted());
+    assertEquals(0, manager.queueSize());
+
+    // cancelled sectors can be queued again
+    j2.queue();
+    assertEquals(1, manager.queueSize());
+    j3.release.countDown();
+    j2.awaitRunning();
+    j2.release.countDown();
+    awaitIdle();
+    assertEquals(List.of(1, 3, 2), started);
+    assertEquals(2, manager.getState().completed);
+  }
+
+  private void awaitIdle() throws InterruptedException {
+    long end = System.currentTimeMillis() + 5000;
+    while (!(manager.isIdle() && manager.runningSize() == 0) && System.currentTimeMillis() < end) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertTrue(manager.isIdle());
+    assertEquals(0, manager.runningSize());
+  }
+}
@@ -32,7 +32,7 @@ import org.junit.rules.RuleChain;
 import org.junit.rules.TestRule;
 
 import static life.catalogue.api.model.SimpleName.sn;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class UsageMatcherGlobalTest {
 
@@ -90,6 +90,34 @@ public class UsageMatcherGlobalTest {
     }
   }
 
+  /**
+   * Names without any usage are cached as empty lists, but added usages must be found right away.
+   */
+  @Test
+  public void addToEmpty() {
+    Name n = Name.newBuilder()
+                 .datasetKey(datasetKey)
+                 .rank(Rank.SPECIES)
+                 .scientificName("Abies alba")
+                 .genus("Abies")
+                 .specificEpithet("alba")
+                 .authorship("Mill.")
+                 .build();
+    Taxon t = new Taxon(n);
+    t.setId("abies");
+    t.setDatasetKey(datasetKey);
+    t.setStatus(TaxonomicStatus.ACCEPTED);
+
+    matcher.prefetch(datasetKey, List.of(t));
+    var match = matcher.matchWithParents(datasetKey, t, List.of());
+    assertFalse(match.isMatch());
+
+    matcher.add(t);
+    match = matcher.matchWithParents(datasetKey, t, List.of());
+    assertTrue(match.isMatch());
+    assertEquals("abies", match.usage.getId());
+  }
+
   @Test
   public void oenanthe() throws Exception {
     var match = match(Rank.GENUS, "Oenanthe", "L.", null, null);
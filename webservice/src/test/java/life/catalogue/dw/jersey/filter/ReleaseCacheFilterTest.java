@@ -0,0 +1,228 @@
+package life.catalogue.dw.jersey.filter;
+
+import life.catalogue.api.model.Dataset;
+import life.catalogue.api.vocab.DatasetOrigin;
+import life.catalogue.db.mapper.DatasetMapper;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Rule;
+import org.junit.Test;
+
+import io.dropwizard.testing.junit.ResourceTestRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReleaseCacheFilterTest {
+  static final int RELEASE_KEY = 3;
+
+  @Path("/dataset/{key}/tree")
+  public static class TreeResource {
+    final AtomicInteger calls = new AtomicInteger();
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response json(@PathParam("key") int key, @QueryParam("q") String q) {
+      return Response.ok("{\"key\":" + key + ",\"q\":\"" + q + "\",\"call\":" + calls.incrementAndGet() + "}")
+        .header("X-Test", "json")
+        .build();
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response text(@PathParam("key") int key, @QueryParam("q") String q) {
+      return Response.ok(key + " " + q + " " + calls.incrementAndGet())
+        .header("X-Test", "text")
+        .build();
+    }
+  }
+
+  final TreeResource resource = new TreeResource();
+  final ReleaseCacheFilter filter = filter();
+
+  @Rule
+  public final ResourceTestRule resources = ResourceTestRule.builder()
+    .addResource(resource)
+    .addProvider(filter)
+    .build();
+
+  private static ReleaseCacheFilter filter() {
+    Dataset d = new Dataset();
+    d.setKey(RELEASE_KEY);
+    d.setAttempt(1);
+    d.setOrigin(DatasetOrigin.RELEASE);
+    d.setPrivat(false);
+    DatasetMapper dm = mock(DatasetMapper.class);
+    when(dm.get(RELEASE_KEY)).thenReturn(d);
+    SqlSession session = mock(SqlSession.class);
+    when(session.getMapper(DatasetMapper.class)).thenReturn(dm);
+    SqlSessionFactory factory = mock(SqlSessionFactory.class);
+    when(factory.openSession()).thenReturn(session);
+
+    ReleaseCacheFilter filter = new ReleaseCacheFilter(1);
+    filter.setSqlSessionFactory(factory);
+    return filter;
+  }
+
+  private Response get(int key, String query, String accept, EntityTag ifNoneMatch) {
+    var target = resources.target("/dataset/" + key + "/tree");
+    if (query != null) {
+      target = target.queryParam("q", query);
+    }
+    var req = target.request(accept);
+    if (ifNoneMatch != null) {
+      req = req.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return req.get();
+  }
+
+  @Test
+  public void cacheHit() {
+    Response r1 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    assertEquals(200, r1.getStatus());
+    String body = r1.readEntity(String.class);
+    Response r2 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    assertEquals(200, r2.getStatus());
+    assertEquals(body, r2.readEntity(String.class));
+    assertEquals(MediaType.APPLICATION_JSON_TYPE, r2.getMediaType());
+    assertEquals(1, resource.calls.get());
+    assertEquals(1, filter.size());
+    assertEquals(r1.getEntityTag(), r2.getEntityTag());
+
+    // another query is another representation
+    Response r3 = get(RELEASE_KEY, "picea", MediaType.APPLICATION_JSON, null);
+    assertEquals(200, r3.getStatus());
+    assertEquals(2, resource.calls.get());
+    assertNotEquals(r1.getEntityTag(), r3.getEntityTag());
+
+    // not a release
+    get(RELEASE_KEY + 1, "abies", MediaType.APPLICATION_JSON, null);
+    get(RELEASE_KEY + 1, "abies", MediaType.APPLICATION_JSON, null);
+    assertEquals(4, resource.calls.get());
+    assertEquals(2, filter.size());
+
+    filter.invalidate(RELEASE_KEY);
+    assertEquals(0, filter.size());
+    get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    assertEquals(5, resource.calls.get());
+  }
+
+  @Test
+  public void notModified() {
+    Response r1 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    EntityTag etag = r1.getEntityTag();
+    assertNotNull(etag);
+    assertFalse(etag.isWeak());
+
+    Response r2 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, etag);
+    assertEquals(304, r2.getStatus());
+    assertEquals(etag, r2.getEntityTag());
+    assertEquals(1, resource.calls.get());
+
+    // the tag of another representation does not match
+    Response r3 = get(RELEASE_KEY, "picea", MediaType.APPLICATION_JSON, etag);
+    assertEquals(200, r3.getStatus());
+    assertEquals(2, resource.calls.get());
+  }
+
+  @Test
+  public void variants() {
+    Response json = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    Response text = get(RELEASE_KEY, "abies", MediaType.TEXT_PLAIN, null);
+    assertEquals(2, resource.calls.get());
+    assertEquals(MediaType.APPLICATION_JSON_TYPE, json.getMediaType());
+    assertEquals(MediaType.TEXT_PLAIN_TYPE, text.getMediaType());
+    assertNotEquals(json.getEntityTag(), text.getEntityTag());
+    assertEquals("3 abies 2", text.readEntity(String.class));
+
+    // a cached text response does not revalidate a json request
+    Response r = get(RELEASE_KEY, "abies", MediaType.TEXT_PLAIN, json.getEntityTag());
+    assertEquals(200, r.getStatus());
+    assertEquals(MediaType.TEXT_PLAIN_TYPE, r.getMediaType());
+    assertEquals("3 abies 2", r.readEntity(String.class));
+    assertEquals(2, resource.calls.get());
+  }
+
+  @Test
+  public void replayedHeaders() {
+    Response r1 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    Response r2 = get(RELEASE_KEY, "abies", MediaType.APPLICATION_JSON, null);
+    assertEquals(1, resource.calls.get());
+    for (Response r : new Response[]{r1, r2}) {
+      assertEquals(1, r.getStringHeaders().get("X-Test").size());
+      assertEquals("json", r.getHeaderString("X-Test"));
+      assertEquals(1, r.getStringHeaders().get(HttpHeaders.ETAG).size());
+      assertEquals(1, r.getStringHeaders().get(HttpHeaders.CONTENT_TYPE).size());
+      assertEquals(1, r.getStringHeaders().get(HttpHeaders.VARY).size());
+      assertEquals(HttpHeaders.ACCEPT, r.getHeaderString(HttpHeaders.VARY));
+    }
+  }
+
+  @Test
+  public void vary() {
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    ReleaseCacheFilter.varyAccept(headers);
+    assertEquals(HttpHeaders.ACCEPT, headers.getFirst(HttpHeaders.VARY));
+    ReleaseCacheFilter.varyAccept(headers);
+    assertEquals(HttpHeaders.ACCEPT, headers.getFirst(HttpHeaders.VARY));
+
+    headers.putSingle(HttpHeaders.VARY, "Origin");
+    ReleaseCacheFilter.varyAccept(headers);
+    assertEquals("Origin, Accept", headers.getFirst(HttpHeaders.VARY));
+
+    headers.putSingle(HttpHeaders.VARY, "origin,accept");
+    ReleaseCacheFilter.varyAccept(headers);
+    assertEquals("origin,accept", headers.getFirst(HttpHeaders.VARY));
+
+    headers.putSingle(HttpHeaders.VARY, "Accept-Language");
+    ReleaseCacheFilter.varyAccept(headers);
+    assertEquals("Accept-Language, Accept", headers.getFirst(HttpHeaders.VARY));
+  }
+
+  @Test
+  public void cachedPaths() {
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3").find());
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("/dataset/3/").find());
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/tree").find());
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/tree/1234/children").find());
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/taxon/1234/classification").find());
+    assertTrue(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/nameusage/search").find());
+
+    assertFalse(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/import").find());
+    assertFalse(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/nameusage/1234").find());
+    assertFalse(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3LR/tree").find());
+    assertFalse(ReleaseCacheFilter.CACHED_PATH.matcher("dataset/3/treemap").find());
+    assertFalse(ReleaseCacheFilter.CACHED_PATH.matcher("dataset").find());
+  }
+
+  @Test
+  public void etag() {
+    Dataset d = new Dataset();
+    d.setKey(1013);
+    d.setAttempt(7);
+    assertEquals("\"1013-7\"", ReleaseCacheFilter.etag(d).toString());
+    assertFalse(ReleaseCacheFilter.etag(d).isWeak());
+
+    d.setModified(LocalDateTime.of(2020, 1, 1, 0, 0));
+    var e1 = ReleaseCacheFilter.etag(d);
+    d.setModified(LocalDateTime.of(2020, 1, 1, 0, 1));
+    assertNotEquals(e1, ReleaseCacheFilter.etag(d));
+  }
+}
@@ -0,0 +1,99 @@
+package life.catalogue.exporter;
+
+import life.catalogue.api.event.DatasetDataChanged;
+import life.catalogue.api.vocab.DataFormat;
+
+import org.gbif.nameparser.api.Rank;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExportCacheTest {
+  File cacheDir;
+  File dir;
+
+  @Before
+  public void init() throws Exception {
+    cacheDir = Files.createTempDirectory("exportCache").toFile();
+    dir = Files.createTempDirectory("export").toFile();
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    FileUtils.deleteDirectory(cacheDir);
+    FileUtils.deleteDirectory(dir);
+  }
+
+  @Test
+  public void storeRestore() throws Exception {
+    var cache = new ExportCache(cacheDir, 1024 * 1024, Duration.ofDays(1));
+    assertFalse(cache.exists(3, 7, DataFormat.COLDP));
+    assertNull(cache.restore(3, 7, DataFormat.COLDP, dir));
+
+    Files.writeString(new File(dir, "NameUsage.tsv").toPath(), "ID\tscientificName\n1\tAbies\n");
+    var info = new ExportCache.Info();
+    info.taxa = 1;
+    info.taxaByRank.put(Rank.GENUS, 1);
+    info.sector2datasetKeys.put(10, 1000);
+    cache.store(3, 7, DataFormat.COLDP, dir, info);
+    assertTrue(cache.exists(3, 7, DataFormat.COLDP));
+    // other formats of the same attempt are kept
+    cache.store(3, 7, DataFormat.DWCA, dir, info);
+    assertTrue(cache.exists(3, 7, DataFormat.COLDP));
+    // no temp files left
+    assertEquals(0, new File(cacheDir, ".tmp").list().length);
+
+    FileUtils.cleanDirectory(dir);
+    var info2 = cache.restore(3, 7, DataFormat.COLDP, dir);
+    assertEquals("ID\tscientificName\n1\tAbies\n", Files.readString(new File(dir, "NameUsage.tsv").toPath()));
+    assertEquals(1, info2.taxa);
+    assertEquals(0, info2.synonyms);
+    assertEquals(1, (int) info2.taxaByRank.get(Rank.GENUS));
+    assertEquals(1000, (int) info2.sector2datasetKeys.get(10));
+
+    // a new attempt removes the old one
+    cache.store(3, 8, DataFormat.COLDP, dir, info);
+    assertTrue(cache.exists(3, 8, DataFormat.COLDP));
+    assertFalse(cache.exists(3, 7, DataFormat.COLDP));
+    assertFalse(cache.exists(3, 7, DataFormat.DWCA));
+
+    // deleted datasets or data changes remove all entries
+    cache.store(4, 1, DataFormat.COLDP, dir, info);
+    cache.dataChanged(new DatasetDataChanged(3));
+    assertFalse(cache.exists(3, 8, DataFormat.COLDP));
+    assertTrue(cache.exists(4, 1, DataFormat.COLDP));
+    cache.delete(4);
+    assertFalse(cache.exists(4, 1, DataFormat.COLDP));
+  }
+
+  @Test
+  public void evict() throws Exception {
+    Files.writeString(new File(dir, "NameUsage.tsv").toPath(), "x".repeat(1000));
+    var info = new ExportCache.Info();
+    // room for 2 entries only
+    var cache = new ExportCache(cacheDir, 2500, Duration.ofDays(1));
+    cache.store(1, 1, DataFormat.COLDP, dir, info);
+    cache.store(2, 1, DataFormat.COLDP, dir, info);
+    // mark 1 as older
+    new File(cacheDir, "1/1/coldp/info.json").setLastModified(System.currentTimeMillis() - 10000);
+    cache.store(3, 1, DataFormat.COLDP, dir, info);
+    assertFalse(cache.exists(1, 1, DataFormat.COLDP));
+    assertTrue(cache.exists(2, 1, DataFormat.COLDP));
+    assertTrue(cache.exists(3, 1, DataFormat.COLDP));
+
+    // expired entries
+    new File(cacheDir, "2/1/coldp/info.json").setLastModified(System.currentTimeMillis() - Duration.ofDays(2).toMillis());
+    cache.store(4, 1, DataFormat.COLDP, dir, info);
+    assertFalse(cache.exists(2, 1, DataFormat.COLDP));
+    assertTrue(cache.exists(3, 1, DataFormat.COLDP));
+    assertTrue(cache.exists(4, 1, DataFormat.COLDP));
+  }
+}
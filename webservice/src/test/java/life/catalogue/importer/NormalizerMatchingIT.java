@@ -0,0 +1,135 @@
+package life.catalogue.importer;
+
+import life.catalogue.api.model.IndexName;
+import life.catalogue.api.model.Name;
+import life.catalogue.api.model.NameMatch;
+import life.catalogue.api.vocab.DataFormat;
+import life.catalogue.api.vocab.Issue;
+import life.catalogue.api.vocab.MatchType;
+import life.catalogue.matching.NameIndex;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Transaction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Matches names with several threads against an index that hands out keys in the order names are inserted.
+ */
+public class NormalizerMatchingIT extends NormalizerITBase {
+
+  public NormalizerMatchingIT() {
+    super(DataFormat.COLDP, SequentialIndex::new);
+  }
+
+  /**
+   * In memory index matching names by their label and rank only.
+   */
+  static class SequentialIndex implements NameIndex {
+    private final Map<String, IndexName> names = new ConcurrentHashMap<>();
+    private final AtomicInteger keys = new AtomicInteger();
+
+    private static String key(Name n) {
+      return n.getRank() + " " + n.getLabel();
+    }
+
+    @Override
+    public NameMatch match(Name name, boolean allowInserts, boolean verbose) {
+      IndexName in = names.get(key(name));
+      if (in == null && allowInserts) {
+        in = new IndexName(name, keys.incrementAndGet());
+        names.put(key(name), in);
+      }
+      if (in == null) {
+        return NameMatch.noMatch();
+      }
+      NameMatch m = new NameMatch();
+      m.setName(in);
+      m.setType(MatchType.EXACT);
+      return m;
+    }
+
+    @Override
+    public LocalDateTime created() {
+      return LocalDateTime.now();
+    }
+
+    @Override
+    public IndexName get(Integer key) {
+      return names.values().stream().filter(n -> n.getKey().equals(key)).findFirst().orElse(null);
+    }
+
+    @Override
+    public Collection<IndexName> byCanonical(Integer key) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Iterable<IndexName> all() {
+      return names.values();
+    }
+
+    @Override
+    public int size() {
+      return names.size();
+    }
+
+    @Override
+    public void add(IndexName name) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void reset() {
+      names.clear();
+    }
+
+    @Override
+    public void start() throws Exception {
+    }
+
+    @Override
+    public void stop() throws Exception {
+    }
+
+    @Override
+    public boolean hasStarted() {
+      return true;
+    }
+  }
+
+  /**
+   * @return map of name ids to their names index key and whether they were flagged as duplicates
+   */
+  private Map<String, String> matches(int threads) throws Exception {
+    if (store != null) {
+      store.closeAndDelete();
+    }
+    cfg.matcherThreads = threads;
+    normalize(0);
+    Map<String, String> matches = new TreeMap<>();
+    try (Transaction tx = store.getNeo().beginTx()) {
+      store.names().all().forEach(n -> {
+        boolean dupe = n.getVerbatimKey() != null && store.getVerbatim(n.getVerbatimKey()).hasIssue(Issue.DUPLICATE_NAME);
+        matches.put(n.getId(), n.namesIndexId + " " + n.namesIndexMatchType + (dupe ? " duplicate" : ""));
+      });
+    }
+    return matches;
+  }
+
+  @Test
+  public void parallelMatching() throws Exception {
+    Map<String, String> seq = matches(1);
+    assertTrue(seq.size() > 10);
+    assertTrue(seq.values().stream().allMatch(m -> m.contains(" " + MatchType.EXACT)));
+
+    for (int threads : new int[]{2, 8}) {
+      assertEquals(seq, matches(threads));
+    }
+  }
+}
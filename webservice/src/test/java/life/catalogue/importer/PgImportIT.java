@@ -489,6 +489,40 @@ public class PgImportIT extends PgImportITBase {
     testColdpSpecsMetrics(metrics());
   }
 
+  /**
+   * Verbatim records streamed via COPY must be counted by the metrics collector just like batched inserts.
+   */
+  @Test
+  public void copyVerbatimMetrics() throws Exception {
+    icfg.pgCopy = true;
+    normalizeAndImport(COLDP, 0);
+    DatasetImport collected = new DatasetImport();
+    importer.getMetrics().fill(collected);
+    DatasetImport generated = metrics();
+
+    assertEquals(94, (int) collected.getVerbatimCount());
+    assertEquals(generated.getVerbatimCount(), collected.getVerbatimCount());
+    assertFalse(collected.getIssuesCount().isEmpty());
+    assertEquals(generated.getIssuesCount(), collected.getIssuesCount());
+    assertFalse(collected.getVerbatimByTermCount().isEmpty());
+    assertEquals(generated.getVerbatimByTermCount(), collected.getVerbatimByTermCount());
+    assertEquals(generated.getVerbatimByRowTypeCount(), collected.getVerbatimByRowTypeCount());
+  }
+
+  /**
+   * The metrics collected while importing must be identical to the ones generated from the persisted data.
+   */
+  @Test
+  public void collectedMetrics() throws Exception {
+    normalizeAndImport(COLDP, 0);
+    DatasetImport generated = metrics();
+    DatasetImport collected = new DatasetImport();
+    collected.setDatasetKey(generated.getDatasetKey());
+    collected.setCreatedBy(generated.getCreatedBy());
+    importer.getMetrics().fill(collected);
+    assertEquals(generated, collected);
+  }
+
   private void testColdpSpecsMetrics(DatasetImport di) {
     assertEquals(2, (int) metrics().getTreatmentCount());
     assertEquals(9, (int) di.getDistributionCount());
@@ -62,6 +62,8 @@ public class PgImportITBase {
   EventBus bus = new EventBus();
   Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
   NameUsageIndexService indexService = NameUsageIndexService.passThru();
+  // the last postgres import, giving access to its collected metrics
+  PgImport importer;
 
   @ClassRule
   public static PgSetupRule pgSetupRule = new PgSetupRule();
@@ -135,7 +137,7 @@ public class PgImportITBase {
       
       // import into postgres
       store = NeoDbFactory.open(dataset.getKey(), 1, cfg);
-      PgImport importer = new PgImport(1, dataset, Users.IMPORTER, store, SqlSessionFactoryRule.getSqlSessionFactory(), icfg, ddao, indexService);
+      importer = new PgImport(1, dataset, Users.IMPORTER, store, SqlSessionFactoryRule.getSqlSessionFactory(), icfg, ddao, indexService);
       importer.call();
       
     } catch (Exception e) {
@@ -8,6 +8,7 @@ import life.catalogue.api.vocab.Gazetteer;
 import life.catalogue.api.vocab.License;
 import life.catalogue.common.date.FuzzyDate;
 import life.catalogue.importer.InserterBaseTest;
+import life.catalogue.importer.NeoCsvInserter;
 import life.catalogue.importer.NeoInserter;
 import life.catalogue.importer.neo.model.NeoUsage;
 
@@ -19,6 +20,8 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.junit.Test;
 import org.neo4j.graphdb.Transaction;
@@ -32,6 +35,41 @@ public class DwcaInserterTest extends InserterBaseTest {
     return new DwcaInserter(store, resource, settings, refFactory);
   }
 
+  /**
+   * References created from citations while interpreting names concurrently
+   * must be the same with the same ids as in a sequential insert.
+   */
+  @Test
+  public void concurrentReferences() throws Exception {
+    Map<String, String> seq = publishedIn("/dwca/21", 1);
+    Map<String, String> par = publishedIn("/dwca/21", 4);
+    assertTrue(seq.size() > 20);
+    assertEquals(seq, par);
+  }
+
+  /**
+   * @return map of name ids to their publishedIn reference id and citation
+   */
+  private Map<String, String> publishedIn(String resource, int threads) throws Exception {
+    if (store != null) {
+      store.closeAndDelete();
+    }
+    NeoCsvInserter ins = (NeoCsvInserter) setup(resource);
+    ins.setInterpreterThreads(threads);
+    ins.insertAll();
+
+    Map<String, String> refs = new TreeMap<>();
+    try (Transaction tx = store.getNeo().beginTx()) {
+      store.names().all().forEach(nn -> {
+        String rid = nn.getName().getPublishedInId();
+        if (rid != null) {
+          refs.put(nn.getId(), rid + " " + store.references().get(rid).getCitation());
+        }
+      });
+    }
+    return refs;
+  }
+
   /**
    * Plazi with COL metadata.json
    */
@@ -5,6 +5,7 @@ import life.catalogue.api.TestEntityGenerator;
 import life.catalogue.api.model.Name;
 import life.catalogue.api.model.Reference;
 import life.catalogue.api.model.VerbatimRecord;
+import life.catalogue.api.vocab.Issue;
 import life.catalogue.api.vocab.Origin;
 import life.catalogue.api.vocab.TaxonomicStatus;
 import life.catalogue.config.NormalizerConfig;
@@ -23,10 +24,10 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
 
+import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 
 
 public class NeoDbTest {
@@ -225,6 +226,27 @@ public class NeoDbTest {
   }
   
   
+  @Test
+  public void reserveVerbatim() throws Exception {
+    VerbatimRecord v = new VerbatimRecord(7, "file.txt", AcefTerm.AcceptedSpecies);
+    v.put(AcefTerm.AcceptedTaxonID, "1");
+    db.reserve(v);
+    assertNotNull(v.getId());
+
+    // pending records are shared and only persisted on release
+    db.addIssues(v.getId(), Issue.NOT_INTERPRETED);
+    assertSame(v, db.getVerbatim(v.getId()));
+    db.put(v);
+    assertEquals(0, Iterables.size(db.verbatimList()));
+
+    db.release(v);
+    assertEquals(1, Iterables.size(db.verbatimList()));
+    VerbatimRecord v2 = db.getVerbatim(v.getId());
+    assertNotSame(v, v2);
+    assertTrue(v2.hasIssue(Issue.NOT_INTERPRETED));
+    assertEquals("1", v2.get(AcefTerm.AcceptedTaxonID));
+  }
+
   /**
    * https://github.com/Sp2000/colplus-backend/issues/389
    */
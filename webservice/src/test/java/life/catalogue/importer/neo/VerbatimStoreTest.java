@@ -0,0 +1,121 @@
+package life.catalogue.importer.neo;
+
+import life.catalogue.api.model.VerbatimRecord;
+import life.catalogue.api.vocab.Issue;
+
+import org.gbif.dwc.terms.DwcTerm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import static org.junit.Assert.*;
+
+public class VerbatimStoreTest {
+  File dir;
+  NeoKryoPool pool = new NeoKryoPool(2);
+
+  @Before
+  public void init() {
+    dir = Files.createTempDir();
+  }
+
+  @After
+  public void destroy() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  static VerbatimRecord rec(int key, String name) {
+    VerbatimRecord v = new VerbatimRecord(3, key, "taxa.txt", DwcTerm.Taxon);
+    v.setId(key);
+    v.put(DwcTerm.scientificName, name);
+    return v;
+  }
+
+  @Test
+  public void roundtrip() {
+    try (VerbatimStore store = new VerbatimStore(dir, pool)) {
+      for (int key = 1; key <= 100; key++) {
+        VerbatimRecord v = rec(key, "Abies " + key);
+        if (key % 10 == 0) {
+          v.addIssue(Issue.ID_NOT_UNIQUE);
+        }
+        store.put(v);
+      }
+      assertEquals(100, store.size());
+      assertEquals(100, store.maxKey());
+      assertNull(store.get(101));
+      assertNull(store.getIssues(0));
+
+      VerbatimRecord v = store.get(10);
+      assertEquals("Abies 10", v.get(DwcTerm.scientificName));
+      assertEquals(Set.of(Issue.ID_NOT_UNIQUE), v.getIssues());
+      assertTrue(store.get(11).getIssues().isEmpty());
+
+      // issues are updated in place
+      assertTrue(store.addIssues(11, Issue.UNPARSABLE_NAME, null, Issue.RANK_INVALID));
+      assertFalse(store.addIssues(1000, Issue.UNPARSABLE_NAME));
+      assertEquals(Set.of(Issue.UNPARSABLE_NAME, Issue.RANK_INVALID), store.getIssues(11));
+      assertEquals("Abies 11", store.get(11).get(DwcTerm.scientificName));
+
+      // changed terms are appended
+      v = store.get(12);
+      v.put(DwcTerm.scientificName, "Picea 12");
+      store.put(v);
+      assertEquals(100, store.size());
+      assertEquals("Picea 12", store.get(12).get(DwcTerm.scientificName));
+
+      List<VerbatimRecord> all = new ArrayList<>();
+      store.forEach(all::add);
+      assertEquals(100, all.size());
+      // the updated record was written last
+      assertEquals(12, (int) all.get(99).getId());
+      assertEquals("Picea 12", all.get(99).get(DwcTerm.scientificName));
+      assertEquals(Set.of(Issue.UNPARSABLE_NAME, Issue.RANK_INVALID), all.get(10).getIssues());
+    }
+
+    // reopen
+    try (VerbatimStore store = new VerbatimStore(dir, pool)) {
+      assertEquals(100, store.size());
+      assertEquals(100, store.maxKey());
+      assertEquals("Picea 12", store.get(12).get(DwcTerm.scientificName));
+      assertEquals(Set.of(Issue.UNPARSABLE_NAME, Issue.RANK_INVALID), store.getIssues(11));
+    }
+  }
+
+  @Test
+  public void appendChangesOnly() {
+    try (VerbatimStore store = new VerbatimStore(dir, pool)) {
+      store.put(rec(1, "Abies"));
+      store.put(rec(2, "Picea"));
+    }
+    // reopen and rewrite unchanged records with new issues only
+    try (VerbatimStore store = new VerbatimStore(dir, pool)) {
+      VerbatimRecord v = rec(1, "Abies");
+      v.addIssue(Issue.ID_NOT_UNIQUE);
+      store.put(v);
+      assertEquals(List.of(1, 2), keys(store));
+      assertEquals(Set.of(Issue.ID_NOT_UNIQUE), store.getIssues(1));
+
+      // any change in content is appended
+      store.put(rec(1, "Abiez"));
+      assertEquals(List.of(2, 1), keys(store));
+      assertEquals("Abiez", store.get(1).get(DwcTerm.scientificName));
+      assertTrue(store.getIssues(1).isEmpty());
+    }
+  }
+
+  private static List<Integer> keys(VerbatimStore store) {
+    List<Integer> keys = new ArrayList<>();
+    store.forEach(v -> keys.add(v.getId()));
+    return keys;
+  }
+}
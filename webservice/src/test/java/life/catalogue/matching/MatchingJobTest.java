@@ -10,8 +10,18 @@ import life.catalogue.db.SqlSessionFactoryRule;
 
 import life.catalogue.db.TestDataRule;
 
+import org.gbif.nameparser.api.Rank;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.ClassRule;
 import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
 
 public class MatchingJobTest extends EmailNotificationTemplateTest {
 
@@ -30,4 +40,20 @@ public class MatchingJobTest extends EmailNotificationTemplateTest {
       return new MatchingJob(req, Users.TESTER, SqlSessionFactoryRule.getSqlSessionFactory(), null, new WsServerConfig());
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void streamTabular() throws Exception {
+    String tsv = "ID\tscientificName\tauthorship\trank\tfamily\n" +
+      "1\tAbies alba\tMill.\tspecies\tPinaceae\n" +
+      "2\tPicea\t\tgenus\tPinaceae\n";
+    List<BatchMatcher.IssueName> names = MatchingJob.streamTabular(new ByteArrayInputStream(tsv.getBytes(StandardCharsets.UTF_8)), false)
+      .collect(Collectors.toList());
+    assertEquals(2, names.size());
+    assertEquals("1", names.get(0).name.getId());
+    assertEquals("Abies alba", names.get(0).name.getName());
+    assertEquals("Mill.", names.get(0).name.getAuthorship());
+    assertEquals(Rank.SPECIES, names.get(0).name.getRank());
+    assertEquals("Pinaceae", names.get(0).name.getClassification().get(0).getName());
+    assertEquals(Rank.GENUS, names.get(1).name.getRank());
+  }
+}
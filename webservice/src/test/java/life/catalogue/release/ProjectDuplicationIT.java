@@ -1,24 +1,42 @@
 package life.catalogue.release;
 
+import life.catalogue.api.model.Name;
+import life.catalogue.api.model.NameUsage;
 import life.catalogue.api.model.NameUsageBase;
+import life.catalogue.api.model.Reference;
 import life.catalogue.api.model.Sector;
 import life.catalogue.api.vocab.DataFormat;
 import life.catalogue.api.vocab.Datasets;
 import life.catalogue.api.vocab.ImportState;
 import life.catalogue.api.vocab.Users;
 import life.catalogue.assembly.SectorSyncIT;
+import life.catalogue.concurrent.JobConfig;
+import life.catalogue.dao.PartitionerTest;
+import life.catalogue.db.SqlSessionFactoryRule;
 import life.catalogue.db.TestDataRule;
+import life.catalogue.db.mapper.DatasetPartitionMapper;
+import life.catalogue.db.mapper.NameMapper;
+import life.catalogue.db.mapper.NameUsageMapper;
+import life.catalogue.db.mapper.ReferenceMapper;
 import life.catalogue.importer.PgImportRule;
 
 import org.gbif.nameparser.api.NomCode;
 import org.gbif.nameparser.api.Rank;
 
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.session.SqlSession;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.RuleChain;
 import org.junit.rules.TestRule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ProjectDuplicationIT extends ProjectBaseIT {
 
@@ -64,4 +82,45 @@ public class ProjectDuplicationIT extends ProjectBaseIT {
     dupe.run();
     assertEquals(ImportState.FINISHED, dupe.getMetrics().getState());
   }
-}
\ No newline at end of file
+
+  /**
+   * Copies all tables and builds their indices with several threads
+   * and makes sure all records were copied and all indices of the main tables exist exactly once.
+   */
+  @Test
+  public void duplicateConcurrently() throws Exception {
+    ProjectDuplication dupe = projectCopyFactory.buildDuplication(Datasets.COL, Users.TESTER);
+    JobConfig cfg = new JobConfig();
+    cfg.copyThreads = 4;
+    dupe.setCfg(cfg);
+    final int datasetKey = dupe.newDatasetKey;
+    dupe.run();
+    assertEquals(ImportState.FINISHED, dupe.getMetrics().getState());
+
+    Map<String, Integer> copied = dupe.getCopiedRecords();
+    try (SqlSession session = SqlSessionFactoryRule.getSqlSessionFactory().openSession(true)) {
+      var num = session.getMapper(NameUsageMapper.class);
+      assertTrue(num.count(Datasets.COL) > 0);
+      assertCopied(copied, NameUsage.class, num.count(Datasets.COL), num.count(datasetKey));
+      var nm = session.getMapper(NameMapper.class);
+      assertCopied(copied, Name.class, nm.count(Datasets.COL), nm.count(datasetKey));
+      var rm = session.getMapper(ReferenceMapper.class);
+      assertCopied(copied, Reference.class, rm.count(Datasets.COL), rm.count(datasetKey));
+    }
+
+    List<String> tables = new ArrayList<>(DatasetPartitionMapper.PARTITIONED_TABLES);
+    tables.addAll(DatasetPartitionMapper.PROJECT_TABLES);
+    assertEquals(tables.stream().map(t -> t + "_" + datasetKey).collect(Collectors.toSet()), dupe.getIndexedTables());
+    try (SqlSession session = SqlSessionFactoryRule.getSqlSessionFactory().openSession(true)) {
+      Connection con = session.getConnection();
+      for (String table : tables) {
+        assertEquals(table, PartitionerTest.indexDefinitions(con, table), PartitionerTest.indexDefinitions(con, table + "_" + datasetKey));
+      }
+    }
+  }
+
+  private static void assertCopied(Map<String, Integer> copied, Class<?> entity, int sourceCount, int count) {
+    assertEquals(entity.getSimpleName(), (Integer) sourceCount, copied.get(entity.getSimpleName()));
+    assertEquals(entity.getSimpleName(), sourceCount, count);
+  }
+}
@@ -4,14 +4,16 @@ import life.catalogue.api.model.SimpleNameWithNidx;
 import life.catalogue.api.vocab.MatchType;
 import life.catalogue.api.vocab.TaxonomicStatus;
 
+import org.gbif.nameparser.api.Rank;
+
 import java.util.concurrent.TimeUnit;
 
+import org.junit.After;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import static life.catalogue.release.ReleasedIds.ReleasedId;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
+import static org.junit.Assert.*;
 
 public class ReleasedIdsTest {
 
@@ -26,6 +28,13 @@ public class ReleasedIdsTest {
     }
   }
 
+  @After
+  public void close() {
+    if (ids != null) {
+      ids.close();
+    }
+  }
+
   @Test
   @Ignore("manual test to check memory footprint")
   public void memory() throws InterruptedException {
@@ -65,6 +74,41 @@ public class ReleasedIdsTest {
     assertEquals(8, ids.size());
   }
 
+  @Test
+  public void columns() throws InterruptedException {
+    // spans several storage segments
+    init(150000);
+    assertEquals(150000, ids.size());
+    assertEquals(149999, ids.maxKey());
+    assertEquals(2, ids.getMaxAttempt());
+    assertEquals(50001, ids.maxAttemptIdCount());
+
+    ReleasedId r = ids.byId(123456);
+    assertEquals(123456, r.id);
+    assertEquals(456, r.nxId);
+    assertEquals(2, r.attempt);
+    assertEquals(MatchType.EXACT, r.matchType);
+    assertEquals(TaxonomicStatus.ACCEPTED, r.status);
+    assertEquals(Rank.SPECIES, r.rank);
+    assertEquals("L.", r.authorship);
+    assertEquals("1", r.parent);
+    assertNull(r.phrase);
+
+    // ordered as added
+    ReleasedId[] rids = ids.byNxId(456);
+    assertEquals(150, rids.length);
+    assertEquals(456, rids[0].id);
+    assertEquals(149456, rids[149].id);
+
+    ids.add(ids.byId(456));
+    assertEquals(150000, ids.size());
+    assertNotNull(ids.remove(456));
+    assertNull(ids.remove(456));
+    assertFalse(ids.hasId(456));
+    assertEquals(149, ids.byNxId(456).length);
+    assertEquals(1456, ids.byNxId(456)[0].id);
+  }
+
   ReleasedId gen(){
     int id = counter++;
     int nxId;
@@ -82,6 +126,9 @@ public class ReleasedIdsTest {
     sn.setNamesIndexMatchType(MatchType.EXACT);
     sn.setStatus(TaxonomicStatus.ACCEPTED);
     sn.setName("Abies");
+    sn.setRank(Rank.SPECIES);
+    sn.setAuthorship("L.");
+    sn.setParent("1");
     return new ReleasedId(id, counter < 100000 ? 1 : 2, sn);
   }
 }
\ No newline at end of file
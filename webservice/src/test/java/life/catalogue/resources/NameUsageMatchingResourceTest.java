@@ -0,0 +1,192 @@
+package life.catalogue.resources;
+
+import life.catalogue.WsServerConfig;
+import life.catalogue.api.exception.TooManyRequestsException;
+import life.catalogue.api.model.NameUsageBase;
+import life.catalogue.api.model.SimpleNameClassified;
+import life.catalogue.api.model.SimpleNameWithPub;
+import life.catalogue.api.vocab.MatchType;
+import life.catalogue.matching.UsageMatch;
+import life.catalogue.matching.UsageMatcherGlobal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the synchronous batch matching against a mocked matcher which matches every name to a usage with the same name.
+ */
+public class NameUsageMatchingResourceTest {
+  static final int DATASET_KEY = 3;
+  static final ObjectMapper MAPPER = new ObjectMapper();
+
+  WsServerConfig cfg;
+  UsageMatcherGlobal matcher;
+
+  @Before
+  public void init() {
+    cfg = new WsServerConfig();
+    cfg.matchingThreads = 4;
+    cfg.matchingBatchLimit = 1000;
+    cfg.matchingBatchConcurrency = 1;
+    matcher = mock(UsageMatcherGlobal.class);
+    when(matcher.match(anyInt(), any(NameUsageBase.class), anyList())).thenAnswer(inv -> {
+      NameUsageBase nu = inv.getArgument(1);
+      // finish names in random order
+      Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+      var sn = new SimpleNameClassified<SimpleNameWithPub>();
+      sn.setId(nu.getName().getScientificName());
+      sn.setName(nu.getName().getScientificName());
+      return UsageMatch.match(MatchType.EXACT, sn, DATASET_KEY);
+    });
+  }
+
+  private NameUsageMatchingResource resource() {
+    return new NameUsageMatchingResource(cfg, null, null, matcher);
+  }
+
+  /**
+   * @return a distinct, parsable species name for each index
+   */
+  private static String name(int idx) {
+    StringBuilder epithet = new StringBuilder();
+    do {
+      epithet.append((char) ('a' + idx % 26));
+      idx = idx / 26;
+    } while (idx > 0);
+    return "Abies " + epithet + "ia";
+  }
+
+  private static String json(int size) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) sb.append(",");
+      sb.append("{\"id\":\"").append(i).append("\",\"name\":\"").append(name(i)).append("\",\"rank\":\"species\"}");
+    }
+    return sb.append("]").toString();
+  }
+
+  private static InputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static JsonNode write(Response resp) throws IOException {
+    assertEquals(200, resp.getStatus());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((StreamingOutput) resp.getEntity()).write(out);
+    return MAPPER.readTree(out.toByteArray());
+  }
+
+  @Test
+  public void order() throws Exception {
+    final int size = 950;
+    JsonNode matches = write(resource().matchBatch(DATASET_KEY, stream(json(size))));
+    assertEquals(size, matches.size());
+    for (int i = 0; i < size; i++) {
+      JsonNode m = matches.get(i);
+      assertEquals(String.valueOf(i), m.get("original").get("id").asText());
+      assertEquals(name(i), m.get("usage").get("name").asText());
+      assertEquals("exact", m.get("type").asText());
+    }
+  }
+
+  @Test
+  public void sequential() throws Exception {
+    cfg.matchingThreads = 1;
+    JsonNode matches = write(resource().matchBatch(DATASET_KEY, stream(json(250))));
+    assertEquals(250, matches.size());
+    for (int i = 0; i < 250; i++) {
+      assertEquals(name(i), matches.get(i).get("usage").get("name").asText());
+    }
+  }
+
+  @Test
+  public void limit() throws Exception {
+    var res = resource();
+    // exactly at the limit is fine
+    assertEquals(cfg.matchingBatchLimit, write(res.matchBatch(DATASET_KEY, stream(json(cfg.matchingBatchLimit)))).size());
+    try {
+      res.matchBatch(DATASET_KEY, stream(json(cfg.matchingBatchLimit + 1)));
+      fail("Too many names should be rejected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains(String.valueOf(cfg.matchingBatchLimit)));
+    }
+    // the permit was released again
+    assertEquals(3, write(res.matchBatch(DATASET_KEY, stream(json(3)))).size());
+  }
+
+  /**
+   * The JSON array is read name by name, so too large requests are rejected before the remaining input is read.
+   */
+  @Test
+  public void streamedInput() throws Exception {
+    String names = json(cfg.matchingBatchLimit + 1);
+    // drop the closing bracket and append garbage which would fail if the entire input was parsed
+    InputStream in = new SequenceInputStream(stream(names.substring(0, names.length() - 1) + ","), stream("{this is no json"));
+    try {
+      resource().matchBatch(DATASET_KEY, in);
+      fail("Too many names should be rejected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("A maximum of"));
+    }
+
+    try {
+      resource().matchBatch(DATASET_KEY, stream("[{\"name\":\"Abies alba\"},{\"name\":"));
+      fail("Broken JSON should be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void concurrency() throws Exception {
+    cfg.matchingBatchConcurrency = 2;
+    var res = resource();
+    // permits are held until the response has been streamed
+    List<Response> responses = new ArrayList<>();
+    responses.add(res.matchBatch(DATASET_KEY, stream(json(10))));
+    responses.add(res.matchBatch(DATASET_KEY, stream(json(20))));
+    try {
+      res.matchBatch(DATASET_KEY, stream(json(5)));
+      fail("Only 2 concurrent batch requests allowed");
+    } catch (TooManyRequestsException e) {
+      // expected
+    }
+
+    assertEquals(10, write(responses.get(0)).size());
+    // one permit is free again
+    responses.add(res.matchBatch(DATASET_KEY, stream(json(5))));
+    try {
+      res.matchBatch(DATASET_KEY, stream(json(5)));
+      fail("Only 2 concurrent batch requests allowed");
+    } catch (TooManyRequestsException e) {
+      // expected
+    }
+    assertEquals(20, write(responses.get(1)).size());
+    assertEquals(5, write(responses.get(2)).size());
+
+    // rejected requests do not use up permits
+    assertEquals(1, write(res.matchBatch(DATASET_KEY, stream(json(1)))).size());
+    assertEquals(1, write(res.matchBatch(DATASET_KEY, stream(json(1)))).size());
+  }
+}
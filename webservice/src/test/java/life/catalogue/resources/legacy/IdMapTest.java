@@ -14,6 +14,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(Parameterized.class)
 public class IdMapTest {
@@ -66,6 +67,18 @@ public class IdMapTest {
     assertEquals("8K9W", map.lookup("4251802078a0d844bda6c62ae5a145aa"));
   }
 
+  @Test
+  public void restart() throws IOException {
+    // a volatile memory map without a source starts empty again
+    assumeTrue(dbFile != null || resource != null);
+    map.reload(Resources.stream("idmap-test.tsv"));
+    map.stop();
+    map.start();
+    assertEquals(10, map.size());
+    assertEquals("HEX", map.lookup("200f52638f6d098b26df65d3b26f0f09"));
+    assertNull(map.lookup("unknown"));
+  }
+
   @Test
   public void hasStarted() throws IOException {
     assertTrue(map.hasStarted());
@@ -0,0 +1,77 @@
+package life.catalogue.resources.legacy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SortedStringTableTest {
+
+  static SortedMap<String, String> entries() {
+    SortedMap<String, String> entries = new TreeMap<>();
+    entries.put("a", "1");
+    entries.put("ab", "");
+    entries.put("abc", "3");
+    entries.put("Zürich", "ZH");
+    entries.put("4251802078a0d844bda6c62ae5a145aa", "8K9W");
+    return entries;
+  }
+
+  static void assertTable(SortedStringTable t) {
+    assertEquals(5, t.size());
+    assertEquals("1", t.get("a"));
+    assertEquals("", t.get("ab"));
+    assertEquals("3", t.get("abc"));
+    assertEquals("ZH", t.get("Zürich"));
+    assertEquals("8K9W", t.get("4251802078a0d844bda6c62ae5a145aa"));
+    assertTrue(t.contains("ab"));
+    assertFalse(t.contains("abcd"));
+    assertFalse(t.contains(""));
+    assertFalse(t.contains("Zurich"));
+    assertNull(t.get("0"));
+    assertNull(t.get("zzz"));
+  }
+
+  @Test
+  public void build() throws IOException {
+    assertTable(SortedStringTable.build(entries()));
+
+    SortedStringTable empty = SortedStringTable.build(Collections.emptySortedMap());
+    assertEquals(0, empty.size());
+    assertNull(empty.get("a"));
+  }
+
+  @Test
+  public void write() throws IOException {
+    File file = File.createTempFile("sst", ".bin");
+    try {
+      SortedStringTable t = SortedStringTable.write(entries(), file);
+      assertTable(t);
+      assertTable(SortedStringTable.open(file));
+
+      // replaced files keep existing mappings intact
+      SortedStringTable.write(Collections.emptySortedMap(), file);
+      assertTable(t);
+      assertEquals(0, SortedStringTable.open(file).size());
+    } finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void openInvalid() throws IOException {
+    File file = File.createTempFile("sst", ".bin");
+    try {
+      FileUtils.writeStringToFile(file, "no table at all", "UTF8");
+      SortedStringTable.open(file);
+    } finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+}